@@ -153,6 +153,18 @@ public final class ConfigurationLoader {
                         "HDFSCleanerでクリーニング対象を保持する期間の設定が不正。設定値：" + keepDate);
             }
         }
+        // クリーニングを並列に行うスレッド数
+        String parallel = prop.getProperty(Constants.PROP_KEY_HDFS_FILE_CLEAN_PARALLEL);
+        if (isEmpty(parallel)) {
+            prop.setProperty(Constants.PROP_KEY_HDFS_FILE_CLEAN_PARALLEL, Constants.PROP_DEFAULT_HDFS_FILE_CLEAN_PARALLEL);
+        } else {
+            if (!isNumber(parallel, 1)) {
+                throw new CleanerSystemException(
+                        ConfigurationLoader.class,
+                        MessageIdConst.CMN_PROP_CHECK_ERROR,
+                        "HDFSCleanerでクリーニングを並列に行うスレッド数の設定が不正。設定値：" + parallel);
+            }
+        }
 
         // 必須チェック
         // HDFSのプロトコルとホスト名
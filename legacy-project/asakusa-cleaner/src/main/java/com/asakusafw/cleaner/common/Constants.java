@@ -69,6 +69,8 @@ public final class Constants {
     public static final String PROP_KEY_HDFS_FILE_CLEAN_PATTERN = "clean.hdfs-pattern";
     /** プロパティKEY HDFS上のクリーニング対象を保持する期間。 */
     public static final String PROP_KEY_HDFS_FILE_KEEP_DATE = "clean.hdfs-keep-date";
+    /** プロパティKEY HDFS上のクリーニングを並列に行うスレッド数。 */
+    public static final String PROP_KEY_HDFS_FILE_CLEAN_PARALLEL = "clean.hdfs-parallel";
 
     /**
      * プロパティのデフォルト値
@@ -79,6 +81,8 @@ public final class Constants {
     public static final String PROP_DEFAULT_LOCAL_FILE_KEEP_DATE = "14";
     /** プロパティデフォルト値 HDFS上のクリーニング対象を保持する期間。 */
     public static final String PROP_DEFAULT_HDFS_FILE_KEEP_DATE = "14";
+    /** プロパティデフォルト値 HDFS上のクリーニングを並列に行うスレッド数。 */
+    public static final String PROP_DEFAULT_HDFS_FILE_CLEAN_PARALLEL = "4";
 
     /**
      * パス・ファイル名の固定値
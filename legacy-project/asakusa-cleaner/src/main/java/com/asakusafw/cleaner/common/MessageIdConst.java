@@ -63,7 +63,7 @@ public final class MessageIdConst {
     /** [DEBUG] ファイルをクリーニングします。ディレクトリ：{0}。 */
     public static final String LCLN_FILE_DELETE = "CL-LOCALCLEAN-01012";
 
-    /** [DEBUG] ディレクトリ内をクリーニングしました。ディレクトリ：{0} ディレクトリ削除件数：{1} ファイル削除件数：{2}。 */
+    /** [DEBUG] ディレクトリ内をクリーニングしました。ディレクトリ：{0} ディレクトリ削除件数：{1} ファイル削除件数：{2} 削除サイズ(バイト)：{3}。 */
     public static final String LCLN_FILE_DELETE_SUCCESS = "CL-LOCALCLEAN-01013";
 
     /** [DEBUG] ディレクトリを削除しました。ディレクトリ：{0}。 */
@@ -124,7 +124,7 @@ public final class MessageIdConst {
     /** [DEBUG] ファイルをクリーニングします。ディレクトリ：{0}。 */
     public static final String HCLN_FILE_DELETE = "CL-HDFSCLEAN-01014";
 
-    /** [DEBUG] ディレクトリ内をクリーニングしました。ディレクトリ：{0} ディレクトリ削除件数：{1} ファイル削除件数：{2}。 */
+    /** [DEBUG] ディレクトリ内をクリーニングしました。ディレクトリ：{0} ディレクトリ削除件数：{1} ファイル削除件数：{2} 削除サイズ(バイト)：{3}。 */
     public static final String HCLN_FILE_DELETE_SUCCESS = "CL-HDFSCLEAN-01015";
 
     /** [DEBUG] ディレクトリを削除しました。ディレクトリ：{0}。 */
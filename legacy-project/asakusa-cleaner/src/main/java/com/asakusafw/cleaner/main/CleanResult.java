@@ -0,0 +1,97 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.cleaner.main;
+
+/**
+ * ディレクトリ単位のクリーニング結果。
+ * 件数とサイズは直下のファイル及びディレクトリのみを集計する。
+ */
+final class CleanResult {
+    /** 削除したファイルの件数。 */
+    private int fileCount;
+    /** 削除したディレクトリの件数。 */
+    private int dirCount;
+    /** 削除したファイルの合計サイズ(バイト)。 */
+    private long bytes;
+    /** 削除せずに残ったファイル及びディレクトリの件数。 */
+    private int remaining;
+    /** 全ての削除処理に成功したか。 */
+    private boolean succeeded = true;
+
+    /**
+     * ファイルの削除を記録する。
+     * @param size 削除したファイルのサイズ
+     */
+    void deletedFile(long size) {
+        fileCount++;
+        bytes += size;
+    }
+    /**
+     * ディレクトリの削除を記録する。
+     */
+    void deletedDir() {
+        dirCount++;
+    }
+    /**
+     * 削除しなかったファイル又はディレクトリを記録する。
+     */
+    void remained() {
+        remaining++;
+    }
+    /**
+     * 削除に失敗したファイル又はディレクトリを記録する。
+     */
+    void failed() {
+        remaining++;
+        succeeded = false;
+    }
+    /**
+     * ディレクトリの一覧取得など、ディレクトリ自体の処理失敗を記録する。
+     */
+    void aborted() {
+        succeeded = false;
+    }
+    /**
+     * @return 削除したファイルの件数
+     */
+    int getFileCount() {
+        return fileCount;
+    }
+    /**
+     * @return 削除したディレクトリの件数
+     */
+    int getDirCount() {
+        return dirCount;
+    }
+    /**
+     * @return 削除したファイルの合計サイズ(バイト)
+     */
+    long getBytes() {
+        return bytes;
+    }
+    /**
+     * @return ディレクトリが空になった場合:true、それ以外の場合:false
+     */
+    boolean isEmpty() {
+        return remaining == 0;
+    }
+    /**
+     * @return 全ての削除処理に成功した場合:true、それ以外の場合:false
+     */
+    boolean isSucceeded() {
+        return succeeded;
+    }
+}
@@ -20,7 +20,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -28,7 +29,6 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.Tool;
 
@@ -97,7 +97,6 @@ public class HDFSCleaner extends Configured implements Tool {
         String[] prop = new String[1];
         String mode = null;
         String user = null;
-        FileSystem fs = null;
 
         if (args.length > 0) {
             mode = args[0];
@@ -153,69 +152,12 @@ public class HDFSCleaner extends Configured implements Tool {
             // 保持期間を取得
             int keepDate = getHDFSFileKeepDate();
 
-            boolean cleanResult = true;
-            Date now = new Date();
-            for (int i = 0; i < bean.length; i++) {
-                try {
-                    // クリーニングを実行
-                    Path cleanDir = bean[i].getCleanDir();
-                    // ファイルシステムを取得
-                    try {
-                        Configuration conf = getConf();
-                        fs = cleanDir.getFileSystem(conf);
-                        if (fs == null) {
-                            Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR,
-                                    "Path.getFileSystemの戻り値がnull", cleanDir.toString());
-                            cleanResult = false;
-                            continue;
-                        }
-                    } catch (IOException e) {
-                        Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR,
-                                "HDFSのファイルシステムの取得に失敗", cleanDir.toString());
-                        cleanResult = false;
-                        continue;
-                    }
-
-                    boolean target = bean[i].hasExecutionId();
-                    String pattern = bean[i].getPattern();
-                    Log.log(
-                            CLASS,
-                            MessageIdConst.HCLN_CLEN_FILE,
-                            cleanDir.toString(),
-                            pattern,
-                            keepDate,
-                            mode,
-                            target,
-                            now);
-                    if (cleanDir(fs, cleanDir, target, pattern, keepDate, now, recursive)) {
-                        Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_SUCCESS, cleanDir.toString(), keepDate, mode);
-                    } else {
-                        Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_FAIL, cleanDir.toString(), keepDate, mode);
-                        cleanResult = false;
-                    }
-                } catch (CleanerSystemException e) {
-                    Log.log(e.getCause(), e.getClazz(), e.getMessageId(), e.getMessageArgs());
-                    cleanResult = false;
-                } finally {
-                    if (fs != null) {
-                        // CHECKSTYLE:OFF EmptyBlockCheck
-                        try {
-                            fs.close();
-                        } catch (IOException ignored) {
-                            // ignored
-                        }
-                        // CHECKSTYLE:ON EmptyBlockCheck
-                    }
-                }
-            }
-
-            // 正常終了
-            if (cleanResult) {
-                Log.log(CLASS, MessageIdConst.HCLN_EXIT_SUCCESS, new Date(), mode, prop[0]);
-                return Constants.EXIT_CODE_SUCCESS;
-            } else {
-                Log.log(CLASS, MessageIdConst.HCLN_EXIT_WARNING, new Date(), mode, prop[0]);
-                return Constants.EXIT_CODE_WARNING;
+            // サブディレクトリを並列にクリーニングするスレッドプールを作成
+            ForkJoinPool pool = new ForkJoinPool(getHDFSCleanParallel());
+            try {
+                return cleanAll(pool, bean, mode, prop[0], keepDate, recursive);
+            } finally {
+                pool.shutdownNow();
             }
         } catch (RuntimeException e) {
             try {
@@ -228,48 +170,199 @@ public class HDFSCleaner extends Configured implements Tool {
             }
         }
     }
+    /**
+     * 全てのクリーニング対象ディレクトリをクリーニングする。
+     * @param pool クリーニングを行うスレッドプール
+     * @param bean クリーニング対象ディレクトリ
+     * @param mode 動作モード
+     * @param propFile コンフィグレーションファイル
+     * @param keepDate 保持日数
+     * @param recursive 再帰的にクリーニングを行うか
+     * @return 終了ステータス
+     */
+    private int cleanAll(
+            ForkJoinPool pool,
+            DFSCleanerBean[] bean,
+            String mode,
+            String propFile,
+            int keepDate,
+            boolean recursive) {
+        FileSystem fs = null;
+        boolean cleanResult = true;
+        Date now = new Date();
+        for (int i = 0; i < bean.length; i++) {
+            try {
+                // クリーニングを実行
+                Path cleanDir = bean[i].getCleanDir();
+                // ファイルシステムを取得
+                try {
+                    Configuration conf = getConf();
+                    fs = cleanDir.getFileSystem(conf);
+                    if (fs == null) {
+                        Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR,
+                                "Path.getFileSystemの戻り値がnull", cleanDir.toString());
+                        cleanResult = false;
+                        continue;
+                    }
+                } catch (IOException e) {
+                    Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR,
+                            "HDFSのファイルシステムの取得に失敗", cleanDir.toString());
+                    cleanResult = false;
+                    continue;
+                }
+
+                boolean target = bean[i].hasExecutionId();
+                String pattern = bean[i].getPattern();
+                Pattern compiled = compilePattern(pattern);
+                Log.log(
+                        CLASS,
+                        MessageIdConst.HCLN_CLEN_FILE,
+                        cleanDir.toString(),
+                        pattern,
+                        keepDate,
+                        mode,
+                        target,
+                        now);
+                if (cleanDir(pool, fs, cleanDir, target, compiled, keepDate, now, recursive)) {
+                    Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_SUCCESS, cleanDir.toString(), keepDate, mode);
+                } else {
+                    Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_FAIL, cleanDir.toString(), keepDate, mode);
+                    cleanResult = false;
+                }
+            } catch (CleanerSystemException e) {
+                Log.log(e.getCause(), e.getClazz(), e.getMessageId(), e.getMessageArgs());
+                cleanResult = false;
+            } finally {
+                if (fs != null) {
+                    // CHECKSTYLE:OFF EmptyBlockCheck
+                    try {
+                        fs.close();
+                    } catch (IOException ignored) {
+                        // ignored
+                    }
+                    // CHECKSTYLE:ON EmptyBlockCheck
+                }
+            }
+        }
+
+        // 正常終了
+        if (cleanResult) {
+            Log.log(CLASS, MessageIdConst.HCLN_EXIT_SUCCESS, new Date(), mode, propFile);
+            return Constants.EXIT_CODE_SUCCESS;
+        } else {
+            Log.log(CLASS, MessageIdConst.HCLN_EXIT_WARNING, new Date(), mode, propFile);
+            return Constants.EXIT_CODE_WARNING;
+        }
+    }
     /**
      * クリーニング対象ディレクトリをクリーニングする。
+     * @param pool クリーニングを行うスレッドプール
      * @param fs HDFSを表すファイルシステム
      * @param cleanPath HDFS上のクリーニング対象ディレクトリのパス
      * @param isSetExecutionId ジョブフロー実行IDが指定されているかどうか
-     * @param pattern クリーニングパターン
+     * @param pattern クリーニングパターン、全てのファイルを対象とする場合はnull
      * @param keepDate 保持日数
      * @param now 現在日時
      * @param recursive 再帰的にクリーニングを行うか
      * @return クリーニング結果
-     * @throws CleanerSystemException
      */
     private boolean cleanDir(
+            ForkJoinPool pool,
             FileSystem fs,
             Path cleanPath,
             boolean isSetExecutionId,
-            String pattern,
+            Pattern pattern,
             int keepDate,
             Date now,
-            boolean recursive) throws CleanerSystemException {
+            boolean recursive) {
         try {
-            if (!fs.exists(cleanPath)) {
+            FileStatus status;
+            try {
+                status = fs.getFileStatus(cleanPath);
+            } catch (FileNotFoundException e) {
                 // 指定されたディレクトリが存在しない
                 Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR, "指定されたディレクトリが存在しない", cleanPath.toString());
                 return false;
             }
-            if (!fs.getFileStatus(cleanPath).isDir()) {
+            if (!status.isDir()) {
                 // 指定されたパスがディレクトリでない
                 Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_ERROR, "指定されたパスがディレクトリでない", cleanPath.toString());
                 return false;
             }
+        } catch (IOException e) {
+            Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_DIR_EXCEPTION, cleanPath.getName());
+            return false;
+        }
 
-            // クリーニングを行う
+        // サブディレクトリはスレッドプール上で並列にクリーニングを行う
+        CleanTask task = new CleanTask(fs, cleanPath, isSetExecutionId, pattern, keepDate, now, recursive);
+        return pool.invoke(task).isSucceeded();
+    }
+    /**
+     * ディレクトリ単位のクリーニング処理。
+     * 一覧取得時のファイル情報をそのまま利用し、サブディレクトリは子タスクとして並列に処理する。
+     */
+    private final class CleanTask extends RecursiveTask<CleanResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileSystem fs;
+
+        private final Path cleanPath;
+
+        private final boolean isSetExecutionId;
+
+        private final Pattern pattern;
+
+        private final int keepDate;
+
+        private final Date now;
+
+        private final boolean recursive;
+
+        /**
+         * インスタンスを生成する。
+         * @param fs HDFSを表すファイルシステム
+         * @param cleanPath クリーニング対象ディレクトリのパス
+         * @param isSetExecutionId ジョブフロー実行IDが指定されているかどうか
+         * @param pattern クリーニングパターン、全てのファイルを対象とする場合はnull
+         * @param keepDate 保持日数
+         * @param now 現在日時
+         * @param recursive 再帰的にクリーニングを行うか
+         */
+        CleanTask(
+                FileSystem fs,
+                Path cleanPath,
+                boolean isSetExecutionId,
+                Pattern pattern,
+                int keepDate,
+                Date now,
+                boolean recursive) {
+            this.fs = fs;
+            this.cleanPath = cleanPath;
+            this.isSetExecutionId = isSetExecutionId;
+            this.pattern = pattern;
+            this.keepDate = keepDate;
+            this.now = now;
+            this.recursive = recursive;
+        }
+
+        @Override
+        protected CleanResult compute() {
+            CleanResult result = new CleanResult();
             Log.log(CLASS, MessageIdConst.HCLN_FILE_DELETE, cleanPath.toString());
-            int cleanFileCount = 0;
-            int cleanDirCount = 0;
-            boolean result = true;
-            FileStatus[] dirStatus = getListStatus(fs, cleanPath);
-            Path[] listedPaths = FileUtil.stat2Paths(dirStatus);
-            for (Path path : listedPaths) {
-                FileStatus status = fs.getFileStatus(path);
-                long lastModifiedTime = status.getModificationTime();
+            FileStatus[] dirStatus;
+            try {
+                dirStatus = getListStatus(fs, cleanPath);
+            } catch (IOException e) {
+                Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_DIR_EXCEPTION, cleanPath.getName());
+                result.aborted();
+                return result;
+            }
+            List<FileStatus> children = new ArrayList<FileStatus>();
+            List<CleanTask> subtasks = new ArrayList<CleanTask>();
+            for (FileStatus status : dirStatus) {
+                Path path = status.getPath();
                 if (status.isDir() && recursive) {
                     // ディレクトリかつ、再帰的に処理を行う場合
                     if (isSetExecutionId) {
@@ -278,69 +371,80 @@ public class HDFSCleaner extends Configured implements Tool {
                         if (isRunningJobFlow(executionId)) {
                             // 実行中のジョブフローの為、クリーニング対象としない。
                             Log.log(CLASS, MessageIdConst.HCLN_CLEN_DIR_EXEC, path.toString());
+                            result.remained();
                             continue;
                         }
                     }
-                    FileStatus[] childdirStatus = getListStatus(fs, path);
-                    if (childdirStatus.length == 0) {
-                        // 子ファイルが存在しない場合、ディレクトリを削除
-                        if (isExpired(lastModifiedTime, keepDate, now)) {
-                            if (!fs.delete(path, false)) {
-                                Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, "ディレクトリ", path.toString());
-                                result = false;
-                            } else {
-                                cleanDirCount++;
-                                Log.log(CLASS, MessageIdConst.HCLN_DIR_DELETE, path.toString());
-                            }
-                        }
-                    } else {
-                        // 子ファイルが存在する場合、再帰的にクリーニング処理を行う。
-                        if (cleanDir(fs, path, false, pattern, keepDate, now, recursive)) {
-                            // 子ファイルが全て削除された場合はディレクトリを削除する
-                            childdirStatus = getListStatus(fs, path);
-                            if (childdirStatus.length == 0) {
-                                if (isExpired(lastModifiedTime, keepDate, now)) {
-                                    if (!fs.delete(path, false)) {
-                                        Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, "ディレクトリ", path.toString());
-                                        result = false;
-                                    } else {
-                                        cleanDirCount++;
-                                        Log.log(CLASS, MessageIdConst.HCLN_DIR_DELETE, path.toString());
-                                    }
-                                }
-                            }
-                        } else {
-                            Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, "ディレクトリ", path.toString());
-                            result = false;
-                        }
-                    }
+                    CleanTask subtask = new CleanTask(fs, path, false, pattern, keepDate, now, recursive);
+                    subtask.fork();
+                    children.add(status);
+                    subtasks.add(subtask);
                 } else if (!status.isDir()) {
-                    // ファイルの場合、保持期間を過ぎていれば削除する
-                    if (isExpired(lastModifiedTime, keepDate, now) && isMatchPattern(path, pattern)) {
-                        if (!fs.delete(path, false)) {
-                            Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, "ファイル", path.toString());
-                            result = false;
-                        } else {
+                    // ファイルの場合、保持期間を過ぎていて、パターンにマッチすれば削除する
+                    if (isExpired(status.getModificationTime(), keepDate, now) && isMatchPattern(path, pattern)) {
+                        if (delete(path, "ファイル")) {
                             Log.log(CLASS, MessageIdConst.HCLN_DELETE_FILE, path.toString());
-                            cleanFileCount++;
+                            result.deletedFile(status.getLen());
+                        } else {
+                            result.failed();
                         }
+                    } else {
+                        result.remained();
                     }
+                } else {
+                    result.remained();
                 }
             }
-
-            Log.log(
-                    CLASS,
-                    MessageIdConst.HCLN_FILE_DELETE_SUCCESS,
-                    cleanPath.toString(),
-                    cleanDirCount,
-                    cleanFileCount);
-
+            for (int i = 0; i < subtasks.size(); i++) {
+                FileStatus status = children.get(i);
+                Path path = status.getPath();
+                CleanResult child = subtasks.get(i).join();
+                if (!child.isSucceeded()) {
+                    Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, "ディレクトリ", path.toString());
+                    result.failed();
+                } else if (child.isEmpty() && isExpired(status.getModificationTime(), keepDate, now)) {
+                    // 子ファイルが全て削除された場合はディレクトリを削除する
+                    if (delete(path, "ディレクトリ")) {
+                        Log.log(CLASS, MessageIdConst.HCLN_DIR_DELETE, path.toString());
+                        result.deletedDir();
+                    } else {
+                        result.failed();
+                    }
+                } else {
+                    result.remained();
+                }
+            }
+            cleaned(cleanPath, result);
             return result;
-        } catch (IOException e) {
-            Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_DIR_EXCEPTION, cleanPath.getName());
+        }
+
+        private boolean delete(Path path, String kind) {
+            try {
+                if (fs.delete(path, false)) {
+                    return true;
+                }
+                Log.log(CLASS, MessageIdConst.HCLN_CLEN_FAIL, kind, path.toString());
+            } catch (IOException e) {
+                Log.log(e, CLASS, MessageIdConst.HCLN_CLEN_FAIL, kind, path.toString());
+            }
             return false;
         }
     }
+    /**
+     * ディレクトリのクリーニング結果を出力する。
+     * サブディレクトリのクリーニングと並列に呼び出される。
+     * @param dir クリーニングを行ったディレクトリ
+     * @param result 直下のファイル及びディレクトリのクリーニング結果
+     */
+    void cleaned(Path dir, CleanResult result) {
+        Log.log(
+                CLASS,
+                MessageIdConst.HCLN_FILE_DELETE_SUCCESS,
+                dir.toString(),
+                result.getDirCount(),
+                result.getFileCount(),
+                result.getBytes());
+    }
     /**
      * 子ファイルを取得する。
      * @param fs ファイルシステム
@@ -360,25 +464,33 @@ public class HDFSCleaner extends Configured implements Tool {
         }
         return status;
     }
+    /**
+     * 削除対象ファイルパターンをコンパイルする。
+     * @param pattern 削除対象ファイルパターン
+     * @return コンパイル済みのパターン、全てのファイルを対象とする場合はnull
+     * @throws CleanerSystemException パターンが不正な場合
+     */
+    private Pattern compilePattern(String pattern) throws CleanerSystemException {
+        if (pattern == null || pattern.equals("")) {
+            return null;
+        }
+        try {
+            return Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new CleanerSystemException(e, this.getClass(), MessageIdConst.HCLN_PATTERN_FAIL, pattern);
+        }
+    }
     /**
      * 削除対象のファイルがパターンにマッチするか判断する。
      * @param path 削除対象ファイル
-     * @param pattern 削除対象ファイルパターン
+     * @param pattern 削除対象ファイルパターン、全てのファイルを対象とする場合はnull
      * @return 削除可否
-     * @throws CleanerSystemException
      */
-    private boolean isMatchPattern(Path path, String pattern) throws CleanerSystemException {
-        if (pattern == null || pattern.equals("")) {
+    private boolean isMatchPattern(Path path, Pattern pattern) {
+        if (pattern == null) {
             return true;
-        } else {
-            String strFile = path.toString();
-            try {
-                Matcher m = Pattern.compile(pattern).matcher(strFile);
-                return m.matches();
-            } catch (PatternSyntaxException e) {
-                throw new CleanerSystemException(e, this.getClass(), MessageIdConst.HCLN_PATTERN_FAIL, pattern);
-            }
         }
+        return pattern.matcher(path.toString()).matches();
     }
     /**
      * 保持日付を判断し、ファイルが削除可能か判断する。
@@ -408,6 +520,13 @@ public class HDFSCleaner extends Configured implements Tool {
     private int getHDFSFileKeepDate() {
         return Integer.parseInt(ConfigurationLoader.getProperty(Constants.PROP_KEY_HDFS_FILE_KEEP_DATE));
     }
+    /**
+     * プロパティからクリーニングを並列に行うスレッド数を取得する。
+     * @return クリーニングを並列に行うスレッド数
+     */
+    private int getHDFSCleanParallel() {
+        return Integer.parseInt(ConfigurationLoader.getProperty(Constants.PROP_KEY_HDFS_FILE_CLEAN_PARALLEL));
+    }
     /**
      * プロパティからクリーニング対象パスを取得し、
      * HDFS上のディレクトリパスをフルパスにして返す。
@@ -16,10 +16,17 @@
 package com.asakusafw.cleaner.main;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -116,6 +123,7 @@ public class LocalFileCleaner {
             Date now = new Date();
             for (int i = 0; i < bean.length; i++) {
                 try {
+                    Pattern pattern = compilePattern(bean[i].getPattern());
                     Log.log(
                             CLASS,
                             MessageIdConst.LCLN_CLEN_FILE,
@@ -124,7 +132,7 @@ public class LocalFileCleaner {
                             keepDate,
                             mode,
                             now);
-                    if (cleanDir(bean[i].getCleanDir(), bean[i].getPattern(), keepDate, now, recursive)) {
+                    if (cleanDir(bean[i].getCleanDir(), pattern, keepDate, now, recursive)) {
                         Log.log(
                                 CLASS,
                                 MessageIdConst.LCLN_CLEN_DIR_SUCCESS,
@@ -169,19 +177,18 @@ public class LocalFileCleaner {
     /**
      * クリーニング対象ディレクトリをクリーニングする。
      * @param creanDir クリーニング対象ディレクトリ
-     * @param pattern クリーニングパターン
+     * @param pattern クリーニングパターン、全てのファイルを対象とする場合はnull
      * @param keepDate 保持日数
      * @param now 現在日時
      * @param recursive 再帰的にクリーニングを行うか
-     * @throws CleanerSystemException
      * @return クリーニング結果
      */
     private boolean cleanDir(
             File creanDir,
-            String pattern,
+            Pattern pattern,
             int keepDate,
             Date now,
-            boolean recursive) throws CleanerSystemException {
+            boolean recursive) {
         if (creanDir == null || !creanDir.exists()) {
             // 指定されたディレクトリが存在しない
             Log.log(CLASS, MessageIdConst.LCLN_CLEN_DIR_ERROR, "指定されたディレクトリが存在しない", creanDir);
@@ -193,103 +200,224 @@ public class LocalFileCleaner {
             return false;
         }
 
-        // クリーニングを行う
-        Log.log(CLASS, MessageIdConst.LCLN_FILE_DELETE, creanDir.getAbsolutePath());
-        int cleanFileCount = 0;
-        int cleanDirCount = 0;
-        boolean result = true;
-        File[] files = getListFiles(creanDir);
-        for (int i = 0; i < files.length; i++) {
-            // 最終更新日時を取得
-            long lastModifiedTime = files[i].lastModified();
-
-            if (files[i].isDirectory() && recursive) {
-                // ディレクトリかつ、再帰的に処理を行う場合
-                File[] childFiles = getListFiles(files[i]);
-                if (childFiles.length == 0) {
-                    // 子ファイルが存在しない場合、ディレクトリを削除
-                    if (isExpired(lastModifiedTime, keepDate, now)) {
-                        if (!files[i].delete()) {
-                            Log.log(CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", files[i].getAbsolutePath());
-                            result = false;
-                        } else {
-                            cleanDirCount++;
-                            Log.log(CLASS, MessageIdConst.LCLN_DIR_DELETE, files[i].getAbsolutePath());
-                        }
-                    }
-                } else {
-                    // 子ファイルが存在する場合、再帰的にクリーニング処理を行う。
-                    if (cleanDir(files[i], pattern, keepDate, now, recursive)) {
-                        // 子ファイルが全て削除された場合はディレクトリを削除する
-                        childFiles = getListFiles(files[i]);
-                        if (childFiles.length == 0) {
-                            if (isExpired(lastModifiedTime, keepDate, now)) {
-                                if (!files[i].delete()) {
-                                    Log.log(CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", files[i].getAbsolutePath());
-                                    result = false;
-                                } else {
-                                    cleanDirCount++;
-                                    Log.log(CLASS, MessageIdConst.LCLN_DIR_DELETE, files[i].getAbsolutePath());
-                                }
-                            }
-                        }
-                    } else {
-                        Log.log(CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", files[i].getAbsolutePath());
-                        result = false;
-                    }
+        // クリーニング対象ディレクトリ自体がシンボリックリンクの場合はリンク先を走査する
+        // (配下のシンボリックリンクは辿らない)
+        Path root = creanDir.toPath();
+        Path start;
+        try {
+            start = root.toRealPath();
+        } catch (IOException e) {
+            Log.log(e, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", creanDir.getAbsolutePath());
+            return false;
+        }
+
+        // 走査時のファイル属性をそのまま利用してクリーニングを行う
+        CleanVisitor visitor = new CleanVisitor(root, start, pattern, keepDate, now, recursive);
+        try {
+            Files.walkFileTree(start, visitor);
+        } catch (IOException e) {
+            Log.log(e, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", creanDir.getAbsolutePath());
+            return false;
+        }
+        return visitor.isSucceeded();
+    }
+    /**
+     * ディレクトリツリーを一度だけ走査してクリーニングを行う。
+     * サブディレクトリは配下のクリーニングが完了した後に、空になっていれば削除する。
+     */
+    private final class CleanVisitor extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+
+        private final Path start;
+
+        private final Pattern pattern;
+
+        private final int keepDate;
+
+        private final Date now;
+
+        private final boolean recursive;
+
+        private final Deque<Frame> frames = new ArrayDeque<Frame>();
+
+        private boolean succeeded = true;
+
+        /**
+         * インスタンスを生成する。
+         * @param root クリーニング対象ディレクトリ
+         * @param start 走査を開始する実際のディレクトリ
+         * @param pattern クリーニングパターン、全てのファイルを対象とする場合はnull
+         * @param keepDate 保持日数
+         * @param now 現在日時
+         * @param recursive 再帰的にクリーニングを行うか
+         */
+        CleanVisitor(Path root, Path start, Pattern pattern, int keepDate, Date now, boolean recursive) {
+            this.root = root;
+            this.start = start;
+            this.pattern = pattern;
+            this.keepDate = keepDate;
+            this.now = now;
+            this.recursive = recursive;
+        }
+
+        /**
+         * @return クリーニング結果
+         */
+        boolean isSucceeded() {
+            return succeeded;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!frames.isEmpty() && !recursive) {
+                // 再帰的に処理を行わない場合はサブディレクトリを対象としない
+                frames.peek().result.remained();
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            Log.log(CLASS, MessageIdConst.LCLN_FILE_DELETE, getAbsolutePath(dir));
+            // ディレクトリの最終更新日時は配下を削除する前に取得する
+            frames.push(new Frame(attrs.lastModifiedTime().toMillis()));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            String path = getAbsolutePath(file);
+            if (frames.isEmpty()) {
+                // 走査の開始位置がディレクトリでない
+                Log.log(CLASS, MessageIdConst.LCLN_CLEN_DIR_ERROR, "指定されたパスがディレクトリでない", path);
+                succeeded = false;
+                return FileVisitResult.CONTINUE;
+            }
+            // ファイルの場合、保持期間を過ぎていて、パターンにマッチすれば削除する
+            CleanResult result = frames.peek().result;
+            if (isExpired(attrs.lastModifiedTime().toMillis(), keepDate, now) && isMatchPattern(path, pattern)) {
+                try {
+                    Files.delete(file);
+                    Log.log(CLASS, MessageIdConst.LCLN_DELETE_FILE, path);
+                    result.deletedFile(attrs.size());
+                } catch (IOException e) {
+                    Log.log(e, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ファイル", path);
+                    result.failed();
                 }
-            } else if (files[i].isFile()) {
-                // ファイルの場合、保持期間を過ぎていて、パターンにマッチすれば削除する
-                if (isExpired(lastModifiedTime, keepDate, now) && isMatchPattern(files[i], pattern)) {
-                    if (!files[i].delete()) {
-                        Log.log(CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ファイル", files[i].getAbsolutePath());
-                        result = false;
-                    } else {
-                        Log.log(CLASS, MessageIdConst.LCLN_DELETE_FILE, files[i].getAbsolutePath());
-                        cleanFileCount++;
-                    }
+            } else {
+                result.remained();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            Log.log(exc, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ファイル", getAbsolutePath(file));
+            if (frames.isEmpty()) {
+                succeeded = false;
+            } else {
+                frames.peek().result.failed();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            Frame frame = frames.pop();
+            CleanResult result = frame.result;
+            String path = getAbsolutePath(dir);
+            if (exc != null) {
+                Log.log(exc, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", path);
+                result.aborted();
+            }
+            cleaned(path, result);
+            if (frames.isEmpty()) {
+                // クリーニング対象ディレクトリ自体は削除しない
+                assert dir.equals(start);
+                succeeded &= result.isSucceeded();
+                return FileVisitResult.CONTINUE;
+            }
+            CleanResult parent = frames.peek().result;
+            if (!result.isSucceeded()) {
+                Log.log(CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", path);
+                parent.failed();
+            } else if (result.isEmpty() && isExpired(frame.lastModifiedTime, keepDate, now)) {
+                // 子ファイルが全て削除された場合はディレクトリを削除する
+                try {
+                    Files.delete(dir);
+                    Log.log(CLASS, MessageIdConst.LCLN_DIR_DELETE, path);
+                    parent.deletedDir();
+                } catch (IOException e) {
+                    Log.log(e, CLASS, MessageIdConst.LCLN_CLEN_FAIL, "ディレクトリ", path);
+                    parent.failed();
                 }
+            } else {
+                parent.remained();
             }
+            return FileVisitResult.CONTINUE;
         }
+
+        /**
+         * 設定されたクリーニング対象ディレクトリを基準とした絶対パスの文字列表現を返す。
+         * ログの出力とパターンの判定には、リンク先ではなく設定されたパスを利用する。
+         * @param path 走査中のパス
+         * @return 絶対パス
+         */
+        private String getAbsolutePath(Path path) {
+            return root.resolve(start.relativize(path)).toAbsolutePath().toString();
+        }
+    }
+    /**
+     * ディレクトリのクリーニング結果を出力する。
+     * @param dir クリーニングを行ったディレクトリの絶対パス
+     * @param result 直下のファイル及びディレクトリのクリーニング結果
+     */
+    void cleaned(String dir, CleanResult result) {
         Log.log(
                 CLASS,
                 MessageIdConst.LCLN_FILE_DELETE_SUCCESS,
-                creanDir.getAbsolutePath(),
-                cleanDirCount,
-                cleanFileCount);
-        return result;
+                dir,
+                result.getDirCount(),
+                result.getFileCount(),
+                result.getBytes());
     }
     /**
-     * 子ファイルを取得する。
-     * @param dir 親ディレクトリ
-     * @return 子ファイル
+     * 走査中のディレクトリ。
      */
-    private File[] getListFiles(File dir) {
-        File[] child = dir.listFiles();
-        if (child == null) {
-            child = new File[0];
+    private static final class Frame {
+
+        final long lastModifiedTime;
+
+        final CleanResult result = new CleanResult();
+
+        Frame(long lastModifiedTime) {
+            this.lastModifiedTime = lastModifiedTime;
         }
-        return child;
     }
     /**
-     * 削除対象のファイルがパターンにマッチするか判断する。
-     * @param file 削除対象ファイル
+     * 削除対象ファイルパターンをコンパイルする。
      * @param pattern 削除対象ファイルパターン
-     * @throws CleanerSystemException
-     * @return 削除可否
+     * @return コンパイル済みのパターン、全てのファイルを対象とする場合はnull
+     * @throws CleanerSystemException パターンが不正な場合
      */
-    private boolean isMatchPattern(File file, String pattern) throws CleanerSystemException {
+    private Pattern compilePattern(String pattern) throws CleanerSystemException {
         if (pattern == null || pattern.equals("")) {
+            return null;
+        }
+        try {
+            return Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new CleanerSystemException(e, this.getClass(), MessageIdConst.LCLN_PATTERN_FAIL, pattern);
+        }
+    }
+    /**
+     * 削除対象のファイルがパターンにマッチするか判断する。
+     * @param path 削除対象ファイルの絶対パス
+     * @param pattern 削除対象ファイルパターン、全てのファイルを対象とする場合はnull
+     * @return 削除可否
+     */
+    private boolean isMatchPattern(String path, Pattern pattern) {
+        if (pattern == null) {
             return true;
-        } else {
-            String strFile = file.getAbsolutePath();
-            try {
-                Matcher m = Pattern.compile(pattern).matcher(strFile);
-                return m.matches();
-            } catch (PatternSyntaxException e) {
-                throw new CleanerSystemException(e, this.getClass(), MessageIdConst.LCLN_PATTERN_FAIL, pattern);
-            }
         }
+        return pattern.matcher(path).matches();
     }
     /**
      * 保持日付を判断し、ファイルが削除可能か判断する。
@@ -24,9 +24,15 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.junit.After;
@@ -54,6 +60,9 @@ public class HDFSCleanerTest {
     private static final String propFile4 = "clean-hdfs-conf4.properties";
     private static final String propFile5 = "clean-hdfs-conf5.properties";
     private static final String propFile6 = "clean-hdfs-conf6.properties";
+    private static final String propFile7 = "clean-hdfs-conf7.properties";
+    private static final String propFile8 = "clean-hdfs-conf8.properties";
+    private static final String propFile9 = "clean-hdfs-conf9.properties";
 
     // ディレクトリ１
     private static final File cleanDir01 = new File("target/asakusa-cleaner/HDFSCleaner01");
@@ -731,6 +740,170 @@ public class HDFSCleanerTest {
         cleanDir(cleanDir01);
     }
 
+    /**
+     *
+     * <p>
+     * executeメソッドのテストケース
+     *
+     * 正常系：単一のスレッドでクリーニングを行うケース
+     * 　　　　・動作モード：recursive
+     * 　　　　・コンフィグレーションファイル
+     * 　　　　　- 保持期間：0
+     * 　　　　　- クリーニング対象：単一指定
+     * 　　　　　- 並列数：1
+     * 　　　　・ディレクトリ毎の削除件数と削除サイズを検証する
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeTest15() throws Exception {
+        // ディレクトリ構成を作成
+        createCleanDir01();
+        FileUtils.writeStringToFile(readmeFile, "hello");
+        FileUtils.writeStringToFile(file11_3, "1234567");
+        FileUtils.writeStringToFile(fileData1, "0123456789");
+        FileUtils.writeStringToFile(fileData2, "abc");
+
+        // 処理の実行
+        String[] args = new String[]{"recursive", "asakusa-cleaner", propFile7};
+        StubHDFSCleaner cleaner = new StubHDFSCleaner();
+        int result = cleaner.execute(args);
+
+        // 実行結果の検証
+        assertEquals(0, result);
+        assertEquals(Collections.singleton(1), cleaner.getParallelism());
+
+        // 結果を検証
+        assertTrue(cleanDir01.exists());
+        assertFalse(tempDir.exists());
+        assertFalse(logDir.exists());
+        assertFalse(confFile.exists());
+        assertFalse(readmeFile.exists());
+
+        // 削除件数と削除サイズを検証
+        Map<String, CleanResult> results = cleaner.getResults();
+        assertEquals(6, results.size());
+        assertResult(results.get("HDFSCleaner01"), 2, 2, 5L);
+        assertResult(results.get("temp"), 2, 1, 7L);
+        assertResult(results.get("log"), 0, 0, 0L);
+        assertResult(results.get("11_1"), 0, 0, 0L);
+        assertResult(results.get("11_2"), 1, 2, 13L);
+        assertResult(results.get("data3"), 0, 0, 0L);
+
+        // ディレクトリを削除
+        cleanDir(cleanDir01);
+    }
+    /**
+     *
+     * <p>
+     * executeメソッドのテストケース
+     *
+     * 正常系：複数のスレッドでサブディレクトリを並列にクリーニングするケース
+     * 　　　　・動作モード：recursive
+     * 　　　　・コンフィグレーションファイル
+     * 　　　　　- 保持期間：0
+     * 　　　　　- クリーニング対象：単一指定
+     * 　　　　　- 並列数：8
+     * 　　　　・ディレクトリ毎の削除件数と削除サイズを検証する
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeTest16() throws Exception {
+        // ディレクトリ構成を作成
+        createCleanDir01();
+        int count = 20;
+        for (int i = 0; i < count; i++) {
+            File dir = new File(tempDir, "p" + i);
+            dir.mkdir();
+            FileUtils.writeStringToFile(new File(dir, "data.txt"), StringUtils.repeat("x", i));
+            new File(dir, "s" + i).mkdir();
+        }
+
+        // 処理の実行
+        String[] args = new String[]{"recursive", "asakusa-cleaner", propFile8};
+        StubHDFSCleaner cleaner = new StubHDFSCleaner();
+        int result = cleaner.execute(args);
+
+        // 実行結果の検証
+        assertEquals(0, result);
+        assertEquals(Collections.singleton(8), cleaner.getParallelism());
+
+        // 結果を検証
+        assertTrue(cleanDir01.exists());
+        assertFalse(tempDir.exists());
+        assertFalse(logDir.exists());
+
+        // 削除件数と削除サイズを検証
+        Map<String, CleanResult> results = cleaner.getResults();
+        assertEquals(6 + count * 2, results.size());
+        assertResult(results.get("HDFSCleaner01"), 2, 2, 0L);
+        assertResult(results.get("temp"), 2 + count, 1, 0L);
+        for (int i = 0; i < count; i++) {
+            assertResult(results.get("p" + i), 1, 1, i);
+        }
+
+        // ディレクトリを削除
+        cleanDir(cleanDir01);
+    }
+    /**
+     *
+     * <p>
+     * executeメソッドのテストケース
+     *
+     * 異常系：並列数の指定が不正なケース
+     * 　　　　・動作モード：recursive
+     * 　　　　・コンフィグレーションファイル
+     * 　　　　　- 並列数：0
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeTest17() throws Exception {
+        // ディレクトリ構成を作成
+        createCleanDir01();
+
+        // 処理の実行
+        String[] args = new String[]{"recursive", "asakusa-cleaner", propFile9};
+        StubHDFSCleaner cleaner = new StubHDFSCleaner();
+        int result = cleaner.execute(args);
+
+        // 実行結果の検証
+        assertEquals(1, result);
+        assertTrue(cleaner.getResults().isEmpty());
+
+        // 結果を検証
+        assertTrue(tempDir.exists());
+        assertTrue(logDir.exists());
+        assertTrue(confFile.exists());
+        assertTrue(fileData1.exists());
+
+        // ディレクトリを削除
+        cleanDir(cleanDir01);
+    }
+
+    /**
+     * ディレクトリのクリーニング結果を検証する
+     * @param result クリーニング結果
+     * @param dirCount 削除したディレクトリの件数
+     * @param fileCount 削除したファイルの件数
+     * @param bytes 削除したファイルの合計サイズ
+     */
+    private void assertResult(CleanResult result, int dirCount, int fileCount, long bytes) {
+        assertNotNull(result);
+        assertTrue(result.isSucceeded());
+        assertTrue(result.isEmpty());
+        assertEquals(dirCount, result.getDirCount());
+        assertEquals(fileCount, result.getFileCount());
+        assertEquals(bytes, result.getBytes());
+    }
+
     /**
      * クリーニング対象ディレクトリ1を作成する
      * @throws IOException
@@ -803,6 +976,8 @@ class StubHDFSCleaner extends HDFSCleaner {
         this.exec = exec;
     }
     ArrayList<String> instanceId = new ArrayList<String>();
+    Map<String, CleanResult> results = new ConcurrentHashMap<String, CleanResult>();
+    Set<Integer> parallelism = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
     /**
      * @see com.asakusafw.cleaner.main.HDFSCleaner#createPath(java.lang.String)
      */
@@ -820,6 +995,16 @@ class StubHDFSCleaner extends HDFSCleaner {
         instanceId.add(executionId);
         return exec;
     }
+    /**
+     * @see com.asakusafw.cleaner.main.HDFSCleaner#cleaned(org.apache.hadoop.fs.Path, com.asakusafw.cleaner.main.CleanResult)
+     */
+    @Override
+    void cleaned(Path dir, CleanResult result) {
+        super.cleaned(dir, result);
+        results.put(dir.getName(), result);
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        parallelism.add(pool == null ? 0 : pool.getParallelism());
+    }
     /**
      * @return instanceId
      */
@@ -827,4 +1012,16 @@ class StubHDFSCleaner extends HDFSCleaner {
         Collections.sort(instanceId);
         return instanceId;
     }
-}
\ No newline at end of file
+    /**
+     * @return ディレクトリ名毎のクリーニング結果
+     */
+    public Map<String, CleanResult> getResults() {
+        return results;
+    }
+    /**
+     * @return クリーニングを行ったスレッドプールの並列数
+     */
+    public Set<Integer> getParallelism() {
+        return parallelism;
+    }
+}
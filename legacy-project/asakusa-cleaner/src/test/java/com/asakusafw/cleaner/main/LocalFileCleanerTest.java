@@ -20,7 +20,11 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.io.FileUtils;
@@ -49,6 +53,7 @@ public class LocalFileCleanerTest {
     private static final String propFile3 = "clean-localfs-conf3.properties";
     private static final String propFile4 = "clean-localfs-conf4.properties";
     private static final String propFile5 = "clean-localfs-conf5.properties";
+    private static final String propFile6 = "clean-localfs-conf6.properties";
     // ディレクトリ１
     private static final File cleanDir01 = new File("target/asakusa-cleaner/LocalFileCleaner01");
     // 第1階層
@@ -71,6 +76,9 @@ public class LocalFileCleanerTest {
     private File fileImportData1 = null;
     private File fileImportData2 = null;
 
+    // クリーニング対象ディレクトリ1へのシンボリックリンク
+    private static final File cleanDirLink = new File("target/asakusa-cleaner/LocalFileCleanerLink");
+
     @BeforeClass
     public static void setUpBeforeClass() throws Exception {
         UnitTestUtil.setUpBeforeClass();
@@ -635,6 +643,146 @@ public class LocalFileCleanerTest {
         cleanDir(cleanDir01);
     }
 
+    /**
+     *
+     * <p>
+     * executeメソッドのテストケース
+     *
+     * 正常系：ディレクトリ毎の削除件数と削除サイズを検証するケース
+     * 　　　　・動作モード：recursive
+     * 　　　　・コンフィグレーションファイル
+     * 　　　　　- 保持期間：0
+     * 　　　　　- クリーニング対象：単一指定
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeTest13() throws Exception {
+        // ディレクトリ構成を作成
+        createCleanDir01();
+        FileUtils.writeStringToFile(readmeFile, "hello");
+        FileUtils.writeStringToFile(file11_3, "1234567");
+        FileUtils.writeStringToFile(fileData1, "0123456789");
+        FileUtils.writeStringToFile(fileData2, "abc");
+
+        // 処理の実行
+        String[] args = new String[]{"recursive", propFile};
+        StubLocalFileCleaner cleaner = new StubLocalFileCleaner();
+        int result = cleaner.execute(args);
+
+        // 実行結果の検証
+        assertEquals(0, result);
+
+        // 結果を検証
+        assertTrue(cleanDir01.exists());
+        assertFalse(tempDir.exists());
+        assertFalse(logDir.exists());
+        assertFalse(confFile.exists());
+        assertFalse(readmeFile.exists());
+
+        // 削除件数と削除サイズを検証
+        Map<String, CleanResult> results = cleaner.getResults();
+        assertEquals(6, results.size());
+        assertResult(results.get("LocalFileCleaner01"), 2, 2, 5L);
+        assertResult(results.get("temp"), 2, 1, 7L);
+        assertResult(results.get("log"), 0, 0, 0L);
+        assertResult(results.get("11_1"), 0, 0, 0L);
+        assertResult(results.get("11_2"), 1, 2, 13L);
+        assertResult(results.get("data3"), 0, 0, 0L);
+
+        // ディレクトリを削除
+        cleanDir(cleanDir01);
+    }
+    /**
+     *
+     * <p>
+     * executeメソッドのテストケース
+     *
+     * 正常系：クリーニング対象ディレクトリがシンボリックリンクのケース
+     * 　　　　・動作モード：recursive
+     * 　　　　・コンフィグレーションファイル
+     * 　　　　　- 保持期間：0
+     * 　　　　　- パターン：.*LocalFileCleanerLink.*\.txt
+     * 　　　　　- クリーニング対象：単一指定
+     * 　　　　・配下のシンボリックリンクはリンク先を辿らない
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeTest14() throws Exception {
+        // ディレクトリ構成を作成
+        createCleanDir01();
+        createCleanDir02();
+        File fileOutside = new File(cleanDir02, "outside.txt");
+        fileOutside.createNewFile();
+        Files.deleteIfExists(cleanDirLink.toPath());
+        Files.createSymbolicLink(cleanDirLink.toPath(), cleanDir01.getAbsoluteFile().toPath());
+        File innerLink = new File(cleanDir01, "link.txt");
+        Files.createSymbolicLink(innerLink.toPath(), cleanDir02.getAbsoluteFile().toPath());
+
+        // 処理の実行
+        String[] args = new String[]{"recursive", propFile6};
+        StubLocalFileCleaner cleaner = new StubLocalFileCleaner();
+        int result = cleaner.execute(args);
+
+        // 実行結果の検証
+        assertEquals(0, result);
+
+        // 結果を検証
+        // 第0階層
+        assertTrue(Files.isSymbolicLink(cleanDirLink.toPath()));
+        assertTrue(cleanDir01.exists());
+        // 第1階層
+        assertTrue(tempDir.exists());
+        assertFalse(logDir.exists());
+        assertTrue(confFile.exists());
+        assertFalse(readmeFile.exists());
+        assertFalse(Files.exists(innerLink.toPath(), LinkOption.NOFOLLOW_LINKS));
+        // 第2階層(tempDir配下)
+        assertFalse(dir11_1.exists());
+        assertFalse(dir11_2.exists());
+        assertTrue(file11_3.exists());
+        // 第3階層(dir11_2配下)
+        assertFalse(fileData1.exists());
+        assertFalse(fileData2.exists());
+        assertFalse(dirData3.exists());
+        // リンク先のディレクトリ
+        assertTrue(fileImportData1.exists());
+        assertTrue(fileImportData2.exists());
+        assertTrue(fileOutside.exists());
+
+        // ログには設定されたパスを出力する
+        Map<String, CleanResult> results = cleaner.getResults();
+        assertTrue(results.containsKey("LocalFileCleanerLink"));
+        assertFalse(results.containsKey("LocalFileCleaner01"));
+        assertEquals(2, results.get("LocalFileCleanerLink").getFileCount());
+
+        // ディレクトリを削除
+        Files.delete(cleanDirLink.toPath());
+        cleanDir(cleanDir01);
+        cleanDir(cleanDir02);
+    }
+
+    /**
+     * ディレクトリのクリーニング結果を検証する
+     * @param result クリーニング結果
+     * @param dirCount 削除したディレクトリの件数
+     * @param fileCount 削除したファイルの件数
+     * @param bytes 削除したファイルの合計サイズ
+     */
+    private void assertResult(CleanResult result, int dirCount, int fileCount, long bytes) {
+        assertNotNull(result);
+        assertTrue(result.isSucceeded());
+        assertTrue(result.isEmpty());
+        assertEquals(dirCount, result.getDirCount());
+        assertEquals(fileCount, result.getFileCount());
+        assertEquals(bytes, result.getBytes());
+    }
+
     /**
      * クリーニング対象ディレクトリ1を作成する
      *
@@ -715,3 +863,20 @@ public class LocalFileCleanerTest {
         cleandir.delete();
     }
 }
+class StubLocalFileCleaner extends LocalFileCleaner {
+    Map<String, CleanResult> results = new HashMap<String, CleanResult>();
+    /**
+     * @see com.asakusafw.cleaner.main.LocalFileCleaner#cleaned(java.lang.String, com.asakusafw.cleaner.main.CleanResult)
+     */
+    @Override
+    void cleaned(String dir, CleanResult result) {
+        super.cleaned(dir, result);
+        results.put(new File(dir).getName(), result);
+    }
+    /**
+     * @return ディレクトリ名毎のクリーニング結果
+     */
+    public Map<String, CleanResult> getResults() {
+        return results;
+    }
+}
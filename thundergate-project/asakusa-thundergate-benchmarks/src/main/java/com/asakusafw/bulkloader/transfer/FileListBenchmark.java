@@ -0,0 +1,152 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asakusafw.bulkloader.common.FileCompType;
+import com.asakusafw.thundergate.benchmark.SyntheticData;
+
+/**
+ * Benchmarks {@link FileList.Writer} and {@link FileList.Reader} round-trips.
+ * <p>
+ * Native codecs ({@code LZ4} and {@code SNAPPY}) are not enabled by default,
+ * please specify them explicitly (e.g. {@code -p compType=STORED,DEFLATED,LZ4}) if they are available.
+ * </p>
+ * @since 0.10.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileListBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The compression type.
+     */
+    @Param({ "STORED", "DEFLATED" })
+    public String compType;
+
+    /**
+     * The compression level, or {@code -1} to use the default level.
+     */
+    @Param({ "-1" })
+    public int level;
+
+    /**
+     * The content kind: {@code text} or {@code binary}.
+     */
+    @Param({ "text", "binary" })
+    public String content;
+
+    /**
+     * The number of entries.
+     */
+    @Param({ "4" })
+    public int entries;
+
+    /**
+     * The size of each entry in bytes.
+     */
+    @Param({ "4194304" })
+    public int entrySize;
+
+    private byte[][] contents;
+
+    private byte[] written;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+    /**
+     * Prepares the contents.
+     * @throws IOException if failed
+     */
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData data = new SyntheticData(entrySize);
+        contents = new byte[entries][];
+        for (int i = 0; i < entries; i++) {
+            contents[i] = content.equals("binary") ? data.binary(entrySize) : data.text(entrySize);
+        }
+        write();
+        written = sink.toByteArray();
+    }
+
+    /**
+     * Writes a file list.
+     * @return the number of written bytes
+     * @throws IOException if failed
+     */
+    @Benchmark
+    public long write() throws IOException {
+        sink.reset();
+        try (FileList.Writer writer = FileList.createWriter(sink, FileCompType.valueOf(compType), level)) {
+            for (int i = 0; i < contents.length; i++) {
+                try (OutputStream output = writer.openNext(FileList.content(String.valueOf(i)))) {
+                    output.write(contents[i]);
+                }
+            }
+        }
+        return sink.size();
+    }
+
+    /**
+     * Reads a file list.
+     * @return the number of read bytes
+     * @throws IOException if failed
+     */
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (FileList.Reader reader = FileList.createReader(new ByteArrayInputStream(written))) {
+            while (reader.next()) {
+                try (InputStream input = reader.openContent()) {
+                    while (true) {
+                        int read = input.read(buffer);
+                        if (read < 0) {
+                            break;
+                        }
+                        total += read;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asakusafw.thundergate.benchmark.SyntheticData;
+
+/**
+ * Benchmarks {@link FileListUtil#dropPreamble(InputStream, int)}.
+ * @since 0.10.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileListUtilBenchmark {
+
+    /**
+     * The number of garbage bytes (e.g. login messages) before the preamble.
+     */
+    @Param({ "0", "1024", "65536" })
+    public int garbage;
+
+    private byte[] bytes;
+
+    /**
+     * Prepares the stream contents.
+     * @throws IOException if failed
+     */
+    @Setup
+    public void setup() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(new SyntheticData(garbage).text(garbage));
+        FileListUtil.putPreamble(output);
+        output.write(new byte[1024]);
+        bytes = output.toByteArray();
+    }
+
+    /**
+     * Drops bytes before the preamble.
+     * @return the dropped bytes
+     * @throws IOException if failed
+     */
+    @Benchmark
+    public byte[] dropPreamble() throws IOException {
+        return FileListUtil.dropPreamble(new ByteArrayInputStream(bytes), FileList.PREAMBLE_MARGIN);
+    }
+}
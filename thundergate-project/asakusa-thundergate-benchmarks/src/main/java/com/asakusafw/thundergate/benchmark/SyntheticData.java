@@ -0,0 +1,159 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.asakusafw.runtime.value.DateTime;
+import com.asakusafw.thundergate.benchmark.model.CacheRecord;
+import com.asakusafw.thundergate.benchmark.model.NarrowRecord;
+import com.asakusafw.thundergate.benchmark.model.WideRecord;
+
+/**
+ * Generates synthetic data for benchmarks, without any databases or clusters.
+ * The generated data is deterministic for the same seed.
+ * @since 0.10.4
+ */
+public class SyntheticData {
+
+    private static final String[] WORDS = {
+            "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+            "india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa",
+            "東京", "大阪", "名古屋", "札幌",
+    };
+
+    private final Random random;
+
+    /**
+     * Creates a new instance.
+     * @param seed the random seed
+     */
+    public SyntheticData(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Returns a text-like byte sequence, which is moderately compressible.
+     * @param size the number of bytes
+     * @return the generated bytes
+     */
+    public byte[] text(int size) {
+        StringBuilder buf = new StringBuilder(size);
+        while (buf.length() < size) {
+            buf.append(word());
+            buf.append(random.nextInt(10) == 0 ? '\n' : '\t');
+            if (random.nextInt(4) == 0) {
+                buf.append(random.nextInt(1000000));
+                buf.append('\t');
+            }
+        }
+        byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Returns a random byte sequence, which is not compressible.
+     * @param size the number of bytes
+     * @return the generated bytes
+     */
+    public byte[] binary(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Fills the narrow record.
+     * @param record the target record
+     * @param systemId the system ID
+     * @return the record
+     */
+    public NarrowRecord fill(NarrowRecord record, long systemId) {
+        record.sid.modify(systemId);
+        record.code.modify(word());
+        record.amount.modify(random.nextInt(100000));
+        record.updated.modify(dateTime());
+        return record;
+    }
+
+    /**
+     * Fills the wide record.
+     * @param record the target record
+     * @param systemId the system ID
+     * @return the record
+     */
+    public WideRecord fill(WideRecord record, long systemId) {
+        record.sid.modify(systemId);
+        for (int i = 0; i < record.strings.length; i++) {
+            record.strings[i].modify(word() + " " + word());
+        }
+        for (int i = 0; i < record.longs.length; i++) {
+            record.longs[i].modify(random.nextLong());
+        }
+        for (int i = 0; i < record.decimals.length; i++) {
+            record.decimals[i].modify(BigDecimal.valueOf(random.nextInt(100000000), 2));
+        }
+        for (int i = 0; i < record.dateTimes.length; i++) {
+            record.dateTimes[i].modify(dateTime());
+        }
+        return record;
+    }
+
+    /**
+     * Fills the cache record.
+     * @param record the target record
+     * @param systemId the system ID
+     * @param deleted whether the record is logically deleted or not
+     * @return the record
+     */
+    public CacheRecord fill(CacheRecord record, long systemId, boolean deleted) {
+        record.systemId.set(systemId);
+        record.value.set(word());
+        record.timestamp.set(dateTime().getElapsedSeconds());
+        record.deleted.set(deleted);
+        return record;
+    }
+
+    /**
+     * Returns a random integer.
+     * @param bound the upper bound (exclusive)
+     * @return the random integer
+     */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Returns a random long integer.
+     * @param bound the upper bound (exclusive)
+     * @return the random long integer
+     */
+    public long nextLong(long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private DateTime dateTime() {
+        return new DateTime(2000 + random.nextInt(20), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(60));
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.io.tsv.TsvIoFactory;
+import com.asakusafw.thundergate.benchmark.model.NarrowRecord;
+import com.asakusafw.thundergate.benchmark.model.WideRecord;
+
+/**
+ * Benchmarks TSV parsing and emitting through {@link TsvIoFactory}.
+ * The score is the number of records per second.
+ * @since 0.10.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TsvBenchmark {
+
+    static final int RECORDS = 10000;
+
+    /**
+     * The data model shape: {@code narrow} or {@code wide}.
+     */
+    @Param({ "narrow", "wide" })
+    public String shape;
+
+    private Workload<?> workload;
+
+    /**
+     * Prepares the records and their TSV representation.
+     * @throws IOException if failed
+     */
+    @Setup
+    public void setup() throws IOException {
+        switch (shape) {
+        case "narrow":
+            workload = new Workload<NarrowRecord>(NarrowRecord.class) {
+                @Override
+                void fill(SyntheticData data, NarrowRecord record, long systemId) {
+                    data.fill(record, systemId);
+                }
+            };
+            break;
+        case "wide":
+            workload = new Workload<WideRecord>(WideRecord.class) {
+                @Override
+                void fill(SyntheticData data, WideRecord record, long systemId) {
+                    data.fill(record, systemId);
+                }
+            };
+            break;
+        default:
+            throw new IllegalArgumentException(shape);
+        }
+        workload.prepare();
+    }
+
+    /**
+     * Parses TSV records.
+     * @return the number of parsed records
+     * @throws IOException if failed
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long parse() throws IOException {
+        return workload.parse();
+    }
+
+    /**
+     * Emits TSV records.
+     * @return the number of emitted bytes
+     * @throws IOException if failed
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long emit() throws IOException {
+        return workload.emit();
+    }
+
+    private abstract static class Workload<T> {
+
+        private final TsvIoFactory<T> factory;
+
+        private final Object[] records = new Object[RECORDS];
+
+        private final T buffer;
+
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        private byte[] bytes;
+
+        Workload(Class<T> modelClass) {
+            this.factory = new TsvIoFactory<>(modelClass);
+            this.buffer = factory.createModelObject();
+        }
+
+        abstract void fill(SyntheticData data, T record, long systemId);
+
+        void prepare() throws IOException {
+            SyntheticData data = new SyntheticData(RECORDS);
+            for (int i = 0; i < RECORDS; i++) {
+                T record = factory.createModelObject();
+                fill(data, record, i);
+                records[i] = record;
+            }
+            emit();
+            bytes = sink.toByteArray();
+        }
+
+        long parse() throws IOException {
+            long count = 0;
+            try (ModelInput<T> input = factory.createModelInput(new ByteArrayInputStream(bytes))) {
+                while (input.readTo(buffer)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @SuppressWarnings("unchecked")
+        long emit() throws IOException {
+            sink.reset();
+            try (ModelOutput<T> output = factory.createModelOutput(sink)) {
+                for (Object record : records) {
+                    output.write((T) record);
+                }
+            }
+            return sink.size();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.io;
+
+import java.io.IOException;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.RecordParser;
+import com.asakusafw.thundergate.benchmark.model.NarrowRecord;
+
+/**
+ * Reads {@link NarrowRecord} from records.
+ * @since 0.10.4
+ */
+public final class NarrowRecordModelInput implements ModelInput<NarrowRecord> {
+
+    private final RecordParser parser;
+
+    /**
+     * Creates a new instance.
+     * @param parser the record parser
+     */
+    public NarrowRecordModelInput(RecordParser parser) {
+        if (parser == null) {
+            throw new IllegalArgumentException("parser must not be null"); //$NON-NLS-1$
+        }
+        this.parser = parser;
+    }
+
+    @Override
+    public boolean readTo(NarrowRecord model) throws IOException {
+        if (parser.next() == false) {
+            return false;
+        }
+        parser.fill(model.sid);
+        parser.fill(model.code);
+        parser.fill(model.amount);
+        parser.fill(model.updated);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.io;
+
+import java.io.IOException;
+
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.io.RecordEmitter;
+import com.asakusafw.thundergate.benchmark.model.NarrowRecord;
+
+/**
+ * Writes {@link NarrowRecord} as records.
+ * @since 0.10.4
+ */
+public final class NarrowRecordModelOutput implements ModelOutput<NarrowRecord> {
+
+    private final RecordEmitter emitter;
+
+    /**
+     * Creates a new instance.
+     * @param emitter the record emitter
+     */
+    public NarrowRecordModelOutput(RecordEmitter emitter) {
+        if (emitter == null) {
+            throw new IllegalArgumentException("emitter must not be null"); //$NON-NLS-1$
+        }
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void write(NarrowRecord model) throws IOException {
+        emitter.emit(model.sid);
+        emitter.emit(model.code);
+        emitter.emit(model.amount);
+        emitter.emit(model.updated);
+        emitter.endRecord();
+    }
+
+    @Override
+    public void close() throws IOException {
+        emitter.close();
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.io;
+
+import java.io.IOException;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.RecordParser;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.thundergate.benchmark.model.WideRecord;
+
+/**
+ * Reads {@link WideRecord} from records.
+ * @since 0.10.4
+ */
+public final class WideRecordModelInput implements ModelInput<WideRecord> {
+
+    private final RecordParser parser;
+
+    /**
+     * Creates a new instance.
+     * @param parser the record parser
+     */
+    public WideRecordModelInput(RecordParser parser) {
+        if (parser == null) {
+            throw new IllegalArgumentException("parser must not be null"); //$NON-NLS-1$
+        }
+        this.parser = parser;
+    }
+
+    @Override
+    public boolean readTo(WideRecord model) throws IOException {
+        if (parser.next() == false) {
+            return false;
+        }
+        parser.fill(model.sid);
+        for (StringOption option : model.strings) {
+            parser.fill(option);
+        }
+        for (LongOption option : model.longs) {
+            parser.fill(option);
+        }
+        for (DecimalOption option : model.decimals) {
+            parser.fill(option);
+        }
+        for (DateTimeOption option : model.dateTimes) {
+            parser.fill(option);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.io;
+
+import java.io.IOException;
+
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.io.RecordEmitter;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.thundergate.benchmark.model.WideRecord;
+
+/**
+ * Writes {@link WideRecord} as records.
+ * @since 0.10.4
+ */
+public final class WideRecordModelOutput implements ModelOutput<WideRecord> {
+
+    private final RecordEmitter emitter;
+
+    /**
+     * Creates a new instance.
+     * @param emitter the record emitter
+     */
+    public WideRecordModelOutput(RecordEmitter emitter) {
+        if (emitter == null) {
+            throw new IllegalArgumentException("emitter must not be null"); //$NON-NLS-1$
+        }
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void write(WideRecord model) throws IOException {
+        emitter.emit(model.sid);
+        for (StringOption option : model.strings) {
+            emitter.emit(option);
+        }
+        for (LongOption option : model.longs) {
+            emitter.emit(option);
+        }
+        for (DecimalOption option : model.decimals) {
+            emitter.emit(option);
+        }
+        for (DateTimeOption option : model.dateTimes) {
+            emitter.emit(option);
+        }
+        emitter.endRecord();
+    }
+
+    @Override
+    public void close() throws IOException {
+        emitter.close();
+    }
+}
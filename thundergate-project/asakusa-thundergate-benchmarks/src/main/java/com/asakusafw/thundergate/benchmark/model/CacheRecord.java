@@ -0,0 +1,96 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VLongWritable;
+import org.apache.hadoop.io.Writable;
+
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
+
+/**
+ * A data model for ThunderGate caches.
+ * @since 0.10.4
+ */
+public class CacheRecord implements Writable, ThunderGateCacheSupport {
+
+    /**
+     * The system ID.
+     */
+    public final VLongWritable systemId = new VLongWritable();
+
+    /**
+     * The content.
+     */
+    public final Text value = new Text();
+
+    /**
+     * The last modified timestamp (in elapsed seconds).
+     */
+    public final LongWritable timestamp = new LongWritable();
+
+    /**
+     * The logical deleted flag.
+     */
+    public final BooleanWritable deleted = new BooleanWritable();
+
+    @Override
+    public long __tgc__DataModelVersion() {
+        return 1L;
+    }
+
+    @Override
+    public String __tgc__TimestampColumn() {
+        return "UPDT_DATE";
+    }
+
+    @Override
+    public long __tgc__SystemId() {
+        return systemId.get();
+    }
+
+    @Override
+    public long __tgc__Timestamp() {
+        return timestamp.get();
+    }
+
+    @Override
+    public boolean __tgc__Deleted() {
+        return deleted.get();
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        systemId.write(out);
+        value.write(out);
+        timestamp.write(out);
+        deleted.write(out);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        systemId.readFields(in);
+        value.readFields(in);
+        timestamp.readFields(in);
+        deleted.readFields(in);
+    }
+}
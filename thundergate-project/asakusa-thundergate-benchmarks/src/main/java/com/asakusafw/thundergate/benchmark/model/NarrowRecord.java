@@ -0,0 +1,54 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.model;
+
+import com.asakusafw.runtime.model.ModelInputLocation;
+import com.asakusafw.runtime.model.ModelOutputLocation;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.thundergate.benchmark.io.NarrowRecordModelInput;
+import com.asakusafw.thundergate.benchmark.io.NarrowRecordModelOutput;
+
+/**
+ * A data model which has only a few columns.
+ * @since 0.10.4
+ */
+@ModelInputLocation(NarrowRecordModelInput.class)
+@ModelOutputLocation(NarrowRecordModelOutput.class)
+public class NarrowRecord {
+
+    /**
+     * The system ID.
+     */
+    public final LongOption sid = new LongOption();
+
+    /**
+     * The code.
+     */
+    public final StringOption code = new StringOption();
+
+    /**
+     * The amount.
+     */
+    public final IntOption amount = new IntOption();
+
+    /**
+     * The last updated date-time.
+     */
+    public final DateTimeOption updated = new DateTimeOption();
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.benchmark.model;
+
+import com.asakusafw.runtime.model.ModelInputLocation;
+import com.asakusafw.runtime.model.ModelOutputLocation;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.thundergate.benchmark.io.WideRecordModelInput;
+import com.asakusafw.thundergate.benchmark.io.WideRecordModelOutput;
+
+/**
+ * A data model which has many columns.
+ * @since 0.10.4
+ */
+@ModelInputLocation(WideRecordModelInput.class)
+@ModelOutputLocation(WideRecordModelOutput.class)
+public class WideRecord {
+
+    private static final int COLUMNS_PER_TYPE = 10;
+
+    /**
+     * The system ID.
+     */
+    public final LongOption sid = new LongOption();
+
+    /**
+     * The string columns.
+     */
+    public final StringOption[] strings = new StringOption[COLUMNS_PER_TYPE];
+
+    /**
+     * The long columns.
+     */
+    public final LongOption[] longs = new LongOption[COLUMNS_PER_TYPE];
+
+    /**
+     * The decimal columns.
+     */
+    public final DecimalOption[] decimals = new DecimalOption[COLUMNS_PER_TYPE];
+
+    /**
+     * The date-time columns.
+     */
+    public final DateTimeOption[] dateTimes = new DateTimeOption[COLUMNS_PER_TYPE];
+
+    /**
+     * Creates a new instance.
+     */
+    public WideRecord() {
+        for (int i = 0; i < COLUMNS_PER_TYPE; i++) {
+            strings[i] = new StringOption();
+            longs[i] = new LongOption();
+            decimals[i] = new DecimalOption();
+            dateTimes[i] = new DateTimeOption();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.ReduceContext;
+import org.apache.hadoop.mapreduce.lib.reduce.WrappedReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asakusafw.thundergate.benchmark.SyntheticData;
+import com.asakusafw.thundergate.benchmark.model.CacheRecord;
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
+
+/**
+ * Benchmarks {@link MergeJoinReducer} throughput.
+ * The reducer runs with an in-memory context, so that this only measures the reducer itself.
+ * @since 0.10.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeJoinReducerBenchmark {
+
+    static final int GROUPS = 10000;
+
+    /**
+     * The ratio of groups which have a patch record (in percent).
+     */
+    @Param({ "1", "50" })
+    public int patchPercent;
+
+    /**
+     * The ratio of patch records which are logically deleted (in percent).
+     */
+    @Param({ "10" })
+    public int deletePercent;
+
+    private final MergeJoinReducer reducer = new MergeJoinReducer();
+
+    private final PatchApplyKey[] keys = new PatchApplyKey[GROUPS];
+
+    private final List<List<ThunderGateCacheSupport>> groups = new ArrayList<>();
+
+    private final long[] written = new long[1];
+
+    private MergeJoinReducer.Context context;
+
+    /**
+     * Prepares the groups.
+     * @throws IOException if failed
+     * @throws InterruptedException if interrupted
+     */
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        SyntheticData data = new SyntheticData(GROUPS);
+        groups.clear();
+        for (int i = 0; i < GROUPS; i++) {
+            CacheRecord base = data.fill(new CacheRecord(), i, false);
+            PatchApplyKey key = new PatchApplyKey();
+            if (data.nextInt(100) < patchPercent) {
+                CacheRecord patch = data.fill(new CacheRecord(), i, data.nextInt(100) < deletePercent);
+                key.setPatch(patch);
+                groups.add(Arrays.<ThunderGateCacheSupport>asList(patch, base));
+            } else {
+                key.setBase(base);
+                groups.add(Arrays.<ThunderGateCacheSupport>asList(base));
+            }
+            keys[i] = key;
+        }
+        context = new WrappedReducer<PatchApplyKey, ThunderGateCacheSupport, NullWritable, ThunderGateCacheSupport>()
+                .getReducerContext(createReduceContext(written));
+    }
+
+    /**
+     * Reduces all groups.
+     * @return the number of written records
+     * @throws IOException if failed
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    @OperationsPerInvocation(GROUPS)
+    public long reduce() throws IOException, InterruptedException {
+        written[0] = 0;
+        for (int i = 0; i < GROUPS; i++) {
+            reducer.reduce(keys[i], groups.get(i), context);
+        }
+        return written[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReduceContext<PatchApplyKey, ThunderGateCacheSupport, NullWritable, ThunderGateCacheSupport>
+    createReduceContext(long[] counter) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("write")) { //$NON-NLS-1$
+                    counter[0]++;
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        };
+        return (ReduceContext<PatchApplyKey, ThunderGateCacheSupport, NullWritable, ThunderGateCacheSupport>)
+                Proxy.newProxyInstance(
+                        MergeJoinReducerBenchmark.class.getClassLoader(),
+                        new Class<?>[] { ReduceContext.class },
+                        handler);
+    }
+}
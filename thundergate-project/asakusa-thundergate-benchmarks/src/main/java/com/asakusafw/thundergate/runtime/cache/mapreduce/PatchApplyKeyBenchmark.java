@@ -0,0 +1,108 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asakusafw.thundergate.benchmark.SyntheticData;
+import com.asakusafw.thundergate.benchmark.model.CacheRecord;
+
+/**
+ * Benchmarks raw comparisons of {@link PatchApplyKey.SortComparator}.
+ * @since 0.10.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PatchApplyKeyBenchmark {
+
+    static final int KEYS = 4096;
+
+    /**
+     * The maximum system ID, which affects the serialized key size.
+     */
+    @Param({ "1000", "1000000000000" })
+    public long maxSystemId;
+
+    private final PatchApplyKey.SortComparator comparator = new PatchApplyKey.SortComparator();
+
+    private byte[] bytes;
+
+    private int[] offsets;
+
+    private int[] lengths;
+
+    /**
+     * Prepares serialized keys.
+     * @throws IOException if failed
+     */
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData data = new SyntheticData(KEYS);
+        CacheRecord record = new CacheRecord();
+        PatchApplyKey key = new PatchApplyKey();
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        offsets = new int[KEYS];
+        lengths = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            long systemId = data.nextLong(maxSystemId);
+            data.fill(record, systemId, false);
+            if (data.nextInt(2) == 0) {
+                key.setBase(record);
+            } else {
+                key.setPatch(record);
+            }
+            offsets[i] = buffer.getLength();
+            key.write(buffer);
+            lengths[i] = buffer.getLength() - offsets[i];
+        }
+        bytes = buffer.getData();
+    }
+
+    /**
+     * Compares adjacent serialized keys.
+     * @return the summary of comparison results
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS - 1)
+    public int compare() {
+        int result = 0;
+        for (int i = 1; i < KEYS; i++) {
+            result += comparator.compare(
+                    bytes, offsets[i - 1], lengths[i - 1],
+                    bytes, offsets[i], lengths[i]);
+        }
+        return result;
+    }
+}
@@ -84,6 +84,7 @@ public final class Constants {
         set.add("RUNNING_JOBFLOWS");
         set.add("IMPORT_TABLE_LOCK");
         set.add("IMPORT_RECORD_LOCK");
+        set.add("IMPORT_RECORD_LOCK_RANGE");
         set.add("EXPORT_TEMP_TABLE");
         set.add("JOBFLOW_INSTANCE_LOCK");
         set.add("__TG_CACHE_INFO");
@@ -310,7 +310,8 @@ public class BulkLoaderIoProcessor extends ExternalIoDescriptionProcessor {
             String name = normalize(input.getName());
             return getEnvironment()
                 .getPrologueLocation(MODULE_NAME)
-                .append(name);
+                .append(name)
+                .append(TemporaryOutputFormat.DEFAULT_FILE_NAME);
         }
     }
 
@@ -319,7 +320,8 @@ public class BulkLoaderIoProcessor extends ExternalIoDescriptionProcessor {
         if (isCacheEnabled(input)) {
             return getImporterDestination(input).append(CACHE_HEAD_CONTENTS);
         } else {
-            return getImporterDestination(input);
+            // the extractor may split the contents into "part-0", "part-1", ...
+            return getImporterDestination(input).asPrefix();
         }
     }
 
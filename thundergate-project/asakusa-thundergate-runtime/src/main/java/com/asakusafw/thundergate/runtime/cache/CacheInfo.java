@@ -30,6 +30,7 @@ import java.util.TreeSet;
 /**
  * Cache information.
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class CacheInfo {
 
@@ -37,8 +38,17 @@ public class CacheInfo {
 
     /**
      * The version of this cache feature.
+     * In this version, the cache HEAD may be range-partitioned and sorted by their system IDs
+     * (see {@link #KEY_PARTITION_BOUNDARIES}).
      */
-    public static final String FEATURE_VERSION = "0.2.0";
+    public static final String FEATURE_VERSION = "0.3.0";
+
+    /**
+     * The previous version of this cache feature, whose HEAD is never sorted.
+     * Caches in this version are migrated to the current version when they are updated.
+     * @since 0.10.4
+     */
+    public static final String FEATURE_VERSION_UNSORTED = "0.2.0";
 
     /**
      * The key name of feature version.
@@ -76,6 +86,20 @@ public class CacheInfo {
      */
     public static final String KEY_MODEL_CLASS_VERSION = "model-version";
 
+    /**
+     * The key name of partition boundaries of the sorted cache HEAD (each system ID is splitted by comma).
+     * This is only available in the cache HEAD, and the HEAD is not sorted if this key is absent.
+     * @since 0.10.4
+     */
+    public static final String KEY_PARTITION_BOUNDARIES = "partition-boundaries";
+
+    /**
+     * The key name of the number of records in the cache patch.
+     * This is only available in the cache patch, and the number of records is unknown if this key is absent.
+     * @since 0.10.4
+     */
+    public static final String KEY_PATCH_RECORD_COUNT = "patch-record-count";
+
     /**
      * The format of timestamp value ({@link #KEY_TIMESTAMP}).
      */
@@ -150,6 +174,16 @@ public class CacheInfo {
         return featureVersion;
     }
 
+    /**
+     * Returns whether the target cache feature version can be handled in this version.
+     * @param featureVersion the target feature version
+     * @return {@code true} if it is compatible, otherwise {@code false}
+     * @since 0.10.4
+     */
+    public static boolean isCompatibleFeatureVersion(String featureVersion) {
+        return FEATURE_VERSION.equals(featureVersion) || FEATURE_VERSION_UNSORTED.equals(featureVersion);
+    }
+
     /**
      * Returns the cache ID.
      * @return the cache ID
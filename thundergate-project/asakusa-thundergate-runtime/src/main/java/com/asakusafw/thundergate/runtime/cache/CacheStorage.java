@@ -19,6 +19,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Properties;
 
 import org.apache.hadoop.conf.Configuration;
@@ -32,6 +33,7 @@ import com.asakusafw.runtime.stage.output.TemporaryOutputFormat;
 /**
  * An abstraction of ThunderGate Cache Storage.
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class CacheStorage implements Closeable {
 
@@ -65,6 +67,14 @@ public class CacheStorage implements Closeable {
      */
     public static final String CONTENT_FILE_GLOB = CONTENT_FILE_PREFIX + "*";
 
+    /**
+     * The file name prefix of each partition in sorted cache contents.
+     * @since 0.10.4
+     */
+    public static final String PARTITION_FILE_PREFIX = CONTENT_FILE_PREFIX + "p-";
+
+    private static final String BOUNDARY_SEPARATOR = ",";
+
     private final FileSystem fs;
 
     private final Path cacheDir;
@@ -155,6 +165,122 @@ public class CacheStorage implements Closeable {
         }
     }
 
+    /**
+     * Returns the partition boundaries of the HEAD version.
+     * @return the partition boundaries (the first system ID of each partition except the first one),
+     *     or {@code null} if the HEAD version does not exist or is not sorted
+     * @throws IOException if failed to obtain the partition information
+     * @see CacheInfo#KEY_PARTITION_BOUNDARIES
+     * @since 0.10.4
+     */
+    public long[] getHeadPartitionBoundaries() throws IOException {
+        Path path = getHeadProperties();
+        if (fs.exists(path) == false) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (FSDataInputStream in = fs.open(path)) {
+            properties.load(in);
+        }
+        String value = properties.getProperty(CacheInfo.KEY_PARTITION_BOUNDARIES);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parsePartitionBoundaries(value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(MessageFormat.format(
+                    "Cache partition information was broken: {0}",
+                    path), e);
+        }
+    }
+
+    /**
+     * Parses the partition boundaries.
+     * @param value the serialized boundaries
+     * @return the parsed boundaries
+     * @throws IllegalArgumentException if the value is not valid
+     * @see #formatPartitionBoundaries(long[])
+     * @since 0.10.4
+     */
+    public static long[] parsePartitionBoundaries(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null"); //$NON-NLS-1$
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return new long[0];
+        }
+        String[] fields = trimmed.split(BOUNDARY_SEPARATOR);
+        long[] results = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                results[i] = Long.parseLong(fields[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Invalid partition boundaries: {0}",
+                        value), e);
+            }
+            if (i > 0 && results[i - 1] >= results[i]) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Partition boundaries must be sorted: {0}",
+                        value));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Serializes the partition boundaries.
+     * @param boundaries the boundaries
+     * @return the serialized boundaries
+     * @see #parsePartitionBoundaries(String)
+     * @since 0.10.4
+     */
+    public static String formatPartitionBoundaries(long[] boundaries) {
+        if (boundaries == null) {
+            throw new IllegalArgumentException("boundaries must not be null"); //$NON-NLS-1$
+        }
+        StringBuilder buf = new StringBuilder();
+        for (long boundary : boundaries) {
+            if (buf.length() > 0) {
+                buf.append(BOUNDARY_SEPARATOR);
+            }
+            buf.append(boundary);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the index of partition which the target system ID belongs to.
+     * @param boundaries the partition boundaries
+     * @param systemId the target system ID
+     * @return the partition index, between {@code 0} and {@code boundaries.length} (inclusive)
+     * @since 0.10.4
+     */
+    public static int getPartitionIndex(long[] boundaries, long systemId) {
+        int index = Arrays.binarySearch(boundaries, systemId);
+        if (index >= 0) {
+            // each boundary is the first system ID of the successor partition
+            return index + 1;
+        }
+        return -(index + 1);
+    }
+
+    /**
+     * Returns the path of the individual partition in sorted cache contents.
+     * @param directory the contents directory
+     * @param index the partition index
+     * @return the path
+     * @since 0.10.4
+     */
+    public static Path getPartitionContents(Path directory, int index) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must not be null"); //$NON-NLS-1$
+        }
+        return new Path(directory, String.format("%s%05d", PARTITION_FILE_PREFIX, index)); //$NON-NLS-1$
+    }
+
     /**
      * Puts the cache information onto HEAD version.
      * @param info source information
@@ -181,6 +307,57 @@ public class CacheStorage implements Closeable {
         putCacheInfo(info, getPatchProperties());
     }
 
+    /**
+     * Puts the number of records in the patch version.
+     * This must be invoked after {@link #putPatchCacheInfo(CacheInfo)}.
+     * @param count the number of records
+     * @throws IOException if failed to put the number of records
+     * @see CacheInfo#KEY_PATCH_RECORD_COUNT
+     * @since 0.10.4
+     */
+    public void putPatchRecordCount(long count) throws IOException {
+        Path path = getPatchProperties();
+        Properties properties = new Properties();
+        try (FSDataInputStream in = fs.open(path)) {
+            properties.load(in);
+        }
+        properties.setProperty(CacheInfo.KEY_PATCH_RECORD_COUNT, String.valueOf(count));
+        try (FSDataOutputStream out = fs.create(path, true)) {
+            properties.store(out, MessageFormat.format(
+                    "Cache for {0}",
+                    properties.getProperty(CacheInfo.KEY_ID)));
+        }
+    }
+
+    /**
+     * Returns the number of records in the patch version.
+     * @return the number of records, or {@code -1} if it is unknown
+     * @throws IOException if failed to obtain the number of records
+     * @see CacheInfo#KEY_PATCH_RECORD_COUNT
+     * @since 0.10.4
+     */
+    public long getPatchRecordCount() throws IOException {
+        Path path = getPatchProperties();
+        if (fs.exists(path) == false) {
+            return -1L;
+        }
+        Properties properties = new Properties();
+        try (FSDataInputStream in = fs.open(path)) {
+            properties.load(in);
+        }
+        String value = properties.getProperty(CacheInfo.KEY_PATCH_RECORD_COUNT);
+        if (value == null) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(MessageFormat.format(
+                    "Cache patch information was broken: {0}",
+                    path), e);
+        }
+    }
+
     private void putCacheInfo(CacheInfo info, Path path) throws IOException {
         assert info != null;
         assert path != null;
@@ -16,19 +16,34 @@
 package com.asakusafw.thundergate.runtime.cache.mapreduce;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.NLineInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
 import org.apache.hadoop.util.Tool;
 
 import com.asakusafw.runtime.stage.StageInput;
@@ -39,6 +54,7 @@ import com.asakusafw.runtime.stage.input.TemporaryInputFormat;
 import com.asakusafw.runtime.stage.output.LegacyBridgeOutputCommitter;
 import com.asakusafw.runtime.stage.output.TemporaryOutputFormat;
 import com.asakusafw.runtime.stage.resource.StageResourceDriver;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
 import com.asakusafw.thundergate.runtime.cache.CacheStorage;
 
 /**
@@ -50,6 +66,8 @@ import com.asakusafw.thundergate.runtime.cache.CacheStorage;
  *   <ul>
  *   <li> {@code "create"} - create a new cache head from {@code <directory>/PATCH} </li>
  *   <li> {@code "update"} - update cache head with merging {@code <directory>/HEAD} and {@code <directory>/PATCH} </li>
+ *   <li> {@code "rollback"} - restore cache head to the latest retained previous version
+ *       (this only rolls back the cache directory; use the ThunderGate {@code rollback-cache} command instead) </li>
  *   </ul>
  * </li>
  * <li> path to the cache directory </li>
@@ -78,14 +96,92 @@ import com.asakusafw.thundergate.runtime.cache.CacheStorage;
  *   <li>
  *       The maximum patch size (in bytes) to enable distributed hash based join to update the cache:
  *       otherwise this will use sorted-merge join
+ *       (if the cache head is already sorted, this merges the patch into each partition instead,
+ *       to keep the partitioned layout)
  *   </li>
  *   <li> default: <code>-1</code> (distributed hash based join is always disabled) </li>
  *   </ul>
  * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.tablejoin.memory=[size-in-bytes]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum estimated heap size (in bytes) for each mapper to hold the patch system IDs
+ *       in distributed hash based join, computed from the number of patch records
+ *   </li>
+ *   <li> default: <code>268435456</code> (256MB) </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.local.limit=[size-in-bytes]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum total size (in bytes) of the cache head and patch to build the cache in the current process:
+ *       otherwise this will launch a MapReduce job
+ *   </li>
+ *   <li> default: <code>-1</code> (local cache build is always disabled) </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.sortedmerge.limit=[size-in-bytes]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum patch size (in bytes) to merge the patch into each partition of the sorted cache head
+ *       without shuffling the cache head:
+ *       this is only available if the current cache head is sorted
+ *   </li>
+ *   <li> default: <code>67108864</code> (64MB) </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.partition.size=[size-in-bytes]</code>
+ *   <ul>
+ *   <li> The preferred size (in bytes) of each partition when the cache head is (re)partitioned </li>
+ *   <li> default: <code>134217728</code> (128MB) </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.partition.skew=[ratio]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum ratio of the largest partition size to the preferred partition size:
+ *       the sorted cache head is repartitioned if any partition exceeds it
+ *   </li>
+ *   <li> default: <code>4.0</code> </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.partition.sample.splits=[number-of-splits]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum number of input splits of the cache head and patch to sample system IDs
+ *       when the cache head is (re)partitioned
+ *   </li>
+ *   <li> default: <code>64</code> </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.sortedmerge.buffer=[number-of-records]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum number of patch records to sort on the heap at once:
+ *       larger patches are sorted in runs on the file system and then merged
+ *   </li>
+ *   <li> default: <code>500000</code> </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.history.limit=[number-of-versions]</code>
+ *   <ul>
+ *   <li>
+ *       The maximum number of previous cache versions to retain for {@code "rollback"}:
+ *       each version only keeps the partitions rewritten in its successor
+ *   </li>
+ *   <li> default: <code>0</code> (previous versions are never retained) </li>
+ *   </ul>
+ * </li>
+ * <li> <code>com.asakusafw.thundergate.cache.history.size=[size-in-bytes]</code>
+ *   <ul>
+ *   <li> The maximum total size (in bytes) of retained previous cache versions </li>
+ *   <li> default: <code>-1</code> (unlimited) </li>
+ *   </ul>
+ * </li>
  * </ul>
  *
  * @since 0.2.3
- * @version 0.8.1
+ * @version 0.10.4
  */
 public class CacheBuildClient extends Configured implements Tool {
 
@@ -99,10 +195,25 @@ public class CacheBuildClient extends Configured implements Tool {
      */
     public static final String SUBCOMMAND_UPDATE = "update";
 
+    /**
+     * Subcommand to roll back a cache.
+     * @since 0.10.4
+     */
+    public static final String SUBCOMMAND_ROLLBACK = "rollback";
+
     private static final String NEXT_DIRECTORY_NAME = "NEXT";
 
     private static final String ESCAPE_DIRECTORY_NAME = "PREVIOUS";
 
+    private static final String ESCAPE_META_FILE_NAME = CacheStorage.META_FILE_NAME + ".escaped";
+
+    private static final String SORTED_PATCH_DIRECTORY_NAME = "SORTED_PATCH";
+
+    private static final String SORTED_MERGE_TASK_FILE_NAME = "SORTED_MERGE_TASKS";
+
+    private static final Pattern REDUCER_OUTPUT_NAME = Pattern.compile(
+            Pattern.quote(CacheStorage.CONTENT_FILE_PREFIX) + "r-(\\d+)");
+
     static final Log LOG = LogFactory.getLog(CacheBuildClient.class);
 
     private CacheStorage storage;
@@ -111,6 +222,10 @@ public class CacheBuildClient extends Configured implements Tool {
 
     private String tableName;
 
+    private List<String> reusedPartitions = Collections.emptyList();
+
+    private boolean headEscaped;
+
     @Override
     public int run(String[] args) throws Exception {
         if (args.length != 4) {
@@ -124,6 +239,8 @@ public class CacheBuildClient extends Configured implements Tool {
             create = true;
         } else if (subcommand.equals(SUBCOMMAND_UPDATE)) {
             create = false;
+        } else if (subcommand.equals(SUBCOMMAND_ROLLBACK)) {
+            return rollback(new Path(args[1]));
         } else {
             throw new IllegalArgumentException(MessageFormat.format(
                     "Invalid arguments (unknown subcommand): {0}",
@@ -136,12 +253,24 @@ public class CacheBuildClient extends Configured implements Tool {
         this.storage = new CacheStorage(getConf(), cacheDirectory.toUri());
         try {
             clearNext();
-            if (create) {
+            long[] boundaries = create ? null : storage.getHeadPartitionBoundaries();
+            boolean balanced = boundaries != null && PatchStrategy.isBalanced(tableName, storage, boundaries);
+            if (PatchStrategy.isLocalBuild(tableName, storage)) {
+                buildLocal(create);
+            } else if (create) {
                 create();
-            } else if (PatchStrategy.isTableJoin(tableName, storage)) {
-                updateTable();
+            } else if (balanced && PatchStrategy.isSortedMerge(tableName, storage)) {
+                updateSorted(boundaries);
+            } else if (PatchStrategy.isTableJoin(tableName, storage, modelClass)) {
+                if (balanced) {
+                    // table join drops the partitioned layout, so that merges the patch into each partition instead
+                    updateSorted(boundaries);
+                } else {
+                    updateTable();
+                }
             } else {
-                updateMerge();
+                // recomputes the partition boundaries if they are not balanced
+                updateMerge(balanced ? boundaries : null);
             }
             switchHead();
         } finally {
@@ -150,13 +279,34 @@ public class CacheBuildClient extends Configured implements Tool {
         return 0;
     }
 
+    private int rollback(Path cacheDirectory) throws IOException {
+        this.storage = new CacheStorage(getConf(), cacheDirectory.toUri());
+        try {
+            if (new CacheHistory(storage).rollback() == false) {
+                LOG.warn(MessageFormat.format("there are no previous cache versions: {0}",
+                        storage.getHeadDirectory()));
+                return 1;
+            }
+        } finally {
+            storage.close();
+        }
+        return 0;
+    }
+
     private void clearNext() throws IOException {
         LOG.info(MessageFormat.format("Cleaning cache output directory: {0}",
                 getNextDirectory()));
         storage.getFileSystem().delete(getNextDirectory(), true);
     }
 
-    private void updateMerge() throws IOException, InterruptedException {
+    private void updateMerge(long[] headBoundaries) throws IOException, InterruptedException {
+        long[] boundaries = headBoundaries;
+        if (boundaries == null) {
+            LOG.info(MessageFormat.format("repartitioning cache into sorted layout: {0}",
+                    storage.getHeadDirectory()));
+            int partitions = PatchStrategy.computePartitionCount(tableName, storage);
+            boundaries = new SortedCacheSupport<>(storage, modelClass).computeBoundaries(partitions);
+        }
         Job job = newJob();
 
         List<StageInput> inputList = new ArrayList<>();
@@ -178,9 +328,13 @@ public class CacheBuildClient extends Configured implements Tool {
         job.setReducerClass(MergeJoinReducer.class);
         job.setOutputKeyClass(NullWritable.class);
         job.setOutputValueClass(modelClass);
-        job.setPartitionerClass(PatchApplyKey.Partitioner.class);
+        job.setPartitionerClass(PatchApplyKey.RangePartitioner.class);
         job.setSortComparatorClass(PatchApplyKey.SortComparator.class);
         job.setGroupingComparatorClass(PatchApplyKey.GroupComparator.class);
+        job.getConfiguration().set(
+                PatchApplyKey.RangePartitioner.KEY_BOUNDARIES,
+                CacheStorage.formatPartitionBoundaries(boundaries));
+        job.setNumReduceTasks(boundaries.length + 1);
 
         TemporaryOutputFormat.setOutputPath(job, getNextDirectory());
         job.setOutputFormatClass(TemporaryOutputFormat.class);
@@ -209,6 +363,173 @@ public class CacheBuildClient extends Configured implements Tool {
         } catch (ClassNotFoundException e) {
             throw new IOException(e);
         }
+        if (renameReducerOutputs()) {
+            putMeta(boundaries);
+        } else {
+            putMeta();
+        }
+    }
+
+    private boolean renameReducerOutputs() throws IOException {
+        FileSystem fs = storage.getFileSystem();
+        FileStatus[] files = fs.globStatus(getNextContents());
+        if (files == null) {
+            return true;
+        }
+        Map<Path, Path> renames = new LinkedHashMap<>();
+        for (FileStatus file : files) {
+            Matcher matcher = REDUCER_OUTPUT_NAME.matcher(file.getPath().getName());
+            if (matcher.matches() == false) {
+                LOG.warn(MessageFormat.format(
+                        "cache output is not partitioned, it will be migrated in the next update: {0}",
+                        file.getPath()));
+                return false;
+            }
+            int index = Integer.parseInt(matcher.group(1));
+            renames.put(file.getPath(), CacheStorage.getPartitionContents(getNextDirectory(), index));
+        }
+        for (Map.Entry<Path, Path> entry : renames.entrySet()) {
+            if (fs.rename(entry.getKey(), entry.getValue()) == false) {
+                throw new IOException(MessageFormat.format(
+                        "failed to rename cache partition: {0} -> {1}",
+                        entry.getKey(),
+                        entry.getValue()));
+            }
+        }
+        return true;
+    }
+
+    private void updateSorted(long[] boundaries) throws IOException, InterruptedException {
+        FileSystem fs = storage.getFileSystem();
+        Path sortedPatch = getSortedPatchDirectory();
+        fs.delete(sortedPatch, true);
+        LOG.info(MessageFormat.format("sorting patch: {0} -> {1} ({2} partitions)",
+                storage.getPatchContents("*"),
+                sortedPatch,
+                boundaries.length + 1));
+        SortedSet<Integer> targets = new SortedCacheSupport<>(storage, modelClass).sortPatch(boundaries, sortedPatch);
+        try {
+            Configuration conf = new Configuration(getConf());
+            Invalidation.setupInvalidationTimestamp(conf, tableName);
+            if (Invalidation.getInvalidationTimestamp(conf) > 0L) {
+                // partitions without patch also must drop the invalidated records
+                for (int index = 0; index <= boundaries.length; index++) {
+                    if (fs.exists(CacheStorage.getPartitionContents(storage.getHeadDirectory(), index))) {
+                        targets.add(index);
+                    }
+                }
+            }
+            fs.mkdirs(getNextDirectory());
+            if (targets.isEmpty() == false) {
+                mergeSorted(targets);
+            }
+            LOG.info(MessageFormat.format("invalidating previous cache: {0}",
+                    storage.getHeadProperties()));
+            if (CacheHistory.isEnabled(getConf())) {
+                // keeps the metadata to retain the previous version as a history entry
+                headEscaped = fs.rename(storage.getHeadProperties(), getEscapeProperties(storage.getHeadDirectory()));
+            } else {
+                fs.delete(storage.getHeadProperties(), false);
+            }
+            List<String> reused = new ArrayList<>();
+            for (int index = 0; index <= boundaries.length; index++) {
+                if (targets.contains(index)) {
+                    continue;
+                }
+                Path source = CacheStorage.getPartitionContents(storage.getHeadDirectory(), index);
+                if (fs.exists(source) == false) {
+                    continue;
+                }
+                Path destination = CacheStorage.getPartitionContents(getNextDirectory(), index);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(MessageFormat.format("reusing cache partition: {0} -> {1}",
+                            source,
+                            destination));
+                }
+                if (fs.rename(source, destination) == false) {
+                    throw new IOException(MessageFormat.format(
+                            "failed to move cache partition: {0} -> {1}",
+                            source,
+                            destination));
+                }
+                reused.add(destination.getName());
+            }
+            reusedPartitions = reused;
+            LOG.info(MessageFormat.format("applied patch (sorted merge): {0} / {1} -> {2} ({3}/{4} partitions)",
+                    storage.getPatchContents("*"),
+                    storage.getHeadContents("*"),
+                    getNextContents(),
+                    targets.size(),
+                    boundaries.length + 1));
+        } finally {
+            fs.delete(sortedPatch, true);
+        }
+        putMeta(boundaries);
+    }
+
+    private void mergeSorted(SortedSet<Integer> targets) throws IOException, InterruptedException {
+        FileSystem fs = storage.getFileSystem();
+        Path taskList = getSortedMergeTaskList();
+        try (FSDataOutputStream out = fs.create(taskList, true);
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Integer index : targets) {
+                writer.println(index);
+            }
+        }
+
+        Job job = newJob();
+        Configuration conf = job.getConfiguration();
+        conf.set(SortedMergeMapper.KEY_HEAD_DIRECTORY, storage.getHeadDirectory().toString());
+        conf.set(SortedMergeMapper.KEY_PATCH_DIRECTORY, getSortedPatchDirectory().toString());
+        conf.set(SortedMergeMapper.KEY_OUTPUT_DIRECTORY, getNextDirectory().toString());
+        conf.set(SortedMergeMapper.KEY_MODEL_CLASS, modelClass.getName());
+        NLineInputFormat.setInputPaths(job, taskList);
+        NLineInputFormat.setNumLinesPerSplit(job, 1);
+        job.setInputFormatClass(NLineInputFormat.class);
+        job.setMapperClass(SortedMergeMapper.class);
+        job.setMapOutputKeyClass(NullWritable.class);
+        job.setMapOutputValueClass(NullWritable.class);
+        job.setOutputKeyClass(NullWritable.class);
+        job.setOutputValueClass(NullWritable.class);
+        job.setOutputFormatClass(NullOutputFormat.class);
+        job.setNumReduceTasks(0);
+
+        // each mapper writes its partition directly
+        job.setMapSpeculativeExecution(false);
+
+        LOG.info(MessageFormat.format("applying patch (sorted merge): {0} / {1} -> {2} ({3} partitions)",
+                getSortedPatchDirectory(),
+                storage.getHeadContents("*"),
+                getNextContents(),
+                targets.size()));
+        try {
+            boolean succeed = job.waitForCompletion(true);
+            if (succeed == false) {
+                throw new IOException(MessageFormat.format("failed to apply patch (sorted merge): {0} / {1} -> {2}",
+                        getSortedPatchDirectory(),
+                        storage.getHeadContents("*"),
+                        getNextContents()));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        } finally {
+            fs.delete(taskList, false);
+        }
+    }
+
+    private void buildLocal(boolean create) throws IOException {
+        LocalCacheBuilder<?> builder = new LocalCacheBuilder<>(storage, modelClass, tableName);
+        Path output = new Path(getNextDirectory(), CacheStorage.CONTENT_FILE_PREFIX + "0");
+        LOG.info(MessageFormat.format("applying patch (local): {0} / {1} -> {2}",
+                storage.getPatchContents("*"),
+                create ? "(empty)" : storage.getHeadContents("*"),
+                output));
+        long count = create ? builder.create(output) : builder.update(output);
+        LOG.info(MessageFormat.format("applied patch (local): {0} / {1} -> {2} ({3} records)",
+                storage.getPatchContents("*"),
+                create ? "(empty)" : storage.getHeadContents("*"),
+                output,
+                count));
         putMeta();
     }
 
@@ -216,13 +537,36 @@ public class CacheBuildClient extends Configured implements Tool {
         LOG.info(MessageFormat.format("setting patched properties: {0} -> {1}",
                 storage.getPatchProperties(),
                 getNextDirectory()));
-        FileUtil.copy(
-                storage.getFileSystem(),
+        putMeta(loadPatchMeta());
+    }
+
+    private void putMeta(long[] boundaries) throws IOException {
+        LOG.info(MessageFormat.format("setting patched properties: {0} -> {1} (partitions={2})",
                 storage.getPatchProperties(),
-                storage.getFileSystem(),
-                getNextProperties(),
-                false,
-                storage.getConfiguration());
+                getNextDirectory(),
+                boundaries.length + 1));
+        Properties properties = loadPatchMeta();
+        properties.setProperty(CacheInfo.KEY_PARTITION_BOUNDARIES, CacheStorage.formatPartitionBoundaries(boundaries));
+        putMeta(properties);
+    }
+
+    private Properties loadPatchMeta() throws IOException {
+        Properties properties = new Properties();
+        try (FSDataInputStream in = storage.getFileSystem().open(storage.getPatchProperties())) {
+            properties.load(in);
+        }
+        // the patch record count is meaningless for the cache HEAD
+        properties.remove(CacheInfo.KEY_PATCH_RECORD_COUNT);
+        return properties;
+    }
+
+    private void putMeta(Properties properties) throws IOException {
+        FileSystem fs = storage.getFileSystem();
+        try (FSDataOutputStream out = fs.create(getNextProperties(), true)) {
+            properties.store(out, MessageFormat.format(
+                    "Cache for {0}",
+                    tableName));
+        }
     }
 
     private void updateTable() throws IOException, InterruptedException {
@@ -350,11 +694,30 @@ public class CacheBuildClient extends Configured implements Tool {
         storage.getFileSystem().rename(getNextDirectory(), storage.getHeadDirectory());
 
         if (hasHead) {
-            LOG.info(MessageFormat.format(
-                    "Cleaning previous cache: {0}",
-                    storage.getHeadDirectory()));
-            storage.getFileSystem().delete(getEscapeDir(), true);
+            if (retainPrevious()) {
+                CacheHistory history = new CacheHistory(storage);
+                history.push(getEscapeDir(), reusedPartitions);
+                history.prune();
+            } else {
+                LOG.info(MessageFormat.format(
+                        "Cleaning previous cache: {0}",
+                        storage.getHeadDirectory()));
+                storage.getFileSystem().delete(getEscapeDir(), true);
+            }
+        }
+    }
+
+    private boolean retainPrevious() throws IOException {
+        if (CacheHistory.isEnabled(getConf()) == false) {
+            return false;
+        }
+        FileSystem fs = storage.getFileSystem();
+        Path properties = new Path(getEscapeDir(), CacheStorage.META_FILE_NAME);
+        if (headEscaped) {
+            return fs.rename(getEscapeProperties(getEscapeDir()), properties);
         }
+        // the previous version is incomplete if its metadata has been already removed
+        return fs.exists(properties);
     }
 
     private Path getNextDirectory() {
@@ -369,7 +732,19 @@ public class CacheBuildClient extends Configured implements Tool {
         return new Path(getNextDirectory(), CacheStorage.CONTENT_FILE_GLOB);
     }
 
+    private Path getSortedPatchDirectory() {
+        return new Path(storage.getTempoaryDirectory(), SORTED_PATCH_DIRECTORY_NAME);
+    }
+
+    private Path getSortedMergeTaskList() {
+        return new Path(storage.getTempoaryDirectory(), SORTED_MERGE_TASK_FILE_NAME);
+    }
+
     private Path getEscapeDir() {
         return new Path(storage.getTempoaryDirectory(), ESCAPE_DIRECTORY_NAME);
     }
+
+    private static Path getEscapeProperties(Path directory) {
+        return new Path(directory, ESCAPE_META_FILE_NAME);
+    }
 }
@@ -0,0 +1,325 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * Retains previous versions of the cache HEAD, to roll back the cache without rebuilding it.
+ * <p>
+ * Each history entry is an undo record of the cache HEAD:
+ * it contains the cache metadata and contents of the previous version,
+ * except files which were carried over into the next version as is.
+ * The names of such files are listed in the {@link #MANIFEST_FILE_NAME manifest}, and they are moved back into
+ * the entry when it is rolled back.
+ * Therefore, retaining a version only costs the contents which were rewritten in the next version
+ * (e.g. the patched partitions of sorted cache HEAD),
+ * and both rolling back and discarding history entries are metadata operations.
+ * </p>
+ * <p>
+ * History entries can only be rolled back from the latest one, and discarded from the oldest one.
+ * </p>
+ * @since 0.10.4
+ */
+public class CacheHistory {
+
+    static final Log LOG = LogFactory.getLog(CacheHistory.class);
+
+    /**
+     * The Hadoop configuration key of the maximum number of retained previous versions.
+     */
+    public static final String KEY_LIMIT = "com.asakusafw.thundergate.cache.history.limit";
+
+    /**
+     * The default value of {@link #KEY_LIMIT}.
+     */
+    public static final int DEFAULT_LIMIT = 0;
+
+    /**
+     * The Hadoop configuration key of the maximum total size (in bytes) of retained previous versions.
+     */
+    public static final String KEY_SIZE_LIMIT = "com.asakusafw.thundergate.cache.history.size";
+
+    /**
+     * The default value of {@link #KEY_SIZE_LIMIT}.
+     */
+    public static final long DEFAULT_SIZE_LIMIT = -1L;
+
+    /**
+     * The directory name of the cache history.
+     */
+    public static final String HISTORY_DIRECTORY_NAME = "HISTORY";
+
+    /**
+     * The file name of the history entry manifest.
+     */
+    public static final String MANIFEST_FILE_NAME = "history.properties";
+
+    private static final String KEY_SHARED = "shared";
+
+    private static final String NAME_SEPARATOR = ",";
+
+    private static final String DISCARD_DIRECTORY_NAME = "DISCARDED";
+
+    private static final Pattern ENTRY_NAME = Pattern.compile("\\d+");
+
+    private static final Comparator<Path> ENTRY_ORDER = new Comparator<Path>() {
+        @Override
+        public int compare(Path o1, Path o2) {
+            return Long.compare(Long.parseLong(o1.getName()), Long.parseLong(o2.getName()));
+        }
+    };
+
+    private final CacheStorage storage;
+
+    private final FileSystem fs;
+
+    /**
+     * Creates a new instance.
+     * @param storage the target cache storage
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public CacheHistory(CacheStorage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage must not be null"); //$NON-NLS-1$
+        }
+        this.storage = storage;
+        this.fs = storage.getFileSystem();
+    }
+
+    /**
+     * Returns whether or not the cache history is enabled.
+     * @param conf the current configuration
+     * @return {@code true} if it is enabled, otherwise {@code false}
+     */
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getInt(KEY_LIMIT, DEFAULT_LIMIT) > 0;
+    }
+
+    /**
+     * Returns the path to the history directory.
+     * @return the path
+     */
+    public Path getHistoryDirectory() {
+        return new Path(storage.getTempoaryDirectory(), HISTORY_DIRECTORY_NAME);
+    }
+
+    /**
+     * Returns the history entries.
+     * @return the history entries, from the oldest one
+     * @throws IOException if failed to list the entries
+     */
+    public List<Path> getEntries() throws IOException {
+        Path directory = getHistoryDirectory();
+        if (fs.exists(directory) == false) {
+            return Collections.emptyList();
+        }
+        List<Path> results = new ArrayList<>();
+        for (FileStatus stat : fs.listStatus(directory)) {
+            if (stat.isDirectory() && ENTRY_NAME.matcher(stat.getPath().getName()).matches()) {
+                results.add(stat.getPath());
+            }
+        }
+        Collections.sort(results, ENTRY_ORDER);
+        return results;
+    }
+
+    /**
+     * Adds the previous version of cache HEAD as the latest history entry.
+     * @param previous the directory of the previous version, which must contain its cache metadata
+     * @param shared the names of files which were moved from the previous version into the current HEAD
+     * @return the created history entry
+     * @throws IOException if failed to add the entry
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public Path push(Path previous, Collection<String> shared) throws IOException {
+        if (previous == null) {
+            throw new IllegalArgumentException("previous must not be null"); //$NON-NLS-1$
+        }
+        if (shared == null) {
+            throw new IllegalArgumentException("shared must not be null"); //$NON-NLS-1$
+        }
+        List<Path> entries = getEntries();
+        long next = entries.isEmpty() ? 0L : Long.parseLong(entries.get(entries.size() - 1).getName()) + 1;
+        Path entry = new Path(getHistoryDirectory(), String.format("%010d", next)); //$NON-NLS-1$
+
+        Properties manifest = new Properties();
+        manifest.setProperty(KEY_SHARED, join(shared));
+        try (FSDataOutputStream out = fs.create(new Path(previous, MANIFEST_FILE_NAME), true)) {
+            manifest.store(out, "Cache history"); //$NON-NLS-1$
+        }
+        fs.mkdirs(getHistoryDirectory());
+        LOG.info(MessageFormat.format("retaining previous cache: {0} -> {1} ({2} files are shared with HEAD)",
+                previous,
+                entry,
+                shared.size()));
+        if (fs.rename(previous, entry) == false) {
+            throw new IOException(MessageFormat.format(
+                    "failed to retain previous cache: {0} -> {1}",
+                    previous,
+                    entry));
+        }
+        return entry;
+    }
+
+    /**
+     * Rolls back the cache HEAD to the latest history entry.
+     * Note that this does not update the local cache information nor acquire the cache lock in the database,
+     * so that the ThunderGate {@code rollback-cache} command should be used instead of invoking this directly.
+     * @return {@code true} if successfully rolled back, or {@code false} if there are no history entries
+     * @throws IOException if failed to roll back the cache
+     */
+    public boolean rollback() throws IOException {
+        List<Path> entries = getEntries();
+        if (entries.isEmpty()) {
+            LOG.info(MessageFormat.format("cache history is empty: {0}",
+                    getHistoryDirectory()));
+            return false;
+        }
+        Path entry = entries.get(entries.size() - 1);
+        Path manifestPath = new Path(entry, MANIFEST_FILE_NAME);
+        Properties manifest = new Properties();
+        try (FSDataInputStream in = fs.open(manifestPath)) {
+            manifest.load(in);
+        }
+        Path head = storage.getHeadDirectory();
+        LOG.info(MessageFormat.format("rolling back cache: {0} -> {1}",
+                entry,
+                head));
+
+        // invalidates the current HEAD first
+        fs.delete(storage.getHeadProperties(), false);
+        for (String name : split(manifest.getProperty(KEY_SHARED, ""))) {
+            Path source = new Path(head, name);
+            Path destination = new Path(entry, name);
+            if (fs.exists(source) == false) {
+                throw new IOException(MessageFormat.format(
+                        "shared cache file is missing: {0}",
+                        source));
+            }
+            if (fs.rename(source, destination) == false) {
+                throw new IOException(MessageFormat.format(
+                        "failed to move cache file: {0} -> {1}",
+                        source,
+                        destination));
+            }
+        }
+        fs.delete(manifestPath, false);
+
+        Path discard = new Path(storage.getTempoaryDirectory(), DISCARD_DIRECTORY_NAME);
+        fs.delete(discard, true);
+        if (fs.exists(head) && fs.rename(head, discard) == false) {
+            throw new IOException(MessageFormat.format(
+                    "failed to discard cache: {0} -> {1}",
+                    head,
+                    discard));
+        }
+        if (fs.rename(entry, head) == false) {
+            throw new IOException(MessageFormat.format(
+                    "failed to restore cache: {0} -> {1}",
+                    entry,
+                    head));
+        }
+        fs.delete(discard, true);
+        LOG.info(MessageFormat.format("rolled back cache: {0} -> {1} ({2} versions are still retained)",
+                entry,
+                head,
+                entries.size() - 1));
+        return true;
+    }
+
+    /**
+     * Discards the oldest history entries which exceed the limits in the configuration.
+     * @return the number of discarded entries
+     * @throws IOException if failed to discard the entries
+     * @see #KEY_LIMIT
+     * @see #KEY_SIZE_LIMIT
+     */
+    public int prune() throws IOException {
+        Configuration conf = storage.getConfiguration();
+        return prune(conf.getInt(KEY_LIMIT, DEFAULT_LIMIT), conf.getLong(KEY_SIZE_LIMIT, DEFAULT_SIZE_LIMIT));
+    }
+
+    /**
+     * Discards the oldest history entries which exceed the limits.
+     * @param limit the maximum number of history entries
+     * @param sizeLimit the maximum total size of history entries in bytes, or {@code -1} to unlimited
+     * @return the number of discarded entries
+     * @throws IOException if failed to discard the entries
+     */
+    public int prune(int limit, long sizeLimit) throws IOException {
+        List<Path> entries = new ArrayList<>(getEntries());
+        long totalSize = 0;
+        List<Long> sizes = new ArrayList<>();
+        for (Path entry : entries) {
+            long size = fs.getContentSummary(entry).getLength();
+            sizes.add(size);
+            totalSize += size;
+        }
+        int count = 0;
+        while (entries.isEmpty() == false
+                && (entries.size() > Math.max(limit, 0) || (sizeLimit >= 0 && totalSize > sizeLimit))) {
+            Path oldest = entries.remove(0);
+            totalSize -= sizes.remove(0);
+            LOG.info(MessageFormat.format("discarding cache history: {0}",
+                    oldest));
+            fs.delete(oldest, true);
+            count++;
+        }
+        return count;
+    }
+
+    private static String join(Collection<String> names) {
+        StringBuilder buf = new StringBuilder();
+        for (String name : names) {
+            if (buf.length() > 0) {
+                buf.append(NAME_SEPARATOR);
+            }
+            buf.append(name);
+        }
+        return buf.toString();
+    }
+
+    private static List<String> split(String value) {
+        List<String> results = new ArrayList<>();
+        for (String name : value.split(NAME_SEPARATOR)) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty() == false) {
+                results.add(trimmed);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
+
+/**
+ * Builds a cache in the current process, without any MapReduce jobs.
+ * <p>
+ * This produces the same contents as {@link CreateCacheMapper} (for creating caches) or
+ * {@link MergeJoinReducer} (for updating caches),
+ * but it is designed only for small caches because all system IDs in the patch are kept on the heap.
+ * </p>
+ * @param <T> the data model type
+ * @see PatchStrategy#isLocalBuild(String, CacheStorage)
+ * @since 0.10.4
+ */
+public class LocalCacheBuilder<T> {
+
+    static final Log LOG = LogFactory.getLog(LocalCacheBuilder.class);
+
+    private final CacheStorage storage;
+
+    private final Class<T> modelClass;
+
+    private final Configuration configuration;
+
+    /**
+     * Creates a new instance.
+     * @param storage the target cache storage
+     * @param modelClass the data model class, must be a sub-type of {@link ThunderGateCacheSupport}
+     * @param tableName the original table name
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public LocalCacheBuilder(CacheStorage storage, Class<T> modelClass, String tableName) {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage must not be null"); //$NON-NLS-1$
+        }
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass must not be null"); //$NON-NLS-1$
+        }
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        if (ThunderGateCacheSupport.class.isAssignableFrom(modelClass) == false) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "{0} must be a subtype of {1}",
+                    modelClass.getName(),
+                    ThunderGateCacheSupport.class.getName()));
+        }
+        this.storage = storage;
+        this.modelClass = modelClass;
+        this.configuration = new Configuration(storage.getConfiguration());
+        Invalidation.setupInvalidationTimestamp(configuration, tableName);
+    }
+
+    /**
+     * Creates a new cache contents from the patch.
+     * @param output the output path
+     * @return the number of written records
+     * @throws IOException if failed to build the cache
+     */
+    public long create(Path output) throws IOException {
+        long invalidate = Invalidation.getInvalidationTimestamp(configuration);
+        long count = 0;
+        T buffer = ReflectionUtils.newInstance(modelClass, configuration);
+        ThunderGateCacheSupport record = (ThunderGateCacheSupport) buffer;
+        try (ModelOutput<T> out = TemporaryStorage.openOutput(configuration, modelClass, output)) {
+            for (FileStatus stat : TemporaryStorage.listStatus(configuration, storage.getPatchContents("*"))) {
+                try (ModelInput<T> in = TemporaryStorage.openInput(configuration, modelClass, stat.getPath())) {
+                    while (in.readTo(buffer)) {
+                        if (record.__tgc__Deleted() == false && Invalidation.isStillValid(record, invalidate)) {
+                            out.write(buffer);
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a new cache contents from the current HEAD and the patch.
+     * The records in the patch always precede the ones in the HEAD.
+     * @param output the output path
+     * @return the number of written records
+     * @throws IOException if failed to build the cache
+     */
+    public long update(Path output) throws IOException {
+        long invalidate = Invalidation.getInvalidationTimestamp(configuration);
+        LongHashSet patched = new LongHashSet();
+        long count = 0;
+        T buffer = ReflectionUtils.newInstance(modelClass, configuration);
+        ThunderGateCacheSupport record = (ThunderGateCacheSupport) buffer;
+        try (ModelOutput<T> out = TemporaryStorage.openOutput(configuration, modelClass, output)) {
+            for (FileStatus stat : TemporaryStorage.listStatus(configuration, storage.getPatchContents("*"))) {
+                try (ModelInput<T> in = TemporaryStorage.openInput(configuration, modelClass, stat.getPath())) {
+                    while (in.readTo(buffer)) {
+                        // the first record wins
+                        if (patched.add(record.__tgc__SystemId()) && record.__tgc__Deleted() == false) {
+                            out.write(buffer);
+                            count++;
+                        }
+                    }
+                }
+            }
+            LOG.info(MessageFormat.format("loaded patch: {0} records",
+                    patched.size()));
+            for (FileStatus stat : TemporaryStorage.listStatus(configuration, storage.getHeadContents("*"))) {
+                try (ModelInput<T> in = TemporaryStorage.openInput(configuration, modelClass, stat.getPath())) {
+                    while (in.readTo(buffer)) {
+                        if (record.__tgc__Deleted() == false
+                                && patched.contains(record.__tgc__SystemId()) == false
+                                && Invalidation.isStillValid(record, invalidate)) {
+                            out.write(buffer);
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+/**
+ * A set of primitive {@code long} values, using open addressing with linear probing.
+ * This requires only a few words for each element, instead of boxed objects and hash entries.
+ * @since 0.10.4
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+
+    private int mask;
+
+    private int size;
+
+    private boolean containsEmpty;
+
+    /**
+     * Creates a new instance.
+     */
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param expectedSize the expected number of elements
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns the estimated heap size (in bytes) to hold the target number of elements.
+     * @param count the number of elements
+     * @return the estimated heap size
+     */
+    public static long estimateMemory(long count) {
+        long capacity = Long.highestOneBit(Math.max(count * 2 - 1, 1)) << 1;
+        // the table may be twice as large while rehashing
+        return capacity * Long.BYTES * 3 / 2;
+    }
+
+    /**
+     * Adds a value into this set.
+     * @param value the value
+     * @return {@code true} if this set did not already contain the value, otherwise {@code false}
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int index = hash(value) & mask;
+        while (true) {
+            long current = table[index];
+            if (current == EMPTY) {
+                table[index] = value;
+                size++;
+                if (size * 2L > table.length) {
+                    rehash();
+                }
+                return true;
+            } else if (current == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns whether or not this set contains the value.
+     * @param value the value
+     * @return {@code true} if this contains the value, otherwise {@code false}
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int index = hash(value) & mask;
+        while (true) {
+            long current = table[index];
+            if (current == EMPTY) {
+                return false;
+            } else if (current == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        if (table.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("too many elements"); //$NON-NLS-1$
+        }
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int index = hash(value) & mask;
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long capacity = Long.highestOneBit(Math.max(expectedSize * 2L - 1, DEFAULT_CAPACITY - 1)) << 1;
+        return (int) Math.min(capacity, MAXIMUM_CAPACITY);
+    }
+
+    private static int hash(long value) {
+        // system IDs are often sequential, so that we spread them
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
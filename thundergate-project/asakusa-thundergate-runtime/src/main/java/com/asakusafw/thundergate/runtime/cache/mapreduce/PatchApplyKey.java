@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.VIntWritable;
 import org.apache.hadoop.io.VLongWritable;
 import org.apache.hadoop.io.Writable;
@@ -31,11 +33,13 @@ import org.apache.hadoop.io.WritableFactories;
 import org.apache.hadoop.io.WritableFactory;
 import org.apache.hadoop.io.WritableUtils;
 
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
 import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
 
 /**
  * Shuffle key object for {@link MergeJoinReducer}.
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class PatchApplyKey implements WritableComparable<PatchApplyKey> {
 
@@ -256,6 +260,44 @@ public class PatchApplyKey implements WritableComparable<PatchApplyKey> {
         }
     }
 
+    /**
+     * Range partitioner for {@link PatchApplyKey}.
+     * Each reducer receives a contiguous range of system IDs, so that its output becomes a partition
+     * of the sorted cache contents.
+     * @since 0.10.4
+     */
+    public static final class RangePartitioner
+            extends org.apache.hadoop.mapreduce.Partitioner<PatchApplyKey, Object>
+            implements Configurable {
+
+        /**
+         * The Hadoop configuration key of partition boundaries.
+         * @see CacheStorage#formatPartitionBoundaries(long[])
+         */
+        public static final String KEY_BOUNDARIES = "com.asakusafw.thundergate.cache.partition.boundaries";
+
+        private Configuration conf;
+
+        private long[] boundaries = new long[0];
+
+        @Override
+        public void setConf(Configuration newConf) {
+            this.conf = newConf;
+            this.boundaries = CacheStorage.parsePartitionBoundaries(newConf.get(KEY_BOUNDARIES, "")); //$NON-NLS-1$
+        }
+
+        @Override
+        public Configuration getConf() {
+            return conf;
+        }
+
+        @Override
+        public int getPartition(PatchApplyKey key, Object value, int numPartitions) {
+            int index = CacheStorage.getPartitionIndex(boundaries, key.systemId.get());
+            return Math.min(index, numPartitions - 1);
+        }
+    }
+
     static {
         WritableComparator.define(PatchApplyKey.class, new SortComparator());
         WritableFactories.setFactory(PatchApplyKey.class, new WritableFactory() {
@@ -20,7 +20,9 @@ import java.text.MessageFormat;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 
 import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
 import com.asakusafw.thundergate.runtime.cache.CacheStorage;
@@ -28,6 +30,7 @@ import com.asakusafw.thundergate.runtime.cache.CacheStorage;
 /**
  * Utilities about merge strategy.
  * @since 0.8.1
+ * @version 0.10.4
  */
 public final class PatchStrategy {
 
@@ -43,6 +46,67 @@ public final class PatchStrategy {
      */
     public static final long DEFAULT_TABLE_JOIN_LIMIT = -1L;
 
+    /**
+     * The Hadoop configuration key of maximum estimated heap size to hold patch system IDs in table join strategy.
+     * @since 0.10.4
+     */
+    public static final String KEY_TABLE_JOIN_MEMORY_LIMIT = "com.asakusafw.thundergate.cache.tablejoin.memory";
+
+    /**
+     * The default value of {@link #KEY_TABLE_JOIN_MEMORY_LIMIT}.
+     * @since 0.10.4
+     */
+    public static final long DEFAULT_TABLE_JOIN_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+    /**
+     * The Hadoop configuration key of maximum total size of HEAD and patch to build caches in the current process.
+     * @since 0.10.4
+     */
+    public static final String KEY_LOCAL_BUILD_LIMIT = "com.asakusafw.thundergate.cache.local.limit";
+
+    /**
+     * The default value of {@link #KEY_LOCAL_BUILD_LIMIT}.
+     * @since 0.10.4
+     */
+    public static final long DEFAULT_LOCAL_BUILD_LIMIT = -1L;
+
+    /**
+     * The Hadoop configuration key of maximum patch size to merge it into the sorted cache HEAD map-side.
+     * @since 0.10.4
+     */
+    public static final String KEY_SORTED_MERGE_LIMIT = "com.asakusafw.thundergate.cache.sortedmerge.limit";
+
+    /**
+     * The default value of {@link #KEY_SORTED_MERGE_LIMIT}.
+     * @since 0.10.4
+     */
+    public static final long DEFAULT_SORTED_MERGE_LIMIT = 64L * 1024 * 1024;
+
+    /**
+     * The Hadoop configuration key of preferred size of each partition in sorted cache HEAD.
+     * @since 0.10.4
+     */
+    public static final String KEY_PARTITION_SIZE = "com.asakusafw.thundergate.cache.partition.size";
+
+    /**
+     * The default value of {@link #KEY_PARTITION_SIZE}.
+     * @since 0.10.4
+     */
+    public static final long DEFAULT_PARTITION_SIZE = 128L * 1024 * 1024;
+
+    /**
+     * The Hadoop configuration key of the maximum ratio of the largest partition size to
+     * {@link #KEY_PARTITION_SIZE the preferred partition size}, before the sorted cache HEAD is repartitioned.
+     * @since 0.10.4
+     */
+    public static final String KEY_PARTITION_SKEW = "com.asakusafw.thundergate.cache.partition.skew";
+
+    /**
+     * The default value of {@link #KEY_PARTITION_SKEW}.
+     * @since 0.10.4
+     */
+    public static final double DEFAULT_PARTITION_SKEW = 4.0;
+
     private PatchStrategy() {
         return;
     }
@@ -54,6 +118,54 @@ public final class PatchStrategy {
      * @return {@code true} if the table join is enabled, otherwise {@code false}
      */
     public static boolean isTableJoin(String tableName, CacheStorage cache) {
+        return isTableJoin(tableName, cache, null);
+    }
+
+    /**
+     * Returns whether or not the table join is enabled for the target cache.
+     * If the data model class is specified, this also estimates the heap size for the patch system IDs
+     * from {@link CacheStorage#getPatchRecordCount() the number of patch records} recorded by the extractor.
+     * Note that the patch size limit is still required even if the estimated heap size is enough small,
+     * because every base mapper reads the whole patch contents.
+     * @param tableName the table name
+     * @param cache the target cache.
+     * @param modelClass the data model class, or {@code null} to skip estimating the heap size
+     * @return {@code true} if the table join is enabled, otherwise {@code false}
+     * @see #KEY_TABLE_JOIN_MEMORY_LIMIT
+     * @since 0.10.4
+     */
+    public static boolean isTableJoin(String tableName, CacheStorage cache, Class<?> modelClass) {
+        if (isTableJoinBySize(tableName, cache) == false) {
+            return false;
+        }
+        long limit = cache.getConfiguration().getLong(KEY_TABLE_JOIN_MEMORY_LIMIT, DEFAULT_TABLE_JOIN_MEMORY_LIMIT);
+        if (modelClass == null || limit <= 0) {
+            return true;
+        }
+        try {
+            long count = cache.getPatchRecordCount();
+            if (count < 0) {
+                // the patch was created by older extractors
+                LOG.info(MessageFormat.format("patch record count is not available: {0}",
+                        tableName));
+                return true;
+            }
+            long memory = LongHashSet.estimateMemory(count);
+            LOG.info(MessageFormat.format("patch records: {1} (estimated-memory={2}bytes, memory-limit={3}, {0})",
+                    tableName,
+                    count,
+                    memory,
+                    limit));
+            return memory <= limit;
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to obtain patch record count: {0}",
+                    tableName), e);
+            return false;
+        }
+    }
+
+    private static boolean isTableJoinBySize(String tableName, CacheStorage cache) {
         long limit = cache.getConfiguration().getLong(KEY_TABLE_JOIN_LIMIT, DEFAULT_TABLE_JOIN_LIMIT);
         if (limit <= 0) {
             LOG.info(MessageFormat.format(
@@ -64,11 +176,7 @@ public final class PatchStrategy {
         LOG.info(MessageFormat.format("computing patch content size: {0}",
                 tableName));
         try {
-            long total = 0;
-            for (FileStatus stat : TemporaryStorage.listStatus(
-                    cache.getConfiguration(), cache.getPatchContents("*"))) {
-                total += stat.getLen();
-            }
+            long total = computeSize(cache.getConfiguration(), cache.getPatchContents("*"));
             LOG.info(MessageFormat.format("patch content size: {1}bytes (table-join-limit={2}, {0})",
                     tableName,
                     total,
@@ -81,4 +189,146 @@ public final class PatchStrategy {
             return false;
         }
     }
+
+    /**
+     * Returns whether or not the target cache can be built in the current process.
+     * @param tableName the table name
+     * @param cache the target cache.
+     * @return {@code true} if the cache can be built locally, otherwise {@code false}
+     * @see LocalCacheBuilder
+     * @since 0.10.4
+     */
+    public static boolean isLocalBuild(String tableName, CacheStorage cache) {
+        long limit = cache.getConfiguration().getLong(KEY_LOCAL_BUILD_LIMIT, DEFAULT_LOCAL_BUILD_LIMIT);
+        if (limit <= 0) {
+            LOG.info(MessageFormat.format(
+                    "local cache build is disabled: {0}",
+                    tableName));
+            return false;
+        }
+        LOG.info(MessageFormat.format("computing cache content size: {0}",
+                tableName));
+        try {
+            long total = computeSize(cache.getConfiguration(), cache.getPatchContents("*"))
+                    + computeSize(cache.getConfiguration(), cache.getHeadContents("*"));
+            LOG.info(MessageFormat.format("cache content size: {1}bytes (local-limit={2}, {0})",
+                    tableName,
+                    total,
+                    limit));
+            return total <= limit;
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to compute cache size: {0}",
+                    tableName), e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether or not the patch can be merged into the sorted cache HEAD map-side.
+     * @param tableName the table name
+     * @param cache the target cache.
+     * @return {@code true} if the sorted merge is enabled, otherwise {@code false}
+     * @see SortedMergeMapper
+     * @since 0.10.4
+     */
+    public static boolean isSortedMerge(String tableName, CacheStorage cache) {
+        long limit = cache.getConfiguration().getLong(KEY_SORTED_MERGE_LIMIT, DEFAULT_SORTED_MERGE_LIMIT);
+        if (limit <= 0) {
+            LOG.info(MessageFormat.format(
+                    "cache sorted merge is disabled: {0}",
+                    tableName));
+            return false;
+        }
+        LOG.info(MessageFormat.format("computing patch content size: {0}",
+                tableName));
+        try {
+            long total = computeSize(cache.getConfiguration(), cache.getPatchContents("*"));
+            LOG.info(MessageFormat.format("patch content size: {1}bytes (sorted-merge-limit={2}, {0})",
+                    tableName,
+                    total,
+                    limit));
+            return total <= limit;
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to compute patch size: {0}",
+                    tableName), e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of partitions for the sorted cache HEAD.
+     * @param tableName the table name
+     * @param cache the target cache.
+     * @return the number of partitions
+     * @throws IOException if failed to compute the cache size
+     * @since 0.10.4
+     */
+    public static int computePartitionCount(String tableName, CacheStorage cache) throws IOException {
+        long size = cache.getConfiguration().getLong(KEY_PARTITION_SIZE, DEFAULT_PARTITION_SIZE);
+        if (size <= 0) {
+            return 1;
+        }
+        long total = computeSize(cache.getConfiguration(), cache.getPatchContents("*"))
+                + computeSize(cache.getConfiguration(), cache.getHeadContents("*"));
+        long count = Math.max((total + size - 1) / size, 1L);
+        LOG.info(MessageFormat.format("cache content size: {1}bytes (partition-size={2}, partitions={3}, {0})",
+                tableName,
+                total,
+                size,
+                count));
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns whether or not the partitions of the sorted cache HEAD are still balanced.
+     * The partition boundaries are kept while the patch is merged into each partition,
+     * so that the partitions which receive newer system IDs will continue to grow.
+     * @param tableName the table name
+     * @param cache the target cache.
+     * @param boundaries the current partition boundaries
+     * @return {@code true} if the current partitions are balanced,
+     *     or {@code false} if the cache HEAD should be repartitioned
+     * @see #KEY_PARTITION_SKEW
+     * @since 0.10.4
+     */
+    public static boolean isBalanced(String tableName, CacheStorage cache, long[] boundaries) {
+        Configuration conf = cache.getConfiguration();
+        long size = conf.getLong(KEY_PARTITION_SIZE, DEFAULT_PARTITION_SIZE);
+        double skew = conf.getDouble(KEY_PARTITION_SKEW, DEFAULT_PARTITION_SKEW);
+        if (size <= 0 || skew <= 0) {
+            return true;
+        }
+        long limit = (long) Math.min(size * skew, Long.MAX_VALUE);
+        try {
+            for (int index = 0; index <= boundaries.length; index++) {
+                Path path = CacheStorage.getPartitionContents(cache.getHeadDirectory(), index);
+                long partition = computeSize(conf, path);
+                if (partition > limit) {
+                    LOG.info(MessageFormat.format(
+                            "cache partition is too large: {1} ({2}bytes, limit={3}, {0})",
+                            tableName,
+                            path,
+                            partition,
+                            limit));
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to compute partition size: {0}",
+                    tableName), e);
+            return false;
+        }
+    }
+
+    private static long computeSize(Configuration conf, Path pattern) throws IOException {
+        long total = 0;
+        for (FileStatus stat : TemporaryStorage.listStatus(conf, pattern)) {
+            total += stat.getLen();
+        }
+        return total;
+    }
 }
@@ -0,0 +1,413 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.stage.input.TemporaryInputFormat;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
+
+/**
+ * Driver side utilities for the sorted cache HEAD layout.
+ * <p>
+ * The sorted cache HEAD is range-partitioned by {@link ThunderGateCacheSupport#__tgc__SystemId() system IDs},
+ * and each partition is sorted by them.
+ * </p>
+ * @param <T> the data model type
+ * @since 0.10.4
+ * @see CacheStorage#getPartitionContents(Path, int)
+ */
+public class SortedCacheSupport<T> {
+
+    static final Log LOG = LogFactory.getLog(SortedCacheSupport.class);
+
+    /**
+     * The Hadoop configuration key of the maximum number of patch records to sort on the heap at once.
+     * The patch is sorted in multiple runs and then merged if it has more records.
+     */
+    public static final String KEY_SORT_BUFFER_LIMIT = "com.asakusafw.thundergate.cache.sortedmerge.buffer";
+
+    /**
+     * The default value of {@link #KEY_SORT_BUFFER_LIMIT}.
+     */
+    public static final int DEFAULT_SORT_BUFFER_LIMIT = 500_000;
+
+    /**
+     * The Hadoop configuration key of the maximum number of input splits to sample partition boundaries.
+     */
+    public static final String KEY_SAMPLE_SPLITS = "com.asakusafw.thundergate.cache.partition.sample.splits";
+
+    /**
+     * The default value of {@link #KEY_SAMPLE_SPLITS}.
+     */
+    public static final int DEFAULT_SAMPLE_SPLITS = 64;
+
+    private static final String RUN_DIRECTORY_NAME = "_runs";
+
+    private static final int SAMPLES_PER_PARTITION = 100;
+
+    private static final Comparator<Object> SYSTEM_ID_COMPARATOR = new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return Long.compare(
+                    ((ThunderGateCacheSupport) o1).__tgc__SystemId(),
+                    ((ThunderGateCacheSupport) o2).__tgc__SystemId());
+        }
+    };
+
+    private final CacheStorage storage;
+
+    private final Class<T> modelClass;
+
+    private final Configuration configuration;
+
+    /**
+     * Creates a new instance.
+     * @param storage the target cache storage
+     * @param modelClass the data model class, must be a sub-type of {@link ThunderGateCacheSupport}
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public SortedCacheSupport(CacheStorage storage, Class<T> modelClass) {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage must not be null"); //$NON-NLS-1$
+        }
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass must not be null"); //$NON-NLS-1$
+        }
+        if (ThunderGateCacheSupport.class.isAssignableFrom(modelClass) == false) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "{0} must be a subtype of {1}",
+                    modelClass.getName(),
+                    ThunderGateCacheSupport.class.getName()));
+        }
+        this.storage = storage;
+        this.modelClass = modelClass;
+        this.configuration = storage.getConfiguration();
+    }
+
+    /**
+     * Computes partition boundaries from the current HEAD and the patch.
+     * <p>
+     * This only reads a bounded subset of the contents, like Hadoop's {@code InputSampler.SplitSampler}:
+     * it picks at most {@link #KEY_SAMPLE_SPLITS} input splits evenly from the HEAD and the patch,
+     * and then reads the leading records of each split.
+     * The boundaries are approximate, and skewed partitions will be rebalanced in the later updates.
+     * </p>
+     * @param partitions the number of partitions
+     * @return the computed boundaries, may be fewer than {@code partitions - 1}
+     * @throws IOException if failed to read the cache contents
+     */
+    public long[] computeBoundaries(int partitions) throws IOException {
+        if (partitions <= 1) {
+            return new long[0];
+        }
+        int capacity = (int) Math.min((long) partitions * SAMPLES_PER_PARTITION, Integer.MAX_VALUE - 8);
+        List<Path> paths = new ArrayList<>();
+        for (Path pattern : new Path[] { storage.getHeadContents("*"), storage.getPatchContents("*") }) {
+            for (FileStatus stat : TemporaryStorage.listStatus(configuration, pattern)) {
+                paths.add(stat.getPath());
+            }
+        }
+        if (paths.isEmpty()) {
+            return new long[0];
+        }
+        Job job = Job.getInstance(configuration);
+        FileInputFormat.setInputPaths(job, paths.toArray(new Path[paths.size()]));
+        TemporaryInputFormat<T> format = new TemporaryInputFormat<>();
+        List<InputSplit> splits;
+        try {
+            splits = format.getSplits(job);
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        }
+        int maxSplits = Math.max(configuration.getInt(KEY_SAMPLE_SPLITS, DEFAULT_SAMPLE_SPLITS), 1);
+        int sampleSplits = Math.min(splits.size(), maxSplits);
+        if (sampleSplits == 0) {
+            return new long[0];
+        }
+        int recordsPerSplit = Math.max((capacity + sampleSplits - 1) / sampleSplits, 1);
+        long[] samples = new long[capacity];
+        int count = 0;
+        for (int i = 0; i < sampleSplits && count < capacity; i++) {
+            InputSplit split = splits.get((int) ((long) i * splits.size() / sampleSplits));
+            TaskAttemptContext context = new TaskAttemptContextImpl(
+                    job.getConfiguration(),
+                    new TaskAttemptID(new TaskID(new JobID(), TaskType.MAP, i), 0));
+            try (RecordReader<NullWritable, T> reader = format.createRecordReader(split, context)) {
+                reader.initialize(split, context);
+                for (int n = 0; n < recordsPerSplit && count < capacity && reader.nextKeyValue(); n++) {
+                    samples[count++] = ((ThunderGateCacheSupport) reader.getCurrentValue()).__tgc__SystemId();
+                }
+            } catch (InterruptedException e) {
+                throw (IOException) new InterruptedIOException().initCause(e);
+            }
+        }
+        Arrays.sort(samples, 0, count);
+        long[] results = new long[partitions - 1];
+        int size = 0;
+        for (int i = 1; i < partitions; i++) {
+            int index = (int) ((long) count * i / partitions);
+            if (index >= count) {
+                break;
+            }
+            long boundary = samples[index];
+            if (size == 0 || results[size - 1] < boundary) {
+                results[size++] = boundary;
+            }
+        }
+        LOG.info(MessageFormat.format(
+                "computed cache partition boundaries: {0} partitions from {1} samples ({2}/{3} splits)",
+                size + 1,
+                count,
+                sampleSplits,
+                splits.size()));
+        return Arrays.copyOf(results, size);
+    }
+
+    /**
+     * Sorts the patch and splits it into the individual partitions.
+     * Each output partition only contains the first record for each system ID, including deleted ones.
+     * If the patch has more records than {@link #KEY_SORT_BUFFER_LIMIT}, this spills the sorted runs into
+     * {@code <output>/_runs} and then merges them.
+     * @param boundaries the partition boundaries
+     * @param output the output directory
+     * @return the indices of partitions which have any patch records
+     * @throws IOException if failed to sort the patch
+     * @see CacheStorage#getPartitionContents(Path, int)
+     */
+    public SortedSet<Integer> sortPatch(long[] boundaries, Path output) throws IOException {
+        int limit = Math.max(configuration.getInt(KEY_SORT_BUFFER_LIMIT, DEFAULT_SORT_BUFFER_LIMIT), 1);
+        Path runDirectory = new Path(output, RUN_DIRECTORY_NAME);
+        List<Run<T>> runs = new ArrayList<>();
+        try {
+            List<T> records = new ArrayList<>();
+            long total = 0;
+            for (FileStatus stat : TemporaryStorage.listStatus(configuration, storage.getPatchContents("*"))) {
+                try (ModelInput<T> in = TemporaryStorage.openInput(configuration, modelClass, stat.getPath())) {
+                    while (true) {
+                        T buffer = ReflectionUtils.newInstance(modelClass, configuration);
+                        if (in.readTo(buffer) == false) {
+                            break;
+                        }
+                        records.add(buffer);
+                        total++;
+                        if (records.size() >= limit) {
+                            runs.add(spill(records, CacheStorage.getPartitionContents(runDirectory, runs.size())));
+                            records = new ArrayList<>();
+                        }
+                    }
+                }
+            }
+            // stable sort: the first record wins
+            Collections.sort(records, SYSTEM_ID_COMPARATOR);
+            runs.add(new MemoryRun<>(records));
+            LOG.info(MessageFormat.format("loaded patch: {0} records ({1} spilled runs)",
+                    total,
+                    runs.size() - 1));
+            return split(boundaries, output, runs);
+        } finally {
+            for (Run<T> run : runs) {
+                run.close();
+            }
+            runDirectory.getFileSystem(configuration).delete(runDirectory, true);
+        }
+    }
+
+    private Run<T> spill(List<T> records, Path path) throws IOException {
+        Collections.sort(records, SYSTEM_ID_COMPARATOR);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(MessageFormat.format("spilling sorted patch: {0} ({1} records)",
+                    path,
+                    records.size()));
+        }
+        try (ModelOutput<T> out = TemporaryStorage.openOutput(configuration, modelClass, path)) {
+            for (T record : records) {
+                out.write(record);
+            }
+        }
+        return new FileRun<>(TemporaryStorage.openInput(configuration, modelClass, path),
+                ReflectionUtils.newInstance(modelClass, configuration));
+    }
+
+    private SortedSet<Integer> split(long[] boundaries, Path output, List<Run<T>> runs) throws IOException {
+        // earlier runs have earlier records, so that they win on the same system ID
+        final Map<Run<T>, Integer> order = new HashMap<>();
+        PriorityQueue<Run<T>> queue = new PriorityQueue<>(runs.size(), new Comparator<Run<T>>() {
+            @Override
+            public int compare(Run<T> o1, Run<T> o2) {
+                int diff = SYSTEM_ID_COMPARATOR.compare(o1.current(), o2.current());
+                if (diff != 0) {
+                    return diff;
+                }
+                return Integer.compare(order.get(o1), order.get(o2));
+            }
+        });
+        for (Run<T> run : runs) {
+            order.put(run, order.size());
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+        SortedSet<Integer> results = new TreeSet<>();
+        int current = -1;
+        long lastId = 0;
+        ModelOutput<T> out = null;
+        try {
+            while (queue.isEmpty() == false) {
+                Run<T> run = queue.poll();
+                T buffer = run.current();
+                long id = ((ThunderGateCacheSupport) buffer).__tgc__SystemId();
+                if (out == null || id != lastId) {
+                    lastId = id;
+                    int index = CacheStorage.getPartitionIndex(boundaries, id);
+                    if (index != current) {
+                        if (out != null) {
+                            out.close();
+                            out = null;
+                        }
+                        current = index;
+                        out = TemporaryStorage.openOutput(
+                                configuration, modelClass, CacheStorage.getPartitionContents(output, index));
+                        results.add(index);
+                    }
+                    out.write(buffer);
+                }
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A sorted run of the patch records.
+     * @param <T> the data model type
+     */
+    private interface Run<T> extends Closeable {
+
+        /**
+         * Advances this run.
+         * @return {@code true} if the next record exists, otherwise {@code false}
+         * @throws IOException if failed to read the next record
+         */
+        boolean next() throws IOException;
+
+        /**
+         * Returns the current record.
+         * @return the current record
+         */
+        T current();
+    }
+
+    private static final class MemoryRun<T> implements Run<T> {
+
+        private final Iterator<T> iterator;
+
+        private T current;
+
+        MemoryRun(List<T> records) {
+            this.iterator = records.iterator();
+        }
+
+        @Override
+        public boolean next() {
+            if (iterator.hasNext()) {
+                current = iterator.next();
+                return true;
+            }
+            current = null;
+            return false;
+        }
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+        @Override
+        public void close() {
+            return;
+        }
+    }
+
+    private static final class FileRun<T> implements Run<T> {
+
+        private final ModelInput<T> input;
+
+        private final T buffer;
+
+        FileRun(ModelInput<T> input, T buffer) {
+            this.input = input;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            return input.readTo(buffer);
+        }
+
+        @Override
+        public T current() {
+            return buffer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
+
+/**
+ * Merges a sorted patch partition into the corresponding sorted cache HEAD partition.
+ * If the patch partition does not exist, this only drops the invalidated records from the HEAD partition.
+ * Each input line must be a partition index.
+ * @since 0.10.4
+ */
+public class SortedMergeMapper extends Mapper<LongWritable, Text, NullWritable, NullWritable> {
+
+    static final Log LOG = LogFactory.getLog(SortedMergeMapper.class);
+
+    /**
+     * The Hadoop configuration key of the cache HEAD directory.
+     */
+    public static final String KEY_HEAD_DIRECTORY = "com.asakusafw.thundergate.cache.sortedmerge.head";
+
+    /**
+     * The Hadoop configuration key of the sorted patch directory.
+     */
+    public static final String KEY_PATCH_DIRECTORY = "com.asakusafw.thundergate.cache.sortedmerge.patch";
+
+    /**
+     * The Hadoop configuration key of the output directory.
+     */
+    public static final String KEY_OUTPUT_DIRECTORY = "com.asakusafw.thundergate.cache.sortedmerge.output";
+
+    /**
+     * The Hadoop configuration key of the data model class name.
+     */
+    public static final String KEY_MODEL_CLASS = "com.asakusafw.thundergate.cache.sortedmerge.model";
+
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    private Path headDirectory;
+
+    private Path patchDirectory;
+
+    private Path outputDirectory;
+
+    private Class<?> modelClass;
+
+    private long invalidate;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        this.headDirectory = new Path(conf.get(KEY_HEAD_DIRECTORY));
+        this.patchDirectory = new Path(conf.get(KEY_PATCH_DIRECTORY));
+        this.outputDirectory = new Path(conf.get(KEY_OUTPUT_DIRECTORY));
+        try {
+            this.modelClass = conf.getClassByName(conf.get(KEY_MODEL_CLASS));
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        this.invalidate = Invalidation.getInvalidationTimestamp(conf);
+    }
+
+    @Override
+    protected void map(
+            LongWritable key,
+            Text value,
+            Context context) throws IOException, InterruptedException {
+        String line = value.toString().trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        int index = Integer.parseInt(line);
+        long count = merge(context, modelClass, index);
+        LOG.info(MessageFormat.format("merged cache partition: {0} ({1} records)",
+                CacheStorage.getPartitionContents(outputDirectory, index),
+                count));
+    }
+
+    private <T> long merge(Context context, Class<T> dataType, int index) throws IOException {
+        Configuration conf = context.getConfiguration();
+        Path basePath = CacheStorage.getPartitionContents(headDirectory, index);
+        Path patchPath = CacheStorage.getPartitionContents(patchDirectory, index);
+        Path outputPath = CacheStorage.getPartitionContents(outputDirectory, index);
+        FileSystem fs = basePath.getFileSystem(conf);
+        boolean baseExists = fs.exists(basePath);
+        // the partition may have no patch records if it is only rewritten to drop invalidated records
+        boolean patchExists = fs.exists(patchPath);
+
+        T baseBuffer = ReflectionUtils.newInstance(dataType, conf);
+        T patchBuffer = ReflectionUtils.newInstance(dataType, conf);
+        ThunderGateCacheSupport base = (ThunderGateCacheSupport) baseBuffer;
+        ThunderGateCacheSupport patch = (ThunderGateCacheSupport) patchBuffer;
+        long count = 0;
+        long step = 0;
+        try (ModelInput<T> baseIn = baseExists ? TemporaryStorage.openInput(conf, dataType, basePath) : null;
+                ModelInput<T> patchIn = patchExists ? TemporaryStorage.openInput(conf, dataType, patchPath) : null;
+                ModelOutput<T> out = TemporaryStorage.openOutput(conf, dataType, outputPath)) {
+            boolean hasBase = baseIn != null && baseIn.readTo(baseBuffer);
+            boolean hasPatch = patchIn != null && patchIn.readTo(patchBuffer);
+            while (hasBase || hasPatch) {
+                if (hasPatch == false
+                        || (hasBase && base.__tgc__SystemId() < patch.__tgc__SystemId())) {
+                    if (base.__tgc__Deleted() == false && Invalidation.isStillValid(base, invalidate)) {
+                        out.write(baseBuffer);
+                        count++;
+                    }
+                    hasBase = baseIn.readTo(baseBuffer);
+                } else {
+                    if (hasBase && base.__tgc__SystemId() == patch.__tgc__SystemId()) {
+                        // the patch record replaces the base one
+                        hasBase = baseIn.readTo(baseBuffer);
+                    }
+                    if (patch.__tgc__Deleted() == false) {
+                        out.write(patchBuffer);
+                        count++;
+                    }
+                    hasPatch = patchIn.readTo(patchBuffer);
+                }
+                if (++step % PROGRESS_INTERVAL == 0) {
+                    context.progress();
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -16,15 +16,12 @@
 package com.asakusafw.thundergate.runtime.cache.mapreduce;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Mapper;
@@ -38,6 +35,7 @@ import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
 /**
  * Patcher with distributed cache.
  * @since 0.8.1
+ * @version 0.10.4
  */
 public class TableJoinBaseMapper extends Mapper<
         NullWritable, ThunderGateCacheSupport,
@@ -50,9 +48,7 @@ public class TableJoinBaseMapper extends Mapper<
      */
     public static final String RESOURCE_KEY = "patch";
 
-    private Set<LongWritable> conflicts;
-
-    private final LongWritable buffer = new LongWritable();
+    private LongHashSet conflicts;
 
     private long invalidate;
 
@@ -63,16 +59,16 @@ public class TableJoinBaseMapper extends Mapper<
         this.invalidate = Invalidation.getInvalidationTimestamp(context.getConfiguration());
     }
 
-    private static <T extends Writable> Set<LongWritable> buildConflicts(
+    private static <T extends Writable> LongHashSet buildConflicts(
             Context context, Class<T> dataType) throws IOException {
         Configuration conf = context.getConfiguration();
         List<Path> caches = getPatchPaths(context);
         T buffer = ReflectionUtils.newInstance(dataType, conf);
-        Set<LongWritable> results = new HashSet<>();
+        LongHashSet results = new LongHashSet();
         for (Path path : caches) {
             try (ModelInput<T> input = TemporaryStorage.openInput(conf, dataType, path)) {
                 while (input.readTo(buffer)) {
-                    results.add(new LongWritable(((ThunderGateCacheSupport) buffer).__tgc__SystemId()));
+                    results.add(((ThunderGateCacheSupport) buffer).__tgc__SystemId());
                 }
             }
         }
@@ -90,9 +86,8 @@ public class TableJoinBaseMapper extends Mapper<
             NullWritable key,
             ThunderGateCacheSupport value,
             Context context) throws IOException, InterruptedException {
-        buffer.set(value.__tgc__SystemId());
         if (value.__tgc__Deleted() == false
-                && conflicts.contains(buffer) == false
+                && conflicts.contains(value.__tgc__SystemId()) == false
                 && Invalidation.isStillValid(value, invalidate)) {
             context.write(key, value);
         }
@@ -25,6 +25,7 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Properties;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -217,6 +218,97 @@ public class CacheStorageTest {
         }
     }
 
+    /**
+     * Save and restore partition boundaries.
+     * @throws Exception if failed
+     */
+    @Test
+    public void headPartitionBoundaries() throws Exception {
+        CacheInfo info = new CacheInfo(
+                "a",
+                "id",
+                calendar("2011-12-13 14:15:16"),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+        File dir = folder.newFolder("testing");
+        dir.delete();
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            assertThat(storage.getHeadPartitionBoundaries(), is(nullValue()));
+
+            storage.putHeadCacheInfo(info);
+            assertThat(storage.getHeadPartitionBoundaries(), is(nullValue()));
+
+            Properties properties = new Properties();
+            info.storeTo(properties);
+            properties.setProperty(CacheInfo.KEY_PARTITION_BOUNDARIES,
+                    CacheStorage.formatPartitionBoundaries(new long[] { 10, 20, 30 }));
+            try (FSDataOutputStream out = storage.getFileSystem().create(storage.getHeadProperties())) {
+                properties.store(out, null);
+            }
+            assertThat(storage.getHeadPartitionBoundaries(), is(new long[] { 10, 20, 30 }));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+        }
+    }
+
+    /**
+     * Save and restore the number of patch records.
+     * @throws Exception if failed
+     */
+    @Test
+    public void patchRecordCount() throws Exception {
+        CacheInfo info = new CacheInfo(
+                "a",
+                "id",
+                calendar("2011-12-13 14:15:16"),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+        File dir = folder.newFolder("testing");
+        dir.delete();
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            assertThat(storage.getPatchRecordCount(), is(-1L));
+
+            storage.putPatchCacheInfo(info);
+            assertThat(storage.getPatchRecordCount(), is(-1L));
+
+            storage.putPatchRecordCount(12345L);
+            assertThat(storage.getPatchRecordCount(), is(12345L));
+            assertThat(storage.getPatchCacheInfo(), is(info));
+        }
+    }
+
+    /**
+     * Parse and format partition boundaries.
+     */
+    @Test
+    public void partitionBoundaries() {
+        assertThat(CacheStorage.parsePartitionBoundaries(""), is(new long[0]));
+        assertThat(CacheStorage.formatPartitionBoundaries(new long[0]), is(""));
+
+        long[] boundaries = { -5, 0, 100 };
+        String string = CacheStorage.formatPartitionBoundaries(boundaries);
+        assertThat(CacheStorage.parsePartitionBoundaries(string), is(boundaries));
+
+        assertThat(CacheStorage.getPartitionIndex(boundaries, -10), is(0));
+        assertThat(CacheStorage.getPartitionIndex(boundaries, -5), is(1));
+        assertThat(CacheStorage.getPartitionIndex(boundaries, -1), is(1));
+        assertThat(CacheStorage.getPartitionIndex(boundaries, 0), is(2));
+        assertThat(CacheStorage.getPartitionIndex(boundaries, 99), is(2));
+        assertThat(CacheStorage.getPartitionIndex(boundaries, 100), is(3));
+        assertThat(CacheStorage.getPartitionIndex(new long[0], 100), is(0));
+    }
+
+    /**
+     * Parse unsorted partition boundaries.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void partitionBoundaries_unsorted() {
+        CacheStorage.parsePartitionBoundaries("10,5");
+    }
+
     private String tos(Calendar calendar) {
         return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(calendar.getTime());
     }
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.runtime.windows.WindowsSupport;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * Test for {@link CacheHistory}.
+ */
+public class CacheHistoryTest {
+
+    /**
+     * Support for Windows platform.
+     */
+    @ClassRule
+    public static final WindowsSupport WINDOWS_SUPPORT = new WindowsSupport();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback() throws Exception {
+        File dir = folder.newFolder();
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        put(new File(head, CacheStorage.META_FILE_NAME), "v1");
+        put(new File(head, "a"), "a1");
+        put(new File(head, "b"), "b1");
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            CacheHistory history = new CacheHistory(storage);
+            update(history, dir, "v2", "b2");
+
+            assertThat(history.getEntries(), hasSize(1));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v2"));
+
+            assertThat(history.rollback(), is(true));
+            assertThat(history.getEntries(), hasSize(0));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v1"));
+            assertThat(get(new File(head, "a")), is("a1"));
+            assertThat(get(new File(head, "b")), is("b1"));
+            assertThat(new File(head, CacheHistory.MANIFEST_FILE_NAME).exists(), is(false));
+        }
+    }
+
+    /**
+     * roll back multiple versions.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_multiple() throws Exception {
+        File dir = folder.newFolder();
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        put(new File(head, CacheStorage.META_FILE_NAME), "v1");
+        put(new File(head, "a"), "a1");
+        put(new File(head, "b"), "b1");
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            CacheHistory history = new CacheHistory(storage);
+            update(history, dir, "v2", "b2");
+            update(history, dir, "v3", "b3");
+            assertThat(history.getEntries(), hasSize(2));
+
+            assertThat(history.rollback(), is(true));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v2"));
+            assertThat(get(new File(head, "a")), is("a1"));
+            assertThat(get(new File(head, "b")), is("b2"));
+
+            assertThat(history.rollback(), is(true));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v1"));
+            assertThat(get(new File(head, "a")), is("a1"));
+            assertThat(get(new File(head, "b")), is("b1"));
+        }
+    }
+
+    /**
+     * roll back without history.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_empty() throws Exception {
+        File dir = folder.newFolder();
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        put(new File(head, CacheStorage.META_FILE_NAME), "v1");
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            CacheHistory history = new CacheHistory(storage);
+            assertThat(history.rollback(), is(false));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v1"));
+        }
+    }
+
+    /**
+     * prune by the number of entries.
+     * @throws Exception if failed
+     */
+    @Test
+    public void prune() throws Exception {
+        File dir = folder.newFolder();
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        put(new File(head, CacheStorage.META_FILE_NAME), "v1");
+        put(new File(head, "a"), "a1");
+        put(new File(head, "b"), "b1");
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            CacheHistory history = new CacheHistory(storage);
+            update(history, dir, "v2", "b2");
+            update(history, dir, "v3", "b3");
+            update(history, dir, "v4", "b4");
+
+            assertThat(history.prune(2, -1), is(1));
+            assertThat(history.getEntries(), hasSize(2));
+
+            assertThat(history.rollback(), is(true));
+            assertThat(history.rollback(), is(true));
+            assertThat(history.rollback(), is(false));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v2"));
+            assertThat(get(new File(head, "a")), is("a1"));
+            assertThat(get(new File(head, "b")), is("b2"));
+        }
+    }
+
+    /**
+     * prune by the total size of entries.
+     * @throws Exception if failed
+     */
+    @Test
+    public void prune_size() throws Exception {
+        File dir = folder.newFolder();
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        put(new File(head, CacheStorage.META_FILE_NAME), "v1");
+        put(new File(head, "a"), "a1");
+        put(new File(head, "b"), "b1");
+        try (CacheStorage storage = new CacheStorage(new Configuration(), dir.toURI())) {
+            CacheHistory history = new CacheHistory(storage);
+            update(history, dir, "v2", "b2");
+            update(history, dir, "v3", "b3");
+
+            assertThat(history.prune(10, 0), is(2));
+            assertThat(history.getEntries(), hasSize(0));
+            assertThat(get(new File(head, CacheStorage.META_FILE_NAME)), is("v3"));
+            assertThat(get(new File(head, "a")), is("a1"));
+        }
+    }
+
+    private static void update(CacheHistory history, File dir, String version, String b) throws IOException {
+        File head = new File(dir, CacheStorage.HEAD_DIRECTORY_NAME);
+        File next = new File(dir, "NEXT");
+        File previous = new File(dir, "PREVIOUS");
+        put(new File(next, CacheStorage.META_FILE_NAME), version);
+        put(new File(next, "b"), b);
+        assertThat(new File(head, "a").renameTo(new File(next, "a")), is(true));
+        assertThat(head.renameTo(previous), is(true));
+        assertThat(next.renameTo(head), is(true));
+        history.push(new Path(previous.toURI()), Arrays.asList("a"));
+    }
+
+    private static void put(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), Collections.singleton(contents), StandardCharsets.UTF_8);
+    }
+
+    private static String get(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).get(0);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link LongHashSet}.
+ */
+public class LongHashSetTest {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        LongHashSet set = new LongHashSet();
+        assertThat(set.contains(1), is(false));
+        assertThat(set.add(1), is(true));
+        assertThat(set.add(1), is(false));
+        assertThat(set.contains(1), is(true));
+        assertThat(set.contains(2), is(false));
+        assertThat(set.size(), is(1));
+    }
+
+    /**
+     * zero and negative values.
+     */
+    @Test
+    public void special_values() {
+        LongHashSet set = new LongHashSet();
+        assertThat(set.contains(0), is(false));
+        assertThat(set.add(0), is(true));
+        assertThat(set.add(0), is(false));
+        assertThat(set.add(-1), is(true));
+        assertThat(set.add(Long.MIN_VALUE), is(true));
+        assertThat(set.contains(0), is(true));
+        assertThat(set.contains(-1), is(true));
+        assertThat(set.contains(Long.MIN_VALUE), is(true));
+        assertThat(set.contains(Long.MAX_VALUE), is(false));
+        assertThat(set.size(), is(3));
+    }
+
+    /**
+     * many values.
+     */
+    @Test
+    public void many() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(6502);
+        for (int i = 0; i < 100000; i++) {
+            long value = i % 2 == 0 ? i : random.nextLong();
+            assertThat(set.add(value), is(expected.add(value)));
+        }
+        assertThat(set.size(), is(expected.size()));
+        for (Long value : expected) {
+            assertThat(set.contains(value), is(true));
+        }
+        for (int i = 1; i < 100000; i += 2) {
+            assertThat(set.contains(i), is(expected.contains((long) i)));
+        }
+    }
+
+    /**
+     * estimates memory.
+     */
+    @Test
+    public void estimateMemory() {
+        assertThat(LongHashSet.estimateMemory(1_000_000), is(lessThan(64L * 1_000_000)));
+        assertThat(LongHashSet.estimateMemory(1_000_000), is(greaterThanOrEqualTo(16L * 1_000_000)));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.thundergate.runtime.cache.mapreduce;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Calendar;
+import java.util.Collections;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.runtime.windows.WindowsSupport;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * Test for {@link PatchStrategy}.
+ */
+public class PatchStrategyTest {
+
+    /**
+     * Support for Windows platform.
+     */
+    @ClassRule
+    public static final WindowsSupport WINDOWS_SUPPORT = new WindowsSupport();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * table join is limited by the recorded number of patch records.
+     * @throws Exception if failed
+     */
+    @Test
+    public void isTableJoin_memory() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setLong(PatchStrategy.KEY_TABLE_JOIN_LIMIT, Long.MAX_VALUE);
+        conf.setLong(PatchStrategy.KEY_TABLE_JOIN_MEMORY_LIMIT, LongHashSet.estimateMemory(1000));
+        try (CacheStorage storage = prepare(conf)) {
+            storage.putPatchRecordCount(1000);
+            assertThat(PatchStrategy.isTableJoin("testing", storage, Object.class), is(true));
+
+            storage.putPatchRecordCount(1_000_000);
+            assertThat(PatchStrategy.isTableJoin("testing", storage, Object.class), is(false));
+
+            // skips estimating heap size
+            assertThat(PatchStrategy.isTableJoin("testing", storage), is(true));
+        }
+    }
+
+    /**
+     * table join only with patch size if the patch does not have the number of records.
+     * @throws Exception if failed
+     */
+    @Test
+    public void isTableJoin_unknown_count() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setLong(PatchStrategy.KEY_TABLE_JOIN_LIMIT, Long.MAX_VALUE);
+        conf.setLong(PatchStrategy.KEY_TABLE_JOIN_MEMORY_LIMIT, 1L);
+        try (CacheStorage storage = prepare(conf)) {
+            assertThat(PatchStrategy.isTableJoin("testing", storage, Object.class), is(true));
+        }
+    }
+
+    /**
+     * table join is limited by the patch size.
+     * @throws Exception if failed
+     */
+    @Test
+    public void isTableJoin_size() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setLong(PatchStrategy.KEY_TABLE_JOIN_LIMIT, 1L);
+        try (CacheStorage storage = prepare(conf)) {
+            storage.putPatchRecordCount(1);
+            assertThat(PatchStrategy.isTableJoin("testing", storage, Object.class), is(false));
+        }
+    }
+
+    private CacheStorage prepare(Configuration conf) throws Exception {
+        File dir = folder.newFolder("testing");
+        dir.delete();
+        CacheStorage storage = new CacheStorage(conf, dir.toURI());
+        storage.putPatchCacheInfo(new CacheInfo(
+                "a",
+                "id",
+                Calendar.getInstance(),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L));
+        try (FSDataOutputStream output = storage.getFileSystem().create(storage.getPatchContents("0"))) {
+            output.write("Hello, world".getBytes());
+        }
+        return storage;
+    }
+}
@@ -26,6 +26,8 @@ Parameters:
     subcommand
         "create" - create a new cache
         "update" - update a cache
+        "rollback" - restore the latest retained previous version of a cache
+                     (only for the cache directory, use bin/rollback-cache.sh instead)
     batch-id
         batch ID of current execution
     flow-id
@@ -0,0 +1,13 @@
+-- Triggers to record changed SIDs into __TG_CHANGE_LOG (for import.change-capture=TABLE).
+-- Create them for each cached table, replacing "EXAMPLE" with the table name
+-- and "SID" with its system ID column name.
+-- Rows are only recorded on INSERT and UPDATE; cached tables must delete rows logically.
+
+CREATE TRIGGER EXAMPLE__TG_CL_INSERT AFTER INSERT ON EXAMPLE
+    FOR EACH ROW INSERT INTO __TG_CHANGE_LOG (TABLE_NAME, SYSTEM_ID, CHANGED_TIME) VALUES ('EXAMPLE', NEW.SID, NOW());
+
+CREATE TRIGGER EXAMPLE__TG_CL_UPDATE AFTER UPDATE ON EXAMPLE
+    FOR EACH ROW INSERT INTO __TG_CHANGE_LOG (TABLE_NAME, SYSTEM_ID, CHANGED_TIME) VALUES ('EXAMPLE', NEW.SID, NOW());
+
+-- Tables without both triggers are still extracted by scanning their timestamp column.
+-- The importer purges change logs which are older than the last build of every cache of the table.
@@ -21,6 +21,14 @@ CREATE  TABLE `IMPORT_RECORD_LOCK` (
   `TABLE_NAME` VARCHAR(64) NOT NULL ,
   PRIMARY KEY (`JOBFLOW_SID`, `TABLE_NAME`)) ENGINE=InnoDB;
 
+CREATE  TABLE `IMPORT_RECORD_LOCK_RANGE` (
+  `TABLE_NAME` VARCHAR(64) NOT NULL ,
+  `FIRST_SID` BIGINT NOT NULL ,
+  `LAST_SID` BIGINT NOT NULL ,
+  `JOBFLOW_SID` BIGINT NOT NULL ,
+  PRIMARY KEY (`TABLE_NAME`, `FIRST_SID`),
+  INDEX I_RECORD_LOCK_RANGE_JOBFLOW_SID (JOBFLOW_SID, TABLE_NAME)) ENGINE=InnoDB;
+
 CREATE  TABLE `EXPORT_TEMP_TABLE` (
   `JOBFLOW_SID` BIGINT NOT NULL ,
   `TABLE_NAME` VARCHAR(64) NOT NULL ,
@@ -49,3 +57,10 @@ CREATE  TABLE __TG_CACHE_LOCK (
     PRIMARY KEY (CACHE_ID),
     INDEX I_CACHE_LOCK_EXECUTION_ID (EXECUTION_ID)
 ) ENGINE=InnoDB;
+
+CREATE  TABLE __TG_CHANGE_LOG (
+    TABLE_NAME VARCHAR(64) NOT NULL,
+    SYSTEM_ID BIGINT NOT NULL,
+    CHANGED_TIME DATETIME NOT NULL,
+    INDEX I_CHANGE_LOG_TABLE_NAME (TABLE_NAME, CHANGED_TIME, SYSTEM_ID)
+) ENGINE=InnoDB;
@@ -0,0 +1,296 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.util.Tool;
+
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.transfer.AgentRequest;
+import com.asakusafw.bulkloader.transfer.FileList;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * Program entry of the long-lived ThunderGate agent on the Hadoop client.
+ * <p>
+ * This accepts {@link AgentRequest requests} on a socket, and serves the same {@link FileList} protocol as
+ * {@link GetCacheInfoRemote} and {@link DeleteCacheStorageRemote} without launching a new JVM for each request.
+ * This also keeps the Hadoop file systems and an in-memory index of cache information across the requests.
+ * </p>
+ * <p>
+ * The listening port and the other settings are in {@code bulkloader-conf-hc.properties}.
+ * This program does not require any arguments.
+ * </p>
+ * <p>
+ * This refuses to start without a shared secret, and only listens on the loopback address unless
+ * {@code agent.bind-address} is explicitly specified.
+ * Note that the shared secret is sent in cleartext, so that the connections must be protected by other means
+ * (e.g. SSH port forwarding) if they pass through untrusted networks.
+ * Deleting cache storages is restricted under the cache base directory (see {@link DeleteCacheStorageRemote}).
+ * </p>
+ * @since 0.10.4
+ * @see CacheAgentClient
+ */
+public class CacheAgent extends Configured implements Tool {
+
+    static final Log LOG = new Log(CacheAgent.class);
+
+    /**
+     * The service name for {@link GetCacheInfoRemote}.
+     * The arguments are target name, batch ID, flow ID, and execution ID.
+     */
+    public static final String SERVICE_GET_CACHE_INFO = "get-cache-info";
+
+    /**
+     * The service name for {@link DeleteCacheStorageRemote}.
+     * The argument is target name.
+     */
+    public static final String SERVICE_DELETE_CACHE_STORAGE = "delete-cache-storage";
+
+    private static final String SURROGATE_ID = "agent";
+
+    private static final String BIND_ANY = "*";
+
+    private static final List<String> PROPERTIES = Constants.PROPERTIES_HC;
+
+    private static final int HEADER_TIMEOUT = 60 * 1000;
+
+    private final CacheInfoIndex index = new CacheInfoIndex();
+
+    String userName = System.getProperty("user.name");
+
+    String secret = "";
+
+    /**
+     * Program entry for normal launching (see class documentation).
+     * @param args program arguments
+     * @throws Exception if failed to execute
+     */
+    public static void main(String[] args) throws Exception {
+        RuntimeContext.set(RuntimeContext.DEFAULT.apply(System.getenv()));
+        CacheAgent agent = new CacheAgent();
+        agent.setConf(new Configuration());
+        int exitCode = agent.run(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (BulkLoaderInitializer.initHadoopCluster(SURROGATE_ID, SURROGATE_ID, PROPERTIES) == false) {
+            LOG.error("TG-AGENT-01002");
+            return Constants.EXIT_CODE_ERROR;
+        }
+        String configuredSecret = ConfigurationLoader.getProperty(Constants.PROP_KEY_AGENT_SECRET);
+        if (configuredSecret == null || configuredSecret.isEmpty()) {
+            LOG.error("TG-AGENT-01009", Constants.PROP_KEY_AGENT_SECRET);
+            return Constants.EXIT_CODE_ERROR;
+        }
+        this.secret = configuredSecret;
+        String portString = ConfigurationLoader.getProperty(Constants.PROP_KEY_AGENT_PORT);
+        int port;
+        try {
+            port = Integer.parseInt(portString == null ? "" : portString.trim());
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port < 0 || port > 0xffff) {
+            LOG.error("TG-AGENT-01003", portString);
+            return Constants.EXIT_CODE_ERROR;
+        }
+        String bindAddress = ConfigurationLoader.getProperty(Constants.PROP_KEY_AGENT_BIND_ADDRESS);
+        int threads = Integer.parseInt(ConfigurationLoader.getProperty(Constants.PROP_KEY_AGENT_THREADS));
+
+        InetSocketAddress address = getBindAddress(bindAddress, port);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            final AtomicInteger counter = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName(String.format("thundergate-agent-%d", counter.incrementAndGet()));
+                return t;
+            }
+        });
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(address);
+            LOG.info("TG-AGENT-01001", server.getLocalSocketAddress(), threads);
+            serve(server, executor);
+        } catch (IOException e) {
+            LOG.error(e, "TG-AGENT-01004", address);
+            return Constants.EXIT_CODE_ERROR;
+        } finally {
+            executor.shutdownNow();
+        }
+        return Constants.EXIT_CODE_SUCCESS;
+    }
+
+    /**
+     * Returns the local address to accept requests.
+     * @param bindAddress the configured bind address, or {@code null} if it is not specified
+     * @param port the port number
+     * @return the loopback address if the bind address is not specified,
+     *     the wildcard address if it is {@code "*"}, or otherwise the specified address
+     */
+    static InetSocketAddress getBindAddress(String bindAddress, int port) {
+        if (bindAddress == null || bindAddress.trim().isEmpty()) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        if (bindAddress.trim().equals(BIND_ANY)) {
+            return new InetSocketAddress(port);
+        }
+        return new InetSocketAddress(bindAddress.trim(), port);
+    }
+
+    private void serve(ServerSocket server, ExecutorService executor) throws IOException {
+        assert server != null;
+        assert executor != null;
+        while (server.isClosed() == false) {
+            final Socket socket = server.accept();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    handle(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles a connection from a client, and then closes it.
+     * If failed to handle the request, this closes the connection without completing the response,
+     * so that the client can detect the failure.
+     * @param socket the connected socket
+     */
+    void handle(Socket socket) {
+        assert socket != null;
+        long startTime = System.currentTimeMillis();
+        SocketAddress remote = socket.getRemoteSocketAddress();
+        try {
+            socket.setSoTimeout(HEADER_TIMEOUT);
+            InputStream input = socket.getInputStream();
+            AgentRequest request = AgentRequest.readFrom(input);
+            if (accepts(request) == false) {
+                LOG.warn("TG-AGENT-01008", remote, request.getService());
+                return;
+            }
+            socket.setSoTimeout(0);
+            LOG.info("TG-AGENT-01005", remote, request.getService(), request.getArguments());
+            FileList.Reader reader = FileList.createReader(input);
+            FileList.Writer writer = FileList.createWriter(new BufferedOutputStream(socket.getOutputStream()), false);
+            dispatch(request, reader, writer);
+            writer.close();
+            LOG.info("TG-AGENT-01006", remote, request.getService(), System.currentTimeMillis() - startTime);
+        } catch (IOException | BulkLoaderSystemException | RuntimeException e) {
+            LOG.warn(e, "TG-AGENT-01007", remote);
+        } finally {
+            IOUtils.closeQuietly(socket);
+        }
+    }
+
+    private boolean accepts(AgentRequest request) {
+        assert request != null;
+        if (secret.isEmpty()) {
+            return false;
+        }
+        byte[] expected = secret.getBytes(StandardCharsets.UTF_8);
+        byte[] actual = request.getSecret().getBytes(StandardCharsets.UTF_8);
+        if (MessageDigest.isEqual(expected, actual) == false) {
+            return false;
+        }
+        List<String> arguments = request.getArguments();
+        switch (request.getService()) {
+        case SERVICE_GET_CACHE_INFO:
+            return arguments.size() == 4;
+        case SERVICE_DELETE_CACHE_STORAGE:
+            return arguments.size() == 1;
+        default:
+            return false;
+        }
+    }
+
+    private void dispatch(
+            AgentRequest request,
+            FileList.Reader reader,
+            FileList.Writer writer) throws BulkLoaderSystemException {
+        List<String> arguments = request.getArguments();
+        switch (request.getService()) {
+        case SERVICE_GET_CACHE_INFO: {
+            GetCacheInfoRemote service = new GetCacheInfoRemote() {
+                @Override
+                CacheInfo getHeadCacheInfo(CacheStorage storage) throws IOException {
+                    return index.get(storage);
+                }
+            };
+            service.setConf(getConf());
+            service.targetName = arguments.get(0);
+            service.batchId = arguments.get(1);
+            service.flowId = arguments.get(2);
+            service.executionId = arguments.get(3);
+            service.userName = userName;
+            service.execute(reader, writer);
+            break;
+        }
+        case SERVICE_DELETE_CACHE_STORAGE: {
+            DeleteCacheStorageRemote service = new DeleteCacheStorageRemote() {
+                @Override
+                boolean deleteAll(CacheStorage storage) throws IOException {
+                    try {
+                        return storage.deleteAll();
+                    } finally {
+                        index.invalidate(storage);
+                    }
+                }
+            };
+            service.setConf(getConf());
+            service.targetName = arguments.get(0);
+            service.userName = userName;
+            service.restrictLocation = true;
+            service.execute(reader, writer);
+            break;
+        }
+        default:
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Unknown agent service: {0}",
+                    request.getService()));
+        }
+    }
+}
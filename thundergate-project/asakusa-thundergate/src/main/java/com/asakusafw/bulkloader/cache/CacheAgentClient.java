@@ -0,0 +1,105 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.text.MessageFormat;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.transfer.AgentRequest;
+import com.asakusafw.bulkloader.transfer.FileListProvider;
+import com.asakusafw.bulkloader.transfer.SocketFileListProvider;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+
+/**
+ * Connects to the {@link CacheAgent ThunderGate agent} from the DB server.
+ * @since 0.10.4
+ */
+final class CacheAgentClient {
+
+    static final Log LOG = new Log(CacheAgentClient.class);
+
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    private CacheAgentClient() {
+        return;
+    }
+
+    /**
+     * Opens a {@link FileListProvider} for the service on the ThunderGate agent.
+     * This returns {@code null} if the agent is not configured or not available,
+     * and then the caller should launch the remote program via SSH instead.
+     * @param service the service name
+     * @param arguments the service arguments
+     * @return the opened provider, or {@code null} if the agent is not available
+     */
+    static FileListProvider open(String service, List<String> arguments) {
+        assert service != null;
+        assert arguments != null;
+        String address = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_AGENT_ADDRESS);
+        if (address == null || address.trim().isEmpty()) {
+            return null;
+        }
+        if (RuntimeContext.get().isSimulation()) {
+            // the agent runs on its own context
+            return null;
+        }
+        String secret = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_AGENT_SECRET);
+        LOG.info("TG-AGENT-02001", address, service, arguments);
+        Socket socket = new Socket();
+        boolean succeed = false;
+        try {
+            socket.connect(parseAddress(address.trim()), CONNECT_TIMEOUT);
+            SocketFileListProvider provider = new SocketFileListProvider(socket);
+            provider.sendRequest(new AgentRequest(secret, service, arguments));
+            succeed = true;
+            return provider;
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn(e, "TG-AGENT-02002", address, service);
+            return null;
+        } finally {
+            if (succeed == false) {
+                IOUtils.closeQuietly(socket);
+            }
+        }
+    }
+
+    static InetSocketAddress parseAddress(String address) {
+        int index = address.lastIndexOf(':');
+        if (index <= 0 || index == address.length() - 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Invalid agent address (must be host:port): {0}",
+                    address));
+        }
+        String host = address.substring(0, index);
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(index + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Invalid agent address (must be host:port): {0}",
+                    address), e);
+        }
+        return new InetSocketAddress(host, port);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * An in-memory index of {@link CacheInfo} for the long-lived ThunderGate agent.
+ * Each entry is validated by the status of the cache metadata file,
+ * so that only a single file status request is required unless the cache was changed.
+ * @since 0.10.4
+ */
+final class CacheInfoIndex {
+
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cache information of the HEAD version.
+     * @param storage the target cache storage
+     * @return the cache information, or {@code null} if it does not exist
+     * @throws IOException if failed to obtain the cache information
+     */
+    CacheInfo get(CacheStorage storage) throws IOException {
+        assert storage != null;
+        Path path = storage.getHeadProperties();
+        FileStatus status;
+        try {
+            status = storage.getFileSystem().getFileStatus(path);
+        } catch (FileNotFoundException e) {
+            entries.remove(path);
+            return null;
+        }
+        Entry entry = entries.get(path);
+        if (entry != null && entry.matches(status)) {
+            return entry.info;
+        }
+        CacheInfo info = storage.getHeadCacheInfo();
+        if (info == null) {
+            entries.remove(path);
+        } else {
+            // if the file was replaced after obtaining its status, the next request will read it again
+            entries.put(path, new Entry(status, info));
+        }
+        return info;
+    }
+
+    /**
+     * Removes the cache information of the storage from this index.
+     * @param storage the target cache storage
+     */
+    void invalidate(CacheStorage storage) {
+        assert storage != null;
+        entries.remove(storage.getHeadProperties());
+    }
+
+    /**
+     * Returns the number of entries in this index.
+     * @return the number of entries
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        final long modificationTime;
+
+        final long length;
+
+        final CacheInfo info;
+
+        Entry(FileStatus status, CacheInfo info) {
+            this.modificationTime = status.getModificationTime();
+            this.length = status.getLen();
+            this.info = info;
+        }
+
+        boolean matches(FileStatus status) {
+            return modificationTime == status.getModificationTime() && length == status.getLen();
+        }
+    }
+}
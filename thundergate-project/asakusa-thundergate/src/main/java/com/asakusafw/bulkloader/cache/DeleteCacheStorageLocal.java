@@ -45,7 +45,9 @@ import com.asakusafw.runtime.core.context.RuntimeContext;
 
 /**
  * Deletes cache storages.
+ * The remote side deletes the storages concurrently, and this reports each result as soon as it is received.
  * @since 0.2.3
+ * @version 0.10.4
  * @see DeleteCacheStorageRemote
  */
 public class DeleteCacheStorageLocal {
@@ -94,7 +96,7 @@ public class DeleteCacheStorageLocal {
         try {
             provider = openFileList(targetName);
             Future<Void> upstream = submitUpstream(list, provider);
-            Future<Map<String, FileProtocol.Kind>> downstream = submitDownstream(provider);
+            Future<Map<String, FileProtocol.Kind>> downstream = submitDownstream(targetName, list.size(), provider);
             Map<String, FileProtocol.Kind> results;
             while (true) {
                 try {
@@ -196,7 +198,11 @@ public class DeleteCacheStorageLocal {
         });
     }
 
-    private Future<Map<String, FileProtocol.Kind>> submitDownstream(final FileListProvider provider) {
+    private Future<Map<String, FileProtocol.Kind>> submitDownstream(
+            final String targetName,
+            final int total,
+            final FileListProvider provider) {
+        assert targetName != null;
         assert provider != null;
         return executor.submit(new Callable<Map<String, FileProtocol.Kind>>() {
             @Override
@@ -215,6 +221,12 @@ public class DeleteCacheStorageLocal {
                         case RESPONSE_NOT_FOUND:
                         case RESPONSE_ERROR:
                             results.put(protocol.getLocation(), protocol.getKind());
+                            LOG.info("TG-GCCACHE-02005",
+                                    targetName,
+                                    results.size(),
+                                    total,
+                                    protocol.getLocation(),
+                                    protocol.getKind());
                             break;
                         default:
                             throw new IOException(MessageFormat.format(
@@ -232,6 +244,7 @@ public class DeleteCacheStorageLocal {
 
     /**
      * Opens a new {@link FileListProvider} for delete-cache-storage.
+     * If the ThunderGate agent is available, this connects to it instead of launching the remote program.
      * @param targetName current target name
      * @return the created provider
      * @throws IOException if failed to open the file list
@@ -241,6 +254,12 @@ public class DeleteCacheStorageLocal {
         if (targetName == null) {
             throw new IllegalArgumentException("targetName must not be null"); //$NON-NLS-1$
         }
+        FileListProvider agent = CacheAgentClient.open(
+                CacheAgent.SERVICE_DELETE_CACHE_STORAGE,
+                Collections.singletonList(targetName));
+        if (agent != null) {
+            return agent;
+        }
         String sshPath = ConfigurationLoader.getProperty(Constants.PROP_KEY_SSH_PATH);
         String hostName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_HOST);
         String userName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_USER);
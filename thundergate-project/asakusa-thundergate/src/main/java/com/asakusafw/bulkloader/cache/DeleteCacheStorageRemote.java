@@ -19,15 +19,26 @@ import java.io.IOException;
 import java.net.URI;
 import java.text.MessageFormat;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.Tool;
 
 import com.asakusafw.bulkloader.collector.SystemOutManager;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
@@ -52,6 +63,7 @@ import com.asakusafw.thundergate.runtime.cache.CacheStorage;
  * <li> user name </li>
  * </ol>
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class DeleteCacheStorageRemote extends Configured implements Tool {
 
@@ -65,6 +77,13 @@ public class DeleteCacheStorageRemote extends Configured implements Tool {
 
     String userName;
 
+    /**
+     * Whether or not the cache storages must be under the cache base directory.
+     * The cache base directory is {@code base-path} if it is configured, or the working directory of the file system.
+     * @since 0.10.4
+     */
+    boolean restrictLocation;
+
     /**
      * Program entry for normal launching (see class documentation).
      * @param args program arguments
@@ -126,6 +145,8 @@ public class DeleteCacheStorageRemote extends Configured implements Tool {
 
     /**
      * Executes the program with the specified input/output.
+     * This deletes the cache storages concurrently, and returns each result as soon as it and its preceding ones
+     * are completed, in the same order of the requests.
      * @param input input stream
      * @param output output stream
      * @throws BulkLoaderSystemException if failed to execute
@@ -135,36 +156,98 @@ public class DeleteCacheStorageRemote extends Configured implements Tool {
             FileList.Writer output) throws BulkLoaderSystemException {
         assert input != null;
         assert output != null;
+        int parallel = getParallel();
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, new ThreadFactory() {
+            final AtomicInteger counter = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName(String.format("delete-cache-storage-remote-%d", counter.incrementAndGet()));
+                return t;
+            }
+        });
         try {
+            LinkedList<Future<FileProtocol>> running = new LinkedList<>();
             while (input.next()) {
-                FileProtocol protocol = input.getCurrentProtocol();
+                final FileProtocol protocol = input.getCurrentProtocol();
                 if (protocol.getKind() != FileProtocol.Kind.DELETE_CACHE) {
                     throw new IOException(MessageFormat.format(
                             "Unexpected protocol kind in DeleteCacheStorage: {0}",
                             protocol.getKind(),
                             protocol.getLocation()));
                 }
-                LOG.info("TG-GCCACHE-03006", protocol.getLocation());
-                FileProtocol.Kind result = deleteCacheData(protocol.getLocation());
-                LOG.info("TG-GCCACHE-03007", protocol.getLocation(), result);
-                FileProtocol response = new FileProtocol(result, protocol.getLocation(), null);
-                output.openNext(response).close();
+                running.add(executor.submit(new Callable<FileProtocol>() {
+                    @Override
+                    public FileProtocol call() throws BulkLoaderSystemException {
+                        LOG.info("TG-GCCACHE-03006", protocol.getLocation());
+                        FileProtocol.Kind result = deleteCacheData(protocol.getLocation());
+                        LOG.info("TG-GCCACHE-03007", protocol.getLocation(), result);
+                        return new FileProtocol(result, protocol.getLocation(), null);
+                    }
+                }));
+                // keeps the number of pending responses bounded
+                while (running.isEmpty() == false
+                        && (running.getFirst().isDone() || running.size() > parallel * 2)) {
+                    output.openNext(get(running.removeFirst())).close();
+                }
+            }
+            while (running.isEmpty() == false) {
+                output.openNext(get(running.removeFirst())).close();
             }
         } catch (IOException e) {
             throw new BulkLoaderSystemException(e, getClass(), "TG-GCCACHE-03005",
                     targetName, userName);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int getParallel() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_CACHE_DELETE_PARALLEL);
+        if (value == null || value.trim().isEmpty()) {
+            value = Constants.PROP_DEFAULT_CACHE_DELETE_PARALLEL;
+        }
+        return Math.max(1, Integer.parseInt(value.trim()));
+    }
+
+    private FileProtocol get(Future<FileProtocol> future) throws IOException, BulkLoaderSystemException {
+        assert future != null;
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Deleting cache storages was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof BulkLoaderSystemException) {
+                throw (BulkLoaderSystemException) cause;
+            } else {
+                throw new IOException(cause);
+            }
         }
     }
 
     private FileProtocol.Kind deleteCacheData(String location) throws BulkLoaderSystemException {
         assert location != null;
-        URI cacheBaseUri = FileNameUtil.createPath(getConf(), location, SURROGATE_EXECUTION_ID, userName).toUri();
+        Path path = FileNameUtil.createPath(getConf(), location, SURROGATE_EXECUTION_ID, userName);
+        URI cacheBaseUri = path.toUri();
         try {
+            if (restrictLocation) {
+                Path basePath = getCacheBasePath();
+                if (isDescendant(basePath, path) == false) {
+                    LOG.warn("TG-GCCACHE-03009", location, basePath);
+                    return FileProtocol.Kind.RESPONSE_ERROR;
+                }
+            }
             CacheStorage storage = new CacheStorage(getConf(), cacheBaseUri);
             try {
                 boolean succeed;
                 if (RuntimeContext.get().canExecute(storage)) {
-                    succeed = storage.deleteAll();
+                    succeed = deleteAll(storage);
                 } else {
                     succeed = true;
                 }
@@ -177,4 +260,57 @@ public class DeleteCacheStorageRemote extends Configured implements Tool {
             return FileProtocol.Kind.RESPONSE_ERROR;
         }
     }
+
+    private Path getCacheBasePath() throws IOException {
+        String basePathString = ConfigurationLoader.getProperty(Constants.PROP_KEY_BASE_PATH);
+        if (basePathString == null || basePathString.isEmpty()) {
+            FileSystem fs = FileSystem.get(getConf());
+            return fs.makeQualified(fs.getWorkingDirectory());
+        }
+        Path basePath = new Path(basePathString);
+        return basePath.getFileSystem(getConf()).makeQualified(basePath);
+    }
+
+    /**
+     * Returns whether or not the path is strictly under the base path.
+     * @param basePath the qualified base path
+     * @param path the qualified target path
+     * @return {@code true} if the path is a descendant of the base path, otherwise {@code false}
+     * @since 0.10.4
+     */
+    static boolean isDescendant(Path basePath, Path path) {
+        assert basePath != null;
+        assert path != null;
+        URI base = basePath.toUri().normalize();
+        URI target = path.toUri().normalize();
+        if (equals(base.getScheme(), target.getScheme()) == false
+                || equals(base.getAuthority(), target.getAuthority()) == false) {
+            return false;
+        }
+        String basePathString = base.getPath();
+        String targetPathString = target.getPath();
+        if (basePathString == null || targetPathString == null) {
+            return false;
+        }
+        String prefix = basePathString.endsWith("/") ? basePathString : basePathString + "/";
+        return targetPathString.startsWith(prefix)
+                && targetPathString.length() > prefix.length()
+                && targetPathString.contains("/../") == false
+                && targetPathString.endsWith("/..") == false;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equalsIgnoreCase(b);
+    }
+
+    /**
+     * Deletes the whole contents of the cache storage.
+     * @param storage the target cache storage
+     * @return {@code true} if successfully deleted, otherwise {@code false}
+     * @throws IOException if failed to delete the cache storage
+     * @since 0.10.4
+     */
+    boolean deleteAll(CacheStorage storage) throws IOException {
+        return storage.deleteAll();
+    }
 }
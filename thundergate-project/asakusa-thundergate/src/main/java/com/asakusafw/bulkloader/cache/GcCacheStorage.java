@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
@@ -32,11 +33,13 @@ import com.asakusafw.runtime.core.context.RuntimeContext;
 
 /**
  * Deletes disposed cache storages.
+ * Cache locks and cache information are updated in bulk, and cache storages are deleted concurrently.
  * This program requires following argument:
  * <ol>
  * <li> target name </li>
  * </ol>
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class GcCacheStorage {
 
@@ -139,32 +142,34 @@ public class GcCacheStorage {
         boolean green = true;
         try {
             LOG.info("TG-GCCACHE-01010", targetName, executionId);
+            LOG.debugMessage("Trying to acquire cache locks: count={0}, targetName={1}, executionId={2}",
+                    deleted.size(), targetName, executionId);
+            Set<String> acquired = repo.tryLock(executionId, deleted);
             List<LocalCacheInfo> locked = new ArrayList<>();
             for (LocalCacheInfo info : deleted) {
-                LOG.debugMessage("Trying to acquire a cache lock: cacheId={0}, targetName={1}, executionId={2}",
-                        info.getId(), targetName, executionId);
-                if (repo.tryLock(executionId, info.getId(), info.getTableName())) {
+                if (acquired.contains(info.getId())) {
                     locked.add(info);
                 } else {
                     LOG.info("TG-GCCACHE-01014", targetName, info.getId(), info.getTableName());
                     green = false;
                 }
             }
+            LOG.info("TG-GCCACHE-01016", targetName, locked.size(), deleted.size());
             DeleteCacheStorageLocal client = getClient();
             Map<String, FileProtocol.Kind> results = client.delete(locked, targetName);
-            int count = 0;
+            List<String> completed = new ArrayList<>();
             for (LocalCacheInfo info : locked) {
                 FileProtocol.Kind result = results.get(info.getPath());
                 if (result == FileProtocol.Kind.RESPONSE_DELETED
                         || result == FileProtocol.Kind.RESPONSE_NOT_FOUND) {
                     LOG.info("TG-GCCACHE-01011", targetName, info.getId(), info.getTableName());
-                    repo.deleteCacheInfoCompletely(info.getId());
-                    count++;
+                    completed.add(info.getId());
                 } else {
                     LOG.info("TG-GCCACHE-01015", targetName, info.getId(), info.getTableName(), info.getPath());
                     green = false;
                 }
             }
+            int count = repo.deleteCacheInfoCompletely(completed);
             LOG.info("TG-GCCACHE-01012", targetName, count);
         } finally {
             LOG.info("TG-GCCACHE-01013", targetName, executionId);
@@ -18,6 +18,7 @@ package com.asakusafw.bulkloader.cache;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -49,6 +50,7 @@ import com.asakusafw.thundergate.runtime.cache.CacheInfo;
 /**
  * Retrieves {@link CacheInfo}.
  * @since 0.2.3
+ * @version 0.10.4
  * @see GetCacheInfoRemote
  */
 public class GetCacheInfoLocal {
@@ -228,6 +230,7 @@ public class GetCacheInfoLocal {
 
     /**
      * Opens a new {@link FileListProvider} for get-cache-info.
+     * If the ThunderGate agent is available, this connects to it instead of launching the remote program.
      * @param targetName current target name
      * @param batchId current batch ID
      * @param jobflowId current jobflow ID
@@ -253,6 +256,12 @@ public class GetCacheInfoLocal {
         if (executionId == null) {
             throw new IllegalArgumentException("executionId must not be null"); //$NON-NLS-1$
         }
+        FileListProvider agent = CacheAgentClient.open(
+                CacheAgent.SERVICE_GET_CACHE_INFO,
+                Arrays.asList(targetName, batchId, jobflowId, executionId));
+        if (agent != null) {
+            return agent;
+        }
         String sshPath = ConfigurationLoader.getProperty(Constants.PROP_KEY_SSH_PATH);
         String hostName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_HOST);
         String userName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_USER);
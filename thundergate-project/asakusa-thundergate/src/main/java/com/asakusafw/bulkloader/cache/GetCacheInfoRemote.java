@@ -56,6 +56,7 @@ import com.asakusafw.thundergate.runtime.cache.CacheStorage;
  * <li> user name </li>
  * </ol>
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class GetCacheInfoRemote extends Configured implements Tool {
 
@@ -186,7 +187,7 @@ public class GetCacheInfoRemote extends Configured implements Tool {
             CacheStorage storage = new CacheStorage(getConf(), cacheBaseUri);
             try {
                 if (RuntimeContext.get().canExecute(storage)) {
-                    return storage.getHeadCacheInfo();
+                    return getHeadCacheInfo(storage);
                 } else {
                     return null;
                 }
@@ -198,4 +199,15 @@ public class GetCacheInfoRemote extends Configured implements Tool {
             return null;
         }
     }
+
+    /**
+     * Returns the cache information of the HEAD version in the cache storage.
+     * @param storage the target cache storage
+     * @return the cache information, or {@code null} if it does not exist
+     * @throws IOException if failed to obtain the cache information
+     * @since 0.10.4
+     */
+    CacheInfo getHeadCacheInfo(CacheStorage storage) throws IOException {
+        return storage.getHeadCacheInfo();
+    }
 }
@@ -24,7 +24,11 @@ import java.sql.Timestamp;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
@@ -53,11 +57,17 @@ import com.asakusafw.bulkloader.log.Log;
  * </li>
  * </ul>
  * @since 0.2.3
+ * @version 0.10.4
  */
 public class LocalCacheInfoRepository {
 
     static final Log LOG = new Log(LocalCacheInfoRepository.class);
 
+    /**
+     * The maximum number of rows in each batched statement.
+     */
+    static final int BATCH_SIZE = 100;
+
     private final Connection connection;
 
     /**
@@ -174,9 +184,11 @@ public class LocalCacheInfoRepository {
         assert tableName != null;
         Statement statement = connection.createStatement();
         ResultSet resultSet = null;
+        boolean locked = false;
         try {
             LOG.debugMessage("calculating the last modified time for table: {0}", tableName);
             statement.execute(MessageFormat.format("LOCK TABLES {0} READ", tableName));
+            locked = true;
             resultSet = statement.executeQuery("SELECT NOW()");
             if (resultSet.next() == false) {
                 return null;
@@ -184,13 +196,17 @@ public class LocalCacheInfoRepository {
             Calendar calendar = Calendar.getInstance();
             Timestamp timestamp = resultSet.getTimestamp(1, calendar);
             calendar.setTime(timestamp);
-            resultSet.close();
-            statement.execute("UNLOCK TABLES");
             LOG.debugMessage("calculated the last modified time for table: {0} = {1}", tableName, timestamp);
             return calendar;
         } finally {
             DBConnection.closeRs(resultSet);
-            DBConnection.closeStmt(statement);
+            try {
+                if (locked) {
+                    statement.execute("UNLOCK TABLES");
+                }
+            } finally {
+                DBConnection.closeStmt(statement);
+            }
         }
     }
 
@@ -380,6 +396,60 @@ public class LocalCacheInfoRepository {
         }
     }
 
+    /**
+     * Completely deletes cache information for the specified cache IDs at once.
+     * @param cacheIds target cache IDs
+     * @return the number of actually deleted cache information
+     * @throws BulkLoaderSystemException if failed to delete the cache information by storage exception
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @see #deleteCacheInfoCompletely(String)
+     * @since 0.10.4
+     */
+    public int deleteCacheInfoCompletely(Collection<String> cacheIds) throws BulkLoaderSystemException {
+        if (cacheIds == null) {
+            throw new IllegalArgumentException("cacheIds must not be null"); //$NON-NLS-1$
+        }
+        List<List<String>> chunks = split(cacheIds);
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        String sql = null;
+        boolean succeed = false;
+        PreparedStatement statement = null;
+        try {
+            LOG.debugMessage("completely deleting cache info: count={0}", cacheIds.size());
+            int total = 0;
+            for (List<String> chunk : chunks) {
+                sql = "DELETE "
+                    + "FROM __TG_CACHE_INFO "
+                    + "WHERE CACHE_ID IN (" + placeholders(chunk.size(), "?") + ")";
+                statement = connection.prepareStatement(sql);
+                int index = 1;
+                for (String cacheId : chunk) {
+                    statement.setString(index++, cacheId);
+                }
+                total += statement.executeUpdate();
+                DBConnection.closePs(statement);
+                statement = null;
+            }
+            DBConnection.commit(connection);
+            succeed = true;
+            LOG.debugMessage("completely deleted cache info: count={0}", total);
+            return total;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    getClass(),
+                    sql,
+                    String.valueOf(cacheIds));
+        } finally {
+            DBConnection.closePs(statement);
+            if (succeed == false) {
+                DBConnection.rollback(connection);
+            }
+        }
+    }
+
     private LocalCacheInfo toCacheInfoObject(ResultSet resultSet) throws SQLException {
         assert resultSet != null;
         String id = resultSet.getString(1);
@@ -450,6 +520,91 @@ public class LocalCacheInfoRepository {
         }
     }
 
+    /**
+     * Tries to acquire locks for the target caches at once.
+     * Unlike {@link #tryLock(String, String, String)}, the results also include caches
+     * whose lock has been already acquired by the same owner.
+     * @param executionId the current execution ID (as the lock owner)
+     * @param caches target caches
+     * @return the IDs of caches whose lock is held by the owner
+     * @throws BulkLoaderSystemException if failed to acquire the lock by storage exception
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @since 0.10.4
+     */
+    public Set<String> tryLock(String executionId, List<LocalCacheInfo> caches) throws BulkLoaderSystemException {
+        if (executionId == null) {
+            throw new IllegalArgumentException("executionId must not be null"); //$NON-NLS-1$
+        }
+        if (caches == null) {
+            throw new IllegalArgumentException("caches must not be null"); //$NON-NLS-1$
+        }
+        List<String> cacheIds = new ArrayList<>();
+        for (LocalCacheInfo info : caches) {
+            cacheIds.add(info.getId());
+        }
+        List<List<String>> chunks = split(cacheIds);
+        if (chunks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String sql = null;
+        boolean succeed = false;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            LOG.debugMessage("trying acquire cache lock: count={0}, owner={1}", cacheIds.size(), executionId);
+            for (List<String> chunk : chunks) {
+                sql = "INSERT IGNORE "
+                    + "INTO __TG_CACHE_LOCK (CACHE_ID, EXECUTION_ID, ACQUIRED) "
+                    + "VALUES " + placeholders(chunk.size(), "(?, ?, NOW())");
+                statement = connection.prepareStatement(sql);
+                int index = 1;
+                for (String cacheId : chunk) {
+                    statement.setString(index++, cacheId);
+                    statement.setString(index++, executionId);
+                }
+                statement.executeUpdate();
+                DBConnection.closePs(statement);
+                statement = null;
+            }
+            DBConnection.commit(connection);
+            Set<String> results = new LinkedHashSet<>();
+            for (List<String> chunk : chunks) {
+                sql = "SELECT CACHE_ID "
+                    + "FROM __TG_CACHE_LOCK "
+                    + "WHERE EXECUTION_ID = ? AND CACHE_ID IN (" + placeholders(chunk.size(), "?") + ")";
+                statement = connection.prepareStatement(sql);
+                int index = 1;
+                statement.setString(index++, executionId);
+                for (String cacheId : chunk) {
+                    statement.setString(index++, cacheId);
+                }
+                resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    results.add(resultSet.getString(1));
+                }
+                DBConnection.closeRs(resultSet);
+                resultSet = null;
+                DBConnection.closePs(statement);
+                statement = null;
+            }
+            succeed = true;
+            LOG.debugMessage("tried acquire cache lock: count={0}, acquired={1}", cacheIds.size(), results.size());
+            return results;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    getClass(),
+                    sql,
+                    executionId);
+        } finally {
+            DBConnection.closeRs(resultSet);
+            DBConnection.closePs(statement);
+            if (succeed == false) {
+                DBConnection.rollback(connection);
+            }
+        }
+    }
+
     /**
      * Releases the cache lock acquired by the specified owner.
      * @param executionId the target execution ID (as the lock owner)
@@ -517,6 +672,29 @@ public class LocalCacheInfoRepository {
         }
     }
 
+    private static List<List<String>> split(Collection<String> values) {
+        assert values != null;
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<String>> results = new ArrayList<>();
+        for (int i = 0, n = unique.size(); i < n; i += BATCH_SIZE) {
+            results.add(unique.subList(i, Math.min(i + BATCH_SIZE, n)));
+        }
+        return results;
+    }
+
+    private static String placeholders(int count, String placeholder) {
+        assert count > 0;
+        assert placeholder != null;
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(placeholder);
+        }
+        return buf.toString();
+    }
+
     private Timestamp toTimestamp(Calendar calendar) {
         if (calendar == null) {
             return new Timestamp(0L);
@@ -0,0 +1,262 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.asakusafw.bulkloader.bean.ImportBean;
+import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ChangeCaptureType;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.transfer.FileListProvider;
+import com.asakusafw.bulkloader.transfer.RemoteFileListProviderFactory;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+
+/**
+ * Rolls back each cache to its latest retained previous version.
+ * This acquires the cache lock, rolls back the remote cache storage,
+ * and then updates the local cache information to the restored version,
+ * so that the next import incrementally updates the restored version instead of rebuilding it.
+ * This program requires following arguments:
+ * <ol>
+ * <li> target name </li>
+ * <li> batch ID </li>
+ * <li> flow ID </li>
+ * <li> cache ID </li>
+ * <li> execution ID (optional) </li>
+ * </ol>
+ * @since 0.10.4
+ * @see RollbackCacheStorageRemote
+ */
+public class RollbackCache {
+
+    static final Log LOG = new Log(RollbackCache.class);
+
+    private static final List<String> PROPERTIES = Constants.PROPERTIES_DB;
+
+    /**
+     * Program entry.
+     * @param args target-name, batch-id, flow-id, cache-id [, execution-id]
+     * @throws IllegalArgumentException if program arguments are invalid
+     */
+    public static void main(String[] args) {
+        RuntimeContext.set(RuntimeContext.DEFAULT.apply(System.getenv()));
+        if (args.length != 4 && args.length != 5) {
+            LOG.error("TG-ROLLBACKCACHE-01003", Arrays.toString(args));
+            System.exit(Constants.EXIT_CODE_ERROR);
+            return;
+        }
+        String targetName = args[0];
+        String batchId = args[1];
+        String flowId = args[2];
+        String cacheId = args[3];
+        String executionId = args.length == 5 ? args[4] : UUID.randomUUID().toString();
+
+        int initExit = initialize(targetName, flowId, executionId);
+        if (initExit != Constants.EXIT_CODE_SUCCESS) {
+            System.exit(initExit);
+        }
+        LOG.info("TG-ROLLBACKCACHE-01001", targetName, batchId, flowId, executionId, cacheId);
+        int exitCode = new RollbackCache().execute(targetName, batchId, flowId, cacheId, executionId);
+        LOG.info("TG-ROLLBACKCACHE-01002", targetName, batchId, flowId, executionId, cacheId, exitCode);
+
+        System.exit(exitCode);
+    }
+
+    private static int initialize(String targetName, String flowId, String executionId) {
+        if (!BulkLoaderInitializer.initDBServer(flowId, executionId, PROPERTIES, targetName)) {
+            LOG.error("TG-ROLLBACKCACHE-01004", targetName, flowId, executionId);
+            return Constants.EXIT_CODE_ERROR;
+        }
+        return Constants.EXIT_CODE_SUCCESS;
+    }
+
+    /**
+     * Rolls back the cache.
+     * @param targetName target name
+     * @param batchId batch ID
+     * @param flowId flow ID
+     * @param cacheId target cache ID
+     * @param executionId current execution ID (as the cache lock owner)
+     * @return exit code
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @see Constants#EXIT_CODE_SUCCESS
+     * @see Constants#EXIT_CODE_WARNING
+     * @see Constants#EXIT_CODE_ERROR
+     */
+    public int execute(String targetName, String batchId, String flowId, String cacheId, String executionId) {
+        if (targetName == null) {
+            throw new IllegalArgumentException("targetName must not be null"); //$NON-NLS-1$
+        }
+        if (batchId == null) {
+            throw new IllegalArgumentException("batchId must not be null"); //$NON-NLS-1$
+        }
+        if (flowId == null) {
+            throw new IllegalArgumentException("flowId must not be null"); //$NON-NLS-1$
+        }
+        if (cacheId == null) {
+            throw new IllegalArgumentException("cacheId must not be null"); //$NON-NLS-1$
+        }
+        if (executionId == null) {
+            throw new IllegalArgumentException("executionId must not be null"); //$NON-NLS-1$
+        }
+        try {
+            Connection connection = DBConnection.getConnection();
+            try {
+                LocalCacheInfoRepository repo = new LocalCacheInfoRepository(connection);
+                LocalCacheInfo current = repo.getCacheInfo(cacheId);
+                if (current == null) {
+                    LOG.error("TG-ROLLBACKCACHE-01005", targetName, cacheId);
+                    return Constants.EXIT_CODE_ERROR;
+                }
+                if (RuntimeContext.get().isSimulation()) {
+                    return Constants.EXIT_CODE_SUCCESS;
+                }
+                if (repo.tryLock(executionId, cacheId, current.getTableName()) == false) {
+                    LOG.error("TG-ROLLBACKCACHE-01006", targetName, cacheId, current.getTableName());
+                    return Constants.EXIT_CODE_ERROR;
+                }
+                try {
+                    return rollback(repo, targetName, batchId, flowId, executionId, current);
+                } finally {
+                    repo.releaseLock(executionId);
+                }
+            } finally {
+                DBConnection.closeConn(connection);
+            }
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            return Constants.EXIT_CODE_ERROR;
+        }
+    }
+
+    private int rollback(
+            LocalCacheInfoRepository repo,
+            String targetName,
+            String batchId,
+            String flowId,
+            String executionId,
+            LocalCacheInfo current) throws BulkLoaderSystemException {
+        assert repo != null;
+        assert current != null;
+        String cacheId = current.getId();
+        LOG.info("TG-ROLLBACKCACHE-01007", targetName, cacheId, current.getTableName(), current.getPath());
+        CacheInfo restored = rollbackStorage(targetName, batchId, flowId, executionId, current);
+        if (restored == null) {
+            LOG.error("TG-ROLLBACKCACHE-01008", targetName, cacheId, current.getPath());
+            return Constants.EXIT_CODE_ERROR;
+        }
+        Calendar timestamp = restored.getTimestamp();
+        Calendar built = current.getRemoteTimestamp();
+        if (ChangeCaptureType.getCurrent() == ChangeCaptureType.TABLE
+                && built != null
+                && timestamp.compareTo(built) < 0) {
+            // change logs before the last built timestamp may have been already purged
+            LOG.warn("TG-ROLLBACKCACHE-01009", targetName, cacheId, current.getTableName(),
+                    timestamp.getTime(), built.getTime());
+            repo.deleteCacheInfo(cacheId);
+            return Constants.EXIT_CODE_WARNING;
+        }
+        repo.putCacheInfo(new LocalCacheInfo(
+                cacheId,
+                null,
+                timestamp,
+                current.getTableName(),
+                current.getPath()));
+        LOG.info("TG-ROLLBACKCACHE-01010", targetName, cacheId, current.getTableName(), timestamp.getTime());
+        return Constants.EXIT_CODE_SUCCESS;
+    }
+
+    /**
+     * Rolls back the remote cache storage to its latest retained previous version.
+     * @param targetName target name
+     * @param batchId batch ID
+     * @param flowId flow ID
+     * @param executionId current execution ID
+     * @param info the local cache information
+     * @return the cache information of the restored version,
+     *     or {@code null} if the cache storage does not have any previous versions
+     * @throws BulkLoaderSystemException if failed to roll back the cache storage
+     */
+    protected CacheInfo rollbackStorage(
+            String targetName,
+            String batchId,
+            String flowId,
+            String executionId,
+            LocalCacheInfo info) throws BulkLoaderSystemException {
+        ImportTargetTableBean table = new ImportTargetTableBean();
+        table.setCacheId(info.getId());
+        table.setDfsFilePath(info.getPath());
+        ImportBean bean = new ImportBean();
+        bean.setTargetName(targetName);
+        bean.setBatchId(batchId);
+        bean.setJobflowId(flowId);
+        bean.setExecutionId(executionId);
+        bean.setTargetTable(Collections.singletonMap(info.getTableName(), table));
+        GetCacheInfoLocal service = new GetCacheInfoLocal() {
+            @Override
+            protected FileListProvider openFileList(
+                    String target,
+                    String batch,
+                    String jobflow,
+                    String execution) throws IOException {
+                // never delegates to the agent, which only provides the cache information
+                String sshPath = ConfigurationLoader.getProperty(Constants.PROP_KEY_SSH_PATH);
+                String hostName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_HOST);
+                String userName = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAMENODE_USER);
+                String scriptPath = ConfigurationLoader.getRemoteScriptPath(Constants.PATH_REMOTE_CACHE_ROLLBACK);
+                List<String> command = new ArrayList<>();
+                command.add(scriptPath);
+                command.add(target);
+                command.add(batch);
+                command.add(jobflow);
+                command.add(execution);
+
+                Map<String, String> env = new HashMap<>();
+                env.putAll(ConfigurationLoader.getPropSubMap(Constants.PROP_PREFIX_HC_ENV));
+                env.putAll(RuntimeContext.get().unapply());
+
+                LOG.info("TG-ROLLBACKCACHE-01011",
+                        sshPath,
+                        hostName,
+                        userName,
+                        scriptPath,
+                        target,
+                        batch,
+                        jobflow,
+                        execution);
+
+                return new RemoteFileListProviderFactory(sshPath, hostName, userName).newInstance(command, env);
+            }
+        };
+        return service.get(bean).get(info.getPath());
+    }
+}
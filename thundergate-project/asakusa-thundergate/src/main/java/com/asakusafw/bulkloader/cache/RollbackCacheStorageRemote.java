@@ -0,0 +1,60 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.asakusafw.bulkloader.collector.SystemOutManager;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheHistory;
+
+/**
+ * Program entry for rolling back cache storages.
+ * This rolls back each requested cache storage to its latest retained previous version,
+ * and then returns {@link CacheInfo} of the restored version in the same manner as {@link GetCacheInfoRemote}.
+ * If the cache storage does not have any previous versions, this returns
+ * {@link com.asakusafw.bulkloader.transfer.FileProtocol.Kind#RESPONSE_NOT_FOUND} for it.
+ * @since 0.10.4
+ * @see CacheHistory
+ */
+public class RollbackCacheStorageRemote extends GetCacheInfoRemote {
+
+    /**
+     * Program entry for normal launching (see class documentation).
+     * @param args program arguments
+     * @throws Exception if failed to execute
+     */
+    public static void main(String[] args) throws Exception {
+        SystemOutManager.changeSystemOutToSystemErr();
+        RuntimeContext.set(RuntimeContext.DEFAULT.apply(System.getenv()));
+        RollbackCacheStorageRemote service = new RollbackCacheStorageRemote();
+        service.setConf(new Configuration());
+        int exitCode = service.run(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    CacheInfo getHeadCacheInfo(CacheStorage storage) throws IOException {
+        if (new CacheHistory(storage).rollback() == false) {
+            return null;
+        }
+        return storage.getHeadCacheInfo();
+    }
+}
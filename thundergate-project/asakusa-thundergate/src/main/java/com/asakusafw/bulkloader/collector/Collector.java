@@ -20,9 +20,11 @@ import java.util.List;
 
 import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.JobFlowParamLoader;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 
@@ -57,6 +59,7 @@ public class Collector {
         RuntimeContext.get().verifyApplication(Collector.class.getClassLoader());
         Collector collector = new Collector();
         int result = collector.execute(args);
+        ProfileReport.finish(result, ConfigurationLoader.getProperty(Constants.PROP_KEY_PROFILE_DIR));
         System.exit(result);
     }
     /**
@@ -90,6 +93,7 @@ public class Collector {
             // 開始ログ出力
             LOG.info("TG-COLLECTOR-01001",
                     new Date(), targetName, batchId, jobflowId, executionId, user);
+            ProfileReport.begin("collector", targetName, batchId, jobflowId, executionId);
 
             // パラメータオブジェクトを作成
             ExporterBean bean = createBean(targetName, batchId, jobflowId, executionId);
@@ -19,12 +19,19 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -41,6 +48,8 @@ import com.asakusafw.bulkloader.common.FileCompType;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.runtime.io.ModelInput;
 import com.asakusafw.runtime.io.ModelOutput;
@@ -59,6 +68,34 @@ public class ExportFileSend {
      * ファイル名作成の為のマップ。
      */
     Map<String, Integer> fileNameMap = new HashMap<>();
+    /**
+     * このCollectorが担当する転送ストリームの番号。
+     */
+    int streamIndex = 0;
+    /**
+     * 転送ストリームの総数。
+     */
+    int streamCount = 1;
+    /**
+     * 転送データのチャンクサイズ（0の場合はチャンクに分割しない）。
+     */
+    int chunkSize = 0;
+    /**
+     * このCollectorが生成するエントリのうち、受信済みのため送信を省略するエントリ数。
+     */
+    int resumeCount = 0;
+    /**
+     * これまでに検出したExportファイルの数。
+     */
+    private int fileSequence = 0;
+    /**
+     * これまでに生成したエントリの数。
+     */
+    private int entryCount = 0;
+    /**
+     * これまでに検出したExportファイルのパス（検出順）。
+     */
+    private final List<String> listedFiles = new ArrayList<>();
     /**
      * Export対象ファイルをDBサーバへ送信する。
      * <p>
@@ -77,9 +114,11 @@ public class ExportFileSend {
 
         OutputStream output = getOutputStream();
         try {
+            configureStream();
             FileList.Writer writer;
             try {
-                writer = FileList.createWriter(output, compType == FileCompType.DEFLATED);
+                writer = FileList.createWriter(output, compType, getCompressionLevel());
+                writer.setChunkSize(chunkSize);
             } catch (IOException e) {
                 throw new BulkLoaderSystemException(e, getClass(), "TG-COLLECTOR-02001",
                         "Exporterと接続するチャネルを開けませんでした");
@@ -87,6 +126,7 @@ public class ExportFileSend {
             Configuration conf = new Configuration();
             List<String> l = bean.getExportTargetTableList();
             for (String tableName : l) {
+                long tableStartTime = System.currentTimeMillis();
                 ExportTargetTableBean targetTable = bean.getExportTargetTable(tableName);
                 Class<? extends Writable> targetTableModel =
                     targetTable.getExportTargetType().asSubclass(Writable.class);
@@ -119,6 +159,11 @@ public class ExportFileSend {
                         bean.getExecutionId(),
                         tableName,
                         recordCount);
+                ProfileReport.record(Phase.SEND, tableName,
+                        System.currentTimeMillis() - tableStartTime, ProfileReport.UNKNOWN, recordCount);
+            }
+            if (streamCount > 1) {
+                sendManifest(writer);
             }
 
             try {
@@ -180,14 +225,29 @@ public class ExportFileSend {
                 LOG.info("TG-COLLECTOR-02007",
                         listedPaths.length, tableName, filePath);
             }
-            long count = 0;
-            boolean addEntry = false;
+            // 全てのCollectorで同じ順序になるよう、検出したファイルを整列する
+            Arrays.sort(listedPaths);
+            List<Path> targets = new ArrayList<>();
             for (Path path : listedPaths) {
                 // ファイルがシステムファイルの場合はスキップする
                 if (isSystemFile(path)) {
                     continue;
                 }
-
+                listedFiles.add(path.toString());
+                // 他のストリームが担当するファイルはスキップする
+                if (isAssigned(path) == false) {
+                    continue;
+                }
+                targets.add(path);
+            }
+            int parallel = Math.min(getCollectParallel(), targets.size());
+            if (parallel > 1) {
+                // 複数のファイルを並列に読み込み、ファイルの検出順にエントリを書き出す
+                return sendParallel(conf, targetTableModel, targets, writer, tableName, parallel, maxSize);
+            }
+            long count = 0;
+            boolean addEntry = false;
+            for (Path path : targets) {
                 // TODO 見通しを良くする
                 // テンポラリ領域から結果を読み込むオブジェクトを生成する
                 ModelInput<T> input = TemporaryStorage.openInput(conf, targetTableModel, path);
@@ -196,7 +256,7 @@ public class ExportFileSend {
                         // エントリを追加
                         addEntry = true;
                         fileName = FileNameUtil.createSendExportFileName(tableName, fileNameMap);
-                        OutputStream output = writer.openNext(FileList.content(fileName));
+                        OutputStream output = openEntry(writer, fileName);
                         try {
                             CountingOutputStream counter = new CountingOutputStream(output);
                             ModelOutput<T> modelOut = factory.createModelOutput(counter);
@@ -271,6 +331,201 @@ public class ExportFileSend {
         }
     }
 
+    /**
+     * 指定された一時ファイル群を並列に読み込んでTSV形式で
+     * {@link com.asakusafw.bulkloader.transfer.FileList.Writer}に書き出す。
+     * 書き出すエントリの分割位置とファイル名は、1ファイルずつ書き出す場合と同じになる。
+     * @param <T> データモデルの型
+     * @param conf Hadoopの設定
+     * @param targetTableModel Exportデータに対応するModelのクラス型
+     * @param paths 読み込む一時ファイル（1つ以上）
+     * @param writer 出力先のWriter
+     * @param tableName テーブル名
+     * @param parallel 並列に読み込むファイル数
+     * @param maxSize エントリの最大サイズ
+     * @return 書きだしたレコード数
+     * @throws IOException 入出力に失敗した場合
+     */
+    private <T extends Writable> long sendParallel(
+            Configuration conf,
+            Class<T> targetTableModel,
+            List<Path> paths,
+            final FileList.Writer writer,
+            final String tableName,
+            int parallel,
+            long maxSize) throws IOException {
+        assert paths.isEmpty() == false;
+        LOG.info("TG-COLLECTOR-02012", tableName, paths.size(), parallel);
+        ParallelTsvExport<T> export = new ParallelTsvExport<>(conf, targetTableModel, parallel, maxSize);
+        return export.write(paths, new ParallelTsvExport.EntrySink() {
+            private String fileName;
+            @Override
+            public OutputStream openEntry(Path source) throws IOException {
+                fileName = FileNameUtil.createSendExportFileName(tableName, fileNameMap);
+                LOG.info("TG-COLLECTOR-02004",
+                        tableName, source.toString(), fileName);
+                return ExportFileSend.this.openEntry(writer, fileName);
+            }
+            @Override
+            public void closeEntry(Path source, OutputStream entry) throws IOException {
+                entry.close();
+                LOG.info("TG-COLLECTOR-02005",
+                        tableName, source.toString(), fileName);
+            }
+        });
+    }
+
+    /**
+     * 一時ファイルを並列に読み込む際のファイル数を返す。
+     * @return 並列に読み込むファイル数
+     */
+    private static int getCollectParallel() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_COLLECT_PARALLEL);
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * 環境変数から、このCollectorが担当する転送ストリームの情報を設定する。
+     * 環境変数が指定されていない場合、全てのファイルを担当する。
+     * @throws BulkLoaderSystemException 環境変数の値が不正である場合
+     */
+    private void configureStream() throws BulkLoaderSystemException {
+        configureResume();
+        String index = ConfigurationLoader.getEnvProperty(Constants.ENV_TRANSFER_STREAM_INDEX);
+        String count = ConfigurationLoader.getEnvProperty(Constants.ENV_TRANSFER_STREAM_COUNT);
+        if (index == null || count == null) {
+            return;
+        }
+        try {
+            streamIndex = Integer.parseInt(index.trim());
+            streamCount = Integer.parseInt(count.trim());
+        } catch (NumberFormatException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-COLLECTOR-02008", index, count);
+        }
+        if (streamCount < 1 || streamIndex < 0 || streamIndex >= streamCount) {
+            throw new BulkLoaderSystemException(getClass(), "TG-COLLECTOR-02008", index, count);
+        }
+        LOG.info("TG-COLLECTOR-02009", streamIndex, streamCount);
+    }
+
+    /**
+     * Exportファイルの圧縮レベルを返す。
+     * @return 圧縮レベル、未設定の場合は{@link FileList#DEFAULT_LEVEL}
+     */
+    private static int getCompressionLevel() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_FILE_COMP_LEVEL);
+        if (value == null || value.trim().isEmpty()) {
+            return FileList.DEFAULT_LEVEL;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * 次のエントリを開始する。
+     * <p>
+     * 受信済みのエントリは、エントリの分割位置とファイル名を前回の転送と揃えるために生成はするが、送信は行わない。
+     * </p>
+     * @param writer 出力先のWriter
+     * @param fileName エントリのファイル名
+     * @return エントリの内容を書き出すストリーム
+     * @throws IOException エントリの開始に失敗した場合
+     */
+    private OutputStream openEntry(FileList.Writer writer, String fileName) throws IOException {
+        if (entryCount++ < resumeCount) {
+            LOG.debugMessage("Skipped export entry which was already received: {0}", fileName);
+            return new NullOutputStream();
+        }
+        return writer.openNext(FileList.content(fileName));
+    }
+
+    /**
+     * 環境変数から、転送データのチャンクサイズと受信済みのエントリ数を設定する。
+     * @throws BulkLoaderSystemException 環境変数の値が不正である場合
+     */
+    private void configureResume() throws BulkLoaderSystemException {
+        String size = ConfigurationLoader.getEnvProperty(Constants.ENV_TRANSFER_CHUNK_SIZE);
+        String count = ConfigurationLoader.getEnvProperty(Constants.ENV_TRANSFER_RESUME_COUNT);
+        try {
+            chunkSize = size == null ? 0 : Integer.parseInt(size.trim());
+            resumeCount = count == null ? 0 : Integer.parseInt(count.trim());
+        } catch (NumberFormatException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-COLLECTOR-02010", size, count);
+        }
+        if (chunkSize < 0 || resumeCount < 0) {
+            throw new BulkLoaderSystemException(getClass(), "TG-COLLECTOR-02010", size, count);
+        }
+        if (resumeCount > 0) {
+            LOG.info("TG-COLLECTOR-02011", resumeCount);
+        }
+    }
+
+    /**
+     * このCollectorが検出したExportファイルのマニフェストを最後のエントリとして送信する。
+     * <p>
+     * 受信済みのエントリを省略する場合も、マニフェストは常に送信する。
+     * </p>
+     * @param writer 出力先のWriter
+     * @throws BulkLoaderSystemException 送信に失敗した場合
+     */
+    private void sendManifest(FileList.Writer writer) throws BulkLoaderSystemException {
+        Properties manifest = new Properties();
+        manifest.setProperty(Constants.TRANSFER_MANIFEST_KEY_FILES, String.valueOf(listedFiles.size()));
+        manifest.setProperty(Constants.TRANSFER_MANIFEST_KEY_DIGEST, computeDigest(listedFiles));
+        try (OutputStream output = writer.openNext(FileList.content(Constants.TRANSFER_MANIFEST_ENTRY_NAME))) {
+            manifest.store(output, null);
+        } catch (IOException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-COLLECTOR-02001",
+                    "マニフェストの送信に失敗しました");
+        }
+        LOG.info("TG-COLLECTOR-02013", listedFiles.size(), streamIndex, streamCount);
+    }
+
+    /**
+     * Exportファイルの一覧のダイジェストを計算する。
+     * @param files Exportファイルの一覧
+     * @return ダイジェストの16進表現
+     */
+    static String computeDigest(List<String> files) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String file : files) {
+            digest.update(file.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        StringBuilder buf = new StringBuilder();
+        for (byte b : digest.digest()) {
+            buf.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+        }
+        return buf.toString();
+    }
+
+    /**
+     * 指定のファイルをこのCollectorが送信する場合のみ{@code true}を返す。
+     * <p>
+     * 各Collectorは整列済みの同じ順序でファイルを検出するため、
+     * 検出順の通番を転送ストリームの総数で割った余りで担当を決定する。
+     * 各Collectorの検出結果が一致することは、Exporterがマニフェストを比較して確認する。
+     * </p>
+     * @param path ファイルのパス
+     * @return このCollectorが送信する場合に{@code true}、そうでなければ{@code false}
+     */
+    private boolean isAssigned(Path path) {
+        assert path != null;
+        int sequence = fileSequence++;
+        boolean assigned = sequence % streamCount == streamIndex;
+        if (assigned == false) {
+            LOG.debugMessage("Skipped export file for other stream: {0}", path);
+        }
+        return assigned;
+    }
+
     /**
      * ファイルがHadoopのシステムファイルである場合のみ{@code true}を返す。
      * @param path ファイルのパス
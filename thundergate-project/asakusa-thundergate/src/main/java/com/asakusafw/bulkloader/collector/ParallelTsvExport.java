@@ -0,0 +1,331 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.collector;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.io.tsv.TsvIoFactory;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+
+/**
+ * Reads temporary files and converts them into TSV entries on multiple threads.
+ * <p>
+ * Each worker decodes one file at a time into its own bounded buffer,
+ * and the calling thread writes the buffered entries in the order of the given files.
+ * The resulting entries are the same as converting the files one by one on the calling thread:
+ * each file starts a new entry, and an entry is split after the record which exceeds the max entry size.
+ * </p>
+ * @param <T> the model type
+ * @since 0.10.4
+ */
+final class ParallelTsvExport<T> {
+
+    static final Log LOG = new Log(ParallelTsvExport.class);
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private static final int CHUNKS_PER_FILE = 16;
+
+    private static final byte[] END_OF_ENTRY = new byte[0];
+
+    private static final byte[] END_OF_FILE = new byte[0];
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final Configuration configuration;
+
+    private final Class<T> modelType;
+
+    private final int parallel;
+
+    private final long maxEntrySize;
+
+    /**
+     * Creates a new instance.
+     * @param configuration the current configuration
+     * @param modelType the model type
+     * @param parallel the number of worker threads
+     * @param maxEntrySize the max entry size in bytes
+     */
+    ParallelTsvExport(Configuration configuration, Class<T> modelType, int parallel, long maxEntrySize) {
+        assert configuration != null;
+        assert modelType != null;
+        assert parallel >= 1;
+        assert maxEntrySize >= 1;
+        this.configuration = configuration;
+        this.modelType = modelType;
+        this.parallel = parallel;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Reads the temporary files and writes them into the sink as TSV entries.
+     * @param paths the temporary files
+     * @param sink the destination
+     * @return the number of written records
+     * @throws IOException if failed to read or write contents
+     */
+    long write(List<Path> paths, EntrySink sink) throws IOException {
+        assert paths != null;
+        assert sink != null;
+        ExecutorService workers = Executors.newFixedThreadPool(parallel, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, String.format(
+                        "collector-%d", //$NON-NLS-1$
+                        THREAD_COUNTER.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            // the pool runs workers in order, so that the worker for the current file is always running
+            List<BlockingQueue<byte[]>> queues = new ArrayList<>();
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Path path : paths) {
+                BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CHUNKS_PER_FILE);
+                queues.add(queue);
+                futures.add(workers.submit(new Worker(path, queue)));
+            }
+            long count = 0;
+            for (int i = 0, n = paths.size(); i < n; i++) {
+                transfer(paths.get(i), queues.get(i), futures.get(i), sink);
+                count += get(futures.get(i));
+            }
+            return count;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void transfer(
+            Path path,
+            BlockingQueue<byte[]> queue,
+            Future<Long> future,
+            EntrySink sink) throws IOException {
+        OutputStream entry = null;
+        try {
+            while (true) {
+                byte[] chunk = take(queue, future);
+                if (chunk == END_OF_FILE) {
+                    break;
+                }
+                if (entry == null) {
+                    entry = sink.openEntry(path);
+                }
+                if (chunk == END_OF_ENTRY) {
+                    OutputStream finished = entry;
+                    entry = null;
+                    sink.closeEntry(path, finished);
+                } else {
+                    entry.write(chunk);
+                }
+            }
+        } finally {
+            if (entry != null) {
+                entry.close();
+            }
+        }
+    }
+
+    private static byte[] take(BlockingQueue<byte[]> queue, Future<Long> future) throws IOException {
+        try {
+            while (true) {
+                byte[] chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    return chunk;
+                }
+                if (future.isDone()) {
+                    // raises the exception if the worker was failed
+                    get(future);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        }
+    }
+
+    private static long get(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The destination of TSV entries.
+     * @since 0.10.4
+     */
+    interface EntrySink {
+
+        /**
+         * Starts a new entry.
+         * @param source the source file
+         * @return the stream to write the entry contents
+         * @throws IOException if failed to start the entry
+         */
+        OutputStream openEntry(Path source) throws IOException;
+
+        /**
+         * Finishes the entry.
+         * @param source the source file
+         * @param entry the stream which was returned from {@link #openEntry(Path)}
+         * @throws IOException if failed to finish the entry
+         */
+        void closeEntry(Path source, OutputStream entry) throws IOException;
+    }
+
+    private final class Worker implements Callable<Long> {
+
+        private final Path path;
+
+        private final BlockingQueue<byte[]> queue;
+
+        Worker(Path path, BlockingQueue<byte[]> queue) {
+            this.path = path;
+            this.queue = queue;
+        }
+
+        @Override
+        public Long call() throws IOException, InterruptedException {
+            TsvIoFactory<T> factory = new TsvIoFactory<>(modelType);
+            T model = factory.createModelObject();
+            long count = 0;
+            try (ModelInput<T> input = TemporaryStorage.openInput(configuration, modelType, path)) {
+                while (true) {
+                    ChunkOutputStream chunks = new ChunkOutputStream(queue);
+                    CountingOutputStream counter = new CountingOutputStream(chunks);
+                    boolean nextEntry = false;
+                    try (ModelOutput<T> output = factory.createModelOutput(counter)) {
+                        while (input.readTo(model)) {
+                            output.write(model);
+                            count++;
+                            if (counter.getByteCount() > maxEntrySize) {
+                                nextEntry = true;
+                                break;
+                            }
+                        }
+                    }
+                    // the model output may not close the underlying stream
+                    chunks.close();
+                    if (nextEntry == false) {
+                        break;
+                    }
+                }
+            }
+            queue.put(END_OF_FILE);
+            LOG.debugMessage("Converted {1} records from {0}", path, count);
+            return count;
+        }
+    }
+
+    private static final class ChunkOutputStream extends OutputStream {
+
+        private final BlockingQueue<byte[]> queue;
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+
+        private int filled;
+
+        private boolean closed;
+
+        ChunkOutputStream(BlockingQueue<byte[]> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (filled == buffer.length) {
+                flushChunk();
+            }
+            buffer[filled++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int offset = off;
+            int rest = len;
+            while (rest > 0) {
+                if (filled == buffer.length) {
+                    flushChunk();
+                }
+                int size = Math.min(rest, buffer.length - filled);
+                System.arraycopy(b, offset, buffer, filled, size);
+                filled += size;
+                offset += size;
+                rest -= size;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (filled > 0) {
+                flushChunk();
+            }
+            put(END_OF_ENTRY);
+        }
+
+        private void flushChunk() throws IOException {
+            put(Arrays.copyOf(buffer, filled));
+            filled = 0;
+        }
+
+        private void put(byte[] chunk) throws IOException {
+            try {
+                queue.put(chunk);
+            } catch (InterruptedException e) {
+                throw (IOException) new InterruptedIOException().initCause(e);
+            }
+        }
+    }
+}
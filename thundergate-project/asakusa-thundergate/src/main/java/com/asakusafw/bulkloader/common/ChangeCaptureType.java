@@ -0,0 +1,99 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * キャッシュの差分を抽出する際の変更履歴の取得元を表すENUM。
+ * @since 0.10.4
+ */
+public enum ChangeCaptureType {
+
+    /**
+     * 変更履歴の取得元-変更履歴を利用せず、タイムスタンプ列の範囲で差分を抽出する。
+     */
+    NONE("NONE"),
+
+    /**
+     * 変更履歴の取得元-トリガーで記録された変更履歴テーブル（{@code __TG_CHANGE_LOG}）から変更されたSIDを取得する。
+     */
+    TABLE("TABLE"),
+
+    /**
+     * 変更履歴の取得元-変更履歴ファイルから変更されたSIDを取得する（テスト用）。
+     */
+    FILE("FILE"),
+    ;
+
+    private String symbol;
+
+    Set<String> keys;
+
+    ChangeCaptureType(String symbol, String... alternatives) {
+        this.symbol = symbol;
+        this.keys = new HashSet<>();
+        this.keys.add(symbol);
+        Collections.addAll(this.keys, alternatives);
+    }
+
+    /**
+     * 変更履歴の取得元を返す。
+     * @return 変更履歴の取得元
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * {@code String}に対する定数を返す。
+     * @param key String
+     * @return 対応する定数、存在しない場合は{@code null}
+     */
+    public static ChangeCaptureType find(String key) {
+        return SymbolToType.REVERSE_DICTIONARY.get(key);
+    }
+
+    /**
+     * 設定された変更履歴の取得元を返す。
+     * @return 設定された変更履歴の取得元、未設定の場合は{@link #NONE}
+     */
+    public static ChangeCaptureType getCurrent() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE);
+        if (value == null) {
+            return NONE;
+        }
+        ChangeCaptureType type = find(value.trim());
+        return type == null ? NONE : type;
+    }
+
+    private static class SymbolToType {
+        static final Map<String, ChangeCaptureType> REVERSE_DICTIONARY;
+        static {
+            Map<String, ChangeCaptureType> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (ChangeCaptureType elem : ChangeCaptureType.values()) {
+                for (String key : elem.keys) {
+                    map.put(key, elem);
+                }
+            }
+            REVERSE_DICTIONARY = Collections.unmodifiableMap(map);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Properties;
 import java.util.Set;
 
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.runtime.util.VariableTable;
 import com.asakusafw.runtime.util.VariableTable.RedefineStrategy;
 
@@ -54,9 +55,11 @@ public final class ConfigurationLoader {
     static {
         Set<String> keys = new HashSet<>();
         keys.add(Constants.PROP_KEY_LOG_CONF_PATH);
+        keys.add(Constants.PROP_KEY_PROFILE_DIR);
         keys.add(Constants.PROP_KEY_SSH_PATH);
         keys.add(Constants.PROP_KEY_IMP_FILE_DIR);
         keys.add(Constants.PROP_KEY_EXP_FILE_DIR);
+        keys.add(Constants.PROP_KEY_IMP_CHANGE_CAPTURE_FILE);
         KEY_PATHS = Collections.unmodifiableSet(keys);
     }
 
@@ -157,6 +160,17 @@ public final class ConfigurationLoader {
         } else if (compType == null) {
             throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
                     "Exportファイルの圧縮有無が不正。値：" + null);
+        } else if (!FileList.isAvailable(compType)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportファイルの圧縮方式が利用できない（Hadoopのネイティブライブラリが必要）。値：" + strCompType);
+        }
+        // Exportファイルの圧縮レベル
+        String expCompLevel = prop.getProperty(Constants.PROP_KEY_EXP_FILE_COMP_LEVEL);
+        if (isEmpty(expCompLevel)) {
+            prop.setProperty(Constants.PROP_KEY_EXP_FILE_COMP_LEVEL, Constants.PROP_DEFAULT_EXP_FILE_COMP_LEVEL);
+        } else if (!isNumber(expCompLevel, -1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportファイルの圧縮レベルが不正。値：" + expCompLevel);
         }
         // エクスポート処理で中間TSVファイルを生成する際にTSVファイルの分割サイズ
         String loadMaxSize = prop.getProperty(Constants.PROP_KEY_EXP_LOAD_MAX_SIZE);
@@ -170,6 +184,16 @@ public final class ConfigurationLoader {
                         "エクスポート処理中間TSVファイルを生成する際にTSVファイルを分割するサイズの設定が不正。設定値：" + loadMaxSize);
             }
         }
+        // Exportファイルを並列に読み込んでTSVファイルに変換する際のファイル数
+        String collectParallel = prop.getProperty(Constants.PROP_KEY_EXP_COLLECT_PARALLEL);
+        if (isEmpty(collectParallel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_COLLECT_PARALLEL,
+                    Constants.PROP_DEFAULT_EXP_COLLECT_PARALLEL);
+        } else if (!isNumber(collectParallel, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportファイルを並列に読み込む際のファイル数の設定が不正。設定値：" + collectParallel);
+        }
 
         // 出力ファイルの圧縮有無
         if (isEmpty(prop.getProperty(Constants.PROP_KEY_IMP_SEQ_FILE_COMP_TYPE))) {
@@ -186,6 +210,55 @@ public final class ConfigurationLoader {
                     Constants.PROP_KEY_CACHE_BUILDER_PARALLEL,
                     Constants.PROP_DEFAULT_CACHE_BUILDER_PARALLEL);
         }
+        String localLimit = prop.getProperty(Constants.PROP_KEY_CACHE_BUILDER_LOCAL_LIMIT);
+        if (isEmpty(localLimit)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_CACHE_BUILDER_LOCAL_LIMIT,
+                    Constants.PROP_DEFAULT_CACHE_BUILDER_LOCAL_LIMIT);
+        } else if (!isNumber(localLimit, -1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "ローカルでキャッシュを構築する最大サイズの設定が不正。設定値：" + localLimit);
+        }
+        String deleteParallel = prop.getProperty(Constants.PROP_KEY_CACHE_DELETE_PARALLEL);
+        if (isEmpty(deleteParallel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_CACHE_DELETE_PARALLEL,
+                    Constants.PROP_DEFAULT_CACHE_DELETE_PARALLEL);
+        } else if (!isNumber(deleteParallel, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "並列に削除するキャッシュストレージの数の設定が不正。設定値：" + deleteParallel);
+        }
+
+        // インポートデータを変換して書き出すスレッド数
+        String extractParallel = prop.getProperty(Constants.PROP_KEY_IMP_EXTRACT_PARALLEL);
+        if (isEmpty(extractParallel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_EXTRACT_PARALLEL,
+                    Constants.PROP_DEFAULT_IMP_EXTRACT_PARALLEL);
+        } else if (!isNumber(extractParallel, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "インポートデータを変換して書き出すスレッド数の設定が不正。設定値：" + extractParallel);
+        }
+        // インポートデータを並列に変換する際のブロックサイズ
+        String extractBlockSize = prop.getProperty(Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE);
+        if (isEmpty(extractBlockSize)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE,
+                    Constants.PROP_DEFAULT_IMP_EXTRACT_BLOCK_SIZE);
+        } else if (!isNumber(extractBlockSize, 1) || Long.parseLong(extractBlockSize) > Integer.MAX_VALUE / 2) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "インポートデータを並列に変換する際のブロックサイズの設定が不正。設定値：" + extractBlockSize);
+        }
+        // ThunderGateエージェントが同時に処理する要求の数
+        String agentThreads = prop.getProperty(Constants.PROP_KEY_AGENT_THREADS);
+        if (isEmpty(agentThreads)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_AGENT_THREADS,
+                    Constants.PROP_DEFAULT_AGENT_THREADS);
+        } else if (!isNumber(agentThreads, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "ThunderGateエージェントが同時に処理する要求の数の設定が不正。設定値：" + agentThreads);
+        }
     }
 
     // CHECKSTYLE:OFF MethodLengthCheck - FIXME refactoring
@@ -205,6 +278,19 @@ public final class ConfigurationLoader {
         } else if (compType == null) {
             throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
                     "Importファイルの圧縮有無が不正。値：" + null);
+        } else if (!FileList.isAvailable(compType)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importファイルの圧縮方式が利用できない（Hadoopのネイティブライブラリが必要）。値：" + strCompType);
+        }
+        // Importファイルの圧縮レベル
+        String impCompLevel = prop.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_LEVEL);
+        if (isEmpty(impCompLevel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_FILE_COMP_LEVEL,
+                    Constants.PROP_DEFAULT_IMP_FILE_COMP_LEVEL);
+        } else if (!isNumber(impCompLevel, -1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importファイルの圧縮レベルが不正。値：" + impCompLevel);
         }
         // Importファイルの圧縮時のバッファサイズ
         String impBufSize = prop.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_BUFSIZE);
@@ -242,6 +328,90 @@ public final class ConfigurationLoader {
                         "Importerのリトライインターバルの設定が不正。設定値：" + impRetryInterval);
             }
         }
+        // Importerのリトライインターバルの上限
+        String impRetryMaxInterval = prop.getProperty(Constants.PROP_KEY_IMP_RETRY_MAX_INTERVAL);
+        if (isEmpty(impRetryMaxInterval)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_RETRY_MAX_INTERVAL,
+                    Constants.PROP_DEFAULT_IMP_RETRY_MAX_INTERVAL);
+        } else if (!isNumber(impRetryMaxInterval, 0)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importerのリトライインターバルの上限の設定が不正。設定値：" + impRetryMaxInterval);
+        }
+        // Importerのロック取得処理の待ち行列で待つ最大の時間
+        String impLockWaitTimeout = prop.getProperty(Constants.PROP_KEY_IMP_LOCK_WAIT_TIMEOUT);
+        if (isEmpty(impLockWaitTimeout)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_LOCK_WAIT_TIMEOUT,
+                    Constants.PROP_DEFAULT_IMP_LOCK_WAIT_TIMEOUT);
+        } else if (!isNumber(impLockWaitTimeout, 0)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importerのロック取得処理の待ち時間の設定が不正。設定値：" + impLockWaitTimeout);
+        }
+        // レコードロックの記録形式
+        String recordLockFormat = prop.getProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT);
+        if (isEmpty(recordLockFormat)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT,
+                    Constants.PROP_DEFAULT_IMP_RECORD_LOCK_FORMAT);
+        } else if (RecordLockFormat.find(recordLockFormat.trim()) == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "レコードロックの記録形式が不正。値：" + recordLockFormat);
+        }
+        // キャッシュの差分を抽出する際の変更履歴の取得元
+        String changeCapture = prop.getProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE);
+        if (isEmpty(changeCapture)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_CHANGE_CAPTURE,
+                    Constants.PROP_DEFAULT_IMP_CHANGE_CAPTURE);
+        } else if (ChangeCaptureType.find(changeCapture.trim()) == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "変更履歴の取得元が不正。値：" + changeCapture);
+        } else if (ChangeCaptureType.find(changeCapture.trim()) == ChangeCaptureType.FILE
+                && isEmpty(prop.getProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE_FILE))) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "変更履歴ファイルのパスが設定されていない。キー：" + Constants.PROP_KEY_IMP_CHANGE_CAPTURE_FILE);
+        }
+        // Importデータの中間ファイル利用有無
+        String impStaging = prop.getProperty(Constants.PROP_KEY_IMP_STAGING_TYPE);
+        if (isEmpty(impStaging)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_STAGING_TYPE,
+                    Constants.PROP_DEFAULT_IMP_STAGING_TYPE);
+        } else if (StagingType.find(impStaging) == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importデータの中間ファイル利用有無が不正。値：" + impStaging);
+        }
+        // Importファイル生成の並列数
+        String impParallel = prop.getProperty(Constants.PROP_KEY_IMP_PARALLEL_DUMP);
+        if (isEmpty(impParallel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_PARALLEL_DUMP,
+                    Constants.PROP_DEFAULT_IMP_PARALLEL_DUMP);
+        } else if (!isNumber(impParallel, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importファイル生成の並列数が不正。値：" + impParallel);
+        }
+        // Importデータ転送の並列ストリーム数
+        String impStreams = prop.getProperty(Constants.PROP_KEY_IMP_TRANSFER_STREAMS);
+        if (isEmpty(impStreams)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_TRANSFER_STREAMS,
+                    Constants.PROP_DEFAULT_IMP_TRANSFER_STREAMS);
+        } else if (!isNumber(impStreams, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importデータ転送の並列ストリーム数が不正。値：" + impStreams);
+        }
+        // Importデータ転送のチャンクサイズ
+        String impChunkSize = prop.getProperty(Constants.PROP_KEY_IMP_TRANSFER_CHUNK_SIZE);
+        if (isEmpty(impChunkSize)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_IMP_TRANSFER_CHUNK_SIZE,
+                    Constants.PROP_DEFAULT_IMP_TRANSFER_CHUNK_SIZE);
+        } else if (!isNumber(impChunkSize, 0) || Long.parseLong(impChunkSize) > Integer.MAX_VALUE) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Importデータ転送のチャンクサイズが不正。値：" + impChunkSize);
+        }
         // Exportファイルの圧縮時のバッファサイズ
         String expBufSize = prop.getProperty(Constants.PROP_KEY_EXP_FILE_COMP_BUFSIZE);
         if (isEmpty(expBufSize)) {
@@ -312,6 +482,66 @@ public final class ConfigurationLoader {
             throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
                     "エクスポート正常終了時のTSVファイル削除有無が不正。値：" + deleteExportTsv);
         }
+        // Exportデータ転送の並列ストリーム数
+        String expStreams = prop.getProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS);
+        if (isEmpty(expStreams)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_TRANSFER_STREAMS,
+                    Constants.PROP_DEFAULT_EXP_TRANSFER_STREAMS);
+        } else if (!isNumber(expStreams, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportデータ転送の並列ストリーム数が不正。値：" + expStreams);
+        }
+        // Exportデータ転送のチャンクサイズ
+        String expChunkSize = prop.getProperty(Constants.PROP_KEY_EXP_TRANSFER_CHUNK_SIZE);
+        if (isEmpty(expChunkSize)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_TRANSFER_CHUNK_SIZE,
+                    Constants.PROP_DEFAULT_EXP_TRANSFER_CHUNK_SIZE);
+        } else if (!isNumber(expChunkSize, 0) || Long.parseLong(expChunkSize) > Integer.MAX_VALUE) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportデータ転送のチャンクサイズが不正。値：" + expChunkSize);
+        }
+        // Exportデータの中間ファイル利用有無
+        String expStaging = prop.getProperty(Constants.PROP_KEY_EXP_STAGING_TYPE);
+        if (isEmpty(expStaging)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_STAGING_TYPE,
+                    Constants.PROP_DEFAULT_EXP_STAGING_TYPE);
+        } else if (StagingType.find(expStaging) == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Exportデータの中間ファイル利用有無が不正。値：" + expStaging);
+        }
+        // Export対象テーブルを並列に処理する際の最大DBコネクション数
+        String expParallel = prop.getProperty(Constants.PROP_KEY_EXP_PARALLEL_TABLES);
+        if (isEmpty(expParallel)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_PARALLEL_TABLES,
+                    Constants.PROP_DEFAULT_EXP_PARALLEL_TABLES);
+        } else if (!isNumber(expParallel, 1)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Export対象テーブルの並列数が不正。値：" + expParallel);
+        }
+        // 新規レコードを1回コピーする際の目標処理時間
+        String copyTargetTime = prop.getProperty(Constants.PROP_KEY_EXP_COPY_TARGET_TIME);
+        if (isEmpty(copyTargetTime)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_COPY_TARGET_TIME,
+                    Constants.PROP_DEFAULT_EXP_COPY_TARGET_TIME);
+        } else if (!isNumber(copyTargetTime, 0)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "新規レコードのコピーの目標処理時間が不正。値：" + copyTargetTime);
+        }
+        // Export時の重複チェックの方式
+        String dupCheckStrategy = prop.getProperty(Constants.PROP_KEY_EXP_DUPCHECK_STRATEGY);
+        if (isEmpty(dupCheckStrategy)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_EXP_DUPCHECK_STRATEGY,
+                    Constants.PROP_DEFAULT_EXP_DUPCHECK_STRATEGY);
+        } else if (DuplicateCheckStrategy.find(dupCheckStrategy) == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Export時の重複チェックの方式が不正。値：" + dupCheckStrategy);
+        }
 
         // 必須チェック
         // remote ASAKUSA_HOME
@@ -503,6 +733,24 @@ public final class ConfigurationLoader {
             throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00011",
                     "DB接続ユーザーに対するパスワードが設定されていません");
         }
+        // プールするコネクションの最大数
+        String poolSize = prop.getProperty(Constants.PROP_KEY_DB_POOL_SIZE);
+        if (isEmpty(poolSize)) {
+            prop.setProperty(Constants.PROP_KEY_DB_POOL_SIZE, Constants.PROP_DEFAULT_DB_POOL_SIZE);
+        } else if (!isNumber(poolSize, 0)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00011",
+                    "プールするコネクションの最大数の設定が不正。設定値：" + poolSize);
+        }
+        // キャッシュするPreparedStatementの最大数
+        String statementCacheSize = prop.getProperty(Constants.PROP_KEY_DB_STATEMENT_CACHE_SIZE);
+        if (isEmpty(statementCacheSize)) {
+            prop.setProperty(
+                    Constants.PROP_KEY_DB_STATEMENT_CACHE_SIZE,
+                    Constants.PROP_DEFAULT_DB_STATEMENT_CACHE_SIZE);
+        } else if (!isNumber(statementCacheSize, 0)) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00011",
+                    "キャッシュするPreparedStatementの最大数の設定が不正。設定値：" + statementCacheSize);
+        }
     }
 
     /**
@@ -693,6 +941,36 @@ public final class ConfigurationLoader {
         return indexName;
     }
 
+    /**
+     * Returns the duplication check strategy about target table.
+     * @param batchId current batch ID
+     * @param jobflowId current jobflow ID
+     * @param tableName target table name
+     * @return corresponded strategy, or the default one if not defined for the table
+     * @throws BulkLoaderSystemException if the strategy is not valid
+     * @since 0.10.4
+     */
+    public static DuplicateCheckStrategy getDuplicateCheckStrategy(
+            String batchId, String jobflowId, String tableName) throws BulkLoaderSystemException {
+        StringBuilder buf = new StringBuilder();
+        buf.append("dupcheck.strategy.");
+        buf.append(batchId);
+        buf.append("|");
+        buf.append(jobflowId);
+        buf.append("|");
+        buf.append(tableName);
+        String name = prop.getProperty(buf.toString());
+        if (isEmpty(name)) {
+            name = prop.getProperty(Constants.PROP_KEY_EXP_DUPCHECK_STRATEGY, Constants.PROP_DEFAULT_EXP_DUPCHECK_STRATEGY);
+        }
+        DuplicateCheckStrategy strategy = DuplicateCheckStrategy.find(name);
+        if (strategy == null) {
+            throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00008",
+                    "Export時の重複チェックの方式が不正。キー：" + buf + " 値：" + name);
+        }
+        return strategy;
+    }
+
     /**
      * このクラスが提供するプロパティを設定する。
      * @param p 設定するプロパティ
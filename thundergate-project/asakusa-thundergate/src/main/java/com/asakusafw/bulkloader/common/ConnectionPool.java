@@ -0,0 +1,416 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.asakusafw.bulkloader.log.Log;
+
+/**
+ * DBのコネクションを再利用するためのプール。
+ * <p>
+ * プールから払い出したコネクションをクローズすると、トランザクションをロールバックし、
+ * テーブルロックと名前付きロックを解放してからプールに返却する。
+ * セッションの状態を戻せなかったコネクションは、プールに返却せずにクローズする。
+ * </p>
+ * <p>
+ * また、コネクションごとに{@link PreparedStatement}をSQL文をキーとしてキャッシュし、
+ * 同一のSQL文に対する{@link Connection#prepareStatement(String)}で再利用する。
+ * フェッチサイズなどの設定を変更したPreparedStatementは、キャッシュに戻す際に元の設定に戻す。
+ * </p>
+ * @since 0.10.4
+ */
+final class ConnectionPool {
+
+    static final Log LOG = new Log(ConnectionPool.class);
+
+    /**
+     * コネクションの有効性を確認する際のタイムアウト（秒）。
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * キャッシュに戻す際に元に戻すPreparedStatementの設定と、その値を取得するメソッドの名前。
+     * これ以外の設定を変更したPreparedStatementはキャッシュしない。
+     */
+    static final Map<String, String> RESTORABLE_SETTINGS;
+    static {
+        Map<String, String> map = new HashMap<>();
+        map.put("setFetchSize", "getFetchSize");
+        map.put("setFetchDirection", "getFetchDirection");
+        map.put("setMaxRows", "getMaxRows");
+        map.put("setMaxFieldSize", "getMaxFieldSize");
+        map.put("setQueryTimeout", "getQueryTimeout");
+        map.put("setPoolable", "isPoolable");
+        RESTORABLE_SETTINGS = map;
+    }
+
+    private final String key;
+
+    private final int maxSize;
+
+    private final int statementCacheSize;
+
+    private final Deque<Entry> idle = new ArrayDeque<>();
+
+    private boolean closed = false;
+
+    /**
+     * インスタンスを生成する。
+     * @param key 接続情報を表す文字列
+     * @param maxSize プールに保持するコネクションの最大数
+     * @param statementCacheSize コネクションごとにキャッシュするPreparedStatementの最大数
+     */
+    ConnectionPool(String key, int maxSize, int statementCacheSize) {
+        this.key = key;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * 接続情報を表す文字列を返す。
+     * @return 接続情報を表す文字列
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * プールに保持されている有効なコネクションを取り出す。
+     * @return 取り出したコネクション、有効なコネクションが存在しない場合は{@code null}
+     */
+    Connection poll() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isValid()) {
+                return entry.open();
+            }
+            LOG.debugMessage("無効なコネクションを破棄します。");
+            entry.dispose();
+        }
+    }
+
+    /**
+     * 新しく接続したコネクションを、このプールに返却されるコネクションとして払い出す。
+     * @param connection 接続したコネクション
+     * @return 払い出すコネクション
+     */
+    Connection wrap(Connection connection) {
+        return new Entry(connection).open();
+    }
+
+    /**
+     * プールに保持されているコネクションを全てクローズする。
+     * 以降に返却されたコネクションはプールに保持せずにクローズする。
+     */
+    void close() {
+        Deque<Entry> entries;
+        synchronized (this) {
+            closed = true;
+            entries = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        for (Entry entry : entries) {
+            entry.dispose();
+        }
+    }
+
+    /**
+     * 払い出したコネクションを、プールに返却せずにクローズする。
+     * @param connection 払い出したコネクション
+     * @return クローズした場合は{@code true}、プールから払い出したコネクションでない場合は{@code false}
+     */
+    static boolean discard(Connection connection) {
+        if (Proxy.isProxyClass(connection.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(connection);
+            if (handler instanceof ConnectionHandler) {
+                ((ConnectionHandler) handler).discard();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void release(Entry entry) {
+        if (isAcceptable() && entry.reset()) {
+            synchronized (this) {
+                if (closed == false && idle.size() < maxSize) {
+                    idle.addFirst(entry);
+                    return;
+                }
+            }
+        }
+        entry.dispose();
+    }
+
+    private synchronized boolean isAcceptable() {
+        return closed == false && idle.size() < maxSize;
+    }
+
+    /**
+     * プールで管理する物理的なコネクション。
+     */
+    private final class Entry {
+
+        final Connection physical;
+
+        final Map<String, PreparedStatement> statements;
+
+        Entry(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > statementCacheSize) {
+                        DBConnection.closePs(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection open() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new ConnectionHandler(this));
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (physical.getAutoCommit()) {
+                    physical.setAutoCommit(false);
+                } else {
+                    physical.rollback();
+                }
+                // セッションに残ったテーブルロックと名前付きロックを解放する
+                try (Statement statement = physical.createStatement()) {
+                    statement.execute("UNLOCK TABLES");
+                    statement.execute("DO RELEASE_ALL_LOCKS()");
+                }
+                if (physical.getTransactionIsolation() != Connection.TRANSACTION_READ_COMMITTED) {
+                    physical.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                }
+                return true;
+            } catch (SQLException e) {
+                LOG.debugMessage("コネクションの返却に失敗したため破棄します。{0}", e.getMessage());
+                return false;
+            }
+        }
+
+        void dispose() {
+            for (Iterator<PreparedStatement> iter = statements.values().iterator(); iter.hasNext();) {
+                DBConnection.closePs(iter.next());
+                iter.remove();
+            }
+            DBConnection.closeConn(physical);
+        }
+    }
+
+    /**
+     * 払い出したコネクションに対する操作を、物理的なコネクションに委譲する。
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Entry entry;
+
+        private boolean released = false;
+
+        ConnectionHandler(Entry entry) {
+            this.entry = entry;
+        }
+
+        void discard() {
+            if (released == false) {
+                released = true;
+                entry.dispose();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && method.getParameterCount() == 0) {
+                if (released == false) {
+                    released = true;
+                    release(entry);
+                }
+                return null;
+            } else if (name.equals("isClosed") && method.getParameterCount() == 0) {
+                return released || entry.physical.isClosed();
+            } else if (name.equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString") && method.getParameterCount() == 0) {
+                return "Pooled" + entry.physical;
+            }
+            if (released) {
+                throw new SQLException("Connection is already closed");
+            }
+            if (name.equals("prepareStatement") && statementCacheSize > 0) {
+                String cacheKey = getStatementKey(method, args);
+                if (cacheKey != null) {
+                    PreparedStatement statement = entry.statements.remove(cacheKey);
+                    if (statement == null || statement.isClosed()) {
+                        statement = (PreparedStatement) invokePhysical(entry.physical, method, args);
+                    }
+                    return Proxy.newProxyInstance(
+                            PreparedStatement.class.getClassLoader(),
+                            new Class<?>[] { PreparedStatement.class },
+                            new StatementHandler(entry, (Connection) proxy, cacheKey, statement));
+                }
+            }
+            return invokePhysical(entry.physical, method, args);
+        }
+
+        private String getStatementKey(Method method, Object[] args) {
+            // 結果セットの種類などを指定しない、ループ内で繰り返し使われる形式のみキャッシュする
+            Class<?>[] types = method.getParameterTypes();
+            if (types.length == 1 && types[0] == String.class) {
+                return (String) args[0];
+            } else if (types.length == 2 && types[0] == String.class && types[1] == int.class) {
+                return args[1] + ":" + args[0];
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 払い出したPreparedStatementに対する操作を委譲し、クローズ時にキャッシュに戻す。
+     */
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Entry entry;
+
+        private final Connection connection;
+
+        private final String cacheKey;
+
+        private final PreparedStatement physical;
+
+        private final Map<Method, Object> originalSettings = new LinkedHashMap<>();
+
+        private boolean restorable = true;
+
+        private boolean released = false;
+
+        StatementHandler(Entry entry, Connection connection, String cacheKey, PreparedStatement physical) {
+            this.entry = entry;
+            this.connection = connection;
+            this.cacheKey = cacheKey;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && method.getParameterCount() == 0) {
+                if (released == false) {
+                    released = true;
+                    recycle();
+                }
+                return null;
+            } else if (name.equals("isClosed") && method.getParameterCount() == 0) {
+                return released || physical.isClosed();
+            } else if (name.equals("getConnection") && method.getParameterCount() == 0) {
+                return connection;
+            } else if (name.equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString") && method.getParameterCount() == 0) {
+                return "Cached" + physical;
+            }
+            if (released) {
+                throw new SQLException("Statement is already closed");
+            }
+            if (method.getDeclaringClass() == Statement.class
+                    && (name.startsWith("set") || name.equals("closeOnCompletion"))) {
+                saveSetting(method);
+            }
+            return invokePhysical(physical, method, args);
+        }
+
+        private void saveSetting(Method setter) throws Throwable {
+            String getter = RESTORABLE_SETTINGS.get(setter.getName());
+            if (getter == null) {
+                restorable = false;
+            } else if (originalSettings.containsKey(setter) == false) {
+                originalSettings.put(setter, invokePhysical(physical, Statement.class.getMethod(getter), null));
+            }
+        }
+
+        private void recycle() {
+            try {
+                if (restorable && connection.isClosed() == false && physical.isClosed() == false
+                        && entry.statements.containsKey(cacheKey) == false) {
+                    for (Map.Entry<Method, Object> setting : originalSettings.entrySet()) {
+                        invokePhysical(physical, setting.getKey(), new Object[] { setting.getValue() });
+                    }
+                    physical.clearParameters();
+                    physical.clearBatch();
+                    physical.clearWarnings();
+                    entry.statements.put(cacheKey, physical);
+                    return;
+                }
+            } catch (Throwable e) {
+                LOG.debugMessage("PreparedStatementのキャッシュに失敗したためクローズします。{0}", e.getMessage());
+            }
+            DBConnection.closePs(physical);
+        }
+    }
+
+    static Object invokePhysical(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
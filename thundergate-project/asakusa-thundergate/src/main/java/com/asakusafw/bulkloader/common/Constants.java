@@ -61,6 +61,40 @@ public final class Constants {
      */
     public static final String ENV_ARGS = "BULKLOADER_ARGS";
 
+    /**
+     * 転送ストリームの番号を表す環境変数。
+     * <p>
+     * 0から始まり、{@link #ENV_TRANSFER_STREAM_COUNT}未満の値を指定すること。
+     * </p>
+     * @since 0.10.4
+     */
+    public static final String ENV_TRANSFER_STREAM_INDEX = "BULKLOADER_STREAM_INDEX";
+
+    /**
+     * 転送ストリームの総数を表す環境変数。
+     * @since 0.10.4
+     */
+    public static final String ENV_TRANSFER_STREAM_COUNT = "BULKLOADER_STREAM_COUNT";
+
+    /**
+     * 転送データのチャンクサイズ（バイト数）を表す環境変数。
+     * @since 0.10.4
+     */
+    public static final String ENV_TRANSFER_CHUNK_SIZE = "BULKLOADER_CHUNK_SIZE";
+
+    /**
+     * 受信済みのエントリを転送元へ通知してから受信を開始するかどうかを表す環境変数。
+     * {@code true}を指定すること。
+     * @since 0.10.4
+     */
+    public static final String ENV_TRANSFER_RESUME = "BULKLOADER_TRANSFER_RESUME";
+
+    /**
+     * 転送ストリーム内で受信済みのため送信を省略するファイル数を表す環境変数。
+     * @since 0.10.4
+     */
+    public static final String ENV_TRANSFER_RESUME_COUNT = "BULKLOADER_RESUME_COUNT";
+
     /*
      * 終了コード
      */
@@ -100,6 +134,11 @@ public final class Constants {
      * プロパティKEY log4j.xmlのパス。
      */
     public static final String PROP_KEY_LOG_CONF_PATH = "log.conf-path";
+    /**
+     * プロパティKEY プロファイルレポートの出力先ディレクトリ（省略時はログファイルと同じディレクトリ）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_PROFILE_DIR = "log.profile-dir";
     /**
      * プロパティKEY HDFSのプロトコルとホスト名。
      * @deprecated use {@link #PROP_KEY_BASE_PATH} instead
@@ -141,6 +180,17 @@ public final class Constants {
      * プロパティKEY HDFSのNameノードのユーザー名。
      */
     public static final String PROP_KEY_NAMENODE_USER = "hadoop-cluster.user";
+    /**
+     * プロパティKEY Hadoop Cluster上のThunderGateエージェントのアドレス（ホスト名:ポート番号）。
+     * 省略した場合、キャッシュ情報の取得やキャッシュの削除の度にSSHでプロセスを起動する。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_NAMENODE_AGENT_ADDRESS = "hadoop-cluster.agent.address";
+    /**
+     * プロパティKEY Hadoop Cluster上のThunderGateエージェントに接続する際の共有鍵。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_NAMENODE_AGENT_SECRET = "hadoop-cluster.agent.secret";
     /**
      * プロパティKEY Importファイルを置くディレクトリのトップディレクトリ。
      */
@@ -167,6 +217,11 @@ public final class Constants {
      * プロパティKEY Importファイルの圧縮有無。
      */
     public static final String PROP_KEY_IMP_FILE_COMP_TYPE = "import.zip-comp-type";
+    /**
+     * プロパティKEY Importファイルの圧縮レベル。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_FILE_COMP_LEVEL = "import.zip-comp-level";
     /**
      * プロパティKEY Importファイルの圧縮時のバッファサイズ。
      */
@@ -179,6 +234,56 @@ public final class Constants {
      * プロパティKEY Importerのリトライインターバル。
      */
     public static final String PROP_KEY_IMP_RETRY_INTERVAL = "import.retry-interval";
+    /**
+     * プロパティKEY Importerのリトライインターバルの上限（秒）。
+     * リトライインターバルより大きい場合、リトライごとにインターバルを倍増させる。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_RETRY_MAX_INTERVAL = "import.retry-max-interval";
+    /**
+     * プロパティKEY Importerのロック取得処理の待ち行列で待つ最大の時間（秒、0の場合は待ち行列を使用しない）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_LOCK_WAIT_TIMEOUT = "import.lock-wait-timeout";
+    /**
+     * プロパティKEY レコードロックの記録形式。
+     * @see RecordLockFormat
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_RECORD_LOCK_FORMAT = "import.record-lock-format";
+    /**
+     * プロパティKEY キャッシュの差分を抽出する際の変更履歴の取得元。
+     * @see ChangeCaptureType
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_CHANGE_CAPTURE = "import.change-capture";
+    /**
+     * プロパティKEY 変更履歴ファイルのパス（変更履歴の取得元が{@code FILE}の場合のみ）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_CHANGE_CAPTURE_FILE = "import.change-capture-file";
+    /**
+     * プロパティKEY Importデータの中間ファイル利用有無。
+     * @see StagingType
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_STAGING_TYPE = "import.staging-type";
+    /**
+     * プロパティKEY Importファイルを並列に生成する際の最大DBコネクション数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_PARALLEL_DUMP = "import.parallel-dump";
+    /**
+     * プロパティKEY Importデータを転送する際の並列ストリーム数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_TRANSFER_STREAMS = "import.transfer-streams";
+    /**
+     * プロパティKEY Importデータを転送する際のチャンクサイズ（0の場合はチャンクに分割しない）。
+     * 正の値を指定した場合、受信済みのテーブルは再実行時に転送しない。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_TRANSFER_CHUNK_SIZE = "import.transfer-chunk-size";
     /**
      * プロパティKEY エクスポートファイルを置くディレクトリのトップディレクトリ。
      */
@@ -205,6 +310,39 @@ public final class Constants {
      * プロパティKEY エクスポート処理でExport対象テーブルにデータをコピーする時の最大レコード数。
      */
     public static final String PROP_KEY_EXP_COPY_MAX_RECORD = "export.data-copy-max-count";
+    /**
+     * プロパティKEY Exportデータを転送する際の並列ストリーム数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_TRANSFER_STREAMS = "export.transfer-streams";
+    /**
+     * プロパティKEY Exportデータを転送する際のチャンクサイズ（0の場合はチャンクに分割しない）。
+     * 正の値を指定した場合、受信済みのファイルは再実行時に転送しない。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_TRANSFER_CHUNK_SIZE = "export.transfer-chunk-size";
+    /**
+     * プロパティKEY Exportデータの中間ファイル利用有無。
+     * @see StagingType
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_STAGING_TYPE = "export.staging-type";
+    /**
+     * プロパティKEY Export対象テーブルのロードとコピーを並列に行う際の最大DBコネクション数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_PARALLEL_TABLES = "export.parallel-tables";
+    /**
+     * プロパティKEY 新規レコードを1回コピーする際の目標処理時間（ミリ秒、0の場合はコピーする範囲を調整しない）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_COPY_TARGET_TIME = "export.data-copy-target-time";
+    /**
+     * プロパティKEY Export時の重複チェックの方式。
+     * @see DuplicateCheckStrategy
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_DUPCHECK_STRATEGY = "export.dupcheck-strategy";
     /**
      * システムカラムのカラム名 システムID。
      */
@@ -258,6 +396,16 @@ public final class Constants {
      * プロパティKEY DBMSのコネクション取得時のチューニングパラ-メータを記述したプロパティファイル。
      */
     public static final String PROP_KEY_NAME_DB_PRAM = "jdbc.param-conf-path";
+    /**
+     * プロパティKEY 再利用のためにプールするコネクションの最大数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_DB_POOL_SIZE = "jdbc.pool-size";
+    /**
+     * プロパティKEY コネクションごとにキャッシュするPreparedStatementの最大数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_DB_STATEMENT_CACHE_SIZE = "jdbc.statement-cache-size";
 
     /*
      * bulkloader-conf-hc.properties
@@ -277,14 +425,67 @@ public final class Constants {
      * @since 0.2.3
      */
     public static final String PROP_KEY_CACHE_BUILDER_PARALLEL = "import.cache-build-max-parallel";
+    /**
+     * The property key of maximum total size of cache HEAD and patch to build the cache in the extractor process.
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_CACHE_BUILDER_LOCAL_LIMIT = "import.cache-build-local-limit";
+    /**
+     * The property key of maximum number of cache storages to delete concurrently.
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_CACHE_DELETE_PARALLEL = "import.cache-delete-parallel";
+    /**
+     * プロパティKEY インポートデータを変換して書き出すスレッド数。
+     * 2以上の場合、テーブルごとにスレッド数分のファイルに分割して書き出す。
+     * ただし、以前のバージョンでコンパイルしたジョブフローは分割されたファイルを読み込めないため、
+     * それらのテーブルは常に単一のファイルに書き出す。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_EXTRACT_PARALLEL = "import.extract-parallel";
+    /**
+     * プロパティKEY インポートデータを並列に変換する際のブロックサイズ。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_IMP_EXTRACT_BLOCK_SIZE = "import.extract-block-size";
+    /**
+     * プロパティKEY ThunderGateエージェントが待ち受けるポート番号。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_AGENT_PORT = "agent.port";
+    /**
+     * プロパティKEY ThunderGateエージェントが待ち受けるアドレス（省略時はループバックアドレス、{@code *}の場合は全てのアドレス）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_AGENT_BIND_ADDRESS = "agent.bind-address";
+    /**
+     * プロパティKEY ThunderGateエージェントが同時に処理する要求の数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_AGENT_THREADS = "agent.threads";
+    /**
+     * プロパティKEY ThunderGateエージェントへの接続に要求する共有鍵（必須、平文のまま送受信される）。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_AGENT_SECRET = "agent.secret";
     /**
      * プロパティKEY Exportファイルの圧縮有無。
      */
     public static final String PROP_KEY_EXP_FILE_COMP_TYPE = "export.zip-comp-type";
+    /**
+     * プロパティKEY Exportファイルの圧縮レベル。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_FILE_COMP_LEVEL = "export.zip-comp-level";
     /**
      * プロパティKEY エクスポートファイルをTSVファイルに変換する際のファイル分割サイズ。
      */
     public static final String PROP_KEY_EXP_LOAD_MAX_SIZE = "export.tsv-max-size";
+    /**
+     * プロパティKEY Exportファイルを並列に読み込んでTSVファイルに変換する際のファイル数。
+     * @since 0.10.4
+     */
+    public static final String PROP_KEY_EXP_COLLECT_PARALLEL = "export.collect-parallel";
     /**
      * プロパティKEY Extractor,Collectorのファイル入出力位置をワーキングディレクトリベースとするか。
      * trueにすると、スタンドアロンモードでも動作可能となる。開発環境ではtrueにする。
@@ -304,6 +505,11 @@ public final class Constants {
      * プロパティデフォルト値 Importファイルの圧縮有無。
      */
     public static final String PROP_DEFAULT_IMP_FILE_COMP_TYPE = FileCompType.STORED.getSymbol();
+    /**
+     * プロパティデフォルト値 Importファイルの圧縮レベル（圧縮方式の既定値を利用）。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_FILE_COMP_LEVEL = "-1";
     /**
      * プロパティデフォルト値 Importファイルの圧縮時のバッファサイズ。
      */
@@ -316,10 +522,55 @@ public final class Constants {
      * プロパティデフォルト値 Importerのリトライインターバル。
      */
     public static final String PROP_DEFAULT_IMP_RETRY_INTERVAL = "10";
+    /**
+     * プロパティデフォルト値 Importerのリトライインターバルの上限。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_RETRY_MAX_INTERVAL = "0";
+    /**
+     * プロパティデフォルト値 Importerのロック取得処理の待ち行列で待つ最大の時間。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_LOCK_WAIT_TIMEOUT = "0";
+    /**
+     * プロパティデフォルト値 レコードロックの記録形式。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_RECORD_LOCK_FORMAT = RecordLockFormat.ROW.getSymbol();
+    /**
+     * プロパティデフォルト値 キャッシュの差分を抽出する際の変更履歴の取得元。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_CHANGE_CAPTURE = ChangeCaptureType.NONE.getSymbol();
+    /**
+     * プロパティデフォルト値 Importデータの中間ファイル利用有無。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_STAGING_TYPE = StagingType.FILE.getSymbol();
+    /**
+     * プロパティデフォルト値 Importファイルを並列に生成する際の最大DBコネクション数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_PARALLEL_DUMP = "1";
+    /**
+     * プロパティデフォルト値 Importデータを転送する際の並列ストリーム数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_TRANSFER_STREAMS = "1";
+    /**
+     * プロパティデフォルト値 Importデータを転送する際のチャンクサイズ。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_TRANSFER_CHUNK_SIZE = "0";
     /**
      * プロパティデフォルト値 Exportファイルの圧縮有無。
      */
     public static final String PROP_DEFAULT_EXP_FILE_COMP_TYPE = FileCompType.STORED.getSymbol();
+    /**
+     * プロパティデフォルト値 Exportファイルの圧縮レベル（圧縮方式の既定値を利用）。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_FILE_COMP_LEVEL = "-1";
     /**
      * プロパティデフォルト値 Exportファイルの圧縮時のバッファサイズ。
      */
@@ -336,10 +587,45 @@ public final class Constants {
      * プロパティデフォルト値 エクスポートファイルをTSVファイルに変換する際のファイル分割サイズ。
      */
     public static final String PROP_DEFAULT_EXP_LOAD_MAX_SIZE = "16777216";
+    /**
+     * プロパティデフォルト値 Exportファイルを並列に読み込んでTSVファイルに変換する際のファイル数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_COLLECT_PARALLEL = "1";
     /**
      * プロパティデフォルト値 エクスポート処理でExport対象テーブルにデータをコピーする時の最大レコード数。
      */
     public static final String PROP_DEFAULT_EXP_COPY_MAX_RECORD = "100000";
+    /**
+     * プロパティデフォルト値 Exportデータを転送する際の並列ストリーム数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_TRANSFER_STREAMS = "1";
+    /**
+     * プロパティデフォルト値 Exportデータを転送する際のチャンクサイズ。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_TRANSFER_CHUNK_SIZE = "0";
+    /**
+     * プロパティデフォルト値 Exportデータの中間ファイル利用有無。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_STAGING_TYPE = StagingType.FILE.getSymbol();
+    /**
+     * プロパティデフォルト値 Export対象テーブルのロードとコピーを並列に行う際の最大DBコネクション数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_PARALLEL_TABLES = "1";
+    /**
+     * プロパティデフォルト値 新規レコードを1回コピーする際の目標処理時間（ミリ秒）。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_COPY_TARGET_TIME = "1000";
+    /**
+     * プロパティデフォルト値 Export時の重複チェックの方式。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_EXP_DUPCHECK_STRATEGY = DuplicateCheckStrategy.EXISTS.getSymbol();
     /**
      * プロパティデフォルト値 ファイル入出力位置をワーキングディレクトリベースとするか。
      */
@@ -352,6 +638,16 @@ public final class Constants {
      * プロパティデフォルト値 エクスポート処理が正常終了した場合に、Exporterで生成したエクスポート中間TSVファイルを削除するか。
      */
     public static final String PROP_DEFAULT_EXPORT_TSV_DELETE = TsvDeleteType.TRUE.getSymbol();
+    /**
+     * プロパティデフォルト値 再利用のためにプールするコネクションの最大数（プールしない）。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_DB_POOL_SIZE = "0";
+    /**
+     * プロパティデフォルト値 コネクションごとにキャッシュするPreparedStatementの最大数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_DB_STATEMENT_CACHE_SIZE = "64";
     /**
      * プロパティデフォルト値 出力ファイルの圧縮有無。
      */
@@ -361,6 +657,31 @@ public final class Constants {
      * @since 0.2.3
      */
     public static final String PROP_DEFAULT_CACHE_BUILDER_PARALLEL = "1";
+    /**
+     * The default property value of maximum total size of cache HEAD and patch to build the cache locally.
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_CACHE_BUILDER_LOCAL_LIMIT = "-1";
+    /**
+     * The default property value of maximum number of cache storages to delete concurrently.
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_CACHE_DELETE_PARALLEL = "4";
+    /**
+     * プロパティデフォルト値 インポートデータを変換して書き出すスレッド数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_EXTRACT_PARALLEL = "1";
+    /**
+     * プロパティデフォルト値 インポートデータを並列に変換する際のブロックサイズ。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_IMP_EXTRACT_BLOCK_SIZE = "4194304";
+    /**
+     * プロパティデフォルト値 ThunderGateエージェントが同時に処理する要求の数。
+     * @since 0.10.4
+     */
+    public static final String PROP_DEFAULT_AGENT_THREADS = "4";
 
     /*
      * パス・ファイル名の固定値
@@ -396,12 +717,24 @@ public final class Constants {
      */
     public static final String PATH_REMOTE_CACHE_DELETE = "libexec/delete-cache-storage.sh";
 
+    /**
+     * Relative path to the rolling back remote cache contents script (from framework installation home).
+     * @since 0.10.4
+     */
+    public static final String PATH_REMOTE_CACHE_ROLLBACK = "libexec/rollback-cache-storage.sh";
+
     /**
      * Relative path to the building cache contents script (from framework installation home).
      * @since 0.4.0
      */
     public static final String PATH_LOCAL_CACHE_BUILD = "libexec/hadoop-build-cache.sh";
 
+    /**
+     * Relative path to the Hadoop configuration file for the framework (from framework installation home).
+     * @since 0.10.4
+     */
+    public static final String PATH_FRAMEWORK_RESOURCES = "core/conf/asakusa-resources.xml";
+
     /**
      * DBMSの接続情報を記述したプロパティファイルの接尾辞。
      */
@@ -468,6 +801,37 @@ public final class Constants {
      * HDFSのパスの変数名(実行時ID)。
      */
     public static final String HDFS_PATH_VARIABLE_EXECUTION_ID = "execution_id";
+    /**
+     * Import転送の受信済みエントリを記録するジャーナルを置くHDFSのパス。
+     * @since 0.10.4
+     */
+    public static final String HDFS_PATH_IMPORT_JOURNAL = "/${user}/${execution_id}/thundergate/journal";
+    /**
+     * 転送の受信済みエントリを記録するジャーナルファイルの拡張子。
+     * @since 0.10.4
+     */
+    public static final String TRANSFER_JOURNAL_EXTENSION = ".journal";
+
+    /**
+     * 転送ストリームを分割した場合に、各Collectorが最後に送信するマニフェストのエントリ名。
+     * <p>
+     * マニフェストには、Collectorが検出したExportファイルの数とその一覧のダイジェストを記録する。
+     * Exporterは全てのストリームのマニフェストが一致することを確認し、
+     * Collector間で検出したファイルが異なる場合（ファイルの取りこぼし）を検出する。
+     * </p>
+     * @since 0.10.4
+     */
+    public static final String TRANSFER_MANIFEST_ENTRY_NAME = ".__MANIFEST__";
+    /**
+     * マニフェストに記録するExportファイル数のキー。
+     * @since 0.10.4
+     */
+    public static final String TRANSFER_MANIFEST_KEY_FILES = "files";
+    /**
+     * マニフェストに記録するExportファイル一覧のダイジェストのキー。
+     * @since 0.10.4
+     */
+    public static final String TRANSFER_MANIFEST_KEY_DIGEST = "digest";
 
 
     /*
@@ -52,6 +52,26 @@ public final class DBConnection {
      */
     private static volatile boolean initialized = false;
 
+    /**
+     * コネクションプール。
+     */
+    private static ConnectionPool pool;
+
+    /**
+     * プロセスの終了時にプールをクローズするフックを登録済みか。
+     */
+    private static boolean shutdownHookRegistered = false;
+
+    /**
+     * 読み込み済みのチューニングパラメータ。
+     */
+    private static Properties tuningParameters;
+
+    /**
+     * 読み込み済みのチューニングパラメータのプロパティファイル名。
+     */
+    private static String tuningParameterPath;
+
     private DBConnection() {
         return;
     }
@@ -81,13 +101,11 @@ public final class DBConnection {
     }
     /**
      * コネクションを取得する。
+     * プールに有効なコネクションが保持されている場合はそれを再利用し、存在しない場合は新たに接続する。
      * @return コネクション
      * @throws BulkLoaderSystemException コネクションの取得に失敗した場合
      */
     public static Connection getConnection() throws BulkLoaderSystemException {
-        Connection conn = null;
-        FileInputStream fis = null;
-
         // 初期化が行われていない場合例外をスローする。
         if (!initialized) {
             throw new BulkLoaderSystemException(CLASS, "TG-COMMON-00001",
@@ -100,12 +118,20 @@ public final class DBConnection {
         String password = ConfigurationLoader.getProperty(Constants.PROP_KEY_DB_PASSWORD);
         String param = ConfigurationLoader.getProperty(Constants.PROP_KEY_NAME_DB_PRAM);
 
+        ConnectionPool current = getPool(url, user, password, param);
+        if (current != null) {
+            Connection conn = current.poll();
+            if (conn != null) {
+                LOG.debugMessage("プールされたコネクションを再利用します。");
+                return conn;
+            }
+        }
+
+        Connection conn = null;
         try {
             if (param != null && !param.isEmpty()) {
                 // チューニングパラメータのプロパティが指定されている場合
-                fis = new FileInputStream(new File(param));
-                Properties prop = new Properties();
-                prop.load(fis);
+                Properties prop = getTuningParameters(param);
                 prop.setProperty("user", user);
                 prop.setProperty("password", password);
                 conn = DriverManager.getConnection(url, prop);
@@ -119,6 +145,9 @@ public final class DBConnection {
             // オートコミットをFALSEに設定
             conn.setAutoCommit(false);
 
+            if (current != null) {
+                return current.wrap(conn);
+            }
             return conn;
 
         } catch (SQLException e) {
@@ -132,22 +161,85 @@ public final class DBConnection {
             }
             throw new BulkLoaderSystemException(e, CLASS, "TG-COMMON-00001",
                     "コネクション取得中にSQL例外が発生");
-        } catch (FileNotFoundException e) {
-            throw new BulkLoaderSystemException(e, CLASS, "TG-COMMON-00001",
-                    MessageFormat.format("チューニングパラメータのプロパティが見つからない。ファイル名：{0}", param));
-        } catch (IOException e) {
-            throw new BulkLoaderSystemException(e, CLASS, "TG-COMMON-00001",
-                    MessageFormat.format("チューニングパラメータのプロパティの読み込みに失敗。ファイル名：{0}", param));
-        } finally {
-            if (fis != null) {
-                try {
-                    fis.close();
-                } catch (IOException e) {
-                    // ここで例外が発生した場合は握りつぶす
-                    e.printStackTrace();
-                }
+        }
+    }
+    /**
+     * 接続情報に対するコネクションプールを返す。
+     * 接続情報が変更された場合は、以前のプールに保持されたコネクションをクローズする。
+     * @param url DB接続URL
+     * @param user DB接続ユーザー
+     * @param password DB接続ユーザーに対するパスワード
+     * @param param チューニングパラメータのプロパティ
+     * @return コネクションプール、コネクションを再利用しない場合は{@code null}
+     */
+    private static synchronized ConnectionPool getPool(String url, String user, String password, String param) {
+        int poolSize = getIntProperty(Constants.PROP_KEY_DB_POOL_SIZE, Constants.PROP_DEFAULT_DB_POOL_SIZE);
+        int cacheSize = getIntProperty(
+                Constants.PROP_KEY_DB_STATEMENT_CACHE_SIZE,
+                Constants.PROP_DEFAULT_DB_STATEMENT_CACHE_SIZE);
+        String key = MessageFormat.format("{0}\t{1}\t{2}\t{3}\t{4}\t{5}",
+                url, user, password, param, poolSize, cacheSize);
+        if (pool != null && pool.getKey().equals(key) == false) {
+            pool.close();
+            pool = null;
+        }
+        if (pool == null && (poolSize > 0 || cacheSize > 0)) {
+            pool = new ConnectionPool(key, poolSize, cacheSize);
+            if (poolSize > 0 && shutdownHookRegistered == false) {
+                // プールに保持したままのコネクションを、プロセスの終了時にクローズする
+                Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::closePool, "thundergate-pool-shutdown"));
+                shutdownHookRegistered = true;
             }
         }
+        return pool;
+    }
+    /**
+     * プールに保持されているコネクションを全てクローズする。
+     * 払い出し中のコネクションは、返却時にクローズする。
+     * @since 0.10.4
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+    /**
+     * チューニングパラメータのプロパティを返す。
+     * 同一のファイルに対しては、初回に読み込んだ内容の複製を返す。
+     * @param param チューニングパラメータのプロパティ
+     * @return 読み込んだプロパティ
+     * @throws BulkLoaderSystemException 読み込みに失敗した場合
+     */
+    private static synchronized Properties getTuningParameters(String param) throws BulkLoaderSystemException {
+        if (tuningParameters == null || param.equals(tuningParameterPath) == false) {
+            Properties prop = new Properties();
+            try (FileInputStream fis = new FileInputStream(new File(param))) {
+                prop.load(fis);
+            } catch (FileNotFoundException e) {
+                throw new BulkLoaderSystemException(e, CLASS, "TG-COMMON-00001",
+                        MessageFormat.format("チューニングパラメータのプロパティが見つからない。ファイル名：{0}", param));
+            } catch (IOException e) {
+                throw new BulkLoaderSystemException(e, CLASS, "TG-COMMON-00001",
+                        MessageFormat.format("チューニングパラメータのプロパティの読み込みに失敗。ファイル名：{0}", param));
+            }
+            tuningParameters = prop;
+            tuningParameterPath = param;
+        }
+        Properties copy = new Properties();
+        copy.putAll(tuningParameters);
+        return copy;
+    }
+    private static int getIntProperty(String key, String defaultValue) {
+        String value = ConfigurationLoader.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = defaultValue;
+        }
+        try {
+            return Math.max(Integer.parseInt(value.trim()), 0);
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(defaultValue);
+        }
     }
 
     /**
@@ -199,6 +291,17 @@ public final class DBConnection {
             }
         }
     }
+    /**
+     * Connectionを再利用せずにクローズする。
+     * セッションの状態を戻せなかったコネクションに対して使用する。
+     * @param conn Connection
+     * @since 0.10.4
+     */
+    public static void discardConn(Connection conn) {
+        if (conn != null && ConnectionPool.discard(conn) == false) {
+            closeConn(conn);
+        }
+    }
     /**
      * トランザクションをコミットする。
      * @param conn Connection
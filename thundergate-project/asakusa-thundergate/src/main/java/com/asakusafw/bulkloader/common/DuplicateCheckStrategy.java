@@ -0,0 +1,84 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Export時の重複チェックの方式を表すENUM。
+ * @since 0.10.4
+ */
+public enum DuplicateCheckStrategy {
+
+    /**
+     * 重複チェック方式-エクスポートテンポラリテーブルの各レコードについて、
+     * Export対象テーブルに同じキーのレコードが存在するかを相関サブクエリで調べる。
+     */
+    EXISTS("EXISTS"),
+
+    /**
+     * 重複チェック方式-エクスポートテンポラリテーブルのキー列にインデックスを作成し、
+     * Export対象テーブルを1回走査してエクスポートテンポラリテーブルと結合する。
+     * Export対象テーブルにキー列のインデックスがない場合に用いる。
+     */
+    JOIN("JOIN", "HASH"),
+    ;
+
+    private String symbol;
+
+    Set<String> keys;
+
+    DuplicateCheckStrategy(String symbol, String... alternatives) {
+        this.symbol = symbol;
+        this.keys = new HashSet<>();
+        this.keys.add(symbol);
+        Collections.addAll(this.keys, alternatives);
+    }
+
+    /**
+     * 重複チェックの方式を返す。
+     * @return 重複チェックの方式
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * {@code String}に対する定数を返す。
+     * @param key String
+     * @return 対応する定数、存在しない場合は{@code null}
+     */
+    public static DuplicateCheckStrategy find(String key) {
+        return SymbolToStrategy.REVERSE_DICTIONARY.get(key);
+    }
+
+    private static class SymbolToStrategy {
+        static final Map<String, DuplicateCheckStrategy> REVERSE_DICTIONARY;
+        static {
+            Map<String, DuplicateCheckStrategy> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (DuplicateCheckStrategy elem : DuplicateCheckStrategy.values()) {
+                for (String key : elem.keys) {
+                    map.put(key, elem);
+                }
+            }
+            REVERSE_DICTIONARY = Collections.unmodifiableMap(map);
+        }
+    }
+}
@@ -25,27 +25,42 @@ import java.util.TreeMap;
  * ファイル圧縮有無を表すENUM。
  * @author yuta.shirai
  * @since 0.1.0
- * @version 0.4.0
+ * @version 0.10.4
  */
 public enum FileCompType {
 
     /**
      * ファイル圧縮有無-圧縮する。
      */
-    DEFLATED("COMPRESS", "1", "DEFLATE"),
+    DEFLATED("COMPRESS", null, "1", "DEFLATE"),
 
     /**
      * ファイル圧縮有無-圧縮しない。
      */
-    STORED("NONE", "0", "STORE"),
+    STORED("NONE", null, "0", "STORE"),
+
+    /**
+     * ファイル圧縮有無-LZ4で圧縮する。
+     * @since 0.10.4
+     */
+    LZ4("LZ4", "org.apache.hadoop.io.compress.Lz4Codec"),
+
+    /**
+     * ファイル圧縮有無-Snappyで圧縮する。
+     * @since 0.10.4
+     */
+    SNAPPY("SNAPPY", "org.apache.hadoop.io.compress.SnappyCodec"),
     ;
 
     private String symbol;
 
+    private String codecClassName;
+
     Set<String> keys;
 
-    FileCompType(String symbol, String... alternatives) {
+    FileCompType(String symbol, String codecClassName, String... alternatives) {
         this.symbol = symbol;
+        this.codecClassName = codecClassName;
         this.keys = new HashSet<>();
         this.keys.add(symbol);
         Collections.addAll(this.keys, alternatives);
@@ -58,6 +73,16 @@ public enum FileCompType {
     public String getSymbol() {
         return symbol;
     }
+
+    /**
+     * 圧縮に利用するHadoopの{@code CompressionCodec}のクラス名を返す。
+     * @return コーデックのクラス名、ZIPの圧縮方式を利用する場合は{@code null}
+     * @since 0.10.4
+     */
+    public String getCodecClassName() {
+        return codecClassName;
+    }
+
     /**
      * {@code String}に対する定数を返す。
      * @param key String
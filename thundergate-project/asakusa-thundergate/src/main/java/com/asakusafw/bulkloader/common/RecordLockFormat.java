@@ -0,0 +1,100 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * レコードロックの記録形式を表すENUM。
+ * @since 0.10.4
+ */
+public enum RecordLockFormat {
+
+    /**
+     * レコードロックの記録形式-ロック済みレコードテーブル（{@code <テーブル名>_RL}）にレコードごとに記録する。
+     */
+    ROW("ROW"),
+
+    /**
+     * レコードロックの記録形式-{@link #RANGE_TABLE_NAME}にSIDの範囲ごとに記録する。
+     * ロックの取得と解除にかかる時間は、ロックするレコード数ではなく範囲の数に比例する。
+     */
+    RANGE("RANGE"),
+    ;
+
+    /**
+     * SIDの範囲ごとにレコードロックを記録するテーブル名。
+     */
+    public static final String RANGE_TABLE_NAME = "IMPORT_RECORD_LOCK_RANGE";
+
+    private String symbol;
+
+    Set<String> keys;
+
+    RecordLockFormat(String symbol, String... alternatives) {
+        this.symbol = symbol;
+        this.keys = new HashSet<>();
+        this.keys.add(symbol);
+        Collections.addAll(this.keys, alternatives);
+    }
+
+    /**
+     * レコードロックの記録形式を返す。
+     * @return レコードロックの記録形式
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * {@code String}に対する定数を返す。
+     * @param key String
+     * @return 対応する定数、存在しない場合は{@code null}
+     */
+    public static RecordLockFormat find(String key) {
+        return SymbolToFormat.REVERSE_DICTIONARY.get(key);
+    }
+
+    /**
+     * 設定されたレコードロックの記録形式を返す。
+     * @return 設定されたレコードロックの記録形式、未設定の場合は{@link #ROW}
+     */
+    public static RecordLockFormat getCurrent() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT);
+        if (value == null) {
+            return ROW;
+        }
+        RecordLockFormat format = find(value.trim());
+        return format == null ? ROW : format;
+    }
+
+    private static class SymbolToFormat {
+        static final Map<String, RecordLockFormat> REVERSE_DICTIONARY;
+        static {
+            Map<String, RecordLockFormat> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (RecordLockFormat elem : RecordLockFormat.values()) {
+                for (String key : elem.keys) {
+                    map.put(key, elem);
+                }
+            }
+            REVERSE_DICTIONARY = Collections.unmodifiableMap(map);
+        }
+    }
+}
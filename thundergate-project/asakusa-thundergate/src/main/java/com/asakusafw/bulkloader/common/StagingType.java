@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 転送データの中間ファイル利用有無を表すENUM。
+ * @since 0.10.4
+ */
+public enum StagingType {
+
+    /**
+     * 中間ファイル利用有無-ローカルの中間TSVファイルを経由して転送する。
+     */
+    FILE("FILE", "0", "STAGE"),
+
+    /**
+     * 中間ファイル利用有無-中間ファイルを経由せずにストリームで転送する。
+     */
+    STREAM("STREAM", "1", "DIRECT"),
+    ;
+
+    private String symbol;
+
+    Set<String> keys;
+
+    StagingType(String symbol, String... alternatives) {
+        this.symbol = symbol;
+        this.keys = new HashSet<>();
+        this.keys.add(symbol);
+        Collections.addAll(this.keys, alternatives);
+    }
+
+    /**
+     * 中間ファイル利用有無を返す。
+     * @return 中間ファイル利用有無
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * {@code String}に対する定数を返す。
+     * @param key String
+     * @return 対応する定数、存在しない場合は{@code null}
+     */
+    public static StagingType find(String key) {
+        return SymbolToStagingType.REVERSE_DICTIONARY.get(key);
+    }
+
+    private static class SymbolToStagingType {
+        static final Map<String, StagingType> REVERSE_DICTIONARY;
+        static {
+            Map<String, StagingType> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (StagingType elem : StagingType.values()) {
+                for (String key : elem.keys) {
+                    map.put(key, elem);
+                }
+            }
+            REVERSE_DICTIONARY = Collections.unmodifiableMap(map);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+/**
+ * 計測した処理時間に応じて、1回のコピーで処理するテンポラリSIDの範囲の幅を調整するクラス。
+ * 直前の処理時間が目標の処理時間に近づくように、範囲の幅を1回につき最大2倍まで拡大・縮小する。
+ * @since 0.10.4
+ */
+final class CopyBatchSize {
+
+    /**
+     * 範囲の幅の上限。
+     */
+    static final long MAX_SIZE = 1000000L;
+
+    private static final double MAX_FACTOR = 2.0;
+
+    private static final double MIN_FACTOR = 0.5;
+
+    private final long targetTime;
+
+    private final long maxSize;
+
+    private long current;
+
+    /**
+     * インスタンスを生成する。
+     * @param initialSize 範囲の幅の初期値
+     * @param targetTime 1回のコピーの目標処理時間（ミリ秒）、0以下の場合は範囲の幅を調整しない
+     */
+    CopyBatchSize(long initialSize, long targetTime) {
+        this.current = Math.max(initialSize, 1L);
+        this.targetTime = targetTime;
+        this.maxSize = Math.max(current, MAX_SIZE);
+    }
+
+    /**
+     * 現在の範囲の幅を返す。
+     * @return 現在の範囲の幅
+     */
+    long get() {
+        return current;
+    }
+
+    /**
+     * 1回のコピーの結果を元に範囲の幅を調整する。
+     * 1件もコピーしなかった場合は、処理時間が実際の負荷を表さないため調整しない。
+     * @param copyCount コピーした件数
+     * @param elapsedTime 処理時間（ミリ秒）
+     * @return 調整後の範囲の幅
+     */
+    long update(long copyCount, long elapsedTime) {
+        if (targetTime <= 0 || copyCount <= 0) {
+            return current;
+        }
+        double factor = (double) targetTime / Math.max(elapsedTime, 1L);
+        factor = Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+        long next = (long) (current * factor);
+        current = Math.max(1L, Math.min(maxSize, next));
+        return current;
+    }
+}
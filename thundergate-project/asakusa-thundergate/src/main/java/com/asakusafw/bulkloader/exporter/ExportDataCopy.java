@@ -19,6 +19,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.asakusafw.bulkloader.bean.ExportTargetTableBean;
@@ -28,9 +30,12 @@ import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.common.ExportTempTableStatus;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 
 
 /**
@@ -44,65 +49,40 @@ public class ExportDataCopy {
 
     /**
      * 更新レコードのコピーが全て終了したかを表すフラグ。
+     * テーブルを並列にコピーする場合は、複数のスレッドから更新される。
      */
-    private boolean copyEnd = true;
+    private volatile boolean copyEnd = true;
 
     /**
      * エクスポートテンポラリテーブルからデータをコピーする。
      * @param bean パラメータを保持するBean
      * @return コピー結果（true:成功、false:失敗（UPDATEが全て成功していなくてもtrueを返す。UPDATEの結果はupdateEndを参照する））
      */
-    public boolean copyData(ExporterBean bean) {
-        long maxRecord = Long.parseLong(ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_COPY_MAX_RECORD));
+    public boolean copyData(final ExporterBean bean) {
+        final long maxRecord = Long.parseLong(ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_COPY_MAX_RECORD));
         Connection conn = null;
         try {
             // コネクションを取得する
             conn = DBConnection.getConnection();
 
             // テンポラリ管理テーブルの情報を取得する。
-            List<ExportTempTableBean> tempBean = DBAccessUtil.getExportTempTable(bean.getJobflowSid());
+            final List<ExportTempTableBean> tempBean = DBAccessUtil.getExportTempTable(bean.getJobflowSid());
 
             // Export対象テーブル分繰り返す
             List<String> l = bean.getExportTargetTableList();
-            for (String tableName : l) {
-                ExportTargetTableBean expTableBean = bean.getExportTargetTable(tableName);
-
-                LOG.info("TG-EXPORTER-06002",
-                        bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
-
-                // TODO 外側からO(N^2)となるのでやや気になる
-                if  (isCopyEnd(tempBean, expTableBean, tableName)) {
-                    // 当該テーブルのコピーが完了している場合はコピーを行わない。
-                    LOG.info("TG-EXPORTER-06004",
-                            bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
-                    continue;
+            int parallel = TableTaskExecutor.getParallel(l.size());
+            if (parallel <= 1) {
+                for (String tableName : l) {
+                    copyTable(bean, tableName, tempBean, maxRecord, conn);
                 }
-                if (expTableBean.getExportTempTableName() == null) {
-                    // エクスポートテンポラリテーブルが存在しない場合はコピーを行わない
-                    LOG.info("TG-EXPORTER-06005",
-                            bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
-                    continue;
-                }
-
-                // 新規レコードにレコードロックを取得するかを判定
-                boolean isGetRecordLock = getRecordLock(bean.getJobflowSid(), tableName, conn);
-
-                // 新規レコードのコピー（重複していないデータ）
-                copyNonDuplicateData(expTableBean, tableName, maxRecord, bean.getJobflowSid(), isGetRecordLock, conn);
-                if (expTableBean.isDuplicateCheck()) {
-                    // 新規レコードのコピー（重複していいるデータ（重複チェックを行う場合のみ））
-                    copyDuplicateData(expTableBean, maxRecord, conn);
-                }
-                // 更新レコードのコピー
-                boolean tableCopyEnd = copyUpdateData(expTableBean, tableName, maxRecord, bean.getJobflowSid(), conn);
-                if (tableCopyEnd) {
-                    // コピー完了を記録
-                    copyExit(bean.getJobflowSid(), tableName, conn);
-                } else {
-                    copyEnd = false;
-                }
-                LOG.info("TG-EXPORTER-06003",
-                        bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName(), tableCopyEnd);
+            } else {
+                // 各テーブルのコピーは互いに独立しているため、テーブルごとに個別のコネクションでコピーする
+                TableTaskExecutor.execute("COPY", l, parallel, new TableTaskExecutor.Task() {
+                    @Override
+                    public void run(String tableName, Connection worker) throws BulkLoaderSystemException {
+                        copyTable(bean, tableName, tempBean, maxRecord, worker);
+                    }
+                });
             }
             return true;
         } catch (BulkLoaderSystemException e) {
@@ -117,6 +97,63 @@ public class ExportDataCopy {
             DBConnection.closeConn(conn);
         }
     }
+    /**
+     * 1テーブル分のデータをエクスポートテンポラリテーブルからコピーし、コピー完了を記録する。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param tempBean テンポラリ管理テーブルの情報
+     * @param maxRecord コピーの最大レコード件数
+     * @param conn コネクション
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private void copyTable(
+            ExporterBean bean,
+            String tableName,
+            List<ExportTempTableBean> tempBean,
+            long maxRecord,
+            Connection conn) throws BulkLoaderSystemException {
+        long startTime = System.currentTimeMillis();
+        ExportTargetTableBean expTableBean = bean.getExportTargetTable(tableName);
+
+        LOG.info("TG-EXPORTER-06002",
+                bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
+
+        // TODO 外側からO(N^2)となるのでやや気になる
+        if  (isCopyEnd(tempBean, expTableBean, tableName)) {
+            // 当該テーブルのコピーが完了している場合はコピーを行わない。
+            LOG.info("TG-EXPORTER-06004",
+                    bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
+            return;
+        }
+        if (expTableBean.getExportTempTableName() == null) {
+            // エクスポートテンポラリテーブルが存在しない場合はコピーを行わない
+            LOG.info("TG-EXPORTER-06005",
+                    bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName());
+            return;
+        }
+
+        // 新規レコードにレコードロックを取得するかを判定
+        boolean isGetRecordLock = getRecordLock(bean.getJobflowSid(), tableName, conn);
+
+        // 新規レコードのコピー（重複していないデータ）
+        copyNonDuplicateData(expTableBean, tableName, maxRecord, bean.getJobflowSid(), isGetRecordLock, conn);
+        if (expTableBean.isDuplicateCheck()) {
+            // 新規レコードのコピー（重複していいるデータ（重複チェックを行う場合のみ））
+            copyDuplicateData(expTableBean, maxRecord, conn);
+        }
+        // 更新レコードのコピー
+        boolean tableCopyEnd = copyUpdateData(expTableBean, tableName, maxRecord, bean.getJobflowSid(), conn);
+        if (tableCopyEnd) {
+            // コピー完了を記録
+            copyExit(bean.getJobflowSid(), tableName, conn);
+        } else {
+            copyEnd = false;
+        }
+        LOG.info("TG-EXPORTER-06003",
+                bean.getJobflowSid(), tableName, expTableBean.getExportTempTableName(), tableCopyEnd);
+        ProfileReport.record(Phase.COPY, tableName,
+                System.currentTimeMillis() - startTime, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
+    }
     /**
      * 当該テーブルのコピーが終了しているかを判断する。
      * @param tempBeans テンポラリ管理テーブルの情報
@@ -691,8 +728,10 @@ public class ExportDataCopy {
     }
     /**
      * 新規データをExport対象テーブルにコピー（Insert）する。
-     * テーブルロックを取得していない場合、コピーしたデータは行ロック状態に更新する。
+     * テンポラリSIDの範囲ごとに、1回のINSERT...SELECTでコピーする。
+     * レコードロックを取得する場合、コピーしたデータはその範囲のSIDを元に行ロック状態に更新する。
      * また、コピーしたデータはエクスポートテンポラリテーブルから削除する。
+     * 範囲の幅はコピーの最大レコード件数から始め、1回のコピーに要した時間に応じて調整する。
      * @param expTableBean Export対象テーブルの設定を保持するBean
      * @param tableName Export対象テーブル名
      * @param conn コネクション
@@ -709,130 +748,286 @@ public class ExportDataCopy {
             boolean isGetRecordLock,
             Connection conn) throws BulkLoaderSystemException {
 
-        String recordLockSql = null;
+        String tempTableName = expTableBean.getExportTempTableName();
+        // テンポラリSIDの最小値と最大値を取得
+        long minTempSid = selectLong(
+                createMinTempSidSql(Constants.getTemporarySidColumnName(), tempTableName), conn);
+        long maxTempSid = selectLong(
+                createMaxTempSidSql(Constants.getTemporarySidColumnName(), tempTableName), conn);
+
         // 検索条件を作成
-        String selectCondition = createInsertselectcondition(expTableBean, maxRecord);
+        String selectCondition = createInsertSelectCondition(expTableBean);
         // コピーのSQLを作成
-        String copySql = createInsertCopySql(tableName, expTableBean, selectCondition);
-
+        String copySql = createInsertCopySql(tableName, expTableBean, selectCondition)
+                + " ORDER BY " + Constants.getTemporarySidColumnName();
+        // レコードロックを取得するSQLを作成
+        String recordLockSql = null;
+        boolean consecutive = true;
+        if (isGetRecordLock) {
+            consecutive = isConsecutiveSid(tableName, conn);
+            recordLockSql = createRecordLockSql(tableName);
+        }
         // 削除のSQLを作成
         String delSql = createInsertDelSql(expTableBean, selectCondition);
 
-        PreparedStatement stmt = null;
-
-        while (true) {
-            // データをコピー
-            int copyCount = 0;
-            try {
-                stmt = conn.prepareStatement(copySql.toString());
-                copyCount = DBConnection.executeUpdate(stmt, copySql.toString(), new String[0]);
-            } catch (SQLException e) {
-                throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                        e,
-                        this.getClass(),
-                        copySql.toString(),
-                        new String[0]);
-            } finally {
-                DBConnection.closePs(stmt);
-            }
-
-            // コピーするレコードが存在しなくなった場合はコミットして終了
-            if (copyCount == 0) {
-                DBConnection.commit(conn);
-                break;
-            }
-
-            // コピーしたレコードにレコードロックフラグを立てる
-            if (isGetRecordLock) {
-                // コピーしたデータのSIDを取得するSQL
-                String selectSidSql = "SELECT LAST_INSERT_ID()";
+        long targetTime = Long.parseLong(ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_COPY_TARGET_TIME));
+        CopyBatchSize batchSize = new CopyBatchSize(maxRecord, targetTime);
 
-                // ユーザー変数を設定するSQL
-                StringBuilder userParam = new StringBuilder("@EXPORT_");
-                userParam.append(tableName);
-                userParam.append("_SID");
-                String setUserParamSql = createSetUserParamSql(tableName, userParam);
+        // 現在のテンポラリSIDの位置を表す変数
+        long currentTempSid = minTempSid;
+        while (maxTempSid > 0 && currentTempSid <= maxTempSid) {
+            long start = System.currentTimeMillis();
+            long lastTempSid = currentTempSid + batchSize.get() - 1;
+            String[] range = new String[] { String.valueOf(currentTempSid), String.valueOf(lastTempSid) };
 
-                // レコードロックフラグを立てるSQL
-                recordLockSql = createRecordLockSql(tableName, expTableBean, jobflowSid, userParam, selectCondition);
+            PreparedStatement stmt = null;
+            int copyCount;
+            if (isGetRecordLock && consecutive == false) {
+                // SIDが連続しない場合、1件ずつコピーして採番されたSIDごとにレコードロックを取得する
+                copyCount = copyEachRecord(
+                        tempTableName, selectCondition, copySql, recordLockSql, jobflowSid, range, conn);
+            } else {
+                // データをコピーし、採番されたSIDの先頭を取得
+                long[] copied = copyRange(copySql, range, conn);
+                copyCount = (int) copied[0];
+                long firstSid = copied[1];
 
-                // コピーしたレコードのSIDを取得
-                ResultSet rs = null;
-                String sid = null;
-                try {
-                    stmt = conn.prepareStatement(selectSidSql);
-                    rs = DBConnection.executeQuery(stmt, selectSidSql, new String[0]);
-                    rs.next();
-                    sid =  rs.getString(1);
-                } catch (SQLException e) {
-                    throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                            e, this.getClass(), selectSidSql, new String[0]);
-                } finally {
-                    DBConnection.closeRs(rs);
-                    DBConnection.closePs(stmt);
+                // コピーしたレコードにレコードロックフラグを立てる
+                // Import時にレコードロックを取得している場合のみレコードロックを取得する
+                if (copyCount > 0 && isGetRecordLock) {
+                    // 1回のINSERTで採番されるSIDは連続している（isConsecutiveSidで確認済み）
+                    lockSidRange(recordLockSql, jobflowSid, firstSid, firstSid + copyCount - 1, conn);
                 }
+            }
 
-                // ユーザー変数をセットする
-                try {
-                    stmt = conn.prepareStatement(setUserParamSql);
-                    long param = Long.parseLong(sid) - 1L;
-                    stmt.setLong(1, param);
-                    copyCount = DBConnection.executeUpdate(
-                            stmt,
-                            setUserParamSql,
-                            new String[]{ String.valueOf(param) });
-                } catch (SQLException e) {
-                    throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                            e, this.getClass(), setUserParamSql, new String[] { sid });
-                } finally {
-                    DBConnection.closePs(stmt);
-                }
-                // ロックフラグを立てる
-                // Import時にレコードロックを取得している場合のみレコードロックを取得する
+            if (copyCount > 0) {
+                // コピーしたレコードを削除
                 try {
-                    stmt = conn.prepareStatement(recordLockSql.toString());
-                    copyCount = DBConnection.executeUpdate(
-                            stmt,
-                            recordLockSql.toString(),
-                            new String[0]);
+                    stmt = conn.prepareStatement(delSql);
+                    stmt.setLong(1, currentTempSid);
+                    stmt.setLong(2, lastTempSid);
+                    DBConnection.executeUpdate(stmt, delSql, range);
                 } catch (SQLException e) {
                     throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                            e, this.getClass(), recordLockSql.toString(), new String[0]);
+                            e, this.getClass(), delSql, range);
                 } finally {
                     DBConnection.closePs(stmt);
                 }
             }
+            DBConnection.commit(conn);
 
-            // コピーしたレコードを削除
-            try {
-                stmt = conn.prepareStatement(delSql);
-                DBConnection.executeUpdate(stmt, delSql, new String[0]);
-                DBConnection.commit(conn);
-            } catch (SQLException e) {
-                throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                        e, this.getClass(), delSql, new String[0]);
-            } finally {
-                DBConnection.closePs(stmt);
-            }
+            long elapsed = System.currentTimeMillis() - start;
             LOG.info("TG-EXPORTER-06007",
                     tableName,
-                    expTableBean.getExportTempTableName(),
+                    tempTableName,
                     copySql,
                     recordLockSql,
-                    delSql);
+                    delSql,
+                    currentTempSid,
+                    lastTempSid,
+                    copyCount,
+                    elapsed);
+            batchSize.update(copyCount, elapsed);
+            currentTempSid = lastTempSid + 1;
         }
     }
     /**
-     * レコードロックフラグを立てるSQLを生成する。
-     * @param tableName テーブル名
-     * @param expTableBean Export対象テーブルの設定を保持するBean
-     * @param jobflowSid ジョブフローSID
-     * @param userParam ユーザー変数
+     * テンポラリSIDの範囲のデータを1回のINSERT...SELECTでコピーする。
+     * @param copySql コピーのSQL
+     * @param range テンポラリSIDの範囲
+     * @param conn コネクション
+     * @return コピーした件数と、採番されたSIDの先頭（コピーした件数が0の場合は0）
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private long[] copyRange(String copySql, String[] range, Connection conn) throws BulkLoaderSystemException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(copySql, Statement.RETURN_GENERATED_KEYS);
+            stmt.setLong(1, Long.parseLong(range[0]));
+            stmt.setLong(2, Long.parseLong(range[1]));
+            int copyCount = DBConnection.executeUpdate(stmt, copySql, range);
+            long firstSid = 0;
+            if (copyCount > 0) {
+                rs = stmt.getGeneratedKeys();
+                rs.next();
+                firstSid = rs.getLong(1);
+            }
+            return new long[] { copyCount, firstSid };
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), copySql, range);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+    /**
+     * テンポラリSIDの範囲のデータを1件ずつコピーし、採番されたSIDにレコードロックフラグを立てる。
+     * 1件ずつINSERTすることで、採番されるSIDが連続しない設定でも各レコードのSIDを正確に取得できる。
+     * 採番されたSIDのうち連続する部分は、1つの範囲としてレコードロックを取得する。
+     * @param tempTableName Exportテンポラリテーブル名
      * @param selectCondition 検索条件
+     * @param copySql コピーのSQL
+     * @param recordLockSql レコードロックを取得するSQL
+     * @param jobflowSid ジョブフローSID
+     * @param range テンポラリSIDの範囲
+     * @param conn コネクション
+     * @return コピーした件数
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private int copyEachRecord(
+            String tempTableName,
+            String selectCondition,
+            String copySql,
+            String recordLockSql,
+            String jobflowSid,
+            String[] range,
+            Connection conn) throws BulkLoaderSystemException {
+        // コピー対象のテンポラリSIDを取得
+        String selectSql = "SELECT " + Constants.getTemporarySidColumnName()
+                + " FROM " + tempTableName
+                + selectCondition
+                + " ORDER BY " + Constants.getTemporarySidColumnName();
+        List<Long> tempSids = new ArrayList<>();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(selectSql);
+            stmt.setLong(1, Long.parseLong(range[0]));
+            stmt.setLong(2, Long.parseLong(range[1]));
+            rs = DBConnection.executeQuery(stmt, selectSql, range);
+            while (rs.next()) {
+                tempSids.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), selectSql, range);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+
+        // 1件ずつコピーし、連続するSIDごとにレコードロックを取得
+        int copyCount = 0;
+        long firstSid = -1;
+        long lastSid = -1;
+        for (Long tempSid : tempSids) {
+            String value = String.valueOf(tempSid);
+            long[] copied = copyRange(copySql, new String[] { value, value }, conn);
+            if (copied[0] == 0) {
+                continue;
+            }
+            copyCount++;
+            long sid = copied[1];
+            if (firstSid >= 0 && sid == lastSid + 1) {
+                lastSid = sid;
+                continue;
+            }
+            if (firstSid >= 0) {
+                lockSidRange(recordLockSql, jobflowSid, firstSid, lastSid, conn);
+            }
+            firstSid = sid;
+            lastSid = sid;
+        }
+        if (firstSid >= 0) {
+            lockSidRange(recordLockSql, jobflowSid, firstSid, lastSid, conn);
+        }
+        return copyCount;
+    }
+    /**
+     * 指定の範囲のSIDにレコードロックフラグを立てる。
+     * @param recordLockSql レコードロックを取得するSQL
+     * @param jobflowSid ジョブフローSID
+     * @param firstSid SIDの先頭
+     * @param lastSid SIDの末尾
+     * @param conn コネクション
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private void lockSidRange(
+            String recordLockSql,
+            String jobflowSid,
+            long firstSid,
+            long lastSid,
+            Connection conn) throws BulkLoaderSystemException {
+        String[] params = new String[] {
+                jobflowSid, String.valueOf(firstSid), String.valueOf(lastSid) };
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(recordLockSql);
+            stmt.setString(1, jobflowSid);
+            stmt.setLong(2, firstSid);
+            stmt.setLong(3, lastSid);
+            DBConnection.executeUpdate(stmt, recordLockSql, params);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), recordLockSql, params);
+        } finally {
+            DBConnection.closePs(stmt);
+        }
+    }
+    /**
+     * 1回のINSERT...SELECTで採番されるSIDが連続するかを返す。
+     * {@code innodb_autoinc_lock_mode}が2(interleaved)の場合は他のトランザクションが採番したSIDが混在しうるため、
+     * {@code auto_increment_increment}が1でない場合はSIDの間隔が空くため、SIDの範囲でレコードロックを取得できない。
+     * @param tableName Export対象テーブル名
+     * @param conn コネクション
+     * @return 連続する場合は{@code true}
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private boolean isConsecutiveSid(String tableName, Connection conn) throws BulkLoaderSystemException {
+        long lockMode = selectLong("SELECT @@innodb_autoinc_lock_mode", conn);
+        long increment = selectLong("SELECT @@auto_increment_increment", conn);
+        if (isConsecutiveAutoIncrement(lockMode, increment)) {
+            return true;
+        }
+        LOG.warn("TG-EXPORTER-06012", tableName, lockMode, increment);
+        return false;
+    }
+    /**
+     * 指定の設定で、1回のINSERT...SELECTで採番される値が連続するかを返す。
+     * @param lockMode {@code innodb_autoinc_lock_mode}の値
+     * @param increment {@code auto_increment_increment}の値
+     * @return 連続する場合は{@code true}
+     */
+    static boolean isConsecutiveAutoIncrement(long lockMode, long increment) {
+        // 0(traditional)と1(consecutive)は、件数が不明なINSERT...SELECTの間テーブルのAUTO-INCロックを保持する
+        return (lockMode == 0 || lockMode == 1) && increment == 1;
+    }
+    /**
+     * 1件の数値を取得するSQLを実行する。
+     * @param sql SQL
+     * @param conn コネクション
+     * @return 取得した数値（NULLの場合は0）
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private long selectLong(String sql, Connection conn) throws BulkLoaderSystemException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            rs = DBConnection.executeQuery(stmt, sql, new String[0]);
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), sql, new String[0]);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+    /**
+     * コピーした範囲のSIDにレコードロックフラグを立てるSQLを生成する。
+     * @param tableName テーブル名
      * @return レコードロックフラグを立てるSQL
      */
-    private String createRecordLockSql(String tableName,
-            ExportTargetTableBean expTableBean, String jobflowSid, StringBuilder userParam, String selectCondition) {
+    private String createRecordLockSql(String tableName) {
+        if (RecordLockFormat.getCurrent() == RecordLockFormat.RANGE) {
+            // 採番されたSIDは連続しているため、1つの範囲として記録する
+            return "INSERT INTO " + RecordLockFormat.RANGE_TABLE_NAME
+                + " (JOBFLOW_SID,FIRST_SID,LAST_SID,TABLE_NAME) VALUES(?,?,?,'" + tableName + "')";
+        }
         String rlTableName = DBAccessUtil.createRecordLockTableName(tableName);
         StringBuilder recordLockSql = new StringBuilder();
         recordLockSql.append("INSERT INTO ");
@@ -840,29 +1035,14 @@ public class ExportDataCopy {
         recordLockSql.append(" (");
         recordLockSql.append(Constants.getSidColumnName());
         recordLockSql.append(",JOBFLOW_SID) SELECT ");
-        recordLockSql.append(userParam);
-        recordLockSql.append(":=");
-        recordLockSql.append(userParam);
-        recordLockSql.append("+1,");
-        recordLockSql.append(jobflowSid);
-        recordLockSql.append(" FROM ");
-        recordLockSql.append(expTableBean.getExportTempTableName());
-        recordLockSql.append(selectCondition);
+        recordLockSql.append(Constants.getSidColumnName());
+        recordLockSql.append(",? FROM ");
+        recordLockSql.append(tableName);
+        recordLockSql.append(" WHERE ");
+        recordLockSql.append(Constants.getSidColumnName());
+        recordLockSql.append(" BETWEEN ? AND ?");
         return recordLockSql.toString();
     }
-    /**
-     * ユーザー変数を設定するSQLを生成する。
-     * @param tableName テーブル名
-     * @param userParam ユーザー変数
-     * @return ユーザー変数を設定するSQL
-     */
-    private String createSetUserParamSql(String tableName,
-            StringBuilder userParam) {
-        StringBuilder setUserParamSql = new StringBuilder("SET ");
-        setUserParamSql.append(userParam);
-        setUserParamSql.append("=?");
-        return setUserParamSql.toString();
-    }
     /**
      * コピーした新規データを削除するSQLを作成する。
      * @param expTableBean Export対象テーブルの設定を保持するBean
@@ -905,12 +1085,11 @@ public class ExportDataCopy {
     }
     /**
      * 新規レコードコピーの検索条件を作成する。
+     * テンポラリSIDの範囲をパラメータとして指定する。
      * @param expTableBean Export対象テーブルの設定を保持するBean
-     * @param maxRecord コピー最大件数
      * @return 検索条件
      */
-    private String createInsertselectcondition(
-            ExportTargetTableBean expTableBean, long maxRecord) {
+    private String createInsertSelectCondition(ExportTargetTableBean expTableBean) {
         StringBuilder selectCondition = new StringBuilder(" WHERE ");
         selectCondition.append(Constants.getSidColumnName());
         selectCondition.append(" IS NULL AND NOT EXISTS (SELECT ");
@@ -926,10 +1105,9 @@ public class ExportDataCopy {
         selectCondition.append(".");
         selectCondition.append(Constants.getTemporarySidColumnName());
         selectCondition.append(")");
-        selectCondition.append(" ORDER BY ");
+        selectCondition.append(" AND ");
         selectCondition.append(Constants.getTemporarySidColumnName());
-        selectCondition.append(" LIMIT ");
-        selectCondition.append(maxRecord);
+        selectCondition.append(" BETWEEN ? AND ?");
         return selectCondition.toString();
     }
     /**
@@ -16,6 +16,7 @@
 package com.asakusafw.bulkloader.exporter;
 
 import java.io.File;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -25,6 +26,15 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.input.CloseShieldInputStream;
 
 import com.asakusafw.bulkloader.bean.ExportTargetTableBean;
 import com.asakusafw.bulkloader.bean.ExporterBean;
@@ -32,9 +42,12 @@ import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.DuplicateCheckStrategy;
 import com.asakusafw.bulkloader.common.ExportTempTableStatus;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 
 
 /**
@@ -49,6 +62,12 @@ public class ExportFileLoad {
     private static final int MAX_TABLE_NAME_LENGTH = 64;
     /** テンポラリSID(BIGINT)の最大長。 */
     private static final int MAX_TEMP_SID_LENGTH = 19;
+    /** 重複チェックのためにエクスポートテンポラリテーブルに作成するインデックス名。 */
+    static final String DUPLICATE_CHECK_INDEX_NAME = "DUPLICATE_CHECK_KEY";
+    /** インデックスを作成できるカラム1つあたりの最大バイト数。 */
+    private static final long MAX_INDEX_COLUMN_BYTES = 767;
+    /** インデックスを作成できるキー全体の最大バイト数。 */
+    private static final long MAX_INDEX_KEY_BYTES = 3072;
     /**
      * ExportファイルをDBにロードする。
      * ファイルのLoadに失敗した場合、全てのファイルをロードした後にfalseを返す。
@@ -86,6 +105,156 @@ public class ExportFileLoad {
             DBConnection.closeConn(conn);
         }
     }
+    /**
+     * Exportファイルを受信しながら、中間ファイルを経由せずにDBにロードする。
+     * 受信中のデータは{@code LOAD DATA LOCAL INFILE}でエクスポートテンポラリテーブルに直接ロードし、
+     * 全てのデータの受信が完了した後に、各テーブルの重複チェックとロード完了の記録を行う。
+     * @param bean パラメータを保持するBean
+     * @param receive Exportファイルを受信するオブジェクト
+     * @return Exportファイルロード結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    public boolean loadStream(final ExporterBean bean, ExportFileReceive receive) {
+        Connection conn = null;
+        try {
+            // コネクションを取得する
+            conn = DBConnection.getConnection();
+
+            // テンポラリ管理テーブルに作成予定のエクスポートテンポラリテーブルのレコードをInsert
+            insertTempInfo(bean, conn);
+
+            // エクスポートテンポラリテーブルを作成
+            createTempTable(bean, conn);
+
+            // 受信中のデータをLoad
+            final StreamLoaderProvider loaders = new StreamLoaderProvider(bean);
+            if (!receive.receiveAndLoad(bean, loaders)) {
+                return false;
+            }
+
+            // 重複チェックを行い、ロード完了を記録
+            List<String> list = bean.getExportTargetTableList();
+            int parallel = TableTaskExecutor.getParallel(list.size());
+            if (parallel <= 1) {
+                for (String tableName : list) {
+                    completeLoad(bean, tableName, loaders.getRecordCount(tableName),
+                            System.currentTimeMillis(), conn);
+                }
+            } else {
+                TableTaskExecutor.execute("LOAD", list, parallel, new TableTaskExecutor.Task() {
+                    @Override
+                    public void run(String tableName, Connection worker) throws BulkLoaderSystemException {
+                        completeLoad(bean, tableName, loaders.getRecordCount(tableName),
+                                System.currentTimeMillis(), worker);
+                    }
+                });
+            }
+
+            // ロードが完了し、コピー前である事を記録
+            updateStatus(bean.getJobflowSid(), conn);
+
+            return true;
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            try {
+                DBConnection.rollback(conn);
+            } catch (BulkLoaderSystemException e1) {
+                LOG.log(e1);
+            }
+            return false;
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+    }
+    /**
+     * Exportファイルを受信しながら、全てのファイルの受信が完了したテーブルから順にDBにロードする。
+     * 各テーブルのロード完了はテーブルごとに記録し、全てのテーブルのロードが完了した後にコピー前である事を記録する。
+     * そのため、全てのテーブルの受信とロードが完了するまでは、Import対象テーブルへのコピーは開始しない。
+     * @param bean パラメータを保持するBean
+     * @param receive Exportファイルを受信するオブジェクト
+     * @return Exportファイルロード結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    public boolean loadPipelined(final ExporterBean bean, ExportFileReceive receive) {
+        Connection conn = null;
+        ExecutorService executor = null;
+        try {
+            // コネクションを取得する
+            conn = DBConnection.getConnection();
+
+            // テンポラリ管理テーブルに作成予定のエクスポートテンポラリテーブルのレコードをInsert
+            insertTempInfo(bean, conn);
+
+            // エクスポートテンポラリテーブルを作成
+            createTempTable(bean, conn);
+
+            // 受信が完了したテーブルから順にLoad
+            List<String> list = bean.getExportTargetTableList();
+            final int tableCount = list.size();
+            final int parallel = TableTaskExecutor.getParallel(tableCount);
+            final TableArrivalTracker tracker = new TableArrivalTracker(list);
+            executor = Executors.newSingleThreadExecutor();
+            Future<Void> loading = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws BulkLoaderSystemException {
+                    TableTaskExecutor.execute("LOAD", tracker, tableCount, parallel, new TableTaskExecutor.Task() {
+                        @Override
+                        public void run(String tableName, Connection worker) throws BulkLoaderSystemException {
+                            loadTable(bean, tableName, worker);
+                        }
+                    });
+                    return null;
+                }
+            });
+            boolean received = receive.receiveFile(bean, tracker);
+            if (received) {
+                tracker.close();
+            } else {
+                tracker.discard();
+            }
+            waitForLoad(loading);
+            if (!received) {
+                return false;
+            }
+
+            // ロードが完了し、コピー前である事を記録
+            updateStatus(bean.getJobflowSid(), conn);
+
+            return true;
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            try {
+                DBConnection.rollback(conn);
+            } catch (BulkLoaderSystemException e1) {
+                LOG.log(e1);
+            }
+            return false;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            DBConnection.closeConn(conn);
+        }
+    }
+    private void waitForLoad(Future<Void> loading) throws BulkLoaderSystemException {
+        try {
+            loading.get();
+        } catch (InterruptedException e) {
+            loading.cancel(true);
+            throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-01036");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof BulkLoaderSystemException) {
+                throw (BulkLoaderSystemException) cause;
+            } else {
+                throw new BulkLoaderSystemException(cause, getClass(), "TG-EXPORTER-01037");
+            }
+        }
+    }
     /**
      * ロードが完了し、コピー前である事をテンポラリ管理テーブルに記録する。
      * @param jobflowSid ジョブフローSID
@@ -135,140 +304,480 @@ public class ExportFileLoad {
      * @param conn コネクション
      * @throws BulkLoaderSystemException SQL例外が発生した場合
      */
-    private void loadFile(ExporterBean bean, Connection conn) throws BulkLoaderSystemException {
-        // ロード完了を記録するSQL
-        String loadExitSql = "UPDATE EXPORT_TEMP_TABLE "
-            + "SET TEMP_TABLE_STATUS=? "
-            + "WHERE JOBFLOW_SID=? AND TABLE_NAME=?";
-
+    private void loadFile(final ExporterBean bean, Connection conn) throws BulkLoaderSystemException {
         // 中間TSVファイルをロードする
         List<String> list = bean.getExportTargetTableList();
-        for (String tableName : list) {
-            ExportTargetTableBean tableBean = bean.getExportTargetTable(tableName);
-            List<File> exportFileList = tableBean.getExportFiles();
-
-            long recordCount = 0;
-            // Export対象テーブルに該当するファイル数分繰り返す
-            for (File file : exportFileList) {
-                // ファイルをDBにロードする
-                recordCount += load(
-                        tableBean.getExportTempTableName(),
-                        file,
-                        tableBean.getExportTsvColumn(),
-                        conn);
-                LOG.info("TG-EXPORTER-03004",
-                        bean.getJobflowSid(),
-                        tableName,
-                        tableBean.getExportTempTableName(),
-                        file.getAbsolutePath());
+        int parallel = TableTaskExecutor.getParallel(list.size());
+        if (parallel <= 1) {
+            for (String tableName : list) {
+                loadTable(bean, tableName, conn);
             }
-            LOG.info("TG-PROFILE-01003",
-                    bean.getTargetName(),
-                    bean.getBatchId(),
-                    bean.getJobflowId(),
-                    bean.getExecutionId(),
+        } else {
+            TableTaskExecutor.execute("LOAD", list, parallel, new TableTaskExecutor.Task() {
+                @Override
+                public void run(String tableName, Connection worker) throws BulkLoaderSystemException {
+                    loadTable(bean, tableName, worker);
+                }
+            });
+        }
+    }
+
+    /**
+     * 1テーブル分の中間TSVファイルをエクスポートテンポラリテーブルにLoadし、
+     * 重複チェックを行ってロード完了を記録する。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param conn コネクション
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private void loadTable(ExporterBean bean, String tableName, Connection conn) throws BulkLoaderSystemException {
+        long startTime = System.currentTimeMillis();
+        ExportTargetTableBean tableBean = bean.getExportTargetTable(tableName);
+        List<File> exportFileList = tableBean.getExportFiles();
+
+        long recordCount = 0;
+        // Export対象テーブルに該当するファイル数分繰り返す
+        for (File file : exportFileList) {
+            // ファイルをDBにロードする
+            recordCount += load(
+                    tableBean.getExportTempTableName(),
+                    file,
+                    tableBean.getExportTsvColumn(),
+                    conn);
+            LOG.info("TG-EXPORTER-03004",
+                    bean.getJobflowSid(),
                     tableName,
-                    recordCount);
+                    tableBean.getExportTempTableName(),
+                    file.getAbsolutePath());
+        }
+        completeLoad(bean, tableName, recordCount, startTime, conn);
+    }
 
-            PreparedStatement stmt = null;
-            if (tableBean.isDuplicateCheck()) {
-                // 重複フラグを立てるSQL
-                StringBuilder duplicateCheckSql = new StringBuilder("INSERT INTO ");
-                duplicateCheckSql.append(tableBean.getDuplicateFlagTableName());
-                duplicateCheckSql.append("(");
-                duplicateCheckSql.append(Constants.getTemporarySidColumnName());
-                duplicateCheckSql.append(")");
-                duplicateCheckSql.append(" SELECT ");
-                duplicateCheckSql.append(Constants.getTemporarySidColumnName());
-                duplicateCheckSql.append(" FROM ");
-                duplicateCheckSql.append(tableBean.getExportTempTableName());
-                duplicateCheckSql.append(" WHERE ");
-                duplicateCheckSql.append("EXISTS(SELECT * FROM ");
-                duplicateCheckSql.append(tableName);
-
-                String forceIndex = ConfigurationLoader.getForceIndexName(
-                        bean.getBatchId(), bean.getJobflowId(), tableName);
-                if (forceIndex != null) {
-                    duplicateCheckSql.append(" FORCE INDEX (");
-                    duplicateCheckSql.append(forceIndex);
-                    duplicateCheckSql.append(")");
-                }
+    /**
+     * ロードが終わったテーブルに対して重複チェックを行い、ロード完了を記録する。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param recordCount ロードしたレコード数
+     * @param startTime ロードの開始時刻
+     * @param conn コネクション
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private void completeLoad(
+            ExporterBean bean,
+            String tableName,
+            long recordCount,
+            long startTime,
+            Connection conn) throws BulkLoaderSystemException {
+        // ロード完了を記録するSQL
+        String loadExitSql = "UPDATE EXPORT_TEMP_TABLE "
+            + "SET TEMP_TABLE_STATUS=? "
+            + "WHERE JOBFLOW_SID=? AND TABLE_NAME=?";
 
-                duplicateCheckSql.append(" WHERE ");
-                List<String> key = tableBean.getKeyColumns();
-
-                int keySize = key.size();
-                for (int i = 0; i < keySize; i++) {
-                    duplicateCheckSql.append(tableName);
-                    duplicateCheckSql.append(".");
-                    duplicateCheckSql.append(key.get(i));
-                    duplicateCheckSql.append("=");
-                    duplicateCheckSql.append(tableBean.getExportTempTableName());
-                    duplicateCheckSql.append(".");
-                    duplicateCheckSql.append(key.get(i));
-                    if (i < keySize - 1) {
-                        duplicateCheckSql.append(" AND ");
-                    }
-                }
-                duplicateCheckSql.append(") AND ");
-                duplicateCheckSql.append(tableBean.getExportTempTableName());
-                duplicateCheckSql.append(".");
-                duplicateCheckSql.append(Constants.getSidColumnName());
-                duplicateCheckSql.append(" IS NULL");
-
-                // 重複チェックを行い、重複しているレコードには重複フラグを立てる
-                try {
-                    stmt = conn.prepareStatement(duplicateCheckSql.toString());
-                    DBConnection.executeUpdate(stmt, duplicateCheckSql.toString(), new String[0]);
-                } catch (SQLException e) {
-                    throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                            e,
-                            this.getClass(),
-                            duplicateCheckSql.toString(),
-                            new String[0]);
-                } finally {
-                    DBConnection.closePs(stmt);
-                }
+        ExportTargetTableBean tableBean = bean.getExportTargetTable(tableName);
+        LOG.info("TG-PROFILE-01003",
+                bean.getTargetName(),
+                bean.getBatchId(),
+                bean.getJobflowId(),
+                bean.getExecutionId(),
+                tableName,
+                recordCount);
+
+        PreparedStatement stmt = null;
+        if (tableBean.isDuplicateCheck()) {
+            DuplicateCheckStrategy strategy = ConfigurationLoader.getDuplicateCheckStrategy(
+                    bean.getBatchId(), bean.getJobflowId(), tableName);
+            String duplicateCheckSql;
+            if (strategy == DuplicateCheckStrategy.JOIN
+                    && hasKeyIndex(bean, tableName, tableBean, conn)) {
+                // Export対象テーブルのキー列のインデックスで結合する
+                duplicateCheckSql = createIndexJoinDuplicateCheckSql(bean, tableName, tableBean);
+            } else if (strategy == DuplicateCheckStrategy.JOIN
+                    && hasDuplicateCheckIndex(tableBean.getExportTempTableName(), conn)) {
+                // キー列のインデックスはエクスポートテンポラリテーブルの作成時に作成しておく
+                duplicateCheckSql = createJoinDuplicateCheckSql(tableName, tableBean);
+            } else {
+                duplicateCheckSql = createExistsDuplicateCheckSql(bean, tableName, tableBean);
             }
 
-            // エクスポートテンポラリ管理テーブルにロード完了を記録する
+            // 重複チェックを行い、重複しているレコードには重複フラグを立てる
             try {
-                stmt = conn.prepareStatement(loadExitSql);
-                stmt.setString(1, ExportTempTableStatus.LOAD_EXIT.getStatus());
-                stmt.setString(2, bean.getJobflowSid());
-                stmt.setString(3, tableName);
-                int updateCount = DBConnection.executeUpdate(
-                        stmt,
-                        loadExitSql,
-                        new String[] {
-                                ExportTempTableStatus.LOAD_EXIT.getStatus(),
-                                bean.getJobflowSid(),
-                                tableName
-                        });
-                if (updateCount == 0) {
-                    throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-03001",
-                            // TODO MessageFormat.formatの検討
-                            "テンポラリ管理テーブルのレコードを更新できませんでした。ジョブフローSID：" + bean.getJobflowSid(),
-                            " Export対象テーブル名：" + tableName);
-                }
-                DBConnection.commit(conn);
-                LOG.info("TG-EXPORTER-03005",
-                        bean.getJobflowSid(), tableName, tableBean.getExportTempTableName());
+                stmt = conn.prepareStatement(duplicateCheckSql);
+                DBConnection.executeUpdate(stmt, duplicateCheckSql, new String[0]);
             } catch (SQLException e) {
                 throw BulkLoaderSystemException.createInstanceCauseBySQLException(
                         e,
                         this.getClass(),
-                        loadExitSql,
-                        new String[]{
+                        duplicateCheckSql,
+                        new String[0]);
+            } finally {
+                DBConnection.closePs(stmt);
+            }
+        }
+
+        // エクスポートテンポラリ管理テーブルにロード完了を記録する
+        try {
+            stmt = conn.prepareStatement(loadExitSql);
+            stmt.setString(1, ExportTempTableStatus.LOAD_EXIT.getStatus());
+            stmt.setString(2, bean.getJobflowSid());
+            stmt.setString(3, tableName);
+            int updateCount = DBConnection.executeUpdate(
+                    stmt,
+                    loadExitSql,
+                    new String[] {
                             ExportTempTableStatus.LOAD_EXIT.getStatus(),
                             bean.getJobflowSid(),
                             tableName
-                        });
-            } finally {
-                DBConnection.closePs(stmt);
+                    });
+            if (updateCount == 0) {
+                throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-03001",
+                        // TODO MessageFormat.formatの検討
+                        "テンポラリ管理テーブルのレコードを更新できませんでした。ジョブフローSID：" + bean.getJobflowSid(),
+                        " Export対象テーブル名：" + tableName);
+            }
+            DBConnection.commit(conn);
+            LOG.info("TG-EXPORTER-03005",
+                    bean.getJobflowSid(), tableName, tableBean.getExportTempTableName());
+            ProfileReport.record(Phase.LOAD, tableName,
+                    System.currentTimeMillis() - startTime, ProfileReport.UNKNOWN, recordCount);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    loadExitSql,
+                    new String[]{
+                        ExportTempTableStatus.LOAD_EXIT.getStatus(),
+                        bean.getJobflowSid(),
+                        tableName
+                    });
+        } finally {
+            DBConnection.closePs(stmt);
+        }
+    }
+    /**
+     * Export対象テーブルに同じキーのレコードが存在するかを相関サブクエリで調べ、重複フラグを立てるSQLを生成する。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @return 重複フラグを立てるSQL
+     */
+    private String createExistsDuplicateCheckSql(
+            ExporterBean bean,
+            String tableName,
+            ExportTargetTableBean tableBean) {
+        StringBuilder duplicateCheckSql = new StringBuilder("INSERT INTO ");
+        duplicateCheckSql.append(tableBean.getDuplicateFlagTableName());
+        duplicateCheckSql.append("(");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(")");
+        duplicateCheckSql.append(" SELECT ");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(" FROM ");
+        duplicateCheckSql.append(tableBean.getExportTempTableName());
+        duplicateCheckSql.append(" WHERE ");
+        duplicateCheckSql.append("EXISTS(SELECT * FROM ");
+        duplicateCheckSql.append(tableName);
+
+        String forceIndex = ConfigurationLoader.getForceIndexName(
+                bean.getBatchId(), bean.getJobflowId(), tableName);
+        if (forceIndex != null) {
+            duplicateCheckSql.append(" FORCE INDEX (");
+            duplicateCheckSql.append(forceIndex);
+            duplicateCheckSql.append(")");
+        }
+
+        duplicateCheckSql.append(" WHERE ");
+        appendKeyCondition(duplicateCheckSql, tableName, tableBean);
+        duplicateCheckSql.append(") AND ");
+        duplicateCheckSql.append(tableBean.getExportTempTableName());
+        duplicateCheckSql.append(".");
+        duplicateCheckSql.append(Constants.getSidColumnName());
+        duplicateCheckSql.append(" IS NULL");
+        return duplicateCheckSql.toString();
+    }
+
+    /**
+     * エクスポートテンポラリテーブルを走査し、Export対象テーブルのキー列のインデックスで結合して重複フラグを立てるSQLを生成する。
+     * 走査するのはエクスポートテンポラリテーブルのみのため、処理量はExport対象テーブルの件数によらない。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @return 重複フラグを立てるSQL
+     * @see #hasKeyIndex(ExporterBean, String, ExportTargetTableBean, Connection)
+     */
+    private String createIndexJoinDuplicateCheckSql(
+            ExporterBean bean,
+            String tableName,
+            ExportTargetTableBean tableBean) {
+        String tempTableName = tableBean.getExportTempTableName();
+        StringBuilder duplicateCheckSql = new StringBuilder("INSERT INTO ");
+        duplicateCheckSql.append(tableBean.getDuplicateFlagTableName());
+        duplicateCheckSql.append("(");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(")");
+        duplicateCheckSql.append(" SELECT DISTINCT ");
+        duplicateCheckSql.append(tempTableName);
+        duplicateCheckSql.append(".");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(" FROM ");
+        duplicateCheckSql.append(tempTableName);
+        // エクスポートテンポラリテーブル側を外側にして、Export対象テーブルのインデックスで結合する
+        duplicateCheckSql.append(" STRAIGHT_JOIN ");
+        duplicateCheckSql.append(tableName);
+        String forceIndex = ConfigurationLoader.getForceIndexName(
+                bean.getBatchId(), bean.getJobflowId(), tableName);
+        if (forceIndex != null) {
+            duplicateCheckSql.append(" FORCE INDEX (");
+            duplicateCheckSql.append(forceIndex);
+            duplicateCheckSql.append(")");
+        }
+        duplicateCheckSql.append(" ON ");
+        appendKeyCondition(duplicateCheckSql, tableName, tableBean);
+        duplicateCheckSql.append(" WHERE ");
+        duplicateCheckSql.append(tempTableName);
+        duplicateCheckSql.append(".");
+        duplicateCheckSql.append(Constants.getSidColumnName());
+        duplicateCheckSql.append(" IS NULL");
+        return duplicateCheckSql.toString();
+    }
+
+    /**
+     * Export対象テーブルを1回走査してエクスポートテンポラリテーブルと結合し、重複フラグを立てるSQLを生成する。
+     * Export対象テーブルのキー列にインデックスがない場合に使用するため、処理量はExport対象テーブルの件数に比例する。
+     * エクスポートテンポラリテーブルのキー列には、あらかじめインデックスを作成しておく必要がある。
+     * @param tableName Export対象テーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @return 重複フラグを立てるSQL
+     * @see #createTableSql(String, String, ExportTargetTableBean, boolean)
+     */
+    private String createJoinDuplicateCheckSql(String tableName, ExportTargetTableBean tableBean) {
+        String tempTableName = tableBean.getExportTempTableName();
+        StringBuilder duplicateCheckSql = new StringBuilder("INSERT INTO ");
+        duplicateCheckSql.append(tableBean.getDuplicateFlagTableName());
+        duplicateCheckSql.append("(");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(")");
+        duplicateCheckSql.append(" SELECT DISTINCT ");
+        duplicateCheckSql.append(tempTableName);
+        duplicateCheckSql.append(".");
+        duplicateCheckSql.append(Constants.getTemporarySidColumnName());
+        duplicateCheckSql.append(" FROM ");
+        duplicateCheckSql.append(tableName);
+        // Export対象テーブル側を外側にして、エクスポートテンポラリテーブルのインデックスで結合する
+        duplicateCheckSql.append(" STRAIGHT_JOIN ");
+        duplicateCheckSql.append(tempTableName);
+        duplicateCheckSql.append(" ON ");
+        appendKeyCondition(duplicateCheckSql, tableName, tableBean);
+        duplicateCheckSql.append(" WHERE ");
+        duplicateCheckSql.append(tempTableName);
+        duplicateCheckSql.append(".");
+        duplicateCheckSql.append(Constants.getSidColumnName());
+        duplicateCheckSql.append(" IS NULL");
+        return duplicateCheckSql.toString();
+    }
+
+    /**
+     * Export対象テーブルに、キー列を先頭の列とするインデックスが存在するかを調べる。
+     * 重複チェックで使用するインデックスが指定されている場合は、そのインデックスを使用できるものとする。
+     * @param bean パラメータを保持するBean
+     * @param tableName Export対象テーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @param conn コネクション
+     * @return インデックスが存在する場合は{@code true}
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private boolean hasKeyIndex(
+            ExporterBean bean,
+            String tableName,
+            ExportTargetTableBean tableBean,
+            Connection conn) throws BulkLoaderSystemException {
+        if (ConfigurationLoader.getForceIndexName(bean.getBatchId(), bean.getJobflowId(), tableName) != null) {
+            return true;
+        }
+        String sql = "SELECT INDEX_NAME,COLUMN_NAME FROM information_schema.STATISTICS "
+            + "WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? ORDER BY INDEX_NAME,SEQ_IN_INDEX";
+        String[] params = new String[] { tableName };
+        Map<String, List<String>> indices = new HashMap<>();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, tableName);
+            rs = DBConnection.executeQuery(stmt, sql, params);
+            while (rs.next()) {
+                String indexName = rs.getString(1);
+                List<String> columns = indices.get(indexName);
+                if (columns == null) {
+                    columns = new ArrayList<>();
+                    indices.put(indexName, columns);
+                }
+                columns.add(rs.getString(2));
+            }
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), sql, params);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+        for (List<String> columns : indices.values()) {
+            if (isKeyIndex(columns, tableBean.getKeyColumns())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * インデックスの先頭の列がキー列と一致するかを返す。
+     * @param indexColumns インデックスの列（インデックス内の順序）
+     * @param keyColumns キー列
+     * @return 一致する場合は{@code true}
+     */
+    static boolean isKeyIndex(List<String> indexColumns, List<String> keyColumns) {
+        if (keyColumns.isEmpty() || indexColumns.size() < keyColumns.size()) {
+            return false;
+        }
+        Set<String> key = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        key.addAll(keyColumns);
+        Set<String> prefix = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        prefix.addAll(indexColumns.subList(0, key.size()));
+        return prefix.equals(key);
+    }
+
+    /**
+     * エクスポートテンポラリテーブルに重複チェックのためのインデックスが存在するかを調べる。
+     * @param tempTableName エクスポートテンポラリテーブル名
+     * @param conn コネクション
+     * @return インデックスが存在する場合は{@code true}
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private boolean hasDuplicateCheckIndex(String tempTableName, Connection conn) throws BulkLoaderSystemException {
+        String sql = "SELECT COUNT(*) FROM information_schema.STATISTICS "
+            + "WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND INDEX_NAME=?";
+        String[] params = new String[] { tempTableName, DUPLICATE_CHECK_INDEX_NAME };
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, tempTableName);
+            stmt.setString(2, DUPLICATE_CHECK_INDEX_NAME);
+            rs = DBConnection.executeQuery(stmt, sql, params);
+            rs.next();
+            return rs.getLong(1) > 0;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), sql, params);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+
+    /**
+     * Export対象テーブルのキー列にインデックスを作成できるかを調べる。
+     * キー列にTEXT/BLOB型のカラムを含む場合や、キーの長さがインデックスの上限を超える場合は作成できない。
+     * @param tableName Export対象テーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @param conn コネクション
+     * @return インデックスを作成できる場合は{@code true}
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private boolean isDuplicateCheckIndexable(
+            String tableName,
+            ExportTargetTableBean tableBean,
+            Connection conn) throws BulkLoaderSystemException {
+        List<String> key = tableBean.getKeyColumns();
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT DATA_TYPE,CHARACTER_OCTET_LENGTH FROM information_schema.COLUMNS ");
+        sql.append("WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND COLUMN_NAME IN (");
+        for (int i = 0; i < key.size(); i++) {
+            if (i > 0) {
+                sql.append(",");
+            }
+            sql.append("?");
+        }
+        sql.append(")");
+        String[] params = new String[key.size() + 1];
+        params[0] = tableName;
+        for (int i = 0; i < key.size(); i++) {
+            params[i + 1] = key.get(i);
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.length; i++) {
+                stmt.setString(i + 1, params[i]);
+            }
+            rs = DBConnection.executeQuery(stmt, sql.toString(), params);
+            List<String> types = new ArrayList<>();
+            List<Long> lengths = new ArrayList<>();
+            while (rs.next()) {
+                types.add(rs.getString(1));
+                long length = rs.getLong(2);
+                lengths.add(rs.wasNull() ? null : length);
+            }
+            // キー列がExport対象テーブルに存在しない場合は型が判明しないため作成しない
+            return types.size() == key.size() && isIndexable(types, lengths);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e, this.getClass(), sql.toString(), params);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+
+    /**
+     * 指定の型のカラムの組にインデックスを作成できるかを返す。
+     * @param types カラムの型名({@code information_schema.COLUMNS.DATA_TYPE})の一覧
+     * @param lengths 文字列型のカラムの最大バイト数の一覧（文字列型でない場合は{@code null}）
+     * @return インデックスを作成できる場合は{@code true}
+     */
+    static boolean isIndexable(List<String> types, List<Long> lengths) {
+        long total = 0;
+        for (int i = 0; i < types.size(); i++) {
+            String type = types.get(i).toLowerCase();
+            if (type.endsWith("text") || type.endsWith("blob") || type.equals("json") || type.equals("geometry")) {
+                return false;
+            }
+            Long length = lengths.get(i);
+            if (length != null) {
+                if (length > MAX_INDEX_COLUMN_BYTES) {
+                    return false;
+                }
+                total += length;
+            } else {
+                // 文字列型以外のカラムは長くとも数値型やDATETIME型程度とみなす
+                total += Long.SIZE / Byte.SIZE;
             }
         }
+        return total <= MAX_INDEX_KEY_BYTES;
     }
+
+    private void appendKeyCondition(
+            StringBuilder buf,
+            String tableName,
+            ExportTargetTableBean tableBean) {
+        List<String> key = tableBean.getKeyColumns();
+        int keySize = key.size();
+        for (int i = 0; i < keySize; i++) {
+            buf.append(tableName);
+            buf.append(".");
+            buf.append(key.get(i));
+            buf.append("=");
+            buf.append(tableBean.getExportTempTableName());
+            buf.append(".");
+            buf.append(key.get(i));
+            if (i < keySize - 1) {
+                buf.append(" AND ");
+            }
+        }
+    }
+
     /**
      * エクスポートテンポラリテーブルを作成する。
      * @param bean パラメータを保持するBean
@@ -284,7 +793,18 @@ public class ExportFileLoad {
             String duplicateTableName = bean.getExportTargetTable(tableName).getDuplicateFlagTableName();
 
             // テンポラリテーブル作成のSQLを作成
-            String createSql = createTableSql(tableName, tempTableName, bean.getExportTargetTable(tableName));
+            ExportTargetTableBean tableBean = bean.getExportTargetTable(tableName);
+            boolean indexed = false;
+            if (tableBean.isDuplicateCheck()
+                    && ConfigurationLoader.getDuplicateCheckStrategy(
+                            bean.getBatchId(), bean.getJobflowId(), tableName) == DuplicateCheckStrategy.JOIN) {
+                // 重複チェックのためのインデックスはテーブルと同時に作成し、作成できない場合は相関サブクエリで検査する
+                indexed = isDuplicateCheckIndexable(tableName, tableBean, conn);
+                if (indexed == false) {
+                    LOG.info("TG-EXPORTER-03011", bean.getJobflowSid(), tableName, tempTableName);
+                }
+            }
+            String createSql = createTableSql(tableName, tempTableName, tableBean, indexed);
 
             // 重複チェックテーブル作成のSQL
             StringBuilder dupSql = new StringBuilder();
@@ -304,6 +824,10 @@ public class ExportFileLoad {
                 DBConnection.executeUpdate(stmt, createSql.toString(), new String[0]);
                 LOG.info("TG-EXPORTER-03003",
                         bean.getJobflowSid(), tableName, tempTableName, createSql.toString());
+                if (indexed) {
+                    LOG.info("TG-EXPORTER-03010",
+                            bean.getJobflowSid(), tableName, tempTableName, createSql.toString());
+                }
             } catch (SQLException e) {
                 throw BulkLoaderSystemException.createInstanceCauseBySQLException(
                         e,
@@ -419,6 +943,24 @@ public class ExportFileLoad {
             String tableName,
             String tempTableName,
             ExportTargetTableBean tableBean) throws BulkLoaderSystemException {
+        return createTableSql(tableName, tempTableName, tableBean, false);
+    }
+
+    /**
+     * テンポラリテーブル作成のSQLを作成する。
+     * @param tableName Export対象テーブル名
+     * @param tempTableName Exportテンポラリテーブル名
+     * @param tableBean Export対象テーブルの設定を保持するBean
+     * @param duplicateCheckIndex 重複チェックのためにキー列のインデックスを作成する場合は{@code true}
+     * @return テンポラリテーブル作成のSQL
+     * @throws BulkLoaderSystemException SQLの構築に失敗した場合
+     * @since 0.10.4
+     */
+    protected String createTableSql(
+            String tableName,
+            String tempTableName,
+            ExportTargetTableBean tableBean,
+            boolean duplicateCheckIndex) throws BulkLoaderSystemException {
 
         // テンポラリテーブのソースとなるテーブル名とカラム名の一覧を取得
         /*
@@ -433,7 +975,8 @@ public class ExportFileLoad {
 
         // テンポラリテーブルを作成するSQL
         StringBuilder createSql = new StringBuilder();
-        createSql.append(createTempTableSqlHead(tableName, tempTableName));
+        createSql.append(createTempTableSqlHead(
+                tableName, tempTableName, duplicateCheckIndex ? tableBean.getKeyColumns() : null));
         createSql.append(DBAccessUtil.joinColumnArray(sourceColumns));
         createSql.append(" FROM ");
         createSql.append(DBAccessUtil.joinColumnArray(sourceTables));
@@ -493,7 +1036,7 @@ public class ExportFileLoad {
         return columns;
     }
 
-    private String createTempTableSqlHead(String tableName, String tempTableName) {
+    private String createTempTableSqlHead(String tableName, String tempTableName, List<String> indexColumns) {
         StringBuilder buf = new StringBuilder();
         buf.append("CREATE TABLE ");
         buf.append(tempTableName);
@@ -510,7 +1053,15 @@ public class ExportFileLoad {
         buf.append(" DATETIME NULL,");
         buf.append("PRIMARY KEY (");
         buf.append(Constants.getTemporarySidColumnName());
-        buf.append(")) ");
+        buf.append(")");
+        if (indexColumns != null) {
+            buf.append(",INDEX ");
+            buf.append(DUPLICATE_CHECK_INDEX_NAME);
+            buf.append(" (");
+            buf.append(DBAccessUtil.joinColumnArray(indexColumns));
+            buf.append(")");
+        }
+        buf.append(") ");
         buf.append("SELECT ");
 
         buf.append("NULL AS ");
@@ -631,32 +1182,84 @@ public class ExportFileLoad {
         }
 
         // Load用のSQLを作成
-        StringBuilder sql = new StringBuilder("LOAD DATA INFILE '");
-        sql.append(file.getAbsolutePath().replace(File.separatorChar, '/'));
-        sql.append("' INTO TABLE ");
-        sql.append(tempTableName);
-        sql.append(DBAccessUtil.getTSVFileFormat());
-        sql.append(" (");
-        sql.append(DBAccessUtil.joinColumnArray(exportTsvColumn));
-        sql.append(")");
+        String sql = createLoadSql(
+                "LOAD DATA INFILE '",
+                file.getAbsolutePath().replace(File.separatorChar, '/'),
+                tempTableName,
+                exportTsvColumn);
 
         PreparedStatement stmt = null;
         try {
             // LOADを実行
-            stmt = conn.prepareStatement(sql.toString());
-            long count = DBConnection.executeUpdate(stmt, sql.toString(), new String[0]);
+            stmt = conn.prepareStatement(sql);
+            long count = DBConnection.executeUpdate(stmt, sql, new String[0]);
             DBConnection.commit(conn);
             return count;
         } catch (SQLException e) {
             throw BulkLoaderSystemException.createInstanceCauseBySQLException(
                     e,
                     this.getClass(),
-                    sql.toString(),
+                    sql,
                     new String[0]);
         } finally {
             DBConnection.closePs(stmt);
         }
     }
+    /**
+     * 受信中のExportデータを、中間ファイルを経由せずにロードする。
+     * @param tempTableName テーブル名
+     * @param content 受信中のExportデータ、このメソッドの終了後も閉じられない
+     * @param exportTsvColumn TSVのカラム名一覧
+     * @param conn コネクション
+     * @return 更新した件数
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private long loadContent(
+            String tempTableName,
+            InputStream content,
+            List<String> exportTsvColumn,
+            Connection conn) throws BulkLoaderSystemException {
+        // LOCAL INFILEのファイル名は、ドライバに渡したストリームで置き換えられる
+        String sql = createLoadSql(
+                "LOAD DATA LOCAL INFILE '",
+                tempTableName,
+                tempTableName,
+                exportTsvColumn);
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            // ドライバはロード後にストリームを閉じるため、受信中のデータ自体は閉じさせない
+            stmt.unwrap(com.mysql.jdbc.Statement.class)
+                    .setLocalInfileInputStream(new CloseShieldInputStream(content));
+            long count = DBConnection.executeUpdate(stmt, sql, new String[0]);
+            DBConnection.commit(conn);
+            return count;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    sql,
+                    new String[0]);
+        } finally {
+            DBConnection.closePs(stmt);
+        }
+    }
+    private String createLoadSql(
+            String head,
+            String fileName,
+            String tempTableName,
+            List<String> exportTsvColumn) {
+        StringBuilder sql = new StringBuilder(head);
+        sql.append(fileName);
+        sql.append("' INTO TABLE ");
+        sql.append(tempTableName);
+        sql.append(DBAccessUtil.getTSVFileFormat());
+        sql.append(" (");
+        sql.append(DBAccessUtil.joinColumnArray(exportTsvColumn));
+        sql.append(")");
+        return sql.toString();
+    }
     /**
      * ファイルが空かどうか判定して返す。
      * ファイルが存在して0byteの場合はtrueを返す
@@ -666,4 +1269,57 @@ public class ExportFileLoad {
     private boolean isEmpty(File file) {
         return file.exists() && file.length() == 0;
     }
+
+    /**
+     * 受信中のデータを{@code LOAD DATA LOCAL INFILE}でロードする{@link ExportStreamLoader}を提供する。
+     * 受信ストリームごとに個別のコネクションを利用する。
+     */
+    private final class StreamLoaderProvider implements ExportStreamLoader.Provider {
+
+        private final ExporterBean bean;
+
+        private final Map<String, Long> recordCounts = new HashMap<>();
+
+        StreamLoaderProvider(ExporterBean bean) {
+            assert bean != null;
+            this.bean = bean;
+        }
+
+        @Override
+        public ExportStreamLoader open() throws BulkLoaderSystemException {
+            final Connection conn = DBConnection.getConnection();
+            return new ExportStreamLoader() {
+                @Override
+                public long load(String tableName, InputStream content) throws BulkLoaderSystemException {
+                    ExportTargetTableBean tableBean = bean.getExportTargetTable(tableName);
+                    long count = loadContent(
+                            tableBean.getExportTempTableName(),
+                            content,
+                            tableBean.getExportTsvColumn(),
+                            conn);
+                    addRecordCount(tableName, count);
+                    LOG.info("TG-EXPORTER-03009",
+                            bean.getJobflowSid(),
+                            tableName,
+                            tableBean.getExportTempTableName(),
+                            count);
+                    return count;
+                }
+                @Override
+                public void close() {
+                    DBConnection.closeConn(conn);
+                }
+            };
+        }
+
+        synchronized void addRecordCount(String tableName, long count) {
+            Long current = recordCounts.get(tableName);
+            recordCounts.put(tableName, current == null ? count : current + count);
+        }
+
+        synchronized long getRecordCount(String tableName) {
+            Long current = recordCounts.get(tableName);
+            return current == null ? 0L : current;
+        }
+    }
 }
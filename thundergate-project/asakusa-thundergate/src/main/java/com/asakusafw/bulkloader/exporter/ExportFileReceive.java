@@ -16,16 +16,29 @@
 package com.asakusafw.bulkloader.exporter;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.input.CountingInputStream;
 
 import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
@@ -33,10 +46,13 @@ import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.bulkloader.transfer.FileListProvider;
 import com.asakusafw.bulkloader.transfer.FileProtocol;
 import com.asakusafw.bulkloader.transfer.RemoteFileListProviderFactory;
+import com.asakusafw.bulkloader.transfer.TransferJournal;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 
@@ -49,13 +65,26 @@ public class ExportFileReceive {
 
     static final Log LOG = new Log(ExportFileReceive.class);
 
-    // CHECKSTYLE:OFF MethodLengthCheck - FIXME refactoring
     /**
      * HDFSのNameノードのCollectorを呼出し、Exportファイルを受信してローカルにファイルを書き出す。
+     * プロパティの{@code export.transfer-streams}が2以上の場合、
+     * 指定された数のCollectorを起動し、それぞれのストリームを並列に受信する。
      * @param bean パラメータを保持するBean
      * @return Exportファイル取得結果（true:成功、false:失敗）
      */
     public boolean receiveFile(ExporterBean bean) {
+        return receiveFile(bean, null);
+    }
+
+    /**
+     * HDFSのNameノードのCollectorを呼出し、Exportファイルを受信してローカルにファイルを書き出す。
+     * 受信中は、全てのファイルの受信が完了したテーブルを指定のオブジェクトに通知する。
+     * @param bean パラメータを保持するBean
+     * @param tracker 受信が完了したテーブルの通知先、通知しない場合は{@code null}
+     * @return Exportファイル取得結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    boolean receiveFile(ExporterBean bean, TableArrivalTracker tracker) {
         // Exportファイルを置くディレクトリ名を作成
         File fileDirectry = new File(ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_FILE_DIR));
         if (!FileNameUtil.prepareTemporaryDirectory(fileDirectry)) {
@@ -64,56 +93,551 @@ public class ExportFileReceive {
             return false;
         }
 
-        FileListProvider provider = null;
-        FileList.Reader reader = null;
+        ReceiveContext context = new ReceiveContext(bean, fileDirectry, tracker);
+        int streams = getTransferStreams();
+        int chunkSize = getChunkSize();
+        if (tracker != null) {
+            tracker.start(Math.max(streams, 1));
+        }
+        long totalStartTime = System.currentTimeMillis();
+        try {
+            long byteCount;
+            if (streams <= 1 && chunkSize <= 0) {
+                byteCount = receiveStream(context, 0, openFileList(
+                        bean.getTargetName(),
+                        bean.getBatchId(),
+                        bean.getJobflowId(),
+                        bean.getExecutionId()), null);
+            } else {
+                byteCount = receiveStreams(context, streams, chunkSize);
+            }
+            logProfiles(context, byteCount, System.currentTimeMillis() - totalStartTime);
+            if (chunkSize > 0) {
+                deleteJournals(context, streams);
+            }
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            return false;
+        } catch (Exception e) {
+            LOG.error(e, "TG-EXPORTER-02002",
+                    "Exportファイルの読み込みに失敗。");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * HDFSのNameノードのCollectorを呼出し、Exportファイルを受信して、
+     * ローカルにファイルを書き出さずに受信中のデータをそのままロードする。
+     * プロパティの{@code export.transfer-streams}が2以上の場合、
+     * 指定された数のCollectorを起動し、それぞれのストリームを並列に受信してロードする。
+     * ロード済みのデータはファイルとして残らないため、
+     * プロパティの{@code export.transfer-chunk-size}による受信の再開は行わない。
+     * @param bean パラメータを保持するBean
+     * @param loaders 受信したデータのロード先を提供するオブジェクト
+     * @return Exportファイル受信結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    public boolean receiveAndLoad(ExporterBean bean, ExportStreamLoader.Provider loaders) {
+        ReceiveContext context = new ReceiveContext(bean, null, null);
+        int streams = getTransferStreams();
         long totalStartTime = System.currentTimeMillis();
         try {
-            provider = openFileList(
+            long byteCount;
+            if (streams <= 1) {
+                byteCount = loadStream(context, 0, openFileList(
+                        bean.getTargetName(),
+                        bean.getBatchId(),
+                        bean.getJobflowId(),
+                        bean.getExecutionId()), loaders);
+            } else {
+                byteCount = loadStreams(context, streams, loaders);
+            }
+            logProfiles(context, byteCount, System.currentTimeMillis() - totalStartTime);
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            return false;
+        } catch (Exception e) {
+            LOG.error(e, "TG-EXPORTER-02002",
+                    "Exportファイルの読み込みに失敗。");
+            return false;
+        }
+        return true;
+    }
+
+    private void logProfiles(ReceiveContext context, long byteCount, long elapsedTime) {
+        ExporterBean bean = context.bean;
+        for (TableTransferProfile profile : context.profiles.values()) {
+            LOG.info("TG-PROFILE-02004",
                     bean.getTargetName(),
                     bean.getBatchId(),
                     bean.getJobflowId(),
-                    bean.getExecutionId());
+                    bean.getExecutionId(),
+                    profile.tableName,
+                    profile.fileSize,
+                    profile.elapsedTime);
+            ProfileReport.record(Phase.RECEIVE, profile.tableName,
+                    profile.elapsedTime, profile.fileSize, ProfileReport.UNKNOWN);
+        }
+        LOG.info("TG-PROFILE-02002",
+                bean.getTargetName(),
+                bean.getBatchId(),
+                bean.getJobflowId(),
+                bean.getExecutionId(),
+                byteCount,
+                elapsedTime);
+        ProfileReport.record(Phase.RECEIVE, null, elapsedTime, byteCount, ProfileReport.UNKNOWN);
+    }
+
+    private long loadStreams(
+            final ReceiveContext context,
+            final int streams,
+            final ExportStreamLoader.Provider loaders) throws BulkLoaderSystemException {
+        final ExporterBean bean = context.bean;
+        LOG.info("TG-EXPORTER-02010", streams);
+        ExecutorService executor = Executors.newFixedThreadPool(streams);
+        try {
+            List<Future<Long>> running = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                final int index = i;
+                running.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return loadStream(context, index, openFileList(
+                                bean.getTargetName(),
+                                bean.getBatchId(),
+                                bean.getJobflowId(),
+                                bean.getExecutionId(),
+                                index,
+                                streams), loaders);
+                    }
+                }));
+            }
+            long total = awaitStreams(running);
+            verifyManifests(context, streams);
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 1つのストリームからExportファイルを受信して、受信中のデータをそのままロードする。
+     * @param context 受信状態
+     * @param streamIndex ストリーム番号
+     * @param provider 受信するストリームの提供元
+     * @param loaders 受信したデータのロード先を提供するオブジェクト
+     * @return 受信したバイト数
+     * @throws BulkLoaderSystemException 受信したExportファイルが不正である場合、またはロードに失敗した場合
+     * @throws IOException 受信に失敗した場合
+     * @throws InterruptedException 受信中に割り込みが発生した場合
+     */
+    private long loadStream(
+            ReceiveContext context,
+            int streamIndex,
+            FileListProvider provider,
+            ExportStreamLoader.Provider loaders) throws BulkLoaderSystemException, IOException, InterruptedException {
+        FileList.Reader reader = null;
+        ExportStreamLoader loader = null;
+        try {
+            loader = loaders.open();
             provider.discardWriter();
             reader = provider.openReader();
 
             // FileListの終端まで繰り返す
-            int fileSeq = 0;
+            while (reader.next()) {
+                FileProtocol protocol = reader.getCurrentProtocol();
+                assert protocol.getKind() == FileProtocol.Kind.CONTENT;
+                String fileName = protocol.getLocation();
+                if (fileName.equals(Constants.TRANSFER_MANIFEST_ENTRY_NAME)) {
+                    receiveManifest(context, streamIndex, reader);
+                    continue;
+                }
+                String tableName = getTableName(context.bean, fileName);
 
-            // プロファイル用のテーブル
-            Map<String, TableTransferProfile> profiles = new TreeMap<>();
+                LOG.info("TG-EXPORTER-02014", tableName, fileName);
+                long loadStartTime = System.currentTimeMillis();
+                CountingInputStream content = new CountingInputStream(reader.openContent());
+                long recordCount;
+                try {
+                    recordCount = loader.load(tableName, content);
+                } finally {
+                    try {
+                        content.close();
+                    } catch (IOException e) {
+                        // ここで例外が発生した場合は握りつぶす
+                        e.printStackTrace();
+                    }
+                }
+                context.loaded(tableName, content.getByteCount(), System.currentTimeMillis() - loadStartTime);
+                LOG.info("TG-EXPORTER-02015", tableName, fileName, recordCount);
+            }
+            reader.close();
+            provider.waitForComplete();
+            return reader.getByteCount();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    ignored.printStackTrace();
+                }
+            }
+            try {
+                provider.close();
+            } catch (IOException ignored) {
+                ignored.printStackTrace();
+            }
+            if (loader != null) {
+                try {
+                    loader.close();
+                } catch (IOException ignored) {
+                    ignored.printStackTrace();
+                }
+            }
+        }
+    }
 
+    private String getTableName(ExporterBean bean, String fileName) throws BulkLoaderSystemException {
+        String tableName = FileNameUtil.getExportTableName(fileName);
+        if (tableName == null) {
+            throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02003", fileName, "(Unknown)");
+        } else if (bean.getExportTargetTable(tableName) == null) {
+            throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02003", fileName, tableName);
+        }
+        return tableName;
+    }
+
+    private long receiveStreams(
+            final ReceiveContext context,
+            final int streams,
+            final int chunkSize) throws BulkLoaderSystemException {
+        final ExporterBean bean = context.bean;
+        if (streams > 1) {
+            LOG.info("TG-EXPORTER-02010", streams);
+        }
+        final List<TransferJournal> journals = new ArrayList<>();
+        final List<Integer> resumeCounts = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(streams);
+        try {
+            if (chunkSize > 0) {
+                // 全てのストリームの受信済みファイルを復元してから受信を開始する
+                for (int i = 0; i < streams; i++) {
+                    List<String[]> records = restoreJournal(context, i, streams);
+                    resumeCounts.add(records.size());
+                    journals.add(openJournal(context, i, streams, records));
+                }
+            }
+            List<Future<Long>> running = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                final int index = i;
+                running.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        if (chunkSize <= 0) {
+                            return receiveStream(context, index, openFileList(
+                                    bean.getTargetName(),
+                                    bean.getBatchId(),
+                                    bean.getJobflowId(),
+                                    bean.getExecutionId(),
+                                    index,
+                                    streams), null);
+                        }
+                        Map<String, String> env = new HashMap<>();
+                        env.put(Constants.ENV_TRANSFER_STREAM_INDEX, String.valueOf(index));
+                        env.put(Constants.ENV_TRANSFER_STREAM_COUNT, String.valueOf(streams));
+                        env.put(Constants.ENV_TRANSFER_CHUNK_SIZE, String.valueOf(chunkSize));
+                        env.put(Constants.ENV_TRANSFER_RESUME_COUNT, String.valueOf(resumeCounts.get(index)));
+                        return receiveStream(context, index, openFileList(
+                                bean.getTargetName(),
+                                bean.getBatchId(),
+                                bean.getJobflowId(),
+                                bean.getExecutionId(),
+                                env), journals.get(index));
+                    }
+                }));
+            }
+            long total = awaitStreams(running);
+            if (streams > 1) {
+                verifyManifests(context, streams);
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+            for (TransferJournal journal : journals) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    // ここで例外が発生した場合は握りつぶす
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private long awaitStreams(List<Future<Long>> running) throws BulkLoaderSystemException {
+        long total = 0;
+        BulkLoaderSystemException first = null;
+        for (Future<Long> future : running) {
+            try {
+                total += future.get();
+            } catch (InterruptedException e) {
+                cancel(running);
+                throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02011");
+            } catch (ExecutionException e) {
+                // 1つのストリームが失敗した場合、残りのストリームは打ち切る
+                cancel(running);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (first != null) {
+                    LOG.debugMessage("Export stream was aborted: {0}", cause);
+                } else if (cause instanceof BulkLoaderSystemException) {
+                    first = (BulkLoaderSystemException) cause;
+                } else {
+                    first = new BulkLoaderSystemException(cause, getClass(), "TG-EXPORTER-02002",
+                            "Exportファイルの読み込みに失敗。");
+                }
+            } catch (CancellationException e) {
+                // 先に失敗したストリームによって打ち切られたため、最初の失敗を報告する
+                if (first == null) {
+                    first = new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02011");
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+        return total;
+    }
+
+    /**
+     * 受信中のエントリからCollectorのマニフェストを読み込んで記録する。
+     * @param context 受信状態
+     * @param streamIndex ストリーム番号
+     * @param reader マニフェストのエントリを指すReader
+     * @throws BulkLoaderSystemException マニフェストの読み込みに失敗した場合
+     */
+    private void receiveManifest(
+            ReceiveContext context,
+            int streamIndex,
+            FileList.Reader reader) throws BulkLoaderSystemException {
+        Properties manifest = new Properties();
+        try (InputStream content = reader.openContent()) {
+            manifest.load(content);
+        } catch (IOException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02002",
+                    "Exportファイルの読み込みに失敗。エントリ名：" + Constants.TRANSFER_MANIFEST_ENTRY_NAME);
+        }
+        context.manifested(streamIndex, manifest);
+    }
+
+    /**
+     * 全てのストリームのマニフェストが一致することを確認する。
+     * <p>
+     * 各Collectorは独立してExportファイルを検出し、検出順の通番で担当するファイルを決定する。
+     * Collector間で検出したファイルが異なる場合はファイルを取りこぼしている可能性があるため、異常終了する。
+     * </p>
+     * @param context 受信状態
+     * @param streams ストリームの総数
+     * @throws BulkLoaderSystemException マニフェストが存在しない、または一致しない場合
+     */
+    private void verifyManifests(ReceiveContext context, int streams) throws BulkLoaderSystemException {
+        Properties base = context.manifests.get(0);
+        for (int i = 0; i < streams; i++) {
+            Properties manifest = context.manifests.get(i);
+            if (base == null || manifest == null) {
+                throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02018",
+                        i,
+                        manifest == null ? "(Unknown)" : getManifestFiles(manifest),
+                        base == null ? "(Unknown)" : getManifestFiles(base));
+            }
+            String digest = manifest.getProperty(Constants.TRANSFER_MANIFEST_KEY_DIGEST);
+            if (digest == null || digest.equals(base.getProperty(Constants.TRANSFER_MANIFEST_KEY_DIGEST)) == false) {
+                throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02018",
+                        i,
+                        getManifestFiles(manifest),
+                        getManifestFiles(base));
+            }
+        }
+    }
+
+    private static String getManifestFiles(Properties manifest) {
+        return manifest.getProperty(Constants.TRANSFER_MANIFEST_KEY_FILES, "(Unknown)");
+    }
+
+    /**
+     * 前回の受信で記録したジャーナルから受信済みのファイルを復元する。
+     * ジャーナルの先頭から順に、ローカルファイルが記録通りに存在するものだけを受信済みとして扱う。
+     * @param context 受信状態
+     * @param streamIndex ストリーム番号
+     * @param streamCount ストリームの総数
+     * @return 受信済みとして扱うジャーナルのレコード
+     * @throws BulkLoaderSystemException ジャーナルの読み込みに失敗した場合
+     */
+    private List<String[]> restoreJournal(
+            ReceiveContext context,
+            int streamIndex,
+            int streamCount) throws BulkLoaderSystemException {
+        File journalFile = getJournalFile(context, streamIndex, streamCount);
+        if (journalFile.exists() == false) {
+            return Collections.emptyList();
+        }
+        List<String[]> loaded;
+        try (InputStream input = new FileInputStream(journalFile)) {
+            loaded = TransferJournal.load(input);
+        } catch (IOException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02012", journalFile.getAbsolutePath());
+        }
+        List<String[]> results = new ArrayList<>();
+        for (String[] record : loaded) {
+            // 通番, テーブル名, ローカルファイル名, ファイルサイズ
+            if (record.length != 4) {
+                break;
+            }
+            String tableName = record[1];
+            File file = new File(context.fileDirectry, record[2]);
+            long fileSize;
+            int seq;
+            try {
+                seq = Integer.parseInt(record[0]);
+                fileSize = Long.parseLong(record[3]);
+            } catch (NumberFormatException e) {
+                break;
+            }
+            if (context.bean.getExportTargetTable(tableName) == null
+                    || file.isFile() == false
+                    || file.length() != fileSize) {
+                break;
+            }
+            context.restored(seq, tableName, file, fileSize);
+            results.add(record);
+        }
+        LOG.info("TG-EXPORTER-02013", streamIndex, streamCount, results.size());
+        return results;
+    }
+
+    /**
+     * 受信済みのファイルを記録するジャーナルを開く。
+     * ジャーナルは、復元に成功したレコードのみで作り直す。
+     * @param context 受信状態
+     * @param streamIndex ストリーム番号
+     * @param streamCount ストリームの総数
+     * @param records 復元に成功したレコード
+     * @return ジャーナル
+     * @throws BulkLoaderSystemException ジャーナルの作成に失敗した場合
+     */
+    private TransferJournal openJournal(
+            ReceiveContext context,
+            int streamIndex,
+            int streamCount,
+            List<String[]> records) throws BulkLoaderSystemException {
+        File journalFile = getJournalFile(context, streamIndex, streamCount);
+        TransferJournal journal = null;
+        try {
+            journal = new TransferJournal(new FileOutputStream(journalFile));
+            for (String[] record : records) {
+                journal.append(record);
+            }
+            return journal;
+        } catch (IOException e) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException ignored) {
+                    ignored.printStackTrace();
+                }
+            }
+            throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02012", journalFile.getAbsolutePath());
+        }
+    }
+
+    private void deleteJournals(ReceiveContext context, int streams) {
+        for (int i = 0; i < streams; i++) {
+            File journalFile = getJournalFile(context, i, streams);
+            if (journalFile.exists() && journalFile.delete() == false) {
+                LOG.debugMessage("Failed to delete transfer journal: {0}", journalFile);
+            }
+        }
+    }
+
+    private File getJournalFile(ReceiveContext context, int streamIndex, int streamCount) {
+        ExporterBean bean = context.bean;
+        StringBuilder name = new StringBuilder(Constants.EXPORT_FILE_PREFIX);
+        name.append(Constants.EXPORT_FILE_DELIMITER);
+        name.append(bean.getTargetName());
+        name.append(Constants.EXPORT_FILE_DELIMITER);
+        name.append(bean.getJobflowId());
+        name.append(Constants.EXPORT_FILE_DELIMITER);
+        name.append(bean.getExecutionId());
+        name.append(Constants.EXPORT_FILE_DELIMITER);
+        name.append(streamIndex);
+        name.append(Constants.EXPORT_FILE_DELIMITER);
+        name.append(streamCount);
+        name.append(Constants.TRANSFER_JOURNAL_EXTENSION);
+        return new File(context.fileDirectry, name.toString());
+    }
+
+    private void cancel(List<? extends Future<?>> futures) {
+        assert futures != null;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    // CHECKSTYLE:OFF MethodLengthCheck - FIXME refactoring
+    /**
+     * 1つのストリームからExportファイルを受信してローカルにファイルを書き出す。
+     * @param context 受信状態
+     * @param streamIndex ストリーム番号
+     * @param provider 受信するストリームの提供元
+     * @param journal 受信済みのファイルを記録するジャーナル、記録しない場合は{@code null}
+     * @return 受信したバイト数
+     * @throws BulkLoaderSystemException 受信したExportファイルが不正である場合、またはファイルの書き出しに失敗した場合
+     * @throws IOException 受信に失敗した場合
+     * @throws InterruptedException 受信中に割り込みが発生した場合
+     */
+    private long receiveStream(
+            ReceiveContext context,
+            int streamIndex,
+            FileListProvider provider,
+            TransferJournal journal) throws BulkLoaderSystemException, IOException, InterruptedException {
+        ExporterBean bean = context.bean;
+        FileList.Reader reader = null;
+        try {
+            provider.discardWriter();
+            reader = provider.openReader();
+
+            // FileListの終端まで繰り返す
             while (reader.next()) {
                 FileProtocol protocol = reader.getCurrentProtocol();
                 assert protocol.getKind() == FileProtocol.Kind.CONTENT;
 
                 // ファイル名を取得
                 String fileName = protocol.getLocation();
-
-                // テーブル名を取得
-                String tableName = FileNameUtil.getExportTableName(fileName);
-                if (tableName == null) {
-                    LOG.error("TG-EXPORTER-02003", fileName, "(Unknown)");
-                    return false;
-                } else if (bean.getExportTargetTable(tableName) == null) {
-                    LOG.error("TG-EXPORTER-02003", fileName, tableName);
-                    return false;
+                if (fileName.equals(Constants.TRANSFER_MANIFEST_ENTRY_NAME)) {
+                    receiveManifest(context, streamIndex, reader);
+                    continue;
                 }
 
-                // プロファイル情報の引当
-                TableTransferProfile profile = profiles.get(tableName);
-                if (profile == null) {
-                    profile = new TableTransferProfile(tableName);
-                    profiles.put(tableName, profile);
+                // テーブル名を取得
+                String tableName = getTableName(bean, fileName);
+                if (context.tracker != null) {
+                    // このストリームで受信済みのファイルは、全てクローズ済み
+                    context.tracker.entered(streamIndex, tableName);
                 }
 
                 // ファイル名を作成
+                int seq = context.fileSeq.getAndIncrement();
                 File file = FileNameUtil.createExportFilePath(
-                        fileDirectry,
+                        context.fileDirectry,
                         bean.getTargetName(),
                         bean.getJobflowId(),
                         bean.getExecutionId(),
                         tableName,
-                        fileSeq++);
+                        seq);
 
                 // ファイルを読み込んでローカルファイルに書き込む
                 LOG.info("TG-EXPORTER-02008", tableName, file.getAbsolutePath());
@@ -150,12 +674,23 @@ public class ExportFileReceive {
                                     "Exportファイルの書き出しに失敗。ファイル名：" +  file.getName());
                         }
                     }
-                    // ファイル名を設定する
-                    bean.getExportTargetTable(tableName).addExportFile(file);
+                    // ファイル名の設定とプロファイル情報の加算
+                    context.completed(tableName, file, dumpFileSize, System.currentTimeMillis() - dumpStartTime);
 
-                    // プロファイル情報を加算する
-                    profile.elapsedTime += System.currentTimeMillis() - dumpStartTime;
-                    profile.fileSize += dumpFileSize;
+                    // ファイルを閉じてから受信済みとして記録する
+                    if (journal != null) {
+                        try {
+                            fos.close();
+                            journal.append(
+                                    String.valueOf(seq),
+                                    tableName,
+                                    file.getName(),
+                                    String.valueOf(dumpFileSize));
+                        } catch (IOException e) {
+                            throw new BulkLoaderSystemException(e, getClass(), "TG-EXPORTER-02012",
+                                    file.getAbsolutePath());
+                        }
+                    }
 
                     LOG.info("TG-EXPORTER-02009",
                             tableName, file.getAbsolutePath());
@@ -177,32 +712,12 @@ public class ExportFileReceive {
                     }
                 }
             }
-            for (TableTransferProfile profile : profiles.values()) {
-                LOG.info("TG-PROFILE-02004",
-                        bean.getTargetName(),
-                        bean.getBatchId(),
-                        bean.getJobflowId(),
-                        bean.getExecutionId(),
-                        profile.tableName,
-                        profile.fileSize,
-                        profile.elapsedTime);
-            }
             reader.close();
             provider.waitForComplete();
-            LOG.info("TG-PROFILE-02002",
-                    bean.getTargetName(),
-                    bean.getBatchId(),
-                    bean.getJobflowId(),
-                    bean.getExecutionId(),
-                    reader.getByteCount(),
-                    System.currentTimeMillis() - totalStartTime);
-        } catch (BulkLoaderSystemException e) {
-            LOG.log(e);
-            return false;
-        } catch (Exception e) {
-            LOG.error(e, "TG-EXPORTER-02002",
-                    "Exportファイルの読み込みに失敗。");
-            return false;
+            if (context.tracker != null) {
+                context.tracker.finished(streamIndex);
+            }
+            return reader.getByteCount();
         } finally {
             if (reader != null) {
                 try {
@@ -211,15 +726,12 @@ public class ExportFileReceive {
                     ignored.printStackTrace();
                 }
             }
-            if (provider != null) {
-                try {
-                    provider.close();
-                } catch (IOException ignored) {
-                    ignored.printStackTrace();
-                }
+            try {
+                provider.close();
+            } catch (IOException ignored) {
+                ignored.printStackTrace();
             }
         }
-        return true;
     }
     // CHECKSTYLE:ON MethodLengthCheck
 
@@ -263,6 +775,41 @@ public class ExportFileReceive {
             String batchId,
             String jobflowId,
             String executionId) throws IOException {
+        return openFileList(targetName, batchId, jobflowId, executionId, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Opens a new {@link FileListProvider} which only provides a part of the export files.
+     * @param targetName current target name
+     * @param batchId current batch ID
+     * @param jobflowId current jobflow ID
+     * @param executionId current execution ID
+     * @param streamIndex the stream index (0-origin)
+     * @param streamCount the total number of streams
+     * @return the created provider
+     * @throws IOException if failed to open the file list
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @since 0.10.4
+     */
+    protected FileListProvider openFileList(
+            String targetName,
+            String batchId,
+            String jobflowId,
+            String executionId,
+            int streamIndex,
+            int streamCount) throws IOException {
+        Map<String, String> streamEnv = new HashMap<>();
+        streamEnv.put(Constants.ENV_TRANSFER_STREAM_INDEX, String.valueOf(streamIndex));
+        streamEnv.put(Constants.ENV_TRANSFER_STREAM_COUNT, String.valueOf(streamCount));
+        return openFileList(targetName, batchId, jobflowId, executionId, streamEnv);
+    }
+
+    private FileListProvider openFileList(
+            String targetName,
+            String batchId,
+            String jobflowId,
+            String executionId,
+            Map<String, String> extraEnv) throws IOException {
         if (targetName == null) {
             throw new IllegalArgumentException("targetName must not be null"); //$NON-NLS-1$
         }
@@ -291,6 +838,7 @@ public class ExportFileReceive {
         Map<String, String> env = new HashMap<>();
         env.putAll(ConfigurationLoader.getPropSubMap(Constants.PROP_PREFIX_HC_ENV));
         env.putAll(RuntimeContext.get().unapply());
+        env.putAll(extraEnv);
 
         LOG.info("TG-EXPORTER-02007",
                 sshPath,
@@ -305,6 +853,82 @@ public class ExportFileReceive {
         return new RemoteFileListProviderFactory(sshPath, hostName, userName).newInstance(command, env);
     }
 
+    private static int getChunkSize() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_TRANSFER_CHUNK_SIZE);
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static int getTransferStreams() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS);
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * 受信中の状態。複数のストリームから同時に更新される。
+     */
+    private static final class ReceiveContext {
+
+        final ExporterBean bean;
+
+        /**
+         * 受信したファイルを置くディレクトリ、ローカルにファイルを書き出さない場合は{@code null}。
+         */
+        final File fileDirectry;
+
+        final AtomicInteger fileSeq = new AtomicInteger();
+
+        final Map<String, TableTransferProfile> profiles = new TreeMap<>();
+
+        /**
+         * 各ストリームから受信したCollectorのマニフェスト。
+         */
+        final Map<Integer, Properties> manifests = new ConcurrentHashMap<>();
+
+        /**
+         * 受信が完了したテーブルの通知先、通知しない場合は{@code null}。
+         */
+        final TableArrivalTracker tracker;
+
+        ReceiveContext(ExporterBean bean, File fileDirectry, TableArrivalTracker tracker) {
+            assert bean != null;
+            this.bean = bean;
+            this.fileDirectry = fileDirectry;
+            this.tracker = tracker;
+        }
+
+        void manifested(int streamIndex, Properties manifest) {
+            manifests.put(streamIndex, manifest);
+        }
+
+        synchronized void restored(int seq, String tableName, File file, long fileSize) {
+            if (seq >= fileSeq.get()) {
+                fileSeq.set(seq + 1);
+            }
+            completed(tableName, file, fileSize, 0L);
+        }
+
+        synchronized void completed(String tableName, File file, long fileSize, long elapsedTime) {
+            bean.getExportTargetTable(tableName).addExportFile(file);
+            loaded(tableName, fileSize, elapsedTime);
+        }
+
+        synchronized void loaded(String tableName, long fileSize, long elapsedTime) {
+            TableTransferProfile profile = profiles.get(tableName);
+            if (profile == null) {
+                profile = new TableTransferProfile(tableName);
+                profiles.put(tableName, profile);
+            }
+            profile.elapsedTime += elapsedTime;
+            profile.fileSize += fileSize;
+        }
+    }
+
     private static final class TableTransferProfile {
 
         TableTransferProfile(String tableName) {
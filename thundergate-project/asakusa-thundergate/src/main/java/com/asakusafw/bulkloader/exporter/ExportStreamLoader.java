@@ -0,0 +1,53 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * 受信したExportデータを中間ファイルを経由せずにエクスポートテンポラリテーブルへロードするインターフェース。
+ * 各インスタンスは1つのストリームからのみ利用される。
+ * @since 0.10.4
+ */
+public interface ExportStreamLoader extends Closeable {
+
+    /**
+     * 受信中のExportデータを、対応するエクスポートテンポラリテーブルにロードする。
+     * このメソッドは、指定のストリームを終端まで読み込んでから終了する。
+     * @param tableName Export対象テーブル名
+     * @param content 受信中のExportデータ
+     * @return ロードしたレコード数
+     * @throws BulkLoaderSystemException ロードに失敗した場合
+     */
+    long load(String tableName, InputStream content) throws BulkLoaderSystemException;
+
+    /**
+     * {@link ExportStreamLoader}を生成する。
+     * @since 0.10.4
+     */
+    interface Provider {
+
+        /**
+         * 新しい{@link ExportStreamLoader}を生成する。
+         * @return 生成したオブジェクト
+         * @throws BulkLoaderSystemException 生成に失敗した場合
+         */
+        ExportStreamLoader open() throws BulkLoaderSystemException;
+    }
+}
@@ -26,8 +26,10 @@ import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.JobFlowParamLoader;
+import com.asakusafw.bulkloader.common.StagingType;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 /**
@@ -59,6 +61,7 @@ public class Exporter {
         RuntimeContext.get().verifyApplication(Exporter.class.getClassLoader());
         Exporter exporter = new Exporter();
         int result = exporter.execute(args);
+        ProfileReport.finish(result, ConfigurationLoader.getProperty(Constants.PROP_KEY_PROFILE_DIR));
         System.exit(result);
     }
 
@@ -93,6 +96,7 @@ public class Exporter {
             // 開始ログ出力
             LOG.info("TG-EXPORTER-01001",
                     new Date(), targetName, batchId, jobflowId, executionId);
+            ProfileReport.begin("exporter", targetName, batchId, jobflowId, executionId);
 
             // パラメータオブジェクトを作成
             ExporterBean bean = createBean(targetName, batchId, jobflowId, executionId);
@@ -146,8 +150,6 @@ public class Exporter {
                 return Constants.EXIT_CODE_ERROR;
             }
 
-            // TODO ファイル転送とDBロードをマルチスレッドで起動処理する
-
             // テンポラリテーブル削除処理を実行する
             if (judge.isExecTempTableDelete()) {
                 LOG.info("TG-EXPORTER-01020",
@@ -163,34 +165,62 @@ public class Exporter {
                 }
             }
 
-            // Exportファイル受信処理処理を実行する
-            if (judge.isExecReceive()) {
-                LOG.info("TG-EXPORTER-01022", targetName, batchId, jobflowId, executionId);
-                ExportFileReceive receive = createExportFileReceive();
-                if (!receive.receiveFile(bean)) {
-                    // Exportファイルの転送に失敗
-                    LOG.error("TG-EXPORTER-01007",
+            String staging = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_STAGING_TYPE);
+            if (StagingType.find(staging) == StagingType.STREAM
+                    && judge.isExecReceive() && judge.isExecLoad()) {
+                // Exportファイルを中間ファイルを経由せずにロードする
+                LOG.info("TG-EXPORTER-01033", targetName, batchId, jobflowId, executionId);
+                ExportFileLoad road = createExportFileLoad();
+                if (!road.loadStream(bean, createExportFileReceive())) {
+                    LOG.error("TG-EXPORTER-01008",
                             new Date(), targetName, batchId, jobflowId, executionId);
                     return Constants.EXIT_CODE_ERROR;
                 } else {
-                    LOG.info("TG-EXPORTER-01023",
+                    LOG.info("TG-EXPORTER-01034",
                             targetName, batchId, jobflowId, executionId);
                 }
-            }
-
-            // Exportファイルロード処理を実行する
-            if (judge.isExecLoad()) {
-                LOG.info("TG-EXPORTER-01024", targetName, batchId, jobflowId, executionId);
+            } else if (judge.isExecReceive() && judge.isExecLoad()) {
+                // Exportファイルを受信しながら、受信が完了したテーブルから順にロードする
+                LOG.info("TG-EXPORTER-01038", targetName, batchId, jobflowId, executionId);
                 ExportFileLoad road = createExportFileLoad();
-                if (!road.loadFile(bean)) {
-                    // Exportファイルのロードに失敗
+                if (!road.loadPipelined(bean, createExportFileReceive())) {
                     LOG.error("TG-EXPORTER-01008",
                             new Date(), targetName, batchId, jobflowId, executionId);
                     return Constants.EXIT_CODE_ERROR;
                 } else {
-                    LOG.info("TG-EXPORTER-01025",
+                    LOG.info("TG-EXPORTER-01039",
                             targetName, batchId, jobflowId, executionId);
                 }
+            } else {
+                // Exportファイル受信処理処理を実行する
+                if (judge.isExecReceive()) {
+                    LOG.info("TG-EXPORTER-01022", targetName, batchId, jobflowId, executionId);
+                    ExportFileReceive receive = createExportFileReceive();
+                    if (!receive.receiveFile(bean)) {
+                        // Exportファイルの転送に失敗
+                        LOG.error("TG-EXPORTER-01007",
+                                new Date(), targetName, batchId, jobflowId, executionId);
+                        return Constants.EXIT_CODE_ERROR;
+                    } else {
+                        LOG.info("TG-EXPORTER-01023",
+                                targetName, batchId, jobflowId, executionId);
+                    }
+                }
+
+                // Exportファイルロード処理を実行する
+                if (judge.isExecLoad()) {
+                    LOG.info("TG-EXPORTER-01024", targetName, batchId, jobflowId, executionId);
+                    ExportFileLoad road = createExportFileLoad();
+                    if (!road.loadFile(bean)) {
+                        // Exportファイルのロードに失敗
+                        LOG.error("TG-EXPORTER-01008",
+                                new Date(), targetName, batchId, jobflowId, executionId);
+                        return Constants.EXIT_CODE_ERROR;
+                    } else {
+                        LOG.info("TG-EXPORTER-01025",
+                                targetName, batchId, jobflowId, executionId);
+                    }
+                }
             }
 
             // Exportデータコピー処理を実行する
@@ -28,9 +28,12 @@ import com.asakusafw.bulkloader.bean.ExportTargetTableBean;
 import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderReRunnableException;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 
 /**
  * Importerで設定したロックを解除するクラス。
@@ -47,6 +50,7 @@ public class LockRelease {
      * @return ロック解除結果（成功した場合：true、失敗した場合：false）
      */
     public boolean releaseLock(ExporterBean bean, boolean isEndJobFlow) {
+        long startTime = System.currentTimeMillis();
         // リトライ回数
         int retryCount = bean.getRetryCount();
         // リトライインターバル
@@ -119,6 +123,8 @@ public class LockRelease {
 
             // 正常終了
             DBConnection.commit(conn);
+            ProfileReport.record(Phase.UNLOCK, null,
+                    System.currentTimeMillis() - startTime, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
             return true;
 
         } catch (BulkLoaderSystemException e) {
@@ -288,7 +294,7 @@ public class LockRelease {
     }
     /**
      * 行ロックを解除する。
-     * ロック済みレコードテーブル及びレコードロックテーブルからレコードを削除する。
+     * ロック済みレコードテーブル、レコードロック範囲テーブル及びレコードロックテーブルからレコードを削除する。
      * @param conn コネクション
      * @param tableName テーブル名
      * @param jobflowSid ジョブフローSID
@@ -343,6 +349,27 @@ public class LockRelease {
             } finally {
                 DBConnection.closePs(stmt);
             }
+
+            // SIDの範囲ごとに記録されたレコードロックを削除（範囲で記録する場合のみ）
+            if (RecordLockFormat.getCurrent() == RecordLockFormat.RANGE) {
+                String rangeSql = "DELETE FROM " + RecordLockFormat.RANGE_TABLE_NAME
+                    + " WHERE JOBFLOW_SID=? AND TABLE_NAME=?";
+                LOG.info("TG-EXPORTER-04008", rangeSql, jobflowSid, tableName);
+                try {
+                    stmt = conn.prepareStatement(rangeSql);
+                    stmt.setString(1, jobflowSid);
+                    stmt.setString(2, tableName);
+                    DBConnection.executeUpdate(stmt, rangeSql, new String[]{ jobflowSid, tableName });
+                } catch (SQLException e) {
+                    throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                            e,
+                            this.getClass(),
+                            rangeSql,
+                            new String[]{ jobflowSid, tableName });
+                } finally {
+                    DBConnection.closePs(stmt);
+                }
+            }
         }
     }
     /**
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * 受信中のExportファイルを監視し、全てのファイルの受信が完了したテーブルを順に提供するクラス。
+ * <p>
+ * Collectorは各ストリームでExport対象テーブルの一覧の順にファイルを送信するため、
+ * 全てのストリームが後続のテーブルのファイルの受信を開始するか、受信を終了した時点で、
+ * そのテーブルのファイルは全て受信済みとなる。
+ * </p>
+ * @since 0.10.4
+ */
+final class TableArrivalTracker implements TableTaskExecutor.TableSource {
+
+    private final List<String> tableNames;
+
+    /**
+     * ストリームごとに受信中のテーブルの位置、受信を開始する前は{@code null}。
+     */
+    private int[] positions;
+
+    /**
+     * 受信が完了したテーブルの数。
+     */
+    private int arrived;
+
+    /**
+     * 提供済みのテーブルの数。
+     */
+    private int provided;
+
+    private boolean closed;
+
+    private boolean aborted;
+
+    /**
+     * インスタンスを生成する。
+     * @param tableNames Export対象テーブルの一覧（Collectorが送信する順序）
+     */
+    TableArrivalTracker(List<String> tableNames) {
+        assert tableNames != null;
+        this.tableNames = new ArrayList<>(tableNames);
+    }
+
+    /**
+     * 受信を開始する。
+     * @param streams ストリーム数
+     */
+    synchronized void start(int streams) {
+        assert streams >= 1;
+        positions = new int[streams];
+        update();
+    }
+
+    /**
+     * 指定のストリームで、指定のテーブルのファイルの受信を開始したことを通知する。
+     * @param stream ストリーム番号
+     * @param tableName テーブル名
+     * @throws BulkLoaderSystemException 受信が中断された場合、またはファイルを受信する順序が不正である場合
+     */
+    synchronized void entered(int stream, String tableName) throws BulkLoaderSystemException {
+        if (aborted) {
+            throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02016", tableName);
+        }
+        int index = tableNames.indexOf(tableName);
+        if (index < positions[stream]) {
+            throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-02017",
+                    tableName, tableNames.get(positions[stream]));
+        }
+        positions[stream] = index;
+        update();
+    }
+
+    /**
+     * 指定のストリームの受信が終了したことを通知する。
+     * @param stream ストリーム番号
+     */
+    synchronized void finished(int stream) {
+        positions[stream] = tableNames.size();
+        update();
+    }
+
+    /**
+     * 全てのストリームの受信が終了したことを通知する。
+     */
+    synchronized void close() {
+        closed = true;
+        update();
+    }
+
+    @Override
+    public synchronized String next() throws InterruptedException {
+        while (true) {
+            if (aborted) {
+                return null;
+            }
+            if (provided < arrived) {
+                return tableNames.get(provided++);
+            }
+            if (provided >= tableNames.size()) {
+                return null;
+            }
+            wait();
+        }
+    }
+
+    @Override
+    public synchronized void discard() {
+        aborted = true;
+        notifyAll();
+    }
+
+    private void update() {
+        int next;
+        if (closed) {
+            next = tableNames.size();
+        } else if (positions == null) {
+            next = 0;
+        } else {
+            next = tableNames.size();
+            for (int position : positions) {
+                next = Math.min(next, position);
+            }
+        }
+        if (next > arrived) {
+            arrived = next;
+            notifyAll();
+        }
+    }
+}
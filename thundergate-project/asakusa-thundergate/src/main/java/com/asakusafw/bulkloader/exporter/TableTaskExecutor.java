@@ -0,0 +1,235 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.log.Log;
+
+/**
+ * Export対象テーブルごとの処理を、指定された数までのDBコネクションを利用して並列に実行するクラス。
+ * 各ワーカーは自身のコネクションを利用して、共有のキューからテーブルを順に取り出して処理する。
+ * @since 0.10.4
+ */
+final class TableTaskExecutor {
+
+    static final Log LOG = new Log(TableTaskExecutor.class);
+
+    private TableTaskExecutor() {
+        return;
+    }
+
+    /**
+     * 1テーブル分の処理。
+     */
+    interface Task {
+
+        /**
+         * 1テーブル分の処理を実行する。
+         * 処理の結果は、このメソッドの中でコミットすること。
+         * @param tableName Export対象テーブル名
+         * @param conn このワーカーが利用するコネクション
+         * @throws BulkLoaderSystemException 処理に失敗した場合
+         */
+        void run(String tableName, Connection conn) throws BulkLoaderSystemException;
+    }
+
+    /**
+     * 処理対象のテーブルを順に提供するオブジェクト。
+     */
+    interface TableSource {
+
+        /**
+         * 次に処理するテーブル名を返す。
+         * 次のテーブルが処理可能になるまで待機する場合がある。
+         * @return 次に処理するテーブル名、残りのテーブルが存在しない場合は{@code null}
+         * @throws InterruptedException 待機中に割り込みが発生した場合
+         */
+        String next() throws InterruptedException;
+
+        /**
+         * 残りのテーブルを処理せずに破棄する。
+         */
+        void discard();
+    }
+
+    /**
+     * プロパティの{@code export.parallel-tables}から、指定のテーブル数を処理する際の並列数を返す。
+     * @param tableCount 処理対象のテーブル数
+     * @return 並列数
+     */
+    static int getParallel(int tableCount) {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_EXP_PARALLEL_TABLES);
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        return Math.max(1, Math.min(Integer.parseInt(value.trim()), tableCount));
+    }
+
+    /**
+     * 指定のテーブルに対する処理を並列に実行する。
+     * いずれかのテーブルの処理に失敗した場合、残りのテーブルは処理せず、処理中のテーブルの完了を待って例外をスローする。
+     * @param label 処理の名前（ログ出力用）
+     * @param tableNames 処理対象のテーブル名の一覧
+     * @param parallel 並列数
+     * @param task 1テーブル分の処理
+     * @throws BulkLoaderSystemException いずれかのテーブルの処理に失敗した場合
+     */
+    static void execute(
+            String label,
+            List<String> tableNames,
+            int parallel,
+            Task task) throws BulkLoaderSystemException {
+        assert tableNames != null;
+        final Queue<String> queue = new ConcurrentLinkedQueue<>(tableNames);
+        execute(label, new TableSource() {
+            @Override
+            public String next() {
+                return queue.poll();
+            }
+            @Override
+            public void discard() {
+                queue.clear();
+            }
+        }, tableNames.size(), parallel, task);
+    }
+
+    /**
+     * 指定のオブジェクトが提供するテーブルに対する処理を並列に実行する。
+     * いずれかのテーブルの処理に失敗した場合、残りのテーブルは破棄し、処理中のテーブルの完了を待って例外をスローする。
+     * @param label 処理の名前（ログ出力用）
+     * @param source 処理対象のテーブルを提供するオブジェクト
+     * @param tableCount 処理対象のテーブル数（ログ出力用）
+     * @param parallel 並列数
+     * @param task 1テーブル分の処理
+     * @throws BulkLoaderSystemException いずれかのテーブルの処理に失敗した場合
+     */
+    static void execute(
+            String label,
+            final TableSource source,
+            int tableCount,
+            int parallel,
+            final Task task) throws BulkLoaderSystemException {
+        assert label != null;
+        assert source != null;
+        assert parallel >= 1;
+        assert task != null;
+        LOG.info("TG-EXPORTER-01035", label, parallel, tableCount);
+        ExecutorService executor = Executors.newFixedThreadPool(parallel);
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < parallel; i++) {
+                running.add(completion.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws BulkLoaderSystemException, InterruptedException {
+                        boolean succeed = false;
+                        Connection conn = null;
+                        try {
+                            conn = DBConnection.getConnection();
+                            while (true) {
+                                String tableName = source.next();
+                                if (tableName == null) {
+                                    succeed = true;
+                                    return null;
+                                }
+                                task.run(tableName, conn);
+                            }
+                        } finally {
+                            if (succeed == false) {
+                                // 他のワーカーが残りのテーブルの処理を開始しないように、失敗の種類によらず直ちに破棄する
+                                source.discard();
+                                try {
+                                    DBConnection.rollback(conn);
+                                } catch (BulkLoaderSystemException e) {
+                                    LOG.log(e);
+                                }
+                            }
+                            DBConnection.closeConn(conn);
+                        }
+                    }
+                }));
+            }
+            waitForCompleteTasks(completion, running, source);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForCompleteTasks(
+            CompletionService<Void> completion,
+            List<Future<?>> running,
+            TableSource source) throws BulkLoaderSystemException {
+        assert completion != null;
+        assert running != null;
+        assert source != null;
+        // 完了順に結果を確認し、最初の失敗を直ちに処理する
+        BulkLoaderSystemException first = null;
+        for (int i = 0, n = running.size(); i < n; i++) {
+            try {
+                completion.take().get();
+            } catch (InterruptedException e) {
+                source.discard();
+                cancel(running);
+                throw new BulkLoaderSystemException(e, TableTaskExecutor.class, "TG-EXPORTER-01036");
+            } catch (ExecutionException e) {
+                // 失敗した場合は残りのテーブルを処理せず、処理中のテーブルの完了を待つ
+                source.discard();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    cancel(running);
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    cancel(running);
+                    throw (Error) cause;
+                } else if (cause instanceof BulkLoaderSystemException) {
+                    if (first == null) {
+                        first = (BulkLoaderSystemException) cause;
+                    } else {
+                        LOG.log((BulkLoaderSystemException) cause);
+                    }
+                } else if (first == null) {
+                    first = new BulkLoaderSystemException(cause, TableTaskExecutor.class, "TG-EXPORTER-01037");
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    private static void cancel(List<Future<?>> futures) {
+        assert futures != null;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
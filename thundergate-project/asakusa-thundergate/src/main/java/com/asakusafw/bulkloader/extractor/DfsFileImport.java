@@ -19,12 +19,16 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.ProcessBuilder.Redirect;
 import java.net.URI;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -34,25 +38,33 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
+import com.asakusafw.bulkloader.collector.SystemOutManager;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.bulkloader.transfer.FileProtocol;
+import com.asakusafw.bulkloader.transfer.TransferJournal;
 import com.asakusafw.runtime.io.ModelInput;
 import com.asakusafw.runtime.io.ModelOutput;
 import com.asakusafw.runtime.io.tsv.TsvIoFactory;
+import com.asakusafw.runtime.stage.temporary.TemporaryOutputFormat;
 import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
 import com.asakusafw.thundergate.runtime.cache.CacheInfo;
 import com.asakusafw.thundergate.runtime.cache.CacheStorage;
 import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheBuildClient;
+import com.asakusafw.thundergate.runtime.cache.mapreduce.PatchStrategy;
 
 /**
  * 標準入力を読み込んで入力のためのデータを書き出すクラス。
@@ -68,6 +80,12 @@ public class DfsFileImport {
 
     private final String cacheBuildCommand;
 
+    private final long cacheBuildLocalLimit;
+
+    private final int extractParallel;
+
+    private final int extractBlockSize;
+
     /**
      * Creates a new instance.
      */
@@ -77,6 +95,12 @@ public class DfsFileImport {
         int parallel = Integer.parseInt(ConfigurationLoader.getProperty(Constants.PROP_KEY_CACHE_BUILDER_PARALLEL));
         LOG.debugMessage("Building a cache builder with {0} threads", parallel);
         this.executor = Executors.newFixedThreadPool(parallel);
+        this.cacheBuildLocalLimit = Long.parseLong(
+                ConfigurationLoader.getProperty(Constants.PROP_KEY_CACHE_BUILDER_LOCAL_LIMIT));
+        this.extractParallel = Integer.parseInt(
+                ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_EXTRACT_PARALLEL));
+        this.extractBlockSize = Integer.parseInt(
+                ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE));
     }
 
     /**
@@ -94,16 +118,16 @@ public class DfsFileImport {
      * @return 出力結果（true：正常終了、false：異常終了）
      */
     public boolean importFile(ImportBean bean, String user) {
-        // 標準入力を取得
-        FileList.Reader reader;
+        FileList.Reader reader = null;
+        TransferJournal journal = null;
         try {
+            // 送信元は受信済みエントリの通知を全て受け取ってから送信を開始するため、
+            // 標準入力を読み始める前に通知を完了させる
+            if (isResumeRequested()) {
+                journal = prepareJournal(bean, user);
+            }
+            // 標準入力を取得
             reader = FileList.createReader(getInputStream());
-        } catch (IOException e) {
-            LOG.error(e, "TG-EXTRACTOR-02001",
-                    "標準入力からFileListの取得に失敗");
-            return false;
-        }
-        try {
             // FileListの終端まで繰り返す
             List<Future<?>> running = new ArrayList<>();
             while (reader.next()) {
@@ -111,7 +135,10 @@ public class DfsFileImport {
                 try (InputStream content = reader.openContent()) {
                     switch (protocol.getKind()) {
                     case CONTENT:
-                        importContent(protocol, content, bean, user);
+                        long count = importContent(protocol, content, bean, user);
+                        if (journal != null) {
+                            journal.append(protocol.getLocation(), String.valueOf(count));
+                        }
                         break;
 
                     case CREATE_CACHE:
@@ -143,17 +170,85 @@ public class DfsFileImport {
             LOG.error(e, "TG-EXTRACTOR-02001",
                     "標準入力からFileListの取得に失敗");
         } finally {
-            try {
-                reader.close();
-            } catch (IOException e) {
-                // ここで例外が発生した場合は握りつぶす
-                e.printStackTrace();
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // ここで例外が発生した場合は握りつぶす
+                    e.printStackTrace();
+                }
+            }
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    // ここで例外が発生した場合は握りつぶす
+                    e.printStackTrace();
+                }
             }
         }
         return false;
     }
 
-    private void importContent(
+    /**
+     * Returns whether the sender requested to notify the acknowledged entries.
+     * @return {@code true} if it was requested, otherwise {@code false}
+     */
+    protected boolean isResumeRequested() {
+        return Boolean.parseBoolean(ConfigurationLoader.getEnvProperty(Constants.ENV_TRANSFER_RESUME));
+    }
+
+    /**
+     * Notifies the entries which were acknowledged in the previous attempts to the sender,
+     * and then opens a new journal for this attempt.
+     * The acknowledged entries are sent as a {@link FileList} via the standard output.
+     * This must be invoked before reading the standard input,
+     * because the sender does not start sending entries until it receives all of the acknowledged entries.
+     * @param bean importer bean
+     * @param user current user name
+     * @return the opened journal
+     * @throws BulkLoaderSystemException if failed to prepare the journal
+     */
+    private TransferJournal prepareJournal(ImportBean bean, String user) throws BulkLoaderSystemException {
+        assert bean != null;
+        assert user != null;
+        URI location = resolveLocation(bean, user, Constants.HDFS_PATH_IMPORT_JOURNAL);
+        Path directory = new Path(new Path(location), bean.getTargetName());
+        try {
+            FileSystem fs = directory.getFileSystem(new Configuration());
+            Set<String> acknowledged = new TreeSet<>();
+            if (fs.exists(directory)) {
+                for (FileStatus stat : fs.listStatus(directory)) {
+                    if (stat.getPath().getName().endsWith(Constants.TRANSFER_JOURNAL_EXTENSION) == false) {
+                        continue;
+                    }
+                    try (InputStream input = fs.open(stat.getPath())) {
+                        for (String[] record : TransferJournal.load(input)) {
+                            acknowledged.add(record[0]);
+                        }
+                    }
+                }
+            }
+            LOG.info("TG-EXTRACTOR-02005", directory, acknowledged.size());
+
+            // standard output is only used for the acknowledged entries
+            SystemOutManager.changeSystemOutToSystemErr();
+            try (FileList.Writer writer = FileList.createWriter(getOutputStream(), false)) {
+                for (String entry : acknowledged) {
+                    writer.openNext(FileList.content(entry)).close();
+                }
+            }
+            Path journalFile = new Path(directory, String.format(
+                    "import-%s%s", //$NON-NLS-1$
+                    UUID.randomUUID(),
+                    Constants.TRANSFER_JOURNAL_EXTENSION));
+            return new TransferJournal(fs.create(journalFile, false));
+        } catch (IOException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-EXTRACTOR-02006", directory);
+        }
+    }
+
+    private long importContent(
             FileProtocol protocol,
             InputStream content,
             ImportBean bean,
@@ -180,7 +275,9 @@ public class DfsFileImport {
                 tableName, dfsFilePath.toString(), targetTableModel.toString());
 
         // ファイルをジョブ入力データ領域に書き出す
+        long startTime = System.currentTimeMillis();
         long recordCount = write(targetTableModel, dfsFilePath, content);
+        long elapsed = System.currentTimeMillis() - startTime;
 
         LOG.info("TG-EXTRACTOR-02003",
                 tableName, dfsFilePath.toString(), targetTableModel.toString());
@@ -191,6 +288,8 @@ public class DfsFileImport {
                 bean.getExecutionId(),
                 tableName,
                 recordCount);
+        ProfileReport.record(Phase.EXTRACT, tableName, elapsed, ProfileReport.UNKNOWN, recordCount);
+        return recordCount;
     }
 
     private long putCachePatch(
@@ -226,7 +325,11 @@ public class DfsFileImport {
             Class<?> targetTableModel = targetTableBean.getImportTargetType();
             Path targetUri = storage.getPatchContents("0");
             LOG.info("TG-EXTRACTOR-11003", info.getId(), info.getTableName(), targetUri);
+            long startTime = System.currentTimeMillis();
             long recordCount = write(targetTableModel, targetUri.toUri(), content);
+            long elapsed = System.currentTimeMillis() - startTime;
+            // the cache builder decides its strategy from the record count without reading the patch
+            storage.putPatchRecordCount(recordCount);
             LOG.info("TG-EXTRACTOR-11004", info.getId(), info.getTableName(), targetUri, recordCount);
             LOG.info("TG-PROFILE-01002",
                     bean.getTargetName(),
@@ -235,6 +338,7 @@ public class DfsFileImport {
                     bean.getExecutionId(),
                     info.getTableName(),
                     recordCount);
+            ProfileReport.record(Phase.EXTRACT, info.getTableName(), elapsed, ProfileReport.UNKNOWN, recordCount);
             return recordCount;
         } catch (IOException e) {
             throw new BulkLoaderSystemException(e, getClass(), "TG-EXTRACTOR-11005",
@@ -297,6 +401,13 @@ public class DfsFileImport {
         assert location != null;
         assert info != null;
 
+        if (cacheBuildLocalLimit > 0) {
+            Callable<?> local = createLocalCacheBuilder(subcommand, bean, location, info);
+            if (local != null) {
+                return local;
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(cacheBuildCommand);
         command.add(subcommand);
@@ -323,6 +434,7 @@ public class DfsFileImport {
             @Override
             public Void call() throws Exception {
                 LOG.info("TG-EXTRACTOR-12003", subcommand, info.getId(), info.getTableName());
+                long startTime = System.currentTimeMillis();
                 Process process = builder
                         .redirectOutput(Redirect.INHERIT)
                         .redirectError(Redirect.INHERIT)
@@ -335,6 +447,8 @@ public class DfsFileImport {
                                 exitCode));
                     }
                     LOG.info("TG-EXTRACTOR-12004", subcommand, info.getId(), info.getTableName());
+                    ProfileReport.record(Phase.CACHE_BUILD, info.getTableName(),
+                            System.currentTimeMillis() - startTime, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
                 } catch (Exception e) {
                     throw new BulkLoaderSystemException(e, DfsFileImport.class, "TG-EXTRACTOR-12005",
                             subcommand,
@@ -348,6 +462,113 @@ public class DfsFileImport {
         };
     }
 
+    /**
+     * Creates a cache builder which runs in the current process,
+     * only if the total size of the cache is enough small.
+     * @param subcommand subcommand name
+     * @param bean current importer script
+     * @param location cache location
+     * @param info cache information
+     * @return the cache builder, or {@code null} if the cache should be built with MapReduce
+     * @throws IOException if failed to compute the cache size
+     */
+    private Callable<?> createLocalCacheBuilder(
+            final String subcommand,
+            ImportBean bean,
+            URI location,
+            final CacheInfo info) throws IOException {
+        final Configuration conf = createCacheBuildConfiguration();
+        conf.setLong(PatchStrategy.KEY_LOCAL_BUILD_LIMIT, cacheBuildLocalLimit);
+        try (CacheStorage storage = new CacheStorage(conf, location)) {
+            if (PatchStrategy.isLocalBuild(info.getTableName(), storage) == false) {
+                return null;
+            }
+        }
+        final String[] arguments = {
+                subcommand,
+                location.toString(),
+                info.getModelClassName(),
+                info.getTableName(),
+        };
+        LOG.info("TG-EXTRACTOR-12010",
+                subcommand,
+                info.getId(),
+                info.getTableName(),
+                bean.getTargetName(),
+                bean.getBatchId(),
+                bean.getJobflowId(),
+                bean.getExecutionId());
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                LOG.info("TG-EXTRACTOR-12003", subcommand, info.getId(), info.getTableName());
+                long startTime = System.currentTimeMillis();
+                try {
+                    CacheBuildClient client = new CacheBuildClient();
+                    client.setConf(conf);
+                    int exitCode = client.run(arguments);
+                    if (exitCode != 0) {
+                        throw new IOException(MessageFormat.format(
+                                "Cache builder returns unexpected exit code: {0}",
+                                exitCode));
+                    }
+                    LOG.info("TG-EXTRACTOR-12004", subcommand, info.getId(), info.getTableName());
+                    ProfileReport.record(Phase.CACHE_BUILD, info.getTableName(),
+                            System.currentTimeMillis() - startTime, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
+                } catch (Exception e) {
+                    throw new BulkLoaderSystemException(e, DfsFileImport.class, "TG-EXTRACTOR-12005",
+                            subcommand,
+                            info.getId(),
+                            info.getTableName());
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns the Hadoop configuration for building caches in the current process.
+     * This also loads the framework configuration file like as the cache builder script.
+     * @return the configuration
+     * @since 0.10.4
+     */
+    protected Configuration createCacheBuildConfiguration() {
+        Configuration conf = new Configuration();
+        String home = ConfigurationLoader.getEnvProperty(Constants.ASAKUSA_HOME);
+        if (home != null) {
+            File resources = new File(home, Constants.PATH_FRAMEWORK_RESOURCES);
+            if (resources.isFile()) {
+                conf.addResource(new Path(resources.toURI()));
+            }
+        }
+        return conf;
+    }
+
+    /**
+     * 指定の出力先が、分割されたファイルを読み込めるレイアウトである場合のみ{@code true}を返す。
+     * <p>
+     * 分割されたファイルを読み込めるのは、以下のいずれかの場合のみである。
+     * </p>
+     * <ul>
+     * <li> 出力先のファイル名が{@code part}である (このバージョン以降でコンパイルしたジョブフロー) </li>
+     * <li> キャッシュのパッチである (キャッシュの構築はパッチディレクトリ内の全てのファイルを読み込む) </li>
+     * </ul>
+     * <p>
+     * それ以外の場合、ジョブフローは出力先のファイルのみを読み込むため、変換スレッド数にかかわらず単一のファイルに書き出す。
+     * </p>
+     * @param dfsFilePath 出力先
+     * @return 分割されたファイルを読み込める場合に{@code true}、そうでなければ{@code false}
+     */
+    private boolean isSplittable(URI dfsFilePath) {
+        String name = new Path(dfsFilePath).getName();
+        if (name.equals(TemporaryOutputFormat.DEFAULT_FILE_NAME)
+                || name.startsWith(CacheStorage.CONTENT_FILE_PREFIX)) {
+            return true;
+        }
+        LOG.info("TG-EXTRACTOR-02007", dfsFilePath, extractParallel);
+        return false;
+    }
+
     /**
      * Resolves target location.
      * @param bean importer bean
@@ -434,6 +655,9 @@ public class DfsFileImport {
 
     /**
      * ストリームからTSVファイルを読み出し、ジョブの入力データとして書き出す。
+     * 変換スレッド数が2以上で、かつ出力先が分割されたファイルを読み込めるレイアウトの場合、
+     * {@code <dfsFilePath>-0}, {@code <dfsFilePath>-1}, ...
+     * の各ファイルに並列に書き出す。
      * @param <T> Import対象テーブルに対応するModelのクラス型
      * @param targetTableModel Import対象テーブルに対応するModelのクラス
      * @param dfsFilePath HFSF上のファイル名
@@ -446,6 +670,16 @@ public class DfsFileImport {
             URI dfsFilePath,
             InputStream inputStream) throws BulkLoaderSystemException {
         Configuration conf = new Configuration();
+        if (extractParallel > 1 && isSplittable(dfsFilePath)) {
+            ParallelTsvImport<T> parallel = new ParallelTsvImport<>(
+                    conf, targetTableModel, extractParallel, extractBlockSize);
+            try {
+                return parallel.write(new Path(dfsFilePath), inputStream);
+            } catch (IOException e) {
+                throw new BulkLoaderSystemException(e, getClass(), "TG-EXTRACTOR-02001",
+                        "DFSにファイルを書き出す処理に失敗。URI：" + dfsFilePath);
+            }
+        }
         TsvIoFactory<T> factory = new TsvIoFactory<>(targetTableModel);
         try (ModelInput<T> input = factory.createModelInput(inputStream)) {
             long count = 0;
@@ -485,4 +719,14 @@ public class DfsFileImport {
     protected InputStream getInputStream() throws IOException {
         return new BufferedInputStream(System.in, INPUT_BUFFER_BYTES);
     }
+
+    /**
+     * Returns the output stream to notify the acknowledged entries to the sender.
+     * @return the output stream
+     * @throws IOException if failed to open stream
+     * @since 0.10.4
+     */
+    protected OutputStream getOutputStream() throws IOException {
+        return SystemOutManager.getOut();
+    }
 }
@@ -20,9 +20,11 @@ import java.util.List;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.JobFlowParamLoader;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 /**
@@ -57,6 +59,7 @@ public class Extractor {
         RuntimeContext.get().verifyApplication(Extractor.class.getClassLoader());
         Extractor extractor = new Extractor();
         int result = extractor.execute(args);
+        ProfileReport.finish(result, ConfigurationLoader.getProperty(Constants.PROP_KEY_PROFILE_DIR));
         System.exit(result);
     }
     /**
@@ -90,6 +93,7 @@ public class Extractor {
             // 開始ログ出力
             LOG.info("TG-EXTRACTOR-01001",
                     new Date(), targetName, batchId, jobFlowId, executionId, user);
+            ProfileReport.begin("extractor", targetName, batchId, jobFlowId, executionId);
 
             // パラメータオブジェクトを作成
             ImportBean bean = createBean(targetName, batchId, jobFlowId, executionId);
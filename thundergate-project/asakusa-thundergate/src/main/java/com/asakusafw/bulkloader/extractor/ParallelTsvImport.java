@@ -0,0 +1,248 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.extractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.io.tsv.TsvIoFactory;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+
+/**
+ * Decodes TSV contents and writes them as temporary files on multiple threads.
+ * <p>
+ * The calling thread splits the TSV contents into line-aligned blocks,
+ * and each worker parses the blocks into model objects and writes them into its own part file
+ * ({@code <base>-0}, {@code <base>-1}, ...).
+ * The order of records is not preserved.
+ * </p>
+ * @param <T> the model type
+ * @since 0.10.4
+ */
+final class ParallelTsvImport<T> {
+
+    static final Log LOG = new Log(ParallelTsvImport.class);
+
+    private static final byte[] EOF = new byte[0];
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final Configuration configuration;
+
+    private final Class<T> modelType;
+
+    private final int parallel;
+
+    private final int blockSize;
+
+    /**
+     * Creates a new instance.
+     * @param configuration the current configuration
+     * @param modelType the model type
+     * @param parallel the number of worker threads (and part files)
+     * @param blockSize the preferred block size in bytes
+     */
+    ParallelTsvImport(Configuration configuration, Class<T> modelType, int parallel, int blockSize) {
+        assert configuration != null;
+        assert modelType != null;
+        assert parallel >= 1;
+        assert blockSize >= 1;
+        this.configuration = configuration;
+        this.modelType = modelType;
+        this.parallel = parallel;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the path of the individual part file.
+     * @param base the base path
+     * @param index the part index
+     * @return the part file path
+     */
+    static Path getPartPath(Path base, int index) {
+        return new Path(base.getParent(), base.getName() + '-' + index);
+    }
+
+    /**
+     * Reads TSV contents and writes them into part files.
+     * @param base the base path of the part files
+     * @param input the TSV contents
+     * @return the number of written records
+     * @throws IOException if failed to read or write contents
+     */
+    long write(Path base, InputStream input) throws IOException {
+        assert base != null;
+        assert input != null;
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(parallel * 2);
+        ExecutorService workers = Executors.newFixedThreadPool(parallel, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, String.format(
+                        "extractor-%d", //$NON-NLS-1$
+                        THREAD_COUNTER.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < parallel; i++) {
+                futures.add(workers.submit(new Worker(getPartPath(base, i), queue)));
+            }
+            split(input, queue, futures);
+            for (int i = 0; i < parallel; i++) {
+                put(queue, EOF, futures);
+            }
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += get(future);
+            }
+            return count;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void split(InputStream input, BlockingQueue<byte[]> queue, List<Future<Long>> futures) throws IOException {
+        byte[] buffer = new byte[blockSize];
+        int filled = 0;
+        int blocks = 0;
+        while (true) {
+            int read = input.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+            if (filled < buffer.length) {
+                continue;
+            }
+            int end = lastLineEnd(buffer, filled);
+            if (end < 0) {
+                // a single line is larger than the buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            put(queue, Arrays.copyOf(buffer, end), futures);
+            blocks++;
+            System.arraycopy(buffer, end, buffer, 0, filled - end);
+            filled -= end;
+        }
+        if (filled > 0) {
+            put(queue, Arrays.copyOf(buffer, filled), futures);
+            blocks++;
+        }
+        LOG.debugMessage("Split TSV contents into {0} blocks", blocks);
+    }
+
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static void put(
+            BlockingQueue<byte[]> queue, byte[] block, List<Future<Long>> futures) throws IOException {
+        try {
+            while (queue.offer(block, 100, TimeUnit.MILLISECONDS) == false) {
+                for (Future<Long> future : futures) {
+                    if (future.isDone()) {
+                        // raises the exception if the worker was failed
+                        get(future);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        }
+    }
+
+    private static long get(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private final class Worker implements Callable<Long> {
+
+        private final Path path;
+
+        private final BlockingQueue<byte[]> queue;
+
+        Worker(Path path, BlockingQueue<byte[]> queue) {
+            this.path = path;
+            this.queue = queue;
+        }
+
+        @Override
+        public Long call() throws IOException, InterruptedException {
+            TsvIoFactory<T> factory = new TsvIoFactory<>(modelType);
+            T buffer = factory.createModelObject();
+            long count = 0;
+            try (ModelOutput<T> output = TemporaryStorage.openOutput(configuration, modelType, path)) {
+                while (true) {
+                    byte[] block = queue.take();
+                    if (block == EOF) {
+                        break;
+                    }
+                    try (ModelInput<T> input = factory.createModelInput(new ByteArrayInputStream(block))) {
+                        while (input.readTo(buffer)) {
+                            count++;
+                            output.write(buffer);
+                        }
+                    }
+                }
+            }
+            LOG.debugMessage("Wrote {1} records into {0}", path, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.Calendar;
+
+import com.asakusafw.bulkloader.common.ChangeCaptureType;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * A source of system IDs changed since a point in time.
+ * <p>
+ * {@link ImportFileCreate} uses this to extract the cache delta instead of scanning the timestamp column,
+ * so that the cost of updating caches is proportional to the number of changed records.
+ * Note that this only captures inserted and updated records, as same as the timestamp column;
+ * deleted records must be still represented as logical deletion in the cached tables.
+ * </p>
+ * <p>
+ * Each source provides either a {@link #createJoin(String, String, Calendar) join clause}
+ * or a {@link #createCondition(String, String, Calendar) condition expression},
+ * and tables which are not {@link #isAvailable(Connection, String) available} for the source
+ * are still extracted by scanning the timestamp column.
+ * </p>
+ * @since 0.10.4
+ * @see ChangeCaptureType
+ */
+public abstract class ChangeLogSource {
+
+    /**
+     * Returns the change log source for the current configuration.
+     * @return the change log source, or {@code null} if change capture is disabled
+     */
+    public static ChangeLogSource getCurrent() {
+        switch (ChangeCaptureType.getCurrent()) {
+        case TABLE:
+            return new TableChangeLogSource();
+        case FILE:
+            String path = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE_FILE);
+            return new FileChangeLogSource(new File(path));
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether or not this source can provide the changes of the target table.
+     * @param conn the current connection
+     * @param tableName the target table name
+     * @return {@code true} if this can provide the changes, otherwise {@code false}
+     * @throws BulkLoaderSystemException if failed to inspect the target table
+     */
+    public boolean isAvailable(Connection conn, String tableName) throws BulkLoaderSystemException {
+        return true;
+    }
+
+    /**
+     * Creates a join clause which only leaves records changed since the specified time.
+     * @param tableName the target table name
+     * @param sidColumn the system ID column name of the target table
+     * @param since the beginning time of changes (inclusive)
+     * @return the join clause, or {@code null} if this source provides a condition expression instead
+     * @throws BulkLoaderSystemException if failed to obtain change logs
+     * @see #isParameterized()
+     */
+    public String createJoin(
+            String tableName,
+            String sidColumn,
+            Calendar since) throws BulkLoaderSystemException {
+        return null;
+    }
+
+    /**
+     * Creates a condition expression which selects records changed since the specified time.
+     * @param tableName the target table name
+     * @param sidColumn the system ID column name of the target table
+     * @param since the beginning time of changes (inclusive)
+     * @return the condition expression, or {@code null} if this source provides a join clause instead
+     * @throws BulkLoaderSystemException if failed to obtain change logs
+     * @see #isParameterized()
+     */
+    public String createCondition(
+            String tableName,
+            String sidColumn,
+            Calendar since) throws BulkLoaderSystemException {
+        return null;
+    }
+
+    /**
+     * Returns whether or not the join clauses or conditions created by this require the beginning time
+     * as their only placeholder ({@code ?}).
+     * @return {@code true} if they require the beginning time, otherwise {@code false}
+     */
+    public abstract boolean isParameterized();
+}
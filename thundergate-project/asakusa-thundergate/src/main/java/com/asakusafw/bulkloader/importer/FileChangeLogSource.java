@@ -0,0 +1,158 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Obtains changed system IDs from a local file, instead of the change log table.
+ * This is designed for testing.
+ * <p>
+ * Each line of the file consists of the table name, the system ID, and the changed time
+ * ({@code yyyy-MM-dd HH:mm:ss}), separated by tab characters.
+ * Empty lines and lines starting with {@code #} are ignored.
+ * </p>
+ * @since 0.10.4
+ */
+public class FileChangeLogSource extends ChangeLogSource {
+
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss"; //$NON-NLS-1$
+
+    private final File file;
+
+    /**
+     * Creates a new instance.
+     * @param file the change log file
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public FileChangeLogSource(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null"); //$NON-NLS-1$
+        }
+        this.file = file;
+    }
+
+    @Override
+    public String createCondition(
+            String tableName,
+            String sidColumn,
+            Calendar since) throws BulkLoaderSystemException {
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        if (sidColumn == null) {
+            throw new IllegalArgumentException("sidColumn must not be null"); //$NON-NLS-1$
+        }
+        if (since == null) {
+            throw new IllegalArgumentException("since must not be null"); //$NON-NLS-1$
+        }
+        SortedSet<Long> changed;
+        try {
+            changed = collect(tableName, since);
+        } catch (IOException e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-13004",
+                    file.getAbsolutePath());
+        }
+        if (changed.isEmpty()) {
+            return "0 = 1";
+        }
+        StringBuilder buf = new StringBuilder();
+        buf.append(tableName);
+        buf.append('.');
+        buf.append(sidColumn);
+        buf.append(" IN (");
+        boolean first = true;
+        for (Long sid : changed) {
+            if (first == false) {
+                buf.append(", ");
+            }
+            first = false;
+            buf.append(sid);
+        }
+        buf.append(')');
+        return buf.toString();
+    }
+
+    private SortedSet<Long> collect(String tableName, Calendar since) throws IOException {
+        assert tableName != null;
+        assert since != null;
+        SimpleDateFormat format = new SimpleDateFormat(TIME_FORMAT);
+        format.setLenient(false);
+        long beginning = since.getTimeInMillis();
+        SortedSet<Long> results = new TreeSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    throw new IOException(MessageFormat.format(
+                            "Invalid change log: {0} (line {1})",
+                            file,
+                            lineNumber));
+                }
+                if (fields[0].trim().equalsIgnoreCase(tableName) == false) {
+                    continue;
+                }
+                try {
+                    long sid = Long.parseLong(fields[1].trim());
+                    Date changed = format.parse(fields[2].trim());
+                    if (changed.getTime() >= beginning) {
+                        results.add(sid);
+                    }
+                } catch (NumberFormatException | ParseException e) {
+                    throw new IOException(MessageFormat.format(
+                            "Invalid change log: {0} (line {1})",
+                            file,
+                            lineNumber), e);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean isParameterized() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
@@ -17,23 +17,39 @@ package com.asakusafw.bulkloader.importer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.common.ImportTableLockType;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
 
 /**
@@ -58,91 +74,330 @@ public class ImportFileCreate {
      * @return ファイル生成結果（成功した場合：true、失敗した場合：false）
      */
     public boolean createImportFile(ImportBean bean, String jobflowSid) {
+        return createImportFile(bean, jobflowSid, null);
+    }
+
+    /**
+     * Importファイルを生成し、生成が完了したテーブルから順に通知する。
+     * プロパティの{@code import.parallel-dump}が2以上の場合、
+     * 指定された数までのDBコネクションを利用して複数のテーブルを並列に生成する。
+     * @param bean パラメータを保持するBean
+     * @param jobflowSid ジョブフローID (レコードロックを一つも行わない場合は{@code null}でもよい)
+     * @param tracker 生成が完了したテーブルの通知先 (通知しない場合は{@code null})
+     * @return ファイル生成結果（成功した場合：true、失敗した場合：false）
+     * @since 0.10.4
+     */
+    public boolean createImportFile(ImportBean bean, String jobflowSid, ImportFileTracker tracker) {
+        List<String> list = bean.getImportTargetTableList();
+        int parallel = Math.min(getParallelDump(), list.size());
+        boolean succeed = false;
+        try {
+            if (parallel <= 1) {
+                createImportFileSequential(bean, jobflowSid, list, tracker);
+            } else {
+                createImportFileParallel(bean, jobflowSid, list, tracker, parallel);
+            }
+            // 正常終了
+            succeed = true;
+            return true;
+        } catch (BulkLoaderSystemException e) {
+            LOG.log(e);
+            return false;
+        } finally {
+            // Errorを含むどのような失敗でも送信側の待機を解除する
+            if (succeed == false && tracker != null) {
+                tracker.failed();
+            }
+        }
+    }
+
+    private void createImportFileSequential(
+            ImportBean bean,
+            String jobflowSid,
+            List<String> list,
+            ImportFileTracker tracker) throws BulkLoaderSystemException {
         Connection conn = null;
         try {
             // コネクションを取得する
             conn = DBConnection.getConnection();
 
             // import対象テーブルの分繰り返してファイル作成を行う。
-            List<String> list = bean.getImportTargetTableList();
             for (String tableName : list) {
-                ImportTargetTableBean targetTable = bean.getTargetTable(tableName);
-                ImportTableLockType lockType = targetTable.getLockType();
-
-                // ファイル名を生成
-                File importFile = FileNameUtil.createImportFilePath(
-                        bean.getTargetName(), bean.getJobflowId(), bean.getExecutionId(), tableName);
-
-                LOG.info("TG-IMPORTER-03003",
-                        tableName,
-                        lockType,
-                        importFile.getAbsolutePath());
-
-                // ファイルが既に存在する場合はファイルを削除する。
-                if (importFile.exists()) {
-                    if (!importFile.delete()) {
-                        // ファイルの削除に失敗した場合は異常終了する
-                        throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03001",
-                                importFile.getName());
-                    }
+                if (tracker != null && tracker.isCanceled()) {
+                    throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03008");
                 }
-
-                // ロック取得有無に応じてレコードを抽出し、ファイルを生成する
-                if (ImportTableLockType.TABLE.equals(lockType)) {
-                    // ロック取得有無が「テーブルロック」の場合、検索条件でレコードを抽出する
-                    createFileWithCondition(
-                            conn,
-                            tableName,
-                            targetTable,
-                            importFile);
-                } else if (ImportTableLockType.RECORD.equals(lockType)) {
-                    // ロック取得有無が「行ロック」の場合、ジョブフローIDを条件にレコードを抽出する
-                    createFileWithJobFlowSid(
-                            conn,
-                            tableName,
-                            targetTable,
-                            jobflowSid,
-                            importFile);
-                } else if (ImportTableLockType.NONE.equals(lockType)) {
-                    // ロック取得有無が「ロックを取得しない」の場合、検索条件でレコードを抽出する
-                    createFileWithCondition(
-                            conn,
-                            tableName,
-                            targetTable,
-                            importFile);
+                createTableFile(conn, bean, tableName, jobflowSid);
+                if (tracker != null) {
+                    tracker.ready(tableName);
                 }
-                // ファイルが生成出来なかった場合は0byteのファイルを作成する。
-                if (!importFile.exists()) {
-                    try {
-                        if (!importFile.createNewFile()) {
-                            throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03002");
+            }
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+    }
+
+    private void createImportFileParallel(
+            final ImportBean bean,
+            final String jobflowSid,
+            List<String> list,
+            final ImportFileTracker tracker,
+            int parallel) throws BulkLoaderSystemException {
+        LOG.info("TG-IMPORTER-03009", parallel, list.size());
+        final Queue<String> queue = new ConcurrentLinkedQueue<>(list);
+        ExecutorService executor = Executors.newFixedThreadPool(parallel);
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < parallel; i++) {
+                running.add(completion.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws BulkLoaderSystemException {
+                        // 各ワーカーは自身のコネクションを利用してテーブルを順に取り出す
+                        Connection conn = null;
+                        try {
+                            conn = DBConnection.getConnection();
+                            while (true) {
+                                if (tracker != null && tracker.isCanceled()) {
+                                    throw new BulkLoaderSystemException(
+                                            ImportFileCreate.class, "TG-IMPORTER-03008");
+                                }
+                                String tableName = queue.poll();
+                                if (tableName == null) {
+                                    return null;
+                                }
+                                createTableFile(conn, bean, tableName, jobflowSid);
+                                if (tracker != null) {
+                                    tracker.ready(tableName);
+                                }
+                            }
+                        } catch (Throwable t) {
+                            // 残りのテーブルを処理させず、送信側にも直ちに失敗を通知する
+                            queue.clear();
+                            if (tracker != null) {
+                                tracker.failed();
+                            }
+                            throw t;
+                        } finally {
+                            DBConnection.closeConn(conn);
                         }
-                        LOG.info("TG-IMPORTER-03005",
-                                tableName,
-                                lockType,
-                                importFile.getAbsolutePath());
-                    } catch (IOException e) {
-                        throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03002");
                     }
+                }));
+            }
+            waitForCompleteTasks(completion, running, queue);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitForCompleteTasks(
+            CompletionService<Void> completion,
+            List<Future<?>> running,
+            Queue<String> queue) throws BulkLoaderSystemException {
+        assert completion != null;
+        assert running != null;
+        assert queue != null;
+        // 完了順に結果を確認し、最初の失敗で残りのテーブルの処理を取り消す
+        for (int i = 0, n = running.size(); i < n; i++) {
+            try {
+                completion.take().get();
+            } catch (InterruptedException e) {
+                queue.clear();
+                cancel(running);
+                throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-03010");
+            } catch (ExecutionException e) {
+                queue.clear();
+                cancel(running);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (cause instanceof BulkLoaderSystemException) {
+                    throw (BulkLoaderSystemException) cause;
                 } else {
-                    LOG.info("TG-IMPORTER-03004",
-                            tableName,
-                            lockType,
-                            importFile.getAbsolutePath());
+                    throw new BulkLoaderSystemException(cause, getClass(), "TG-IMPORTER-03011");
                 }
+            }
+        }
+    }
+
+    private void cancel(List<Future<?>> futures) {
+        assert futures != null;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
 
-                // 生成したファイル名を追加
-                targetTable.setImportFile(importFile);
+    /**
+     * 1テーブル分のImportファイルを生成する。
+     * @param conn コネクション
+     * @param bean パラメータを保持するBean
+     * @param tableName Import対象テーブル名
+     * @param jobflowSid ジョブフローID
+     * @throws BulkLoaderSystemException 処理に失敗した場合
+     */
+    private void createTableFile(
+            Connection conn,
+            ImportBean bean,
+            String tableName,
+            String jobflowSid) throws BulkLoaderSystemException {
+        long tableStartTime = System.currentTimeMillis();
+        ImportTargetTableBean targetTable = bean.getTargetTable(tableName);
+        ImportTableLockType lockType = targetTable.getLockType();
+
+        // ファイル名を生成
+        File importFile = FileNameUtil.createImportFilePath(
+                bean.getTargetName(), bean.getJobflowId(), bean.getExecutionId(), tableName);
+
+        LOG.info("TG-IMPORTER-03003",
+                tableName,
+                lockType,
+                importFile.getAbsolutePath());
+
+        // ファイルが既に存在する場合はファイルを削除する。
+        if (importFile.exists()) {
+            if (!importFile.delete()) {
+                // ファイルの削除に失敗した場合は異常終了する
+                throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03001",
+                        importFile.getName());
             }
+        }
 
-            // 正常終了
-            return true;
+        // キャッシュの差分のみを抽出する場合の条件を決める
+        Delta delta = resolveDelta(conn, tableName, targetTable);
 
-        } catch (BulkLoaderSystemException e) {
-            LOG.log(e);
-            return false;
+        // ロック取得有無に応じてレコードを抽出し、ファイルを生成する
+        if (ImportTableLockType.TABLE.equals(lockType)) {
+            // ロック取得有無が「テーブルロック」の場合、検索条件でレコードを抽出する
+            createFileWithCondition(
+                    conn,
+                    tableName,
+                    targetTable,
+                    delta,
+                    importFile);
+        } else if (ImportTableLockType.RECORD.equals(lockType)) {
+            // ロック取得有無が「行ロック」の場合、ジョブフローIDを条件にレコードを抽出する
+            createFileWithJobFlowSid(
+                    conn,
+                    tableName,
+                    targetTable,
+                    delta,
+                    jobflowSid,
+                    importFile);
+        } else if (ImportTableLockType.NONE.equals(lockType)) {
+            // ロック取得有無が「ロックを取得しない」の場合、検索条件でレコードを抽出する
+            createFileWithCondition(
+                    conn,
+                    tableName,
+                    targetTable,
+                    delta,
+                    importFile);
+        }
+        // ファイルが生成出来なかった場合は0byteのファイルを作成する。
+        if (!importFile.exists()) {
+            try {
+                if (!importFile.createNewFile()) {
+                    throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03002");
+                }
+                LOG.info("TG-IMPORTER-03005",
+                        tableName,
+                        lockType,
+                        importFile.getAbsolutePath());
+            } catch (IOException e) {
+                throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03002");
+            }
+        } else {
+            LOG.info("TG-IMPORTER-03004",
+                    tableName,
+                    lockType,
+                    importFile.getAbsolutePath());
+        }
+        long elapsed = System.currentTimeMillis() - tableStartTime;
+        LOG.info("TG-PROFILE-02005",
+                bean.getTargetName(),
+                bean.getBatchId(),
+                bean.getJobflowId(),
+                bean.getExecutionId(),
+                tableName,
+                importFile.length(),
+                elapsed);
+        ProfileReport.record(Phase.DUMP, tableName, elapsed, importFile.length(), ProfileReport.UNKNOWN);
+
+        // 生成したファイル名を追加
+        targetTable.setImportFile(importFile);
+    }
+
+    /**
+     * Returns the number of tables to be dumped in parallel.
+     * @return the number of tables, or {@code 1} if tables are dumped sequentially
+     * @since 0.10.4
+     */
+    static int getParallelDump() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_PARALLEL_DUMP);
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+
+    /**
+     * Dumps the records of the target table into the output stream directly.
+     * Unlike {@link #createImportFile(ImportBean, String)}, this does not create any local files,
+     * and the contents are encoded as same format as {@code SELECT ... INTO OUTFILE}.
+     * @param conn the current connection
+     * @param tableName the target table name
+     * @param tableInfo the target table information
+     * @param jobflowSid the current jobflow SID (can be {@code null} if the table does not use record locks)
+     * @param output the target output stream
+     * @param bufferSize the buffer size in bytes
+     * @return the number of dumped records
+     * @throws BulkLoaderSystemException if failed to dump the table by database error
+     * @throws IOException if failed to write the records into the output
+     * @since 0.10.4
+     */
+    public long dumpTable(
+            Connection conn,
+            String tableName,
+            ImportTargetTableBean tableInfo,
+            String jobflowSid,
+            OutputStream output,
+            int bufferSize) throws BulkLoaderSystemException, IOException {
+        ImportTableLockType lockType = tableInfo.getLockType();
+        boolean withJobflowSid = ImportTableLockType.RECORD.equals(lockType);
+        Delta delta = resolveDelta(conn, tableName, tableInfo);
+        String sql;
+        if (withJobflowSid) {
+            sql = createSelectWithJobFlowSid(tableName, tableInfo, delta);
+            LOG.info("TG-IMPORTER-03006", sql, jobflowSid);
+        } else {
+            sql = createSelectWithCondition(tableName, tableInfo, delta);
+            LOG.info("TG-IMPORTER-03007", sql);
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        String[] parameters = EMPTY;
+        try {
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J streams the result set row by row only if fetch size is Integer.MIN_VALUE
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            parameters = bindParameters(stmt, tableName, tableInfo, delta, withJobflowSid, jobflowSid);
+            rs = DBConnection.executeQuery(stmt, sql, parameters);
+            int columns = rs.getMetaData().getColumnCount();
+            TsvRecordEncoder encoder = new TsvRecordEncoder(output, bufferSize);
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    encoder.writeField(rs.getBytes(i));
+                }
+                encoder.endRecord();
+            }
+            encoder.flush();
+            return encoder.getRecordCount();
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(e, getClass(), sql, parameters);
         } finally {
-            DBConnection.closeConn(conn);
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
         }
     }
 
@@ -151,6 +406,7 @@ public class ImportFileCreate {
      * @param conn コネクション
      * @param tableName target table name
      * @param tableInfo target table information
+     * @param delta the cache delta condition
      * @param jobflowSid ジョブフローID
      * @param importFileName importファイル
      * @throws BulkLoaderSystemException 処理に失敗した場合
@@ -159,25 +415,17 @@ public class ImportFileCreate {
             Connection conn,
             String tableName,
             ImportTargetTableBean tableInfo,
+            Delta delta,
             String jobflowSid,
             File importFileName) throws BulkLoaderSystemException {
-        String sql = createSQLWithJobFlowSid(tableName, tableInfo, importFileName);
+        String sql = createSQLWithJobFlowSid(tableName, tableInfo, delta, importFileName);
         PreparedStatement stmt = null;
 
         String[] parameters = EMPTY;
         LOG.info("TG-IMPORTER-03006", sql, jobflowSid);
         try {
             stmt = conn.prepareStatement(sql);
-            stmt.setString(1, jobflowSid);
-            if (tableInfo.getStartTimestamp() != null) {
-                Calendar beginning = tableInfo.getStartTimestamp();
-                Timestamp timestamp = new Timestamp(beginning.getTimeInMillis());
-                LOG.info("TG-IMPORTER-13001", tableName, tableInfo.getCacheId(), timestamp);
-                stmt.setTimestamp(2, timestamp, beginning);
-                parameters = new String[] { jobflowSid, String.valueOf(timestamp) };
-            } else {
-                parameters = new String[] { jobflowSid };
-            }
+            parameters = bindParameters(stmt, tableName, tableInfo, delta, true, jobflowSid);
             DBConnection.executeQuery(stmt, sql, parameters);
         } catch (SQLException e) {
             throw BulkLoaderSystemException.createInstanceCauseBySQLException(e, getClass(), sql, parameters);
@@ -189,6 +437,7 @@ public class ImportFileCreate {
      * ジョブフローIDを条件にレコードを抽出する場合のSQLを組み立てる。
      * @param tableName target table name
      * @param tableInfo target table information
+     * @param delta the cache delta condition
      * @param importFileName importファイル
      * @return 生成したSQL文
      * @throws BulkLoaderSystemException if failed to build SQL
@@ -196,7 +445,28 @@ public class ImportFileCreate {
     private String createSQLWithJobFlowSid(
             String tableName,
             ImportTargetTableBean tableInfo,
+            Delta delta,
             File importFileName) throws BulkLoaderSystemException {
+        StringBuilder sql = new StringBuilder();
+        sql.append(createSelectWithJobFlowSid(tableName, tableInfo, delta));
+        appendOutfile(sql, importFileName);
+        return sql.toString();
+    }
+    /**
+     * ジョブフローIDを条件にレコードを抽出するSELECT文を組み立てる。
+     * @param tableName target table name
+     * @param tableInfo target table information
+     * @param delta the cache delta condition
+     * @return 生成したSQL文
+     * @throws BulkLoaderSystemException if failed to build SQL
+     */
+    private String createSelectWithJobFlowSid(
+            String tableName,
+            ImportTargetTableBean tableInfo,
+            Delta delta) throws BulkLoaderSystemException {
+        if (RecordLockFormat.getCurrent() == RecordLockFormat.RANGE) {
+            return createSelectWithJobFlowSidRange(tableName, tableInfo, delta);
+        }
         String rlTableName = DBAccessUtil.createRecordLockTableName(tableName);
 
         String baseSearchCondition = MessageFormat.format(
@@ -204,21 +474,52 @@ public class ImportFileCreate {
                 tableName,
                 rlTableName,
                 Constants.getSidColumnName());
-        String searchCondition = resolveSearchCondition(tableName, tableInfo, baseSearchCondition);
+        String searchCondition = resolveSearchCondition(delta, baseSearchCondition);
 
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT ");
         sql.append(DBAccessUtil.joinColumnArray(tableInfo.getImportTargetColumns()));
         sql.append(" FROM ");
         sql.append(tableName);
+        appendJoin(sql, delta);
         sql.append(" ");
         sql.append(searchCondition);
-        sql.append(" INTO OUTFILE ");
-        sql.append("'");
-        sql.append(importFileName.getAbsolutePath().replace(File.separatorChar, '/'));
-        sql.append("'");
-        sql.append(DBAccessUtil.getTSVFileFormat());
+        return sql.toString();
+    }
+    /**
+     * ジョブフローSIDを条件に、SIDの範囲ごとに記録されたレコードロックと結合してレコードを抽出するSELECT文を組み立てる。
+     * @param tableName target table name
+     * @param tableInfo target table information
+     * @param delta the cache delta condition
+     * @return 生成したSQL文
+     * @throws BulkLoaderSystemException if failed to build SQL
+     */
+    private String createSelectWithJobFlowSidRange(
+            String tableName,
+            ImportTargetTableBean tableInfo,
+            Delta delta) throws BulkLoaderSystemException {
+        // ジョブフローSIDを最初のパラメータとするため、テーブル名はリテラルで指定する
+        String join = MessageFormat.format(
+                "INNER JOIN (SELECT FIRST_SID AS __TG_FIRST_SID, LAST_SID AS __TG_LAST_SID FROM {1} "
+                + "WHERE TABLE_NAME = ''{0}'' AND JOBFLOW_SID = ?) __TG_RL "
+                + "ON {0}.{2} BETWEEN __TG_RL.__TG_FIRST_SID AND __TG_RL.__TG_LAST_SID",
+                tableName,
+                RecordLockFormat.RANGE_TABLE_NAME,
+                Constants.getSidColumnName());
+        String searchCondition = resolveSearchCondition(delta, null);
 
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ");
+        sql.append(DBAccessUtil.joinColumnArray(tableInfo.getImportTargetColumns()));
+        sql.append(" FROM ");
+        sql.append(tableName);
+        appendJoin(sql, delta);
+        sql.append(" ");
+        sql.append(join);
+        if (searchCondition != null) {
+            sql.append(" WHERE ");
+            sql.append(searchCondition);
+        }
         return sql.toString();
     }
     /**
@@ -226,6 +527,7 @@ public class ImportFileCreate {
      * @param conn コネクション
      * @param tableName target table name
      * @param tableInfo target table information
+     * @param delta the cache delta condition
      * @param importFileName importファイル
      * @throws BulkLoaderSystemException SQL例外が発生した場合
      */
@@ -233,21 +535,16 @@ public class ImportFileCreate {
             Connection conn,
             String tableName,
             ImportTargetTableBean tableInfo,
+            Delta delta,
             File importFileName) throws BulkLoaderSystemException {
-        String sql = createSQLWithCondition(tableName, tableInfo, importFileName);
+        String sql = createSQLWithCondition(tableName, tableInfo, delta, importFileName);
         PreparedStatement stmt = null;
 
         LOG.info("TG-IMPORTER-03007", sql);
         String[] parameters = EMPTY;
         try {
             stmt = conn.prepareStatement(sql);
-            if (tableInfo.getStartTimestamp() != null) {
-                Calendar beginning = tableInfo.getStartTimestamp();
-                Timestamp timestamp = new Timestamp(beginning.getTimeInMillis());
-                LOG.info("TG-IMPORTER-13001", tableName, tableInfo.getCacheId(), timestamp);
-                stmt.setTimestamp(1, timestamp, beginning);
-                parameters = new String[] { String.valueOf(timestamp) };
-            }
+            parameters = bindParameters(stmt, tableName, tableInfo, delta, false, null);
             DBConnection.executeQuery(stmt, sql, parameters);
         } catch (SQLException e) {
             throw BulkLoaderSystemException.createInstanceCauseBySQLException(e, getClass(), sql, parameters);
@@ -259,6 +556,7 @@ public class ImportFileCreate {
      * 検索条件でレコードを抽出する場合のSQLを組み立てる。
      * @param tableName target table name
      * @param tableInfo target table information
+     * @param delta the cache delta condition
      * @param importFileName importファイル
      * @return 生成したSQL
      * @throws BulkLoaderSystemException if failed to build SQL
@@ -266,74 +564,206 @@ public class ImportFileCreate {
     private String createSQLWithCondition(
             String tableName,
             ImportTargetTableBean tableInfo,
+            Delta delta,
             File importFileName) throws BulkLoaderSystemException {
         StringBuilder sql = new StringBuilder();
+        sql.append(createSelectWithCondition(tableName, tableInfo, delta));
+        appendOutfile(sql, importFileName);
+        return sql.toString();
+    }
+    /**
+     * 検索条件でレコードを抽出するSELECT文を組み立てる。
+     * @param tableName target table name
+     * @param tableInfo target table information
+     * @param delta the cache delta condition
+     * @return 生成したSQL
+     * @throws BulkLoaderSystemException if failed to build SQL
+     */
+    private String createSelectWithCondition(
+            String tableName,
+            ImportTargetTableBean tableInfo,
+            Delta delta) throws BulkLoaderSystemException {
+        StringBuilder sql = new StringBuilder();
         sql.append("SELECT ");
         sql.append(DBAccessUtil.joinColumnArray(tableInfo.getImportTargetColumns()));
         sql.append(" FROM ");
         sql.append(tableName);
-        String searchCondition = resolveSearchCondition(tableName, tableInfo, tableInfo.getSearchCondition());
+        appendJoin(sql, delta);
+        String searchCondition = resolveSearchCondition(delta, tableInfo.getSearchCondition());
         if (searchCondition != null && !searchCondition.isEmpty()) {
             sql.append(" WHERE ");
             sql.append(searchCondition);
         }
+        return sql.toString();
+    }
+
+    private void appendOutfile(StringBuilder sql, File importFileName) {
         sql.append(" INTO OUTFILE ");
         sql.append("'");
         sql.append(importFileName.getAbsolutePath().replace(File.separatorChar, '/'));
         sql.append("'");
         sql.append(DBAccessUtil.getTSVFileFormat());
+    }
 
-        return sql.toString();
+    private void appendJoin(StringBuilder sql, Delta delta) {
+        if (delta.join != null) {
+            sql.append(" ");
+            sql.append(delta.join);
+        }
     }
 
     /**
-     * Creates condition expression for the target table.
-     * If {@link ImportTargetTableBean#getStartTimestamp() cache is valid},
-     * the search condition will include a placeholder ({@code ?}) in its tail.
-     * @param tableName target table name (or alias name)
+     * Binds the parameters of the statement built by {@code createSelectWith*()}.
+     * The beginning time of the cache delta comes first if it is in the join clause,
+     * otherwise it comes last.
+     * @param stmt the target statement
+     * @param tableName target table name
      * @param tableInfo target table information
-     * @param expression the original condition expression (nullable)
-     * @return the built string, or {@code null} if unconditioned
-     * @throws BulkLoaderSystemException if failed to resolve search condition
+     * @param delta the cache delta condition
+     * @param withJobflowSid {@code true} if the statement is conditioned by the jobflow SID
+     * @param jobflowSid the jobflow SID
+     * @return the bound parameters (for logging)
+     * @throws SQLException if failed to bind parameters
      */
-    private String resolveSearchCondition(
+    private String[] bindParameters(
+            PreparedStatement stmt,
+            String tableName,
+            ImportTargetTableBean tableInfo,
+            Delta delta,
+            boolean withJobflowSid,
+            String jobflowSid) throws SQLException {
+        List<String> parameters = new ArrayList<>();
+        if (delta.parameterized && delta.join != null) {
+            bindStartTimestamp(stmt, tableName, tableInfo, parameters);
+        }
+        if (withJobflowSid) {
+            stmt.setString(parameters.size() + 1, jobflowSid);
+            parameters.add(jobflowSid);
+        }
+        if (delta.parameterized && delta.join == null) {
+            bindStartTimestamp(stmt, tableName, tableInfo, parameters);
+        }
+        return parameters.toArray(EMPTY);
+    }
+
+    private void bindStartTimestamp(
+            PreparedStatement stmt,
             String tableName,
             ImportTargetTableBean tableInfo,
-            String expression) throws BulkLoaderSystemException {
+            List<String> parameters) throws SQLException {
+        Calendar beginning = tableInfo.getStartTimestamp();
+        Timestamp timestamp = new Timestamp(beginning.getTimeInMillis());
+        LOG.info("TG-IMPORTER-13001", tableName, tableInfo.getCacheId(), timestamp);
+        stmt.setTimestamp(parameters.size() + 1, timestamp, beginning);
+        parameters.add(String.valueOf(timestamp));
+    }
+
+    /**
+     * Resolves how to extract the cache delta of the target table.
+     * If {@link ImportTargetTableBean#getStartTimestamp() cache is valid},
+     * the delta only selects records changed since the cache was built,
+     * by using the {@link ChangeLogSource change log source} if it is available for the table,
+     * or otherwise by scanning the timestamp column.
+     * @param conn the current connection
+     * @param tableName target table name
+     * @param tableInfo target table information
+     * @return the resolved delta
+     * @throws BulkLoaderSystemException if failed to resolve the delta
+     */
+    private Delta resolveDelta(
+            Connection conn,
+            String tableName,
+            ImportTargetTableBean tableInfo) throws BulkLoaderSystemException {
+        assert conn != null;
         assert tableName != null;
         assert tableInfo != null;
+        if (tableInfo.getStartTimestamp() == null) {
+            return Delta.NOTHING;
+        }
+        ChangeLogSource source = ChangeLogSource.getCurrent();
+        if (source != null) {
+            if (source.isAvailable(conn, tableName)) {
+                LOG.info("TG-IMPORTER-13003", tableName, tableInfo.getCacheId(), source);
+                String sidColumn = Constants.getSidColumnName();
+                String join = source.createJoin(tableName, sidColumn, tableInfo.getStartTimestamp());
+                String condition = join != null
+                        ? null
+                        : source.createCondition(tableName, sidColumn, tableInfo.getStartTimestamp());
+                return new Delta(join, condition, source.isParameterized());
+            }
+            LOG.warn("TG-IMPORTER-13005", tableName, tableInfo.getCacheId(), source);
+        }
+        ThunderGateCacheSupport support;
+        try {
+            support = tableInfo
+                .getImportTargetType()
+                .asSubclass(ThunderGateCacheSupport.class)
+                .newInstance();
+        } catch (Exception e) {
+            throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-13002",
+                    tableName,
+                    tableInfo.getCacheId(),
+                    tableInfo.getImportTargetType().getName());
+        }
+        String timestampColumn = support.__tgc__TimestampColumn();
+        String condition = MessageFormat.format(
+                "{0}.{1} >= ?",
+                tableName,
+                timestampColumn);
+        return new Delta(null, condition, true);
+    }
+
+    /**
+     * Creates condition expression for the target table.
+     * @param delta the cache delta condition
+     * @param expression the original condition expression (nullable)
+     * @return the built string, or {@code null} if unconditioned
+     */
+    private String resolveSearchCondition(Delta delta, String expression) {
+        assert delta != null;
         String original = expression;
         if (original == null || original.trim().isEmpty()) {
             original = null;
         }
-        if (tableInfo.getStartTimestamp() == null) {
+        if (delta.condition == null) {
             return original;
+        }
+        if (original == null) {
+            return delta.condition;
         } else {
-            ThunderGateCacheSupport support;
-            try {
-                support = tableInfo
-                    .getImportTargetType()
-                    .asSubclass(ThunderGateCacheSupport.class)
-                    .newInstance();
-            } catch (Exception e) {
-                throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-13002",
-                        tableName,
-                        tableInfo.getCacheId(),
-                        tableInfo.getImportTargetType().getName());
-            }
-            String timestampColumn = support.__tgc__TimestampColumn();
-            if (original == null) {
-                return MessageFormat.format(
-                        "{0}.{1} >= ?",
-                        tableName,
-                        timestampColumn);
-            } else {
-                return MessageFormat.format(
-                        "({0}) AND {1}.{2} >= ?",
-                        original,
-                        tableName,
-                        timestampColumn);
-            }
+            return MessageFormat.format(
+                    "({0}) AND {1}",
+                    original,
+                    delta.condition);
+        }
+    }
+
+    /**
+     * How to extract the cache delta of a table.
+     */
+    private static final class Delta {
+
+        static final Delta NOTHING = new Delta(null, null, false);
+
+        /**
+         * The join clause which only leaves the changed records, or {@code null}.
+         */
+        final String join;
+
+        /**
+         * The condition expression which only selects the changed records, or {@code null}.
+         */
+        final String condition;
+
+        /**
+         * Whether or not the join clause or the condition has a placeholder of the beginning time.
+         */
+        final boolean parameterized;
+
+        Delta(String join, String condition, boolean parameterized) {
+            this.join = join;
+            this.condition = condition;
+            this.parameterized = parameterized;
         }
     }
 }
@@ -20,21 +20,34 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.sql.Connection;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.output.CountingOutputStream;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.FileCompType;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.bulkloader.transfer.FileListProvider;
 import com.asakusafw.bulkloader.transfer.RemoteFileListProviderFactory;
@@ -57,33 +70,103 @@ public class ImportFileSend {
      * @return Import対象ファイル送信結果（true:成功、false:失敗）
      */
     public boolean sendImportFile(ImportBean bean) {
+        return sendImportFile(bean, null);
+    }
+
+    /**
+     * Import対象ファイルを生成が完了したものから順にHDFSのNameノードへ送信する。
+     * 送信に失敗した場合、以降のImport対象ファイルの生成を中断するよう{@code tracker}に通知する。
+     * @param bean パラメータを保持するBean
+     * @param tracker 生成が完了したImport対象ファイルの通知元
+     *     ({@code null}の場合は全てのImport対象ファイルが生成済みとして扱う)
+     * @return Import対象ファイル送信結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    public boolean sendImportFile(ImportBean bean, ImportFileTracker tracker) {
         // ZIP圧縮に関する情報を取得
         String strCompType = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_TYPE);
         FileCompType compType = FileCompType.find(strCompType);
 
-        FileListProvider provider = null;
-        FileList.Writer writer = null;
+        ImportFileTracker source = tracker;
+        if (source == null) {
+            source = ImportFileTracker.completed(arrangeSendOrder(bean));
+        }
+        int streams = Math.min(getTransferStreams(), bean.getImportTargetTableList().size());
 
         long totalStartTime = System.currentTimeMillis();
+        try {
+            long byteCount;
+            if (streams <= 1) {
+                byteCount = sendStream(bean, source, compType);
+            } else {
+                byteCount = sendStreams(bean, source, compType, streams);
+            }
+            long elapsed = System.currentTimeMillis() - totalStartTime;
+            LOG.info("TG-PROFILE-02001",
+                    bean.getTargetName(),
+                    bean.getBatchId(),
+                    bean.getJobflowId(),
+                    bean.getExecutionId(),
+                    byteCount,
+                    elapsed);
+            ProfileReport.record(Phase.SEND, null, elapsed, byteCount, ProfileReport.UNKNOWN);
+        } catch (BulkLoaderSystemException e) {
+            source.cancel();
+            LOG.log(e);
+            return false;
+        } catch (Exception e) {
+            source.cancel();
+            LOG.error(e, "TG-IMPORTER-04002");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Import対象ファイルを1つのストリームで送信する。
+     * @param bean パラメータを保持するBean
+     * @param source 送信するImport対象テーブルの取得元
+     * @param compType 圧縮有無
+     * @return 送信したバイト数
+     * @throws BulkLoaderSystemException Import対象ファイルの送信に失敗した場合
+     * @throws IOException 転送に失敗した場合
+     * @throws InterruptedException 送信中に割り込みが発生した場合
+     */
+    private long sendStream(
+            ImportBean bean,
+            ImportFileTracker source,
+            FileCompType compType) throws BulkLoaderSystemException, IOException, InterruptedException {
+        FileListProvider provider = null;
+        FileList.Writer writer = null;
         try {
             provider = openFileList(
                     bean.getTargetName(),
                     bean.getBatchId(),
                     bean.getJobflowId(),
                     bean.getExecutionId());
-            provider.discardReader();
-            writer = provider.openWriter(compType == FileCompType.DEFLATED);
+            int chunkSize = getChunkSize();
+            Set<String> received = receiveAcknowledged(provider, chunkSize);
+            writer = provider.openWriter(compType, getCompressionLevel());
+            writer.setChunkSize(chunkSize);
 
             // Import対象テーブル毎にファイルの読み込み・書き出しの処理を行う
-            List<String> list = arrangeSendOrder(bean);
-            for (String tableName : list) {
+            while (true) {
+                String tableName = source.next();
+                if (tableName == null) {
+                    break;
+                }
                 long tableStartTime = System.currentTimeMillis();
                 ImportTargetTableBean targetTable = bean.getTargetTable(tableName);
+                if (isAcknowledged(received, targetTable)) {
+                    LOG.info("TG-IMPORTER-04011", tableName);
+                    continue;
+                }
                 LOG.info("TG-IMPORTER-04004",
                         tableName,
                         targetTable.getImportFile().getAbsolutePath(),
                         compType.getSymbol());
                 long dumpFileSize = sendTableFile(writer, tableName, targetTable);
+                long elapsed = System.currentTimeMillis() - tableStartTime;
                 LOG.info("TG-PROFILE-02003",
                         bean.getTargetName(),
                         bean.getBatchId(),
@@ -91,7 +174,8 @@ public class ImportFileSend {
                         bean.getExecutionId(),
                         tableName,
                         dumpFileSize,
-                        System.currentTimeMillis() - tableStartTime);
+                        elapsed);
+                ProfileReport.record(Phase.SEND, tableName, elapsed, dumpFileSize, ProfileReport.UNKNOWN);
                 LOG.info("TG-IMPORTER-04005",
                         tableName,
                         targetTable.getImportFile().getAbsolutePath(),
@@ -99,13 +183,209 @@ public class ImportFileSend {
             }
             writer.close();
             provider.waitForComplete();
+            return writer.getByteCount();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                    ignored.printStackTrace();
+                }
+            }
+            if (provider != null) {
+                try {
+                    provider.close();
+                } catch (IOException ignored) {
+                    ignored.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Import対象ファイルを複数のストリームで並列に送信する。
+     * 各ストリームはそれぞれExtractorを起動し、送信可能になったテーブルから順に取り出して送信する。
+     * @param bean パラメータを保持するBean
+     * @param source 送信するImport対象テーブルの取得元
+     * @param compType 圧縮有無
+     * @param streams ストリーム数
+     * @return 全ストリームで送信したバイト数の合計
+     * @throws BulkLoaderSystemException いずれかのストリームで送信に失敗した場合
+     */
+    private long sendStreams(
+            final ImportBean bean,
+            final ImportFileTracker source,
+            final FileCompType compType,
+            int streams) throws BulkLoaderSystemException {
+        LOG.info("TG-IMPORTER-04008", streams);
+        ExecutorService executor = Executors.newFixedThreadPool(streams);
+        try {
+            List<Future<Long>> running = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                running.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        try {
+                            return sendStream(bean, source, compType);
+                        } catch (Exception e) {
+                            // 他のストリームの送信を打ち切る
+                            source.cancel();
+                            throw e;
+                        }
+                    }
+                }));
+            }
+            long total = 0;
+            BulkLoaderSystemException first = null;
+            for (Future<Long> future : running) {
+                try {
+                    total += future.get();
+                } catch (InterruptedException e) {
+                    source.cancel();
+                    cancel(running);
+                    throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-04009");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        cancel(running);
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        cancel(running);
+                        throw (Error) cause;
+                    } else if (first != null) {
+                        // 最初のエラーによって打ち切られたストリームの例外は記録しない
+                        LOG.debugMessage("Import stream was aborted: {0}", cause);
+                    } else if (cause instanceof BulkLoaderSystemException) {
+                        first = (BulkLoaderSystemException) cause;
+                    } else {
+                        first = new BulkLoaderSystemException(cause, getClass(), "TG-IMPORTER-04002");
+                    }
+                }
+            }
+            if (first != null) {
+                throw first;
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void cancel(List<? extends Future<?>> futures) {
+        assert futures != null;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static int getChunkSize() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_TRANSFER_CHUNK_SIZE);
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static int getCompressionLevel() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_LEVEL);
+        if (value == null || value.trim().isEmpty()) {
+            return FileList.DEFAULT_LEVEL;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static int getTransferStreams() {
+        String value = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_TRANSFER_STREAMS);
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Import対象テーブルの内容をDBから直接HDFSのNameノードへ送信する。
+     * ローカルに中間TSVファイルを作成せず、
+     * 各テーブルの検索結果をTSV形式に変換しながらNameノードの標準入力へsshで送信する。
+     * @param bean パラメータを保持するBean
+     * @param dumper テーブルの内容を抽出するオブジェクト
+     * @param jobflowSid ジョブフローSID (レコードロックを一つも行わない場合は{@code null}でもよい)
+     * @return Import対象データ送信結果（true:成功、false:失敗）
+     * @since 0.10.4
+     */
+    public boolean sendImportStream(ImportBean bean, ImportFileCreate dumper, String jobflowSid) {
+        String strCompType = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_TYPE);
+        FileCompType compType = FileCompType.find(strCompType);
+        int buffSize = Integer.parseInt(ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_FILE_COMP_BUFSIZE));
+
+        Connection conn = null;
+        FileListProvider provider = null;
+        FileList.Writer writer = null;
+
+        long totalStartTime = System.currentTimeMillis();
+        try {
+            conn = DBConnection.getConnection();
+            provider = openFileList(
+                    bean.getTargetName(),
+                    bean.getBatchId(),
+                    bean.getJobflowId(),
+                    bean.getExecutionId());
+            int chunkSize = getChunkSize();
+            Set<String> received = receiveAcknowledged(provider, chunkSize);
+            writer = provider.openWriter(compType, getCompressionLevel());
+            writer.setChunkSize(chunkSize);
+
+            List<String> list = arrangeSendOrder(bean);
+            for (String tableName : list) {
+                long tableStartTime = System.currentTimeMillis();
+                ImportTargetTableBean targetTable = bean.getTargetTable(tableName);
+                if (isAcknowledged(received, targetTable)) {
+                    LOG.info("TG-IMPORTER-04011", tableName);
+                    continue;
+                }
+                LOG.info("TG-IMPORTER-04006",
+                        tableName,
+                        targetTable.getLockType(),
+                        compType.getSymbol());
+                long dumpSize;
+                long records;
+                FileProtocol protocol = targetTable.getImportProtocol();
+                assert protocol != null;
+                try (CountingOutputStream output = new CountingOutputStream(writer.openNext(protocol))) {
+                    records = dumper.dumpTable(conn, tableName, targetTable, jobflowSid, output, buffSize);
+                    dumpSize = output.getByteCount();
+                } catch (IOException e) {
+                    throw new BulkLoaderSystemException(e, getClass(), "TG-IMPORTER-04001",
+                            MessageFormat.format(
+                                    "Importデータの転送に失敗。テーブル名：{0}",
+                                    tableName));
+                }
+                long elapsed = System.currentTimeMillis() - tableStartTime;
+                LOG.info("TG-PROFILE-02003",
+                        bean.getTargetName(),
+                        bean.getBatchId(),
+                        bean.getJobflowId(),
+                        bean.getExecutionId(),
+                        tableName,
+                        dumpSize,
+                        elapsed);
+                ProfileReport.record(Phase.SEND, tableName, elapsed, dumpSize, records);
+                LOG.info("TG-IMPORTER-04007",
+                        tableName,
+                        targetTable.getLockType(),
+                        compType.getSymbol(),
+                        records);
+            }
+            writer.close();
+            provider.waitForComplete();
+            long elapsed = System.currentTimeMillis() - totalStartTime;
             LOG.info("TG-PROFILE-02001",
                     bean.getTargetName(),
                     bean.getBatchId(),
                     bean.getJobflowId(),
                     bean.getExecutionId(),
                     writer.getByteCount(),
-                    System.currentTimeMillis() - totalStartTime);
+                    elapsed);
+            ProfileReport.record(Phase.SEND, null, elapsed, writer.getByteCount(), ProfileReport.UNKNOWN);
         } catch (BulkLoaderSystemException e) {
             LOG.log(e);
             return false;
@@ -127,10 +407,48 @@ public class ImportFileSend {
                     ignored.printStackTrace();
                 }
             }
+            DBConnection.closeConn(conn);
         }
         return true;
     }
 
+    /**
+     * 送信先のExtractorから、前回までの送信で受信済みとなったエントリを受け取る。
+     * チャンク転送を行わない場合、Extractorの出力は読み捨てる。
+     * @param provider 送信先
+     * @param chunkSize チャンクサイズ
+     * @return 受信済みのエントリ名
+     * @throws IOException 受信済みのエントリの取得に失敗した場合
+     */
+    private Set<String> receiveAcknowledged(FileListProvider provider, int chunkSize) throws IOException {
+        assert provider != null;
+        if (chunkSize <= 0) {
+            provider.discardReader();
+            return Collections.emptySet();
+        }
+        Set<String> results = new HashSet<>();
+        try (FileList.Reader reader = provider.openReader()) {
+            while (reader.next()) {
+                FileProtocol protocol = reader.getCurrentProtocol();
+
+                // receive only header
+                reader.openContent().close();
+                results.add(protocol.getLocation());
+            }
+        }
+        LOG.info("TG-IMPORTER-04010", results.size());
+        return results;
+    }
+
+    private static boolean isAcknowledged(Set<String> received, ImportTargetTableBean targetTable) {
+        assert received != null;
+        assert targetTable != null;
+        FileProtocol protocol = targetTable.getImportProtocol();
+        return protocol != null
+                && protocol.getKind() == FileProtocol.Kind.CONTENT
+                && received.contains(protocol.getLocation());
+    }
+
     private List<String> arrangeSendOrder(ImportBean bean) {
         assert bean != null;
         final Map<String, ImportTargetTableBean> tables = new HashMap<>();
@@ -139,7 +457,8 @@ public class ImportFileSend {
         for (String tableName : tableNames) {
             ImportTargetTableBean tableBean = bean.getTargetTable(tableName);
             tables.put(tableName, tableBean);
-            sizes.put(tableName, tableBean.getImportFile().length());
+            File importFile = tableBean.getImportFile();
+            sizes.put(tableName, importFile == null ? 0L : importFile.length());
         }
         Collections.sort(tableNames, new Comparator<String>() {
             @Override
@@ -255,6 +574,9 @@ public class ImportFileSend {
         Map<String, String> env = new HashMap<>();
         env.putAll(ConfigurationLoader.getPropSubMap(Constants.PROP_PREFIX_HC_ENV));
         env.putAll(RuntimeContext.get().unapply());
+        if (getChunkSize() > 0) {
+            env.put(Constants.ENV_TRANSFER_RESUME, String.valueOf(true));
+        }
 
         LOG.info("TG-IMPORTER-04003",
                 sshPath,
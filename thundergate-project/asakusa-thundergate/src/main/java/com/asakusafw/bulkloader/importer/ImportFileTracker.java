@@ -0,0 +1,132 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Tracks which import files are ready to send.
+ * <p>
+ * {@link ImportFileCreate} notifies each table when its import file has been created,
+ * and {@link ImportFileSend} takes the tables in the order in which they were completed.
+ * </p>
+ * @since 0.10.4
+ */
+public class ImportFileTracker {
+
+    private final LinkedList<String> ready = new LinkedList<>();
+
+    private int rest;
+
+    private boolean failed;
+
+    private boolean canceled;
+
+    /**
+     * Creates a new instance.
+     * @param numberOfTables the number of tables to be tracked
+     */
+    public ImportFileTracker(int numberOfTables) {
+        this.rest = numberOfTables;
+    }
+
+    /**
+     * Creates a new instance whose tables are all ready.
+     * @param tableNames the table names in order
+     * @return the created instance
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public static ImportFileTracker completed(List<String> tableNames) {
+        if (tableNames == null) {
+            throw new IllegalArgumentException("tableNames must not be null"); //$NON-NLS-1$
+        }
+        ImportFileTracker tracker = new ImportFileTracker(tableNames.size());
+        for (String tableName : tableNames) {
+            tracker.ready(tableName);
+        }
+        return tracker;
+    }
+
+    /**
+     * Notifies that the import file for the table has been created.
+     * @param tableName the target table name
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public synchronized void ready(String tableName) {
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        ready.addLast(tableName);
+        notifyAll();
+    }
+
+    /**
+     * Notifies that creating import files was failed.
+     */
+    public synchronized void failed() {
+        failed = true;
+        notifyAll();
+    }
+
+    /**
+     * Requests to stop creating the rest import files.
+     */
+    public synchronized void cancel() {
+        canceled = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns whether {@link #cancel()} was requested or not.
+     * @return {@code true} if it was canceled, otherwise {@code false}
+     */
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Returns whether {@link #failed()} was notified or not.
+     * @return {@code true} if it was failed, otherwise {@code false}
+     */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Waits for the next ready table and returns it.
+     * @return the next table name, or {@code null} if there are no more tables
+     * @throws BulkLoaderSystemException if creating import files was failed or canceled
+     * @throws InterruptedException if interrupted while waiting for the next table
+     */
+    public synchronized String next() throws BulkLoaderSystemException, InterruptedException {
+        while (true) {
+            if (failed || canceled) {
+                throw new BulkLoaderSystemException(getClass(), "TG-IMPORTER-03008");
+            }
+            if (ready.isEmpty() == false) {
+                rest--;
+                return ready.removeFirst();
+            }
+            if (rest <= 0) {
+                return null;
+            }
+            wait();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.cache.GetCacheInfoLocal;
 import com.asakusafw.bulkloader.cache.LocalCacheInfo;
 import com.asakusafw.bulkloader.cache.LocalCacheInfoRepository;
+import com.asakusafw.bulkloader.common.ChangeCaptureType;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderReRunnableException;
@@ -144,6 +145,10 @@ public class ImportProtocolDecide {
 
                 ThunderGateCacheSupport model = createDataModelObject(tableName, tableInfo);
                 Calendar nextTimestamp = repository.putCacheInfo(nextLocalInfo);
+                if (ChangeCaptureType.getCurrent() == ChangeCaptureType.TABLE) {
+                    int purged = new TableChangeLogSource().purge(connection, tableName);
+                    LOG.info("TG-IMPORTER-11013", tableName, cacheId, purged);
+                }
                 CacheInfo nextRemoteInfo = new CacheInfo(
                         CacheInfo.FEATURE_VERSION,
                         cacheId,
@@ -202,7 +207,7 @@ public class ImportProtocolDecide {
             LOG.info("TG-IMPORTER-11009", tableName, cacheId);
             return null;
         }
-        if (remoteInfo.getFeatureVersion().equals(CacheInfo.FEATURE_VERSION) == false) {
+        if (CacheInfo.isCompatibleFeatureVersion(remoteInfo.getFeatureVersion()) == false) {
             LOG.warn("TG-IMPORTER-11010", tableName, cacheId, MessageFormat.format(
                     "Invalid feature version: expected \"{0}\", but was \"{1}\"",
                     CacheInfo.FEATURE_VERSION, remoteInfo.getFeatureVersion()));
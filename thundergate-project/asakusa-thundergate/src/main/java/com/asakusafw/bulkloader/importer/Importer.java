@@ -20,6 +20,11 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
@@ -29,10 +34,12 @@ import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.ImportType;
 import com.asakusafw.bulkloader.common.JobFlowParamLoader;
+import com.asakusafw.bulkloader.common.StagingType;
 import com.asakusafw.bulkloader.common.TsvDeleteType;
 import com.asakusafw.bulkloader.exception.BulkLoaderReRunnableException;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 
@@ -68,6 +75,7 @@ public class Importer {
         RuntimeContext.get().verifyApplication(Importer.class.getClassLoader());
         Importer importer = new Importer();
         int result = importer.execute(args);
+        ProfileReport.finish(result, ConfigurationLoader.getProperty(Constants.PROP_KEY_PROFILE_DIR));
         System.exit(result);
     }
     /**
@@ -105,6 +113,7 @@ public class Importer {
             // 開始ログ出力
             LOG.info("TG-IMPORTER-01001",
                     new Date(), importerType, targetName, batchId, jobflowId, executionId);
+            ProfileReport.begin("importer", targetName, batchId, jobflowId, executionId);
 
             // パラメータオブジェクトを作成
             ImportBean bean =
@@ -242,47 +251,68 @@ public class Importer {
                 }
             }
 
-            // TODO ファイル生成とファイル転送をマルチスレッドで起動処理する
-
-            // Import対象ファイルを生成
-            LOG.info("TG-IMPORTER-01021",
-                    importerType, targetName, batchId, jobflowId, executionId);
-            ImportFileCreate fileCreate = createImportFileCreate();
-            if (!fileCreate.createImportFile(bean, jobflowSid)) {
-                // ファイル生成に失敗
-                LOG.error("TG-IMPORTER-01005",
-                        new Date(), importerType, targetName, batchId, jobflowId, executionId);
-                return Constants.EXIT_CODE_ERROR;
-            } else {
-                LOG.info("TG-IMPORTER-01022",
+            String staging = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMP_STAGING_TYPE);
+            if (StagingType.find(staging) == StagingType.STREAM) {
+                // Import対象データを中間ファイルを経由せずに転送
+                LOG.info("TG-IMPORTER-01027",
                         importerType, targetName, batchId, jobflowId, executionId);
-            }
-
-            // Import対象ファイルを転送
-            LOG.info("TG-IMPORTER-01023",
-                    importerType, targetName, batchId, jobflowId, executionId);
-            ImportFileSend fileSend = createImportFileSend();
-            if (!fileSend.sendImportFile(bean)) {
-                // ファイル転送に失敗
-                LOG.error("TG-IMPORTER-01006",
-                        new Date(), importerType, targetName, batchId, jobflowId, executionId);
-                return Constants.EXIT_CODE_ERROR;
+                ImportFileSend fileSend = createImportFileSend();
+                if (!fileSend.sendImportStream(bean, createImportFileCreate(), jobflowSid)) {
+                    LOG.error("TG-IMPORTER-01006",
+                            new Date(), importerType, targetName, batchId, jobflowId, executionId);
+                    return Constants.EXIT_CODE_ERROR;
+                } else {
+                    LOG.info("TG-IMPORTER-01028",
+                            importerType, targetName, batchId, jobflowId, executionId);
+                }
             } else {
-                LOG.info("TG-IMPORTER-01024",
-                        importerType, targetName, batchId, jobflowId, executionId);
-            }
+                if (ImportFileCreate.getParallelDump() > 1) {
+                    // Import対象ファイルを並列に生成し、生成が完了したものから順に転送
+                    if (!createAndSendImportFile(bean, jobflowSid)) {
+                        return Constants.EXIT_CODE_ERROR;
+                    }
+                } else {
+                    // Import対象ファイルを生成
+                    LOG.info("TG-IMPORTER-01021",
+                            importerType, targetName, batchId, jobflowId, executionId);
+                    ImportFileCreate fileCreate = createImportFileCreate();
+                    if (!fileCreate.createImportFile(bean, jobflowSid)) {
+                        // ファイル生成に失敗
+                        LOG.error("TG-IMPORTER-01005",
+                                new Date(), importerType, targetName, batchId, jobflowId, executionId);
+                        return Constants.EXIT_CODE_ERROR;
+                    } else {
+                        LOG.info("TG-IMPORTER-01022",
+                                importerType, targetName, batchId, jobflowId, executionId);
+                    }
 
-            // 生成したImport対象ファイルを削除
-            String deleteTsv = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMPORT_TSV_DELETE);
-            TsvDeleteType delType = TsvDeleteType.find(deleteTsv);
-            if (TsvDeleteType.TRUE.equals(delType)) {
-                LOG.info("TG-IMPORTER-01025",
-                        importerType, targetName, batchId, jobflowId, executionId);
-                ImportFileDelete fileDelete = createImportFileDelete();
-                fileDelete.deleteFile(bean);
-            } else {
-                LOG.info("TG-IMPORTER-01026",
-                        importerType, targetName, batchId, jobflowId, executionId);
+                    // Import対象ファイルを転送
+                    LOG.info("TG-IMPORTER-01023",
+                            importerType, targetName, batchId, jobflowId, executionId);
+                    ImportFileSend fileSend = createImportFileSend();
+                    if (!fileSend.sendImportFile(bean)) {
+                        // ファイル転送に失敗
+                        LOG.error("TG-IMPORTER-01006",
+                                new Date(), importerType, targetName, batchId, jobflowId, executionId);
+                        return Constants.EXIT_CODE_ERROR;
+                    } else {
+                        LOG.info("TG-IMPORTER-01024",
+                                importerType, targetName, batchId, jobflowId, executionId);
+                    }
+                }
+
+                // 生成したImport対象ファイルを削除
+                String deleteTsv = ConfigurationLoader.getProperty(Constants.PROP_KEY_IMPORT_TSV_DELETE);
+                TsvDeleteType delType = TsvDeleteType.find(deleteTsv);
+                if (TsvDeleteType.TRUE.equals(delType)) {
+                    LOG.info("TG-IMPORTER-01025",
+                            importerType, targetName, batchId, jobflowId, executionId);
+                    ImportFileDelete fileDelete = createImportFileDelete();
+                    fileDelete.deleteFile(bean);
+                } else {
+                    LOG.info("TG-IMPORTER-01026",
+                            importerType, targetName, batchId, jobflowId, executionId);
+                }
             }
 
             // 正常終了
@@ -308,6 +338,77 @@ public class Importer {
     }
     // CHECKSTYLE:ON MethodLengthCheck
 
+    /**
+     * Import対象ファイルの生成と転送を並行して行う。
+     * Import対象ファイルは別スレッドで生成し、生成が完了したものから順に転送する。
+     * @param bean パラメータを保持するBean
+     * @param jobflowSid ジョブフローSID
+     * @return 処理結果（true:成功、false:失敗）
+     */
+    private boolean createAndSendImportFile(final ImportBean bean, final String jobflowSid) {
+        String importerType = (bean.isPrimary() ? ImportType.PRIMARY : ImportType.SECONDARY).toString();
+        String targetName = bean.getTargetName();
+        String batchId = bean.getBatchId();
+        String jobflowId = bean.getJobflowId();
+        String executionId = bean.getExecutionId();
+
+        LOG.info("TG-IMPORTER-01021",
+                importerType, targetName, batchId, jobflowId, executionId);
+        LOG.info("TG-IMPORTER-01023",
+                importerType, targetName, batchId, jobflowId, executionId);
+        final ImportFileCreate fileCreate = createImportFileCreate();
+        final ImportFileTracker tracker = new ImportFileTracker(bean.getImportTargetTableList().size());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> creating = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return fileCreate.createImportFile(bean, jobflowSid, tracker);
+                }
+            });
+            ImportFileSend fileSend = createImportFileSend();
+            boolean sent = fileSend.sendImportFile(bean, tracker);
+            boolean created;
+            try {
+                created = creating.get();
+            } catch (InterruptedException e) {
+                tracker.cancel();
+                creating.cancel(true);
+                Thread.currentThread().interrupt();
+                created = false;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new AssertionError(cause);
+            }
+            if (!created) {
+                // ファイル生成に失敗
+                LOG.error("TG-IMPORTER-01005",
+                        new Date(), importerType, targetName, batchId, jobflowId, executionId);
+                return false;
+            } else {
+                LOG.info("TG-IMPORTER-01022",
+                        importerType, targetName, batchId, jobflowId, executionId);
+            }
+            if (!sent) {
+                // ファイル転送に失敗
+                LOG.error("TG-IMPORTER-01006",
+                        new Date(), importerType, targetName, batchId, jobflowId, executionId);
+                return false;
+            } else {
+                LOG.info("TG-IMPORTER-01024",
+                        importerType, targetName, batchId, jobflowId, executionId);
+            }
+            return true;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * パラメータを保持するBeanを作成する。
      * @param importerType Import処理区分
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.util.Random;
+
+/**
+ * ロック取得処理をリトライする際の待ち時間を計算するクラス。
+ * 待ち時間はリトライごとに倍増し、同時に起動したジョブフローのリトライが揃わないように揺らぎを加える。
+ * @since 0.10.4
+ */
+final class RetryBackoff {
+
+    private final long baseInterval;
+
+    private final long maxInterval;
+
+    private final Random random;
+
+    /**
+     * インスタンスを生成する。
+     * @param baseInterval 初回のリトライの待ち時間（ミリ秒）
+     * @param maxInterval 待ち時間の上限（ミリ秒）、{@code baseInterval}以下の場合は常に{@code baseInterval}だけ待つ
+     * @param random 揺らぎに用いる乱数
+     */
+    RetryBackoff(long baseInterval, long maxInterval, Random random) {
+        this.baseInterval = Math.max(baseInterval, 0L);
+        this.maxInterval = maxInterval;
+        this.random = random;
+    }
+
+    /**
+     * 指定の回数目のリトライの前に待つ時間を返す。
+     * 倍増させた待ち時間を{@code d}とすると、{@code d/2}より大きく{@code d}以下の値を返す。
+     * @param attempt これまでに失敗した回数（1以上）
+     * @return 待ち時間（ミリ秒）
+     */
+    long getDelay(int attempt) {
+        if (maxInterval <= baseInterval) {
+            return baseInterval;
+        }
+        long delay = baseInterval;
+        for (int i = 1; i < attempt && delay < maxInterval; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxInterval);
+        return delay - (long) (random.nextDouble() * (delay / 2));
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.Calendar;
+
+import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Obtains changed system IDs from the change log table, which is maintained by triggers on the target tables.
+ * The change log table has the following columns:
+ * <ul>
+ * <li> TABLE_NAME [STRING] NOT NULL </li>
+ * <li> SYSTEM_ID [BIGINT] NOT NULL </li>
+ * <li> CHANGED_TIME [DATETIME] NOT NULL </li>
+ * </ul>
+ * Only tables which have both {@code INSERT} and {@code UPDATE} triggers writing into the change log table
+ * are {@link #isAvailable(Connection, String) available}.
+ * @since 0.10.4
+ */
+public class TableChangeLogSource extends ChangeLogSource {
+
+    /**
+     * The change log table name.
+     */
+    public static final String TABLE_NAME = "__TG_CHANGE_LOG";
+
+    @Override
+    public boolean isAvailable(Connection conn, String tableName) throws BulkLoaderSystemException {
+        if (conn == null) {
+            throw new IllegalArgumentException("conn must not be null"); //$NON-NLS-1$
+        }
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        String sql = "SELECT COUNT(DISTINCT EVENT_MANIPULATION) FROM information_schema.TRIGGERS "
+            + "WHERE EVENT_OBJECT_SCHEMA = DATABASE() AND EVENT_OBJECT_TABLE = ? "
+            + "AND EVENT_MANIPULATION IN ('INSERT', 'UPDATE') AND ACTION_STATEMENT LIKE ?";
+        String pattern = "%" + TABLE_NAME + "%";
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, tableName);
+            stmt.setString(2, pattern);
+            rs = DBConnection.executeQuery(stmt, sql, new String[] { tableName, pattern });
+            return rs.next() && rs.getInt(1) == 2;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    getClass(),
+                    sql,
+                    new String[] { tableName, pattern });
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+
+    @Override
+    public String createJoin(String tableName, String sidColumn, Calendar since) {
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        if (sidColumn == null) {
+            throw new IllegalArgumentException("sidColumn must not be null"); //$NON-NLS-1$
+        }
+        // the change log table is indexed by (TABLE_NAME, CHANGED_TIME, SYSTEM_ID),
+        // and each SID may be logged many times
+        return MessageFormat.format(
+                "INNER JOIN (SELECT DISTINCT SYSTEM_ID AS __TG_CHANGED_SID FROM {2} "
+                + "WHERE TABLE_NAME = ''{0}'' AND CHANGED_TIME >= ?) __TG_CL "
+                + "ON {0}.{1} = __TG_CL.__TG_CHANGED_SID",
+                tableName,
+                sidColumn,
+                TABLE_NAME);
+    }
+
+    /**
+     * Deletes the change logs of the target table which are no longer used by any caches.
+     * Each cache of the table only extracts changes since its
+     * {@link com.asakusafw.bulkloader.cache.LocalCacheInfo#getRemoteTimestamp() last built time} or later,
+     * so that the change logs before the oldest one are never used.
+     * This keeps the change logs for the previous version of the caches,
+     * and it can be still updated after the caches are rolled back.
+     * @param conn the current connection
+     * @param tableName the target table name
+     * @return the number of deleted change logs
+     * @throws BulkLoaderSystemException if failed to delete the change logs
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public int purge(Connection conn, String tableName) throws BulkLoaderSystemException {
+        if (conn == null) {
+            throw new IllegalArgumentException("conn must not be null"); //$NON-NLS-1$
+        }
+        if (tableName == null) {
+            throw new IllegalArgumentException("tableName must not be null"); //$NON-NLS-1$
+        }
+        String sql = "DELETE FROM " + TABLE_NAME + " WHERE TABLE_NAME = ? AND CHANGED_TIME < "
+            + "(SELECT MIN(BUILT_TIMESTAMP) FROM __TG_CACHE_INFO WHERE TABLE_NAME = ? AND ACTIVE = TRUE)";
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, tableName);
+            stmt.setString(2, tableName);
+            int count = DBConnection.executeUpdate(stmt, sql, new String[] { tableName, tableName });
+            DBConnection.commit(conn);
+            return count;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    getClass(),
+                    sql,
+                    new String[] { tableName, tableName });
+        } finally {
+            DBConnection.closePs(stmt);
+        }
+    }
+
+    @Override
+    public boolean isParameterized() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return TABLE_NAME;
+    }
+}
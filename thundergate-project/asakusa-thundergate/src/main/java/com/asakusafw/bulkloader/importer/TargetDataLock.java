@@ -15,26 +15,39 @@
  */
 package com.asakusafw.bulkloader.importer;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.ImportTableLockType;
 import com.asakusafw.bulkloader.common.ImportTableLockedOperation;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderReRunnableException;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.log.Log;
+import com.asakusafw.bulkloader.log.ProfileReport;
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
 
 /**
  * Import対象テーブルのロックを取得するクラス。
@@ -45,6 +58,18 @@ public class TargetDataLock {
     static final Log LOG = new Log(TargetDataLock.class);
 
     private static final String NOT_EXISTS_JOBFLOW_SID = "-1";
+
+    /**
+     * ロック取得処理の待ち行列として用いるMySQLの名前付きロックの接頭辞。
+     */
+    static final String WAIT_QUEUE_LOCK_PREFIX = "ASAKUSA_TG_LOCK:";
+
+    /**
+     * MySQLの名前付きロックの名前の最大長。
+     */
+    private static final int MAX_LOCK_NAME_LENGTH = 64;
+
+    private final Random random = new Random();
     /**
      * ジョブフローSID。
      */
@@ -65,6 +90,14 @@ public class TargetDataLock {
         int retryInterval = bean.getRetryInterval();
         // 実行回数を示すカウンタ
         int retry = 0;
+        // リトライの待ち時間
+        RetryBackoff backoff = new RetryBackoff(
+                TimeUnit.SECONDS.toMillis(retryInterval),
+                TimeUnit.SECONDS.toMillis(getIntProperty(Constants.PROP_KEY_IMP_RETRY_MAX_INTERVAL)),
+                random);
+        // ロック取得の待ち行列で待つ時間
+        int lockWaitTimeout = getIntProperty(Constants.PROP_KEY_IMP_LOCK_WAIT_TIMEOUT);
+        long start = System.currentTimeMillis();
 
         Connection conn = null;
         try {
@@ -86,14 +119,37 @@ public class TargetDataLock {
             while (true) {
                 retry++;
                 try {
+                    if (conn == null) {
+                        // 待ち行列から抜けられずに破棄した場合は、コネクションを取得し直す
+                        conn = DBConnection.getConnection();
+                    }
                     LOG.info("TG-IMPORTER-02005",
                             bean.getTargetName(), bean.getExecutionId());
-                    // ロック取得のトランザクションを実行する。
-                    execTran(conn, bean);
-                    // コミットして正常終了する
-                    DBConnection.commit(conn);
+                    // 待ち行列の順番が来てから、ロック取得のトランザクションを実行する。
+                    List<String> queued = new ArrayList<>();
+                    try {
+                        enterWaitQueue(conn, getWaitQueueNames(bean), lockWaitTimeout, queued);
+                        execTran(conn, bean);
+                        // コミットして正常終了する
+                        DBConnection.commit(conn);
+                    } finally {
+                        if (leaveWaitQueue(conn, queued) == false) {
+                            // 名前付きロックが残っている可能性があるため、コネクションを再利用しない
+                            DBConnection.discardConn(conn);
+                            conn = null;
+                        }
+                    }
                     LOG.info("TG-IMPORTER-02006",
                             bean.getTargetName(), bean.getExecutionId());
+                    long elapsed = System.currentTimeMillis() - start;
+                    LOG.info("TG-PROFILE-03001",
+                            bean.getTargetName(),
+                            bean.getBatchId(),
+                            bean.getJobflowId(),
+                            bean.getExecutionId(),
+                            retry,
+                            elapsed);
+                    ProfileReport.record(Phase.LOCK, null, elapsed, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
                     return true;
                 } catch (BulkLoaderReRunnableException e) {
                     LOG.log(e);
@@ -101,13 +157,25 @@ public class TargetDataLock {
                         // リトライ可能な場合、ロールバックしてリトライする
                         try {
                             DBConnection.rollback(conn);
-                            Thread.sleep(TimeUnit.SECONDS.toMillis(retryInterval));
+                            long delay = backoff.getDelay(retry);
+                            LOG.info("TG-IMPORTER-02016", retry, delay);
+                            Thread.sleep(delay);
                             continue;
                         } catch (InterruptedException e2) {
                             throw new BulkLoaderSystemException(e2, getClass(), "TG-IMPORTER-02002");
                         }
                     } else {
                         // リトライ不可の場合、異常終了する。
+                        long elapsed = System.currentTimeMillis() - start;
+                        LOG.info("TG-PROFILE-03001",
+                                bean.getTargetName(),
+                                bean.getBatchId(),
+                                bean.getJobflowId(),
+                                bean.getExecutionId(),
+                                retry,
+                                elapsed);
+                        ProfileReport.record(Phase.LOCK, null, elapsed,
+                                ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
                         throw new BulkLoaderReRunnableException(e, getClass(), "TG-IMPORTER-02003");
                     }
                 }
@@ -125,6 +193,152 @@ public class TargetDataLock {
             DBConnection.closeConn(conn);
         }
     }
+    /**
+     * ロック取得処理の待ち行列として用いる名前付きロックの名前を、Import対象テーブルごとに返す。
+     * ロックを取得しないテーブルは、他のジョブフローと競合しないため含めない。
+     * デッドロックを避けるため、名前の順に並べて返す。
+     * @param bean パラメータを保持するBean
+     * @return 名前付きロックの名前
+     */
+    private static List<String> getWaitQueueNames(ImportBean bean) {
+        Set<String> names = new TreeSet<>();
+        for (String tableName : bean.getImportTargetTableList()) {
+            ImportTargetTableBean targetTable = bean.getTargetTable(tableName);
+            if (ImportTableLockType.NONE.equals(targetTable.getLockType())
+                    && ImportTableLockedOperation.FORCE.equals(targetTable.getLockedOperation())) {
+                continue;
+            }
+            names.add(getWaitQueueName(tableName));
+        }
+        return new ArrayList<>(names);
+    }
+    /**
+     * Import対象テーブルに対する待ち行列の名前付きロックの名前を返す。
+     * 名前付きロックの名前の長さには上限があるため、長いテーブル名はダイジェストで表す。
+     * @param tableName Import対象テーブル名
+     * @return 名前付きロックの名前
+     */
+    static String getWaitQueueName(String tableName) {
+        String name = WAIT_QUEUE_LOCK_PREFIX + tableName;
+        if (name.length() <= MAX_LOCK_NAME_LENGTH) {
+            return name;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(tableName.getBytes(StandardCharsets.UTF_8));
+            StringBuilder buf = new StringBuilder(WAIT_QUEUE_LOCK_PREFIX);
+            for (byte b : hash) {
+                buf.append(String.format("%02x", b & 0xff));
+            }
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    /**
+     * ロック取得処理の待ち行列に並び、順番が来るまで待つ。
+     * 待ち行列にはImport対象テーブルごとのMySQLの名前付きロックを用い、
+     * 同じテーブルのロックを取得するジョブフロー同士のロック取得処理のみを直列化する。
+     * 名前付きロックは待機している順に取得できるとは限らないため、待ち行列で待つ時間の上限を超えた場合はリトライする。
+     * 取得した名前付きロックは、例外が発生した場合も含めて{@code acquired}に追加する。
+     * @param conn コネクション
+     * @param names 名前付きロックの名前（取得する順）
+     * @param timeout 待ち行列で待つ最大の時間（秒）、0以下の場合は待ち行列を使用しない
+     * @param acquired 取得した名前付きロックの名前を追加するリスト
+     * @throws BulkLoaderReRunnableException 待ち行列で待機中にタイムアウトした場合
+     * @throws BulkLoaderSystemException SQL例外が発生した場合
+     */
+    private void enterWaitQueue(
+            Connection conn,
+            List<String> names,
+            int timeout,
+            List<String> acquired) throws BulkLoaderReRunnableException, BulkLoaderSystemException {
+        if (timeout <= 0) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+        String sql = "SELECT GET_LOCK(?,?)";
+        for (String name : names) {
+            long rest = Math.max(TimeUnit.MILLISECONDS.toSeconds(deadline - System.currentTimeMillis()), 0);
+            String[] params = new String[] { name, String.valueOf(rest) };
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            boolean success = false;
+            try {
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, name);
+                stmt.setLong(2, rest);
+                rs = DBConnection.executeQuery(stmt, sql, params);
+                success = rs.next() && rs.getInt(1) == 1;
+            } catch (SQLException e) {
+                throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                        e,
+                        this.getClass(),
+                        sql,
+                        params);
+            } finally {
+                DBConnection.closeRs(rs);
+                DBConnection.closePs(stmt);
+            }
+            if (success == false) {
+                // リトライする
+                throw new BulkLoaderReRunnableException(getClass(), "TG-IMPORTER-02004",
+                        "ロック取得処理の待ち行列で待機中にタイムアウト",
+                        name);
+            }
+            acquired.add(name);
+        }
+    }
+    /**
+     * ロック取得処理の待ち行列から抜ける。
+     * 名前付きロックはセッションに紐づき、プールに返却したコネクションをクローズしても解放されないため、明示的に解放する。
+     * @param conn コネクション
+     * @param acquired 取得した名前付きロックの名前
+     * @return 全ての名前付きロックを解放した場合は{@code true}、
+     *     解放できなかった名前付きロックがあり、コネクションを再利用できない場合は{@code false}
+     */
+    private boolean leaveWaitQueue(Connection conn, List<String> acquired) {
+        boolean released = true;
+        String sql = "SELECT RELEASE_LOCK(?)";
+        for (String name : acquired) {
+            String[] params = new String[] { name };
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            try {
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, name);
+                rs = DBConnection.executeQuery(stmt, sql, params);
+                if (rs.next() == false || rs.getInt(1) != 1) {
+                    LOG.debugMessage("名前付きロックを解放できませんでした。{0}", name);
+                    released = false;
+                }
+            } catch (SQLException e) {
+                LOG.log(BulkLoaderSystemException.createInstanceCauseBySQLException(
+                        e,
+                        this.getClass(),
+                        sql,
+                        params));
+                released = false;
+            } finally {
+                DBConnection.closeRs(rs);
+                DBConnection.closePs(stmt);
+            }
+        }
+        acquired.clear();
+        return released;
+    }
+    /**
+     * 数値のプロパティを返す。
+     * @param key プロパティKEY
+     * @return プロパティの値、未設定の場合は0
+     */
+    private static int getIntProperty(String key) {
+        String value = ConfigurationLoader.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(value.trim());
+    }
     /**
      * ロック取得のトランザクション処理を実行する。
      * @param conn Connection
@@ -466,6 +680,9 @@ public class TargetDataLock {
             Connection conn,
             String tableName,
             String serchCondition) throws BulkLoaderSystemException {
+        if (RecordLockFormat.getCurrent() == RecordLockFormat.RANGE) {
+            return checkRecordLockRange(conn, tableName, serchCondition);
+        }
         String rlTableName = DBAccessUtil.createRecordLockTableName(tableName);
         StringBuilder sql = new StringBuilder("SELECT SID FROM ");
         sql.append(tableName);
@@ -552,6 +769,47 @@ public class TargetDataLock {
             String tableName,
             String searchCondition,
             String targetJobflowSid) throws BulkLoaderSystemException {
+        long count;
+        if (RecordLockFormat.getCurrent() == RecordLockFormat.RANGE) {
+            count = recordLockRange(conn, tableName, searchCondition, targetJobflowSid);
+        } else {
+            count = recordLockRow(conn, tableName, searchCondition, targetJobflowSid);
+        }
+        if (count > 0) {
+            PreparedStatement stmt = null;
+            String updateSql = null;
+            try {
+                // 0件以上レコードロックを取得した場合はIMPORT_RECORD_LOCKにロックを記録する
+                updateSql = "INSERT INTO IMPORT_RECORD_LOCK (JOBFLOW_SID, TABLE_NAME) VALUES(?, ?)";
+                stmt = conn.prepareStatement(updateSql);
+                stmt.setString(1, targetJobflowSid);
+                stmt.setString(2, tableName);
+                DBConnection.executeUpdate(stmt, updateSql, new String[] { targetJobflowSid, tableName });
+            } catch (SQLException e) {
+                throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                        e,
+                        this.getClass(),
+                        updateSql,
+                        new String[] { targetJobflowSid, tableName });
+            } finally {
+                DBConnection.closePs(stmt);
+            }
+        }
+    }
+    /**
+     * Import対象テーブルの対象レコードを、ロック済みレコードテーブルにレコードごとに記録する。
+     * @param conn コネクション
+     * @param tableName Import対象テーブル
+     * @param searchCondition 検索条件
+     * @param targetJobflowSid ジョブフローSID
+     * @return ロックしたレコード数
+     * @throws BulkLoaderSystemException リトライ不可エラー
+     */
+    private long recordLockRow(
+            Connection conn,
+            String tableName,
+            String searchCondition,
+            String targetJobflowSid) throws BulkLoaderSystemException {
         String rlTableName = DBAccessUtil.createRecordLockTableName(tableName);
         StringBuilder sql = new StringBuilder("INSERT INTO ");
         sql.append(rlTableName);
@@ -574,39 +832,229 @@ public class TargetDataLock {
         LOG.info("TG-IMPORTER-02015", sql.toString(), targetJobflowSid);
         PreparedStatement stmt = null;
         try {
-            int count = 0;
-            try {
-                stmt = conn.prepareStatement(sql.toString());
-                stmt.setString(1, targetJobflowSid);
-                count = DBConnection.executeUpdate(stmt, sql.toString(), new String[] { targetJobflowSid });
-            } catch (SQLException e) {
-                throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                        e,
-                        this.getClass(),
-                        sql.toString(),
-                        new String[] { targetJobflowSid });
-            }
+            stmt = conn.prepareStatement(sql.toString());
+            stmt.setString(1, targetJobflowSid);
+            return DBConnection.executeUpdate(stmt, sql.toString(), new String[] { targetJobflowSid });
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    sql.toString(),
+                    new String[] { targetJobflowSid });
+        } finally {
+            DBConnection.closePs(stmt);
+        }
+    }
+    /**
+     * Import対象テーブルの対象レコードを、連続するSIDの範囲ごとに記録する。
+     * 対象外のレコードや他のジョブフローがロック済みのレコードを含まない、SIDの最大の範囲ごとに記録する。
+     * 範囲はDBサーバー上で求め、SIDをクライアントに転送しない。
+     * SID順で直前のレコードが対象外である対象レコードを範囲の先頭とし、
+     * 先頭以降で直後のレコードが対象外である最初のレコードを範囲の末尾とする。
+     * @param conn コネクション
+     * @param tableName Import対象テーブル
+     * @param searchCondition 検索条件
+     * @param targetJobflowSid ジョブフローSID
+     * @return ロックしたレコード数
+     * @throws BulkLoaderSystemException リトライ不可エラー
+     */
+    private long recordLockRange(
+            Connection conn,
+            String tableName,
+            String searchCondition,
+            String targetJobflowSid) throws BulkLoaderSystemException {
+        String sidColumn = Constants.getSidColumnName();
+        String first = "__TG_S." + sidColumn;
+        String last = "__TG_E." + sidColumn;
 
-            if (count > 0) {
-                String updateSql = null;
-                try {
-                    // 0件以上レコードロックを取得した場合はIMPORT_RECORD_LOCKにロックを記録する
-                    updateSql = "INSERT INTO IMPORT_RECORD_LOCK (JOBFLOW_SID, TABLE_NAME) VALUES(?, ?)";
-                    stmt = conn.prepareStatement(updateSql);
-                    stmt.setString(1, targetJobflowSid);
-                    stmt.setString(2, tableName);
-                    DBConnection.executeUpdate(stmt, updateSql, new String[] { targetJobflowSid, tableName });
-                } catch (SQLException e) {
-                    throw BulkLoaderSystemException.createInstanceCauseBySQLException(
-                            e,
-                            this.getClass(),
-                            updateSql,
-                            new String[] { targetJobflowSid, tableName });
-                }
-            }
+        // ロック対象のレコード数を求める
+        StringBuilder countSql = new StringBuilder("SELECT COUNT(*) FROM ");
+        countSql.append(tableName);
+        countSql.append(" __TG_S WHERE ");
+        countSql.append(createLockTargetCondition(tableName, searchCondition, first));
+        long count = 0;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(countSql.toString());
+            rs = DBConnection.executeQuery(stmt, countSql.toString(), new String[0]);
+            rs.next();
+            count = rs.getLong(1);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    countSql.toString(),
+                    new String[0]);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        // 範囲の先頭ごとに末尾を求め、そのまま記録する
+        StringBuilder sql = new StringBuilder("INSERT INTO ");
+        sql.append(RecordLockFormat.RANGE_TABLE_NAME);
+        sql.append(" (TABLE_NAME, FIRST_SID, LAST_SID, JOBFLOW_SID) SELECT '");
+        sql.append(tableName);
+        sql.append("', ");
+        sql.append(first);
+        sql.append(", (SELECT ");
+        sql.append(last);
+        sql.append(" FROM ");
+        sql.append(tableName);
+        sql.append(" __TG_E WHERE ");
+        sql.append(last);
+        sql.append(">=");
+        sql.append(first);
+        sql.append(" AND NOT ");
+        sql.append(createLockTargetCondition(tableName, searchCondition,
+                createNeighborSid(tableName, last, false)));
+        sql.append(" ORDER BY ");
+        sql.append(last);
+        sql.append(" LIMIT 1), ? FROM ");
+        sql.append(tableName);
+        sql.append(" __TG_S WHERE ");
+        sql.append(createLockTargetCondition(tableName, searchCondition, first));
+        sql.append(" AND NOT ");
+        sql.append(createLockTargetCondition(tableName, searchCondition,
+                createNeighborSid(tableName, first, true)));
+
+        try {
+            stmt = conn.prepareStatement(sql.toString());
+            stmt.setString(1, targetJobflowSid);
+            int ranges = DBConnection.executeUpdate(stmt, sql.toString(), new String[] { targetJobflowSid });
+            LOG.info("TG-IMPORTER-02017", sql.toString(), targetJobflowSid, tableName, ranges, count);
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    sql.toString(),
+                    new String[] { targetJobflowSid });
         } finally {
             DBConnection.closePs(stmt);
         }
+        return count;
+    }
+    /**
+     * 指定のSIDのレコードが存在し、ロック対象であり、かつ他のジョブフローがロックしていない場合に真となる条件式を返す。
+     * 検索条件はImport対象テーブルを別名なしで参照する副問い合わせの中で評価する。
+     * @param tableName Import対象テーブル
+     * @param searchCondition 検索条件
+     * @param sid 対象のSIDを表す式
+     * @return 条件式
+     */
+    private static String createLockTargetCondition(String tableName, String searchCondition, String sid) {
+        String sidColumn = Constants.getSidColumnName();
+        StringBuilder buf = new StringBuilder("EXISTS (SELECT * FROM ");
+        buf.append(tableName);
+        buf.append(" WHERE ");
+        buf.append(tableName);
+        buf.append(".");
+        buf.append(sidColumn);
+        buf.append("=");
+        buf.append(sid);
+        if (searchCondition != null && !searchCondition.isEmpty()) {
+            buf.append(" AND (");
+            buf.append(searchCondition);
+            buf.append(")");
+        }
+        // 範囲は互いに重ならないため、先頭のSIDが直前の範囲のみを調べる
+        buf.append(" AND COALESCE((SELECT __TG_RL.LAST_SID FROM ");
+        buf.append(RecordLockFormat.RANGE_TABLE_NAME);
+        buf.append(" __TG_RL WHERE __TG_RL.TABLE_NAME='");
+        buf.append(tableName);
+        buf.append("' AND __TG_RL.FIRST_SID<=");
+        buf.append(tableName);
+        buf.append(".");
+        buf.append(sidColumn);
+        buf.append(" ORDER BY __TG_RL.FIRST_SID DESC LIMIT 1), -1)<");
+        buf.append(tableName);
+        buf.append(".");
+        buf.append(sidColumn);
+        buf.append(")");
+        return buf.toString();
+    }
+    /**
+     * SID順で指定のSIDの直前または直後のレコードのSIDを表す式を返す。
+     * @param tableName Import対象テーブル
+     * @param sid 基準のSIDを表す式
+     * @param previous 直前のレコードの場合は{@code true}、直後のレコードの場合は{@code false}
+     * @return SIDを表す式（レコードが存在しない場合は{@code NULL}となる）
+     */
+    private static String createNeighborSid(String tableName, String sid, boolean previous) {
+        String column = "__TG_N." + Constants.getSidColumnName();
+        StringBuilder buf = new StringBuilder("(SELECT ");
+        buf.append(column);
+        buf.append(" FROM ");
+        buf.append(tableName);
+        buf.append(" __TG_N WHERE ");
+        buf.append(column);
+        buf.append(previous ? "<" : ">");
+        buf.append(sid);
+        buf.append(" ORDER BY ");
+        buf.append(column);
+        buf.append(previous ? " DESC" : "");
+        buf.append(" LIMIT 1)");
+        return buf.toString();
+    }
+    /**
+     * Import対象テーブルの対象レコードが、記録されたレコードロックの範囲に含まれるかチェックする。
+     * @param conn コネクション
+     * @param tableName Import対象テーブル
+     * @param serchCondition 検索条件
+     * @return チェック結果（ロックフラグが立っていない：true、ロックフラグが立っている：false）
+     * @throws BulkLoaderSystemException リトライ不可エラー
+     */
+    private boolean checkRecordLockRange(
+            Connection conn,
+            String tableName,
+            String serchCondition) throws BulkLoaderSystemException {
+        String sidColumn = Constants.getSidColumnName();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(tableName);
+        sql.append(".");
+        sql.append(sidColumn);
+        sql.append(" FROM ");
+        sql.append(tableName);
+        sql.append(" INNER JOIN ");
+        sql.append(createLockedRangeView(tableName));
+        if (serchCondition != null && !serchCondition.isEmpty()) {
+            sql.append(" WHERE (");
+            sql.append(serchCondition);
+            sql.append(")");
+        }
+        sql.append(" LIMIT 1");
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(sql.toString());
+            stmt.setString(1, tableName);
+            rs = DBConnection.executeQuery(stmt, sql.toString(), new String[] { tableName });
+            boolean hasResult = rs.next();
+            return hasResult == false;
+        } catch (SQLException e) {
+            throw BulkLoaderSystemException.createInstanceCauseBySQLException(
+                    e,
+                    this.getClass(),
+                    sql.toString(),
+                    new String[] { tableName });
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+        }
+    }
+    private static String createLockedRangeView(String tableName) {
+        // 対象テーブルの列名と衝突しないように別名を付ける
+        return MessageFormat.format(
+                "(SELECT FIRST_SID AS __TG_FIRST_SID, LAST_SID AS __TG_LAST_SID FROM {1} WHERE TABLE_NAME=?) __TG_RL "
+                + "ON {0}.{2} BETWEEN __TG_RL.__TG_FIRST_SID AND __TG_RL.__TG_LAST_SID",
+                tableName,
+                RecordLockFormat.RANGE_TABLE_NAME,
+                Constants.getSidColumnName());
     }
     /**
      * RUNNING_JOBFLOWSテーブルにレコードをインサートする。
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.asakusafw.bulkloader.common.DBAccessUtil;
+
+/**
+ * Encodes records into the TSV format which is same as {@code SELECT ... INTO OUTFILE}.
+ * <p>
+ * The format is described in {@link DBAccessUtil#getTSVFileFormat()}:
+ * fields are terminated by {@code TAB}, lines are terminated by {@code LF},
+ * and the special characters are escaped by {@code '\'}.
+ * A {@code NULL} value is written as {@code \N}.
+ * </p>
+ * @since 0.10.4
+ */
+public class TsvRecordEncoder {
+
+    private static final byte ESCAPE = '\\';
+
+    private static final byte FIELD_SEPARATOR = '\t';
+
+    private static final byte RECORD_SEPARATOR = '\n';
+
+    private static final byte[] NULL_VALUE = { ESCAPE, 'N' };
+
+    private final OutputStream output;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private boolean head = true;
+
+    private long recordCount;
+
+    /**
+     * Creates a new instance.
+     * @param output the target output stream
+     * @param bufferSize the internal buffer size in bytes
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public TsvRecordEncoder(OutputStream output, int bufferSize) {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null"); //$NON-NLS-1$
+        }
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("bufferSize must be >= 2"); //$NON-NLS-1$
+        }
+        this.output = output;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Writes a field into the current record.
+     * @param value the raw field value, or {@code null} to write {@code NULL}
+     * @throws IOException if failed to write the field
+     */
+    public void writeField(byte[] value) throws IOException {
+        if (head) {
+            head = false;
+        } else {
+            put(FIELD_SEPARATOR);
+        }
+        if (value == null) {
+            put(NULL_VALUE[0]);
+            put(NULL_VALUE[1]);
+            return;
+        }
+        for (byte b : value) {
+            switch (b) {
+            case ESCAPE:
+            case FIELD_SEPARATOR:
+            case RECORD_SEPARATOR:
+                put(ESCAPE);
+                put(b);
+                break;
+            case 0:
+                put(ESCAPE);
+                put((byte) '0');
+                break;
+            default:
+                put(b);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Ends the current record.
+     * @throws IOException if failed to write the record separator
+     */
+    public void endRecord() throws IOException {
+        put(RECORD_SEPARATOR);
+        head = true;
+        recordCount++;
+    }
+
+    /**
+     * Returns the number of records which have been ended.
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes the buffered contents into the target output stream.
+     * This does not close the target output stream.
+     * @throws IOException if failed to flush the buffer
+     */
+    public void flush() throws IOException {
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (position >= buffer.length) {
+            flush();
+        }
+        buffer[position++] = b;
+    }
+}
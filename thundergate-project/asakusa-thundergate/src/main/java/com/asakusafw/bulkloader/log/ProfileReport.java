@@ -0,0 +1,401 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Logger;
+
+/**
+ * Collects elapsed time, bytes and records of each phase in a ThunderGate run, and writes them as a CSV file.
+ * <p>
+ * Each row of the report is a pair of phase and table, and rows whose table is {@code "-"} are totals of the run.
+ * The report is written next to the log file unless the output directory is specified,
+ * so that the reports of many runs can be analyzed together.
+ * </p>
+ * @since 0.10.4
+ */
+public class ProfileReport {
+
+    static final Log LOG = new Log(ProfileReport.class);
+
+    /**
+     * The value of unknown bytes or records.
+     */
+    public static final long UNKNOWN = -1L;
+
+    /**
+     * The table name which represents the whole run.
+     */
+    public static final String WHOLE = "-";
+
+    /**
+     * The file name prefix of the reports.
+     */
+    public static final String FILE_PREFIX = "thundergate-profile-";
+
+    /**
+     * The file name suffix of the reports.
+     */
+    public static final String FILE_SUFFIX = ".csv";
+
+    static final String HEADER = "started,component,target,batch,jobflow,execution,exit_code,"
+            + "phase,table,elapsed_ms,bytes,records,bytes_per_sec,records_per_sec";
+
+    static final String PHASE_TOTAL = "TOTAL";
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    private static final String FILE_DATE_FORMAT = "yyyyMMddHHmmssSSS";
+
+    private static volatile ProfileReport current;
+
+    private final String component;
+
+    private final String targetName;
+
+    private final String batchId;
+
+    private final String jobflowId;
+
+    private final String executionId;
+
+    private final long startTime;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Creates a new instance.
+     * @param component the component name (e.g. {@code "importer"})
+     * @param targetName the target name
+     * @param batchId the batch ID
+     * @param jobflowId the jobflow ID
+     * @param executionId the jobflow execution ID
+     * @param startTime the start time of the run
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public ProfileReport(
+            String component,
+            String targetName,
+            String batchId,
+            String jobflowId,
+            String executionId,
+            long startTime) {
+        if (component == null) {
+            throw new IllegalArgumentException("component must not be null"); //$NON-NLS-1$
+        }
+        this.component = component;
+        this.targetName = targetName;
+        this.batchId = batchId;
+        this.jobflowId = jobflowId;
+        this.executionId = executionId;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Starts a new report for the current process.
+     * @param component the component name (e.g. {@code "importer"})
+     * @param targetName the target name
+     * @param batchId the batch ID
+     * @param jobflowId the jobflow ID
+     * @param executionId the jobflow execution ID
+     */
+    public static void begin(
+            String component,
+            String targetName,
+            String batchId,
+            String jobflowId,
+            String executionId) {
+        current = new ProfileReport(
+                component, targetName, batchId, jobflowId, executionId, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a profile into the report of the current process.
+     * This does nothing if the report has not been started.
+     * @param phase the target phase
+     * @param tableName the table name, or {@code null} for the whole run
+     * @param elapsedTime the elapsed time in milliseconds
+     * @param bytes the number of processed bytes, or {@link #UNKNOWN}
+     * @param records the number of processed records, or {@link #UNKNOWN}
+     * @see #begin(String, String, String, String, String)
+     */
+    public static void record(Phase phase, String tableName, long elapsedTime, long bytes, long records) {
+        ProfileReport report = current;
+        if (report != null) {
+            report.add(phase, tableName, elapsedTime, bytes, records);
+        }
+    }
+
+    /**
+     * Writes the report of the current process and finishes it.
+     * This does nothing if the report has not been started, or there is no suitable output directory.
+     * @param exitCode the exit code of the run
+     * @param directory the output directory, or {@code null} to put the report next to the log file
+     * @return the written file, or {@code null} if it was not written
+     */
+    public static File finish(int exitCode, String directory) {
+        ProfileReport report = current;
+        current = null;
+        if (report == null) {
+            return null;
+        }
+        File base = directory == null || directory.trim().isEmpty()
+                ? findLogDirectory()
+                : new File(directory.trim());
+        if (base == null) {
+            return null;
+        }
+        long finishTime = System.currentTimeMillis();
+        File file = new File(base, report.getFileName(finishTime));
+        try {
+            if (base.isDirectory() == false && base.mkdirs() == false && base.isDirectory() == false) {
+                throw new IOException(base.getAbsolutePath());
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                report.write(writer, exitCode, finishTime);
+            }
+            LOG.info("TG-PROFILE-04001", file.getAbsolutePath());
+            return file;
+        } catch (IOException e) {
+            LOG.warn(e, "TG-PROFILE-04002", file.getAbsolutePath());
+            return null;
+        }
+    }
+
+    private static File findLogDirectory() {
+        for (Enumeration<?> e = Logger.getRootLogger().getAllAppenders(); e.hasMoreElements();) {
+            Object appender = e.nextElement();
+            if (appender instanceof FileAppender) {
+                String path = ((FileAppender) appender).getFile();
+                if (path != null) {
+                    return new File(path).getAbsoluteFile().getParentFile();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a profile into this report.
+     * The profiles of the same phase and table are summed up.
+     * @param phase the target phase
+     * @param tableName the table name, or {@code null} for the whole run
+     * @param elapsedTime the elapsed time in milliseconds
+     * @param bytes the number of processed bytes, or {@link #UNKNOWN}
+     * @param records the number of processed records, or {@link #UNKNOWN}
+     * @throws IllegalArgumentException if {@code phase} is {@code null}
+     */
+    public synchronized void add(Phase phase, String tableName, long elapsedTime, long bytes, long records) {
+        if (phase == null) {
+            throw new IllegalArgumentException("phase must not be null"); //$NON-NLS-1$
+        }
+        String table = tableName == null ? WHOLE : tableName;
+        String key = phase.name() + '\0' + table;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(phase, table);
+            entries.put(key, entry);
+        }
+        entry.elapsedTime += Math.max(elapsedTime, 0L);
+        entry.bytes = sum(entry.bytes, bytes);
+        entry.records = sum(entry.records, records);
+    }
+
+    private static long sum(long a, long b) {
+        if (a < 0) {
+            return b < 0 ? UNKNOWN : b;
+        }
+        return b < 0 ? a : a + b;
+    }
+
+    /**
+     * Writes this report as CSV.
+     * @param writer the target writer
+     * @param exitCode the exit code of the run
+     * @param finishTime the finish time of the run
+     * @throws IOException if failed to write the report
+     */
+    public synchronized void write(Writer writer, int exitCode, long finishTime) throws IOException {
+        if (writer == null) {
+            throw new IllegalArgumentException("writer must not be null"); //$NON-NLS-1$
+        }
+        List<String> prefix = new ArrayList<>();
+        prefix.add(new SimpleDateFormat(DATE_FORMAT).format(new Date(startTime)));
+        prefix.add(component);
+        prefix.add(targetName);
+        prefix.add(batchId);
+        prefix.add(jobflowId);
+        prefix.add(executionId);
+        prefix.add(String.valueOf(exitCode));
+        StringBuilder buf = new StringBuilder();
+        buf.append(HEADER).append('\n');
+        for (Entry entry : entries.values()) {
+            appendRow(buf, prefix, entry.phase.name(), entry.table, entry.elapsedTime, entry.bytes, entry.records);
+        }
+        appendRow(buf, prefix, PHASE_TOTAL, WHOLE, finishTime - startTime, UNKNOWN, UNKNOWN);
+        // writes at once
+        writer.write(buf.toString());
+        writer.flush();
+    }
+
+    private static void appendRow(
+            StringBuilder buf,
+            List<String> prefix,
+            String phase,
+            String table,
+            long elapsedTime,
+            long bytes,
+            long records) {
+        for (String field : prefix) {
+            appendField(buf, field);
+            buf.append(',');
+        }
+        appendField(buf, phase);
+        buf.append(',');
+        appendField(buf, table);
+        buf.append(',');
+        buf.append(elapsedTime);
+        buf.append(',');
+        appendCount(buf, bytes);
+        buf.append(',');
+        appendCount(buf, records);
+        buf.append(',');
+        appendThroughput(buf, bytes, elapsedTime);
+        buf.append(',');
+        appendThroughput(buf, records, elapsedTime);
+        buf.append('\n');
+    }
+
+    private static void appendField(StringBuilder buf, String field) {
+        if (field == null) {
+            return;
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+                && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            buf.append(field);
+        } else {
+            buf.append('"').append(field.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private static void appendCount(StringBuilder buf, long count) {
+        if (count >= 0) {
+            buf.append(count);
+        }
+    }
+
+    private static void appendThroughput(StringBuilder buf, long count, long elapsedTime) {
+        if (count >= 0 && elapsedTime > 0) {
+            buf.append(count * 1000L / elapsedTime);
+        }
+    }
+
+    String getFileName(long finishTime) {
+        StringBuilder buf = new StringBuilder();
+        buf.append(FILE_PREFIX);
+        buf.append(component);
+        buf.append('-');
+        buf.append(executionId == null ? WHOLE : executionId);
+        buf.append('-');
+        buf.append(new SimpleDateFormat(FILE_DATE_FORMAT).format(new Date(finishTime)));
+        String name = buf.toString().replaceAll("[^A-Za-z0-9._\\-]", "_");
+        return name + FILE_SUFFIX;
+    }
+
+    /**
+     * The phases in ThunderGate runs.
+     * @since 0.10.4
+     */
+    public enum Phase {
+
+        /**
+         * Acquiring locks of the import target tables.
+         */
+        LOCK,
+
+        /**
+         * Dumping the import target tables.
+         */
+        DUMP,
+
+        /**
+         * Sending the contents.
+         */
+        SEND,
+
+        /**
+         * Extracting the import contents onto Hadoop file system.
+         */
+        EXTRACT,
+
+        /**
+         * Building the ThunderGate caches.
+         */
+        CACHE_BUILD,
+
+        /**
+         * Receiving the export contents.
+         */
+        RECEIVE,
+
+        /**
+         * Loading the export contents into the temporary tables.
+         */
+        LOAD,
+
+        /**
+         * Copying the export contents into the target tables.
+         */
+        COPY,
+
+        /**
+         * Releasing locks of the target tables.
+         */
+        UNLOCK,
+    }
+
+    private static final class Entry {
+
+        final Phase phase;
+
+        final String table;
+
+        long elapsedTime;
+
+        long bytes = UNKNOWN;
+
+        long records = UNKNOWN;
+
+        Entry(Phase phase, String table) {
+            this.phase = phase;
+            this.table = table;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.asakusafw.bulkloader.tools;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -30,6 +31,7 @@ import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBAccessUtil;
 import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
@@ -87,6 +89,16 @@ public final class DBCleaner {
 
         Connection conn = null;
         try {
+            // プロパティを読み込む（レコードロックの記録形式を参照する）
+            try {
+                ConfigurationLoader.init(Constants.PROPERTIES_DB, true, false);
+            } catch (IllegalStateException e) {
+                // 環境変数が適切に設定されていない場合
+                throw new SystemException(e, e.getMessage());
+            } catch (BulkLoaderSystemException | IOException e) {
+                throw new SystemException(e,
+                        MessageFormat.format("プロパティの読み込みに失敗しました。プロパティ：{0}", Constants.PROPERTIES_DB));
+            }
             // JDBCプロパティを読み込む
             try {
                 ConfigurationLoader.checkEnv();
@@ -121,7 +133,7 @@ public final class DBCleaner {
             deleteTempTable(conn);
 
             // ロックを解除
-            lockRelease(conn);
+            lockRelease(conn, RecordLockFormat.getCurrent());
 
             // ジョブフロー実行テーブルとジョブフロー排他テーブルのレコードを削除
             deleteRunningJobflows(conn);
@@ -214,12 +226,14 @@ public final class DBCleaner {
     /**
      * ロックを解除する。
      * @param conn コネクション
+     * @param format レコードロックの記録形式
      * @throws SystemException 続行不能なエラー
      */
-    private static void lockRelease(Connection conn) throws SystemException {
+    static void lockRelease(Connection conn, RecordLockFormat format) throws SystemException {
         String tableLockSql = "UPDATE IMPORT_TABLE_LOCK SET JOBFLOW_SID=NULL WHERE JOBFLOW_SID IS NOT NULL";
         String selSql = "SELECT DISTINCT TABLE_NAME FROM IMPORT_RECORD_LOCK";
         String recordLockSql = "DELETE FROM IMPORT_RECORD_LOCK";
+        String rangeSql = "DELETE FROM " + RecordLockFormat.RANGE_TABLE_NAME;
         String rlSql = "DELETE FROM ";
 
         // レコードロックテーブルを検索
@@ -278,6 +292,27 @@ public final class DBCleaner {
             }
         }
 
+        // レコードロック範囲のレコードを削除（範囲で記録する場合のみ）
+        if (format == RecordLockFormat.RANGE) {
+            try {
+                stmt = conn.prepareStatement(rangeSql);
+                int delCount = stmt.executeUpdate();
+                printLog(
+                        MessageFormat.format("レコードロック範囲テーブルのレコードを全て削除しました。件数：{0}", delCount));
+            } catch (SQLException e) {
+                throw new SystemException(e,
+                        MessageFormat.format("レコードロック範囲テーブルのレコードの削除に失敗しました。SQL：{0}", rangeSql));
+            } finally {
+                if (stmt != null) {
+                    try {
+                        stmt.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
         // レコードロックのレコードを削除
         try {
             stmt = conn.prepareStatement(recordLockSql);
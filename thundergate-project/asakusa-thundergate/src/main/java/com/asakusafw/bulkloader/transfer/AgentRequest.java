@@ -0,0 +1,158 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A request header for the ThunderGate agent.
+ * Each connection to the agent starts with this header, and then it is followed by a {@link FileList}.
+ * @since 0.10.4
+ */
+public class AgentRequest {
+
+    /**
+     * The magic number of the request header.
+     */
+    static final String MAGIC = "ThunderGate-Agent/1"; //$NON-NLS-1$
+
+    private static final int MAX_ARGUMENTS = 256;
+
+    private final String secret;
+
+    private final String service;
+
+    private final List<String> arguments;
+
+    /**
+     * Creates a new instance.
+     * @param secret the shared secret, or {@code null} if it is not specified
+     * @param service the requested service name
+     * @param arguments the service arguments
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public AgentRequest(String secret, String service, List<String> arguments) {
+        if (service == null) {
+            throw new IllegalArgumentException("service must not be null"); //$NON-NLS-1$
+        }
+        if (arguments == null) {
+            throw new IllegalArgumentException("arguments must not be null"); //$NON-NLS-1$
+        }
+        this.secret = secret == null ? "" : secret; //$NON-NLS-1$
+        this.service = service;
+        this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+    }
+
+    /**
+     * Returns the shared secret.
+     * @return the shared secret, or an empty string if it is not specified
+     */
+    public String getSecret() {
+        return secret;
+    }
+
+    /**
+     * Returns the requested service name.
+     * @return the service name
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Returns the service arguments.
+     * @return the service arguments
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Writes this request header into the stream.
+     * @param output the target stream
+     * @throws IOException if failed to write the header
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null"); //$NON-NLS-1$
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(buffer);
+        data.writeUTF(MAGIC);
+        data.writeUTF(secret);
+        data.writeUTF(service);
+        data.writeInt(arguments.size());
+        for (String argument : arguments) {
+            data.writeUTF(argument);
+        }
+        data.flush();
+        // the following file list must not be buffered together
+        buffer.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Reads a request header from the stream.
+     * This never reads the stream over the header.
+     * @param input the source stream
+     * @return the read request
+     * @throws IOException if failed to read the header, or the header is not valid
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public static AgentRequest readFrom(InputStream input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null"); //$NON-NLS-1$
+        }
+        DataInputStream data = new DataInputStream(input);
+        String magic = data.readUTF();
+        if (magic.equals(MAGIC) == false) {
+            throw new IOException(MessageFormat.format(
+                    "Invalid agent request header: {0}",
+                    magic));
+        }
+        String secret = data.readUTF();
+        String service = data.readUTF();
+        int count = data.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException(MessageFormat.format(
+                    "Invalid number of agent request arguments: {0}",
+                    count));
+        }
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            arguments.add(data.readUTF());
+        }
+        return new AgentRequest(secret, service, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format(
+                "AgentRequest(service={0}, arguments={1})", //$NON-NLS-1$
+                service,
+                arguments);
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.zip.Checksum;
+
+import org.apache.hadoop.util.PureJavaCrc32C;
+
+/**
+ * Restores contents from chunks written by {@link ChunkOutputStream}.
+ * <p>
+ * This verifies the sequence number and checksum of each chunk,
+ * and raises {@link IOException} if the contents are broken or truncated.
+ * </p>
+ * @since 0.10.4
+ */
+final class ChunkInputStream extends InputStream {
+
+    private final DataInputStream input;
+
+    private final int chunkSize;
+
+    private final Checksum checksum = new PureJavaCrc32C();
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private int sequence;
+
+    private boolean eof;
+
+    ChunkInputStream(InputStream input, int chunkSize) {
+        assert input != null;
+        assert chunkSize > 0;
+        this.input = new DataInputStream(input);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (prepare() == false) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (prepare() == false) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position;
+    }
+
+    private boolean prepare() throws IOException {
+        while (position >= limit) {
+            if (eof) {
+                return false;
+            }
+            readChunk();
+        }
+        return true;
+    }
+
+    private void readChunk() throws IOException {
+        int seq;
+        int length;
+        int crc;
+        try {
+            seq = input.readInt();
+            length = input.readInt();
+            crc = input.readInt();
+        } catch (EOFException e) {
+            throw new IOException(MessageFormat.format(
+                    "FileList chunk is truncated (expected chunk: {0})",
+                    sequence), e);
+        }
+        if (seq != sequence) {
+            throw new IOException(MessageFormat.format(
+                    "FileList chunk is out of order (expected: {0}, actual: {1})",
+                    sequence,
+                    seq));
+        }
+        if (length < 0 || length > chunkSize) {
+            throw new IOException(MessageFormat.format(
+                    "FileList chunk is broken (chunk: {0}, length: {1})",
+                    seq,
+                    length));
+        }
+        if (buffer == null) {
+            buffer = new byte[chunkSize];
+        }
+        try {
+            input.readFully(buffer, 0, length);
+        } catch (EOFException e) {
+            throw new IOException(MessageFormat.format(
+                    "FileList chunk is truncated (chunk: {0})",
+                    seq), e);
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, length);
+        if ((int) checksum.getValue() != crc) {
+            throw new IOException(MessageFormat.format(
+                    "FileList chunk checksum mismatch (chunk: {0})",
+                    seq));
+        }
+        sequence++;
+        position = 0;
+        limit = length;
+        if (length == 0) {
+            eof = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Checksum;
+
+import org.apache.hadoop.util.PureJavaCrc32C;
+
+/**
+ * Splits contents into fixed-size chunks.
+ * <p>
+ * Each chunk consists of its sequence number, length in bytes, CRC32C checksum, and the contents.
+ * The last chunk is always empty, so that readers can detect truncated contents.
+ * </p>
+ * @see ChunkInputStream
+ * @since 0.10.4
+ */
+final class ChunkOutputStream extends OutputStream {
+
+    private final DataOutputStream output;
+
+    private final byte[] buffer;
+
+    private final Checksum checksum = new PureJavaCrc32C();
+
+    private int position;
+
+    private int sequence;
+
+    private boolean closed;
+
+    ChunkOutputStream(OutputStream output, int chunkSize) {
+        assert output != null;
+        assert chunkSize > 0;
+        this.output = new DataOutputStream(output);
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position >= buffer.length) {
+            writeChunk();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int offset = off;
+        int rest = len;
+        while (rest > 0) {
+            if (position >= buffer.length) {
+                writeChunk();
+            }
+            int count = Math.min(rest, buffer.length - position);
+            System.arraycopy(b, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            rest -= count;
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        checksum.reset();
+        checksum.update(buffer, 0, position);
+        output.writeInt(sequence++);
+        output.writeInt(position);
+        output.writeInt((int) checksum.getValue());
+        output.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (position > 0) {
+            writeChunk();
+        }
+        // end of contents
+        writeChunk();
+        output.close();
+    }
+}
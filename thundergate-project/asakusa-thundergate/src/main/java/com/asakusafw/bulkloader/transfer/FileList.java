@@ -22,16 +22,25 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.InputBuffer;
 import org.apache.hadoop.io.OutputBuffer;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
 
+import com.asakusafw.bulkloader.common.FileCompType;
 import com.asakusafw.bulkloader.log.Log;
 import com.asakusafw.runtime.io.util.ZipEntryInputStream;
 import com.asakusafw.runtime.io.util.ZipEntryOutputStream;
@@ -39,7 +48,7 @@ import com.asakusafw.runtime.io.util.ZipEntryOutputStream;
 /**
  * A cache list transfer protocol.
  * @since 0.2.3
- * @version 0.7.0
+ * @version 0.10.4
  */
 public final class FileList {
 
@@ -51,6 +60,29 @@ public final class FileList {
 
     static final String LAST_ENTRY_NAME = ".__LAST_ENTRY__"; //$NON-NLS-1$
 
+    /**
+     * The header key of the compression codec for each entry.
+     * This holds {@link FileCompType#getSymbol() the symbol} of the compression type,
+     * or is absent if the entry is not compressed by any block codecs.
+     * @since 0.10.4
+     */
+    public static final String KEY_CODEC = "codec"; //$NON-NLS-1$
+
+    /**
+     * The header key of the chunk size in bytes for each entry.
+     * If this is present, the entry contents are split into chunks with their sequence numbers and CRC32C checksums.
+     * @since 0.10.4
+     */
+    public static final String KEY_CHUNK_SIZE = "chunk-size"; //$NON-NLS-1$
+
+    /**
+     * The compression level which represents the default level of each compression type.
+     * @since 0.10.4
+     */
+    public static final int DEFAULT_LEVEL = -1;
+
+    static final String KEY_LZ4_HC = "io.compression.codec.lz4.use.lz4hc"; //$NON-NLS-1$
+
     /**
      * Creates a protocol object for send plain contents.
      * @param name target file name
@@ -94,12 +126,92 @@ public final class FileList {
      * @throws IllegalArgumentException if some parameters were {@code null}
      */
     public static FileList.Writer createWriter(OutputStream output, boolean compress) throws IOException {
+        return createWriter(output, compress ? FileCompType.DEFLATED : FileCompType.STORED, DEFAULT_LEVEL);
+    }
+
+    /**
+     * Creates a new writer.
+     * If the compression type uses a block codec, each entry is compressed by the codec
+     * and the codec is recorded in the entry header, so that readers can decode it without any configurations.
+     * Note that the writer never negotiates the codec with the reader:
+     * the receiving side must also be able to use the codec (e.g. LZ4 and Snappy require the Hadoop native library
+     * on both sides), otherwise the reader fails when it reaches the first compressed entry.
+     * Use {@link #isAvailable(FileCompType)} to check the codec on each side before transferring.
+     * @param output the output stream to write a file list
+     * @param compType the compression type
+     * @param level the compression level, or {@link #DEFAULT_LEVEL} to use the default level
+     * @return the created writer
+     * @throws IOException if failed to prepare a file list, or the compression codec is not available
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @since 0.10.4
+     */
+    public static FileList.Writer createWriter(
+            OutputStream output,
+            FileCompType compType,
+            int level) throws IOException {
         if (output == null) {
             throw new IllegalArgumentException("output must not be null"); //$NON-NLS-1$
         }
-        LOG.debugMessage("Creating a new file list writer");
+        if (compType == null) {
+            throw new IllegalArgumentException("compType must not be null"); //$NON-NLS-1$
+        }
+        LOG.debugMessage("Creating a new file list writer: {0} (level={1})", compType, level);
         FileListUtil.putPreamble(output);
-        return new Writer(output, compress);
+        return new Writer(output, compType, level);
+    }
+
+    /**
+     * Returns whether the compression type is available in this environment or not.
+     * @param compType the compression type
+     * @return {@code true} if it is available, otherwise {@code false}
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     * @since 0.10.4
+     */
+    public static boolean isAvailable(FileCompType compType) {
+        if (compType == null) {
+            throw new IllegalArgumentException("compType must not be null"); //$NON-NLS-1$
+        }
+        try {
+            CompressionCodec codec = createCodec(compType, DEFAULT_LEVEL);
+            if (codec == null) {
+                return true;
+            }
+            codec.createCompressor().end();
+            codec.createDecompressor().end();
+            return true;
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // native libraries may not be loaded
+            LOG.debugMessage("Compression codec is not available: {0} ({1})", compType, e.toString());
+            return false;
+        }
+    }
+
+    static CompressionCodec createCodec(FileCompType compType, int level) throws IOException {
+        assert compType != null;
+        String className = compType.getCodecClassName();
+        if (className == null) {
+            return null;
+        }
+        Configuration conf = new Configuration();
+        if (level != DEFAULT_LEVEL) {
+            switch (compType) {
+            case LZ4:
+                conf.setBoolean(KEY_LZ4_HC, level > 0);
+                break;
+            default:
+                // the level is not configurable
+                break;
+            }
+        }
+        try {
+            Class<?> aClass = Class.forName(className, true, FileList.class.getClassLoader());
+            return ReflectionUtils.newInstance(aClass.asSubclass(CompressionCodec.class), conf);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(MessageFormat.format(
+                    "Compression codec is not available: {0} ({1})",
+                    compType.getSymbol(),
+                    className), e);
+        }
     }
 
     private FileList() {
@@ -120,6 +232,14 @@ public final class FileList {
 
         private final InputBuffer buffer = new InputBuffer();
 
+        private final Map<FileCompType, CompressionCodec> codecs = new EnumMap<>(FileCompType.class);
+
+        private final Map<FileCompType, Decompressor> decompressors = new EnumMap<>(FileCompType.class);
+
+        private FileCompType currentCodec;
+
+        private int currentChunkSize;
+
         private boolean sawNext;
 
         private boolean sawEof;
@@ -192,6 +312,8 @@ public final class FileList {
                 Properties properties = new Properties();
                 properties.load(buffer);
                 current = FileProtocol.loadFrom(properties);
+                currentCodec = restoreCodec(properties);
+                currentChunkSize = restoreChunkSize(properties);
             } catch (Exception e) {
                 throw new IOException(MessageFormat.format(
                         "Failed to restore protocol header for {0}",
@@ -199,6 +321,54 @@ public final class FileList {
             }
         }
 
+        private FileCompType restoreCodec(Properties properties) throws IOException {
+            assert properties != null;
+            String symbol = properties.getProperty(KEY_CODEC);
+            if (symbol == null) {
+                return null;
+            }
+            FileCompType compType = FileCompType.find(symbol.trim());
+            if (compType == null || compType.getCodecClassName() == null) {
+                throw new IOException(MessageFormat.format(
+                        "Unknown compression codec: {0}",
+                        symbol));
+            }
+            if (codecs.containsKey(compType) == false) {
+                CompressionCodec codec = createCodec(compType, DEFAULT_LEVEL);
+                Decompressor decompressor;
+                try {
+                    decompressor = codec.createDecompressor();
+                } catch (RuntimeException e) {
+                    // the writer does not know whether the codec is available on this side
+                    throw new IOException(MessageFormat.format(
+                            "Compression codec used by the sender is not available on the receiver: {0}",
+                            compType.getSymbol()), e);
+                }
+                codecs.put(compType, codec);
+                decompressors.put(compType, decompressor);
+            }
+            return compType;
+        }
+
+        private int restoreChunkSize(Properties properties) throws IOException {
+            assert properties != null;
+            String value = properties.getProperty(KEY_CHUNK_SIZE);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                int size = Integer.parseInt(value.trim());
+                if (size > 0) {
+                    return size;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IOException(MessageFormat.format(
+                    "Invalid chunk size: {0}",
+                    value));
+        }
+
         /**
          * Returns the cache protocol for current file prepared by the {@link #next()} method.
          * @return the cache protocol for current file
@@ -217,7 +387,16 @@ public final class FileList {
          */
         public InputStream openContent() throws IOException {
             checkCurrent();
-            return new ZipEntryInputStream(input);
+            InputStream entry = new ZipEntryInputStream(input);
+            if (currentChunkSize > 0) {
+                entry = new ChunkInputStream(entry, currentChunkSize);
+            }
+            if (currentCodec == null) {
+                return entry;
+            }
+            Decompressor decompressor = decompressors.get(currentCodec);
+            decompressor.reset();
+            return codecs.get(currentCodec).createInputStream(entry, decompressor);
         }
 
         private void checkCurrent() throws IOException {
@@ -238,6 +417,10 @@ public final class FileList {
         public void close() throws IOException {
             LOG.debugMessage("Closing file list reader");
             sawNext = false;
+            for (Decompressor decompressor : decompressors.values()) {
+                decompressor.end();
+            }
+            decompressors.clear();
             input.close();
         }
     }
@@ -254,16 +437,46 @@ public final class FileList {
 
         private final OutputBuffer buffer = new OutputBuffer();
 
+        private final FileCompType compType;
+
+        private final CompressionCodec codec;
+
+        private final Compressor compressor;
+
+        private int chunkSize = 0;
+
         private boolean closed = false;
 
-        Writer(OutputStream output, boolean compress) throws IOException {
+        Writer(OutputStream output, FileCompType compType, int level) throws IOException {
             if (output == null) {
                 throw new IllegalArgumentException("output must not be null"); //$NON-NLS-1$
             }
+            if (compType == null) {
+                throw new IllegalArgumentException("compType must not be null"); //$NON-NLS-1$
+            }
+            this.compType = compType;
+            this.codec = createCodec(compType, level);
+            if (codec == null) {
+                this.compressor = null;
+            } else {
+                try {
+                    this.compressor = codec.createCompressor();
+                } catch (RuntimeException e) {
+                    // native libraries may not be loaded
+                    throw new IOException(MessageFormat.format(
+                            "Compression codec is not available: {0}",
+                            compType.getSymbol()), e);
+                }
+            }
             this.counter = new CountingOutputStream(output);
             this.output = new ZipOutputStream(counter);
             this.output.setMethod(ZipOutputStream.DEFLATED);
-            if (compress == false) {
+            if (compType == FileCompType.DEFLATED) {
+                if (level != DEFAULT_LEVEL) {
+                    this.output.setLevel(Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, level)));
+                }
+            } else {
+                // block codecs compress each entry by themselves
                 this.output.setLevel(0);
             }
             this.output.putNextEntry(new ZipEntry(FIRST_ENTRY_NAME));
@@ -284,13 +497,27 @@ public final class FileList {
             ZipEntry entry = createEntryFromProtocol(protocol);
             LOG.debugMessage("Putting next entry: {0}", entry.getName());
             output.putNextEntry(entry);
-            return new ZipEntryOutputStream(output);
+            OutputStream content = new ZipEntryOutputStream(output);
+            if (chunkSize > 0) {
+                content = new ChunkOutputStream(content, chunkSize);
+            }
+            if (codec == null) {
+                return content;
+            }
+            compressor.reset();
+            return codec.createOutputStream(content, compressor);
         }
 
         private ZipEntry createEntryFromProtocol(FileProtocol protocol) throws IOException {
             assert protocol != null;
             Properties properties = new Properties();
             protocol.storeTo(properties);
+            if (codec != null) {
+                properties.setProperty(KEY_CODEC, compType.getSymbol());
+            }
+            if (chunkSize > 0) {
+                properties.setProperty(KEY_CHUNK_SIZE, String.valueOf(chunkSize));
+            }
             buffer.reset();
             properties.store(buffer, protocol.getLocation());
             ZipEntry entry = new ZipEntry(protocol.getLocation());
@@ -298,6 +525,21 @@ public final class FileList {
             return entry;
         }
 
+        /**
+         * Sets the chunk size for the subsequent entries.
+         * If this is positive, each entry is split into chunks with their sequence numbers and CRC32C checksums,
+         * so that the reader can detect broken or truncated contents.
+         * @param size the chunk size in bytes, or {@code 0} to disable chunks
+         * @throws IllegalArgumentException if the size is negative
+         * @since 0.10.4
+         */
+        public void setChunkSize(int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("size must not be negative"); //$NON-NLS-1$
+            }
+            this.chunkSize = size;
+        }
+
         /**
          * Returns number of bytes written.
          * @return number of bytes written
@@ -313,6 +555,9 @@ public final class FileList {
                 output.putNextEntry(new ZipEntry(LAST_ENTRY_NAME));
                 output.closeEntry();
                 output.close();
+                if (compressor != null) {
+                    compressor.end();
+                }
             }
             closed = true;
         }
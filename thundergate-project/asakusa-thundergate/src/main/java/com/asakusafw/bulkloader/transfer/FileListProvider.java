@@ -18,9 +18,12 @@ package com.asakusafw.bulkloader.transfer;
 import java.io.Closeable;
 import java.io.IOException;
 
+import com.asakusafw.bulkloader.common.FileCompType;
+
 /**
  * An abstract interface of {@link FileList} provider.
  * @since 0.2.3
+ * @version 0.10.4
  */
 public interface FileListProvider extends Closeable {
 
@@ -41,6 +44,17 @@ public interface FileListProvider extends Closeable {
      */
     FileList.Writer openWriter(boolean compress) throws IOException;
 
+    /**
+     * Opens file list writer via this requestor.
+     * @param compType the compression type of the file list
+     * @param level the compression level, or {@link FileList#DEFAULT_LEVEL} to use the default level
+     * @return the file list
+     * @throws IOException if failed to open the file list
+     * @see #discardWriter()
+     * @since 0.10.4
+     */
+    FileList.Writer openWriter(FileCompType compType, int level) throws IOException;
+
     /**
      * Discards file list reader for this requestor.
      * @throws IOException if failed to discard
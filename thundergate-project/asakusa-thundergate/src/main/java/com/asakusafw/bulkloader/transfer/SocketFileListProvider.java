@@ -0,0 +1,102 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * An implementation of {@link FileListProvider} using a socket connected to the ThunderGate agent.
+ * Closing the {@link #openWriter(boolean) writer} only shuts down the output side of the socket,
+ * so that the response can be still read from the {@link #openReader() reader}.
+ * If the agent failed to process the request, it closes the socket without completing the file list.
+ * @since 0.10.4
+ */
+public class SocketFileListProvider extends StreamFileListProvider {
+
+    private final Socket socket;
+
+    private final InputStream input;
+
+    private final OutputStream output;
+
+    /**
+     * Creates a new instance.
+     * @param socket the connected socket
+     * @throws IOException if failed to open the socket streams
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public SocketFileListProvider(final Socket socket) throws IOException {
+        if (socket == null) {
+            throw new IllegalArgumentException("socket must not be null"); //$NON-NLS-1$
+        }
+        this.socket = socket;
+        this.input = socket.getInputStream();
+        this.output = new FilterOutputStream(new BufferedOutputStream(socket.getOutputStream())) {
+            private boolean closed = false;
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+            @Override
+            public void close() throws IOException {
+                if (closed == false) {
+                    closed = true;
+                    flush();
+                    socket.shutdownOutput();
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends a request header to the agent.
+     * This must be invoked before {@link #openWriter(boolean) opening the writer}.
+     * @param request the request header
+     * @throws IOException if failed to send the request
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public void sendRequest(AgentRequest request) throws IOException {
+        if (request == null) {
+            throw new IllegalArgumentException("request must not be null"); //$NON-NLS-1$
+        }
+        request.writeTo(output);
+    }
+
+    @Override
+    protected InputStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    protected OutputStream getOutputStream() {
+        return output;
+    }
+
+    @Override
+    protected void waitForDone() {
+        return;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -24,11 +24,13 @@ import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 
+import com.asakusafw.bulkloader.common.FileCompType;
 import com.asakusafw.bulkloader.common.StreamRedirectThread;
 
 /**
  * An abstract implementation of {@link FileListProvider} using I/O streams.
  * @since 0.2.3
+ * @version 0.10.4
  */
 public abstract class StreamFileListProvider implements FileListProvider {
 
@@ -51,10 +53,15 @@ public abstract class StreamFileListProvider implements FileListProvider {
 
     @Override
     public FileList.Writer openWriter(boolean compress) throws IOException {
+        return openWriter(compress ? FileCompType.DEFLATED : FileCompType.STORED, FileList.DEFAULT_LEVEL);
+    }
+
+    @Override
+    public FileList.Writer openWriter(FileCompType compType, int level) throws IOException {
         OutputStream stream = getOutputStream();
         boolean succeed = false;
         try {
-            FileList.Writer channel = FileList.createWriter(stream, compress);
+            FileList.Writer channel = FileList.createWriter(stream, compType, level);
             succeed = true;
             return channel;
         } finally {
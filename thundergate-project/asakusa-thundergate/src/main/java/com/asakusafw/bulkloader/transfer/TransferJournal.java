@@ -0,0 +1,140 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Checksum;
+
+import org.apache.hadoop.fs.Syncable;
+import org.apache.hadoop.util.PureJavaCrc32C;
+
+import com.asakusafw.bulkloader.log.Log;
+
+/**
+ * An append-only journal of the acknowledged {@link FileList} entries.
+ * <p>
+ * Each record is a line of tab-separated fields followed by its CRC32C checksum,
+ * so that a record which was partially written before the process was aborted is simply ignored.
+ * The receivers of file lists append a record after each entry was completely stored,
+ * and the retried transfer can skip the entries which were already acknowledged.
+ * </p>
+ * @since 0.10.4
+ */
+public class TransferJournal implements Closeable {
+
+    static final Log LOG = new Log(TransferJournal.class);
+
+    private static final Charset ENCODING = StandardCharsets.UTF_8;
+
+    private static final char SEPARATOR = '\t';
+
+    private final OutputStream output;
+
+    private final Checksum checksum = new PureJavaCrc32C();
+
+    /**
+     * Creates a new instance.
+     * @param output the journal output
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public TransferJournal(OutputStream output) {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null"); //$NON-NLS-1$
+        }
+        this.output = output;
+    }
+
+    /**
+     * Loads the valid records from the journal.
+     * This stops at the first broken record.
+     * @param input the journal input
+     * @return the loaded records
+     * @throws IOException if failed to load the journal
+     * @throws IllegalArgumentException if some parameters were {@code null}
+     */
+    public static List<String[]> load(InputStream input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null"); //$NON-NLS-1$
+        }
+        List<String[]> results = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, ENCODING));
+        Checksum checksum = new PureJavaCrc32C();
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            int index = line.lastIndexOf(SEPARATOR);
+            if (index < 0 || line.substring(index + 1).equals(digest(checksum, line.substring(0, index))) == false) {
+                LOG.debugMessage("Broken journal record: {0}", line);
+                break;
+            }
+            results.add(line.substring(0, index).split(String.valueOf(SEPARATOR), -1));
+        }
+        return results;
+    }
+
+    /**
+     * Appends a record into this journal, and flushes it.
+     * @param fields the record fields, which must not contain tabs nor line breaks
+     * @throws IOException if failed to append the record
+     * @throws IllegalArgumentException if some fields are not valid
+     */
+    public synchronized void append(String... fields) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        for (String field : fields) {
+            if (field == null || field.indexOf(SEPARATOR) >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException(Arrays.toString(fields));
+            }
+            if (buf.length() > 0) {
+                buf.append(SEPARATOR);
+            }
+            buf.append(field);
+        }
+        String body = buf.toString();
+        buf.append(SEPARATOR);
+        buf.append(digest(checksum, body));
+        buf.append('\n');
+        output.write(buf.toString().getBytes(ENCODING));
+        if (output instanceof Syncable) {
+            ((Syncable) output).hflush();
+        } else {
+            output.flush();
+        }
+    }
+
+    private static String digest(Checksum checksum, String body) {
+        byte[] bytes = body.getBytes(ENCODING);
+        checksum.reset();
+        checksum.update(bytes, 0, bytes.length);
+        return Long.toHexString(checksum.getValue());
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.FileNameUtil;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+import com.asakusafw.bulkloader.transfer.AgentRequest;
+import com.asakusafw.bulkloader.transfer.FileList;
+import com.asakusafw.bulkloader.transfer.FileProtocol;
+import com.asakusafw.bulkloader.transfer.SocketFileListProvider;
+import com.asakusafw.runtime.util.hadoop.ConfigurationProvider;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+
+/**
+ * Test for {@link CacheAgent}.
+ */
+public class CacheAgentTest {
+
+    private static final String SECRET = "testing";
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CacheAgent agent = new CacheAgent();
+
+    private File base;
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        UnitTestUtil.setUpBeforeClass();
+        UnitTestUtil.setUpEnv();
+    }
+
+    /**
+     * clean up.
+     * @throws Exception if failed
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        UnitTestUtil.tearDownEnv();
+        UnitTestUtil.tearDownAfterClass();
+    }
+
+    /**
+     * Initializes the test.
+     * @throws Exception if some errors were occurred
+     */
+    @Before
+    public void setUp() throws Exception {
+        UnitTestUtil.startUp();
+        assertThat(BulkLoaderInitializer.initHadoopCluster("agent", "agent", Constants.PROPERTIES_HC), is(true));
+        base = folder.newFolder("base");
+        ConfigurationLoader.getProperty().setProperty(
+                Constants.PROP_KEY_BASE_PATH,
+                base.getAbsoluteFile().toURI().toString());
+        agent.setConf(new ConfigurationProvider().newInstance());
+        agent.userName = "tester";
+        agent.secret = SECRET;
+    }
+
+    /**
+     * the agent listens on the loopback address by default.
+     */
+    @Test
+    public void getBindAddress_default() {
+        InetSocketAddress address = CacheAgent.getBindAddress(null, 18090);
+        assertThat(address.getAddress().isLoopbackAddress(), is(true));
+        assertThat(address.getPort(), is(18090));
+
+        assertThat(CacheAgent.getBindAddress(" ", 18090).getAddress().isLoopbackAddress(), is(true));
+    }
+
+    /**
+     * the agent listens on all addresses only if explicitly specified.
+     */
+    @Test
+    public void getBindAddress_any() {
+        InetSocketAddress address = CacheAgent.getBindAddress("*", 18090);
+        assertThat(address.getAddress().isAnyLocalAddress(), is(true));
+        assertThat(address.getPort(), is(18090));
+    }
+
+    /**
+     * the agent listens on the specified address.
+     */
+    @Test
+    public void getBindAddress_explicit() {
+        InetSocketAddress address = CacheAgent.getBindAddress("127.0.0.1", 18090);
+        assertThat(address.getAddress().getHostAddress(), is("127.0.0.1"));
+        assertThat(address.getPort(), is(18090));
+    }
+
+    /**
+     * the agent does not start without shared secret.
+     * @throws Exception if failed
+     */
+    @Test
+    public void run_without_secret() throws Exception {
+        assertThat(ConfigurationLoader.getProperty(Constants.PROP_KEY_AGENT_SECRET), is(nullValue()));
+        CacheAgent other = new CacheAgent();
+        other.setConf(new ConfigurationProvider().newInstance());
+        assertThat(other.run(new String[0]), is(Constants.EXIT_CODE_ERROR));
+    }
+
+    /**
+     * delete cache storage via the agent.
+     * @throws Exception if failed
+     */
+    @Test
+    public void handle_delete() throws Exception {
+        CacheStorage storage = prepareStorage(uri("available"));
+        try {
+            List<FileProtocol> results = request(SECRET, "available", "nothing");
+            assertThat(results.size(), is(2));
+            assertThat(results.get(0).getLocation(), is("available"));
+            assertThat(results.get(0).getKind(), is(FileProtocol.Kind.RESPONSE_DELETED));
+            assertThat(results.get(1).getLocation(), is("nothing"));
+            assertThat(results.get(1).getKind(), is(FileProtocol.Kind.RESPONSE_NOT_FOUND));
+
+            assertThat(storage.getHeadCacheInfo(), is(nullValue()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * the agent never deletes cache storages outside of the base path.
+     * @throws Exception if failed
+     */
+    @Test
+    public void handle_delete_outside() throws Exception {
+        File outside = folder.newFolder("outside");
+        CacheStorage storage = prepareStorage(outside.getAbsoluteFile().toURI());
+        try {
+            List<FileProtocol> results = request(SECRET,
+                    "../outside",
+                    outside.getAbsoluteFile().toURI().toString(),
+                    "a/../..");
+            assertThat(results.size(), is(3));
+            for (FileProtocol result : results) {
+                assertThat(result.getLocation(), result.getKind(), is(FileProtocol.Kind.RESPONSE_ERROR));
+            }
+            assertThat(storage.getHeadCacheInfo(), is(notNullValue()));
+            assertThat(base.exists(), is(true));
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * the agent rejects requests with wrong secret.
+     * @throws Exception if failed
+     */
+    @Test
+    public void handle_wrong_secret() throws Exception {
+        CacheStorage storage = prepareStorage(uri("available"));
+        try {
+            try {
+                request("wrong", "available");
+                fail();
+            } catch (IOException e) {
+                // ok.
+            }
+            assertThat(storage.getHeadCacheInfo(), is(notNullValue()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * the agent rejects all requests if the secret is not configured.
+     * @throws Exception if failed
+     */
+    @Test
+    public void handle_secret_not_configured() throws Exception {
+        agent.secret = "";
+        CacheStorage storage = prepareStorage(uri("available"));
+        try {
+            try {
+                request("", "available");
+                fail();
+            } catch (IOException e) {
+                // ok.
+            }
+            assertThat(storage.getHeadCacheInfo(), is(notNullValue()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    private List<FileProtocol> request(String secret, String... locations) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+                Socket accepted = server.accept();
+                SocketFileListProvider provider = new SocketFileListProvider(client)) {
+            provider.sendRequest(new AgentRequest(
+                    secret,
+                    CacheAgent.SERVICE_DELETE_CACHE_STORAGE,
+                    Collections.singletonList("target")));
+            FileList.Writer writer = provider.openWriter(false);
+            for (String location : locations) {
+                writer.openNext(new FileProtocol(FileProtocol.Kind.DELETE_CACHE, location, null)).close();
+            }
+            writer.close();
+
+            // the request and its response are small enough to be buffered in the socket
+            agent.handle(accepted);
+
+            List<FileProtocol> results = new ArrayList<>();
+            try (FileList.Reader reader = provider.openReader()) {
+                while (reader.next()) {
+                    results.add(reader.getCurrentProtocol());
+                    reader.openContent().close();
+                }
+            }
+            return results;
+        }
+    }
+
+    private CacheStorage prepareStorage(URI uri) throws IOException {
+        CacheStorage storage = new CacheStorage(agent.getConf(), uri);
+        storage.putHeadCacheInfo(new CacheInfo(
+                "a",
+                "id",
+                Calendar.getInstance(),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L));
+        assertThat(storage.getHeadCacheInfo(), is(notNullValue()));
+        return storage;
+    }
+
+    private URI uri(String string) {
+        try {
+            return FileNameUtil.createPath(agent.getConf(), string, "dummy", "dummy").toUri();
+        } catch (BulkLoaderSystemException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
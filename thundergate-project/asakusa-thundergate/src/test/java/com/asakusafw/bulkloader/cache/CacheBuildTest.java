@@ -32,8 +32,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -58,8 +60,10 @@ import com.asakusafw.runtime.util.hadoop.ConfigurationProvider;
 import com.asakusafw.thundergate.runtime.cache.CacheInfo;
 import com.asakusafw.thundergate.runtime.cache.CacheStorage;
 import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheBuildClient;
+import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheHistory;
 import com.asakusafw.thundergate.runtime.cache.mapreduce.Invalidation;
 import com.asakusafw.thundergate.runtime.cache.mapreduce.PatchStrategy;
+import com.asakusafw.thundergate.runtime.cache.mapreduce.SortedCacheSupport;
 
 /**
  * Test for building caches ({@link CacheBuildClient}).
@@ -91,20 +95,25 @@ public class CacheBuildTest {
     @Parameters(name = "{0}")
     public static List<Object[]> data() {
         return Arrays.asList(new Object[][] {
-                { "merge", -1L },
-                { "table", Long.MAX_VALUE },
+                { "merge", -1L, -1L },
+                { "table", Long.MAX_VALUE, -1L },
+                { "local", -1L, Long.MAX_VALUE },
         });
     }
 
     private final long limit;
 
+    private final long localLimit;
+
     /**
      * Creates a new instance.
      * @param label the parameter label
      * @param limit the table join limit
+     * @param localLimit the local build limit
      */
-    public CacheBuildTest(String label, long limit) {
+    public CacheBuildTest(String label, long limit, long localLimit) {
         this.limit = limit;
+        this.localLimit = localLimit;
     }
 
     /**
@@ -546,6 +555,457 @@ public class CacheBuildTest {
         }
     }
 
+    /**
+     * Update a cache twice, with migrating it into sorted layout.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted() throws Exception {
+        CacheInfo info = new CacheInfo(
+                "a",
+                "id",
+                calendar("2011-12-13 14:15:16"),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getHeadContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                for (int i = 9; i >= 0; i--) {
+                    model.systemId.set(i);
+                    model.value.set("HEAD");
+                    model.deleted.set(false);
+                    output.write(model);
+                }
+            }
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(2);
+                model.value.set("NEXT");
+                model.deleted.set(false);
+                output.write(model);
+
+                model.systemId.set(4);
+                model.value.set("NEXT");
+                model.deleted.set(true);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(PatchStrategy.KEY_PARTITION_SIZE, "1"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            if (limit <= 0 && localLimit <= 0) {
+                assertThat(storage.getHeadPartitionBoundaries(), is(notNullValue()));
+            }
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(10);
+                model.value.set("LAST");
+                model.deleted.set(false);
+                output.write(model);
+
+                model.systemId.set(3);
+                model.value.set("LAST");
+                model.deleted.set(false);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE);
+            assertThat(storage.getHeadCacheInfo(), is(info));
+
+            List<TestDataModel> results = collect(storage, storage.getHeadContents("*"));
+            assertThat(results.size(), is(10));
+            String[] expected = {
+                    "HEAD", "HEAD", "NEXT", "LAST", null, "HEAD", "HEAD", "HEAD", "HEAD", "HEAD", "LAST",
+            };
+            int index = 0;
+            for (int i = 0; i < expected.length; i++) {
+                if (expected[i] == null) {
+                    continue;
+                }
+                assertThat(results.get(index).systemId.get(), is((long) i));
+                assertThat(results.get(index).value.toString(), is(expected[i]));
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Update a sorted cache with invalidation, where some partitions do not have any patch records.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_invalidated() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            prepareSorted(storage, info);
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(1);
+                model.value.set("LAST");
+                model.deleted.set(false);
+                model.on(2015, 1, 1);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(Invalidation.KEY_INVALIDATION_TIMESTAMP, "2010-01-01 00:00:00"),
+                    "-D", pair(Invalidation.KEY_INVALIDATION_TARGET, ".+"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+
+            // the out-of-date record (7) must be dropped even if its partition has no patch records
+            List<TestDataModel> results = collect(storage, storage.getHeadContents("*"));
+            String[] expected = {
+                    "HEAD", "LAST", "HEAD", "HEAD", "HEAD", "HEAD", "HEAD", null, "HEAD", "HEAD",
+            };
+            check(results, expected);
+        }
+    }
+
+    /**
+     * Update a sorted cache, which partitions are grown too large.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_rebalance() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            prepareSorted(storage, info);
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                for (int i = 10; i < 20; i++) {
+                    model.systemId.set(i);
+                    model.value.set("LAST");
+                    model.deleted.set(false);
+                    model.on(2015, 1, 1);
+                    output.write(model);
+                }
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(PatchStrategy.KEY_PARTITION_SIZE, "1"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            if (limit <= 0 && localLimit <= 0) {
+                // the new records must not be concentrated into the last partition
+                long[] boundaries = storage.getHeadPartitionBoundaries();
+                assertThat(boundaries, is(notNullValue()));
+                assertThat(boundaries.length, is(greaterThan(0)));
+                assertThat(boundaries[boundaries.length - 1], is(greaterThan(9L)));
+            }
+
+            List<TestDataModel> results = collect(storage, storage.getHeadContents("*"));
+            String[] expected = new String[20];
+            Arrays.fill(expected, 0, 10, "HEAD");
+            Arrays.fill(expected, 10, 20, "LAST");
+            check(results, expected);
+        }
+    }
+
+    /**
+     * Update a sorted cache, with sorting the patch in multiple runs.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_spill() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            prepareSorted(storage, info);
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                for (int i : new int[] { 12, 3, 11, 5 }) {
+                    model.systemId.set(i);
+                    model.value.set("LAST");
+                    model.deleted.set(false);
+                    model.on(2015, 1, 1);
+                    output.write(model);
+                }
+                model.systemId.set(6);
+                model.value.set("LAST");
+                model.deleted.set(true);
+                model.on(2015, 1, 1);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(SortedCacheSupport.KEY_SORT_BUFFER_LIMIT, "2"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+
+            List<TestDataModel> results = collect(storage, storage.getHeadContents("*"));
+            String[] expected = {
+                    "HEAD", "HEAD", "HEAD", "LAST", "HEAD", "LAST", null, "HEAD", "HEAD", "HEAD",
+                    null, "LAST", "LAST",
+            };
+            check(results, expected);
+        }
+    }
+
+    /**
+     * Update a sorted cache with a patch which is too large for the sorted merge,
+     * the partitioned layout must be kept.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_large_patch() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            long[] boundaries = { 5L };
+            for (int partition = 0; partition <= boundaries.length; partition++) {
+                Path path = CacheStorage.getPartitionContents(storage.getHeadDirectory(), partition);
+                try (ModelOutput<TestDataModel> output = create(storage, path)) {
+                    TestDataModel model = new TestDataModel();
+                    for (int i = partition * 5, n = i + 5; i < n; i++) {
+                        model.systemId.set(i);
+                        model.value.set("HEAD");
+                        model.deleted.set(false);
+                        model.on(2014, 1, 1);
+                        output.write(model);
+                    }
+                }
+            }
+            Properties properties = new Properties();
+            info.storeTo(properties);
+            properties.setProperty(CacheInfo.KEY_PARTITION_BOUNDARIES,
+                    CacheStorage.formatPartitionBoundaries(boundaries));
+            try (FSDataOutputStream out = storage.getFileSystem().create(storage.getHeadProperties())) {
+                properties.store(out, null);
+            }
+
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                for (int i : new int[] { 12, 2, 7 }) {
+                    model.systemId.set(i);
+                    model.value.set("LAST");
+                    model.deleted.set(i == 7);
+                    model.on(2015, 1, 1);
+                    output.write(model);
+                }
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(PatchStrategy.KEY_SORTED_MERGE_LIMIT, "0"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            if (localLimit <= 0) {
+                // both of merge join and table join must keep the current boundaries
+                assertThat(storage.getHeadPartitionBoundaries(), is(boundaries));
+            }
+
+            List<TestDataModel> results = collect(storage, storage.getHeadContents("*"));
+            String[] expected = {
+                    "HEAD", "HEAD", "LAST", "HEAD", "HEAD", "HEAD", "HEAD", null, "HEAD", "HEAD",
+                    null, null, "LAST",
+            };
+            check(results, expected);
+        }
+    }
+
+    /**
+     * Update a sorted cache with retaining the previous version, and then roll it back.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_rollback() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        CacheInfo next = new CacheInfo(
+                "a",
+                "id",
+                calendar("2015-01-02 00:00:00"),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            prepareSorted(storage, info);
+            FileSystem fs = storage.getFileSystem();
+            CacheHistory history = new CacheHistory(storage);
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(next);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                for (int i : new int[] { 3, 12 }) {
+                    model.systemId.set(i);
+                    model.value.set("LAST");
+                    model.deleted.set(false);
+                    model.on(2015, 1, 1);
+                    output.write(model);
+                }
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(CacheHistory.KEY_LIMIT, "1"));
+            assertThat(storage.getHeadCacheInfo(), is(next));
+            check(collect(storage, storage.getHeadContents("*")), new String[] {
+                    "HEAD", "HEAD", "HEAD", "LAST", "HEAD", "HEAD", "HEAD", "HEAD", "HEAD", "HEAD",
+                    null, null, "LAST",
+            });
+
+            // the escaped metadata of the previous version must be moved into the history entry
+            List<Path> entries = history.getEntries();
+            assertThat(entries, hasSize(1));
+            assertThat(fs.exists(new Path(entries.get(0), CacheStorage.META_FILE_NAME)), is(true));
+            assertThat(escaped(fs, storage.getHeadDirectory()), is(empty()));
+            assertThat(escaped(fs, entries.get(0)), is(empty()));
+
+            execute(CacheBuildClient.SUBCOMMAND_ROLLBACK);
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            assertThat(history.getEntries(), is(empty()));
+            if (limit <= 0 && localLimit <= 0) {
+                assertThat(storage.getHeadPartitionBoundaries(), is(notNullValue()));
+            }
+            String[] expected = new String[10];
+            Arrays.fill(expected, "HEAD");
+            check(collect(storage, storage.getHeadContents("*")), expected);
+        }
+    }
+
+    /**
+     * Update a sorted cache without retaining the previous version.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_sorted_without_history() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            prepareSorted(storage, info);
+            FileSystem fs = storage.getFileSystem();
+
+            storage.deletePatch();
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(3);
+                model.value.set("LAST");
+                model.deleted.set(false);
+                model.on(2015, 1, 1);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE);
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            assertThat(new CacheHistory(storage).getEntries(), is(empty()));
+            assertThat(fs.exists(new CacheHistory(storage).getHistoryDirectory()), is(false));
+            assertThat(escaped(fs, storage.getHeadDirectory()), is(empty()));
+        }
+    }
+
+    /**
+     * Update a cache whose previous version does not have its metadata, with enabling history.
+     * @throws Exception if failed
+     */
+    @Test
+    public void update_history_incomplete() throws Exception {
+        CacheInfo info = sortedCacheInfo();
+        framework.deployLibrary(TestDataModel.class, "batchapps/tbatch/lib/jobflow-tflow.jar");
+        try (CacheStorage storage = new CacheStorage(getConfiguration(), getTargetUri())) {
+            storage.putPatchCacheInfo(info);
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getHeadContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(1);
+                model.value.set("HEAD");
+                model.deleted.set(false);
+                model.on(2014, 1, 1);
+                output.write(model);
+            }
+            try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+                TestDataModel model = new TestDataModel();
+                model.systemId.set(2);
+                model.value.set("NEXT");
+                model.deleted.set(false);
+                model.on(2015, 1, 1);
+                output.write(model);
+            }
+            execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                    "-D", pair(CacheHistory.KEY_LIMIT, "1"));
+            assertThat(storage.getHeadCacheInfo(), is(info));
+            check(collect(storage, storage.getHeadContents("*")), new String[] {
+                    null, "HEAD", "NEXT",
+            });
+
+            // the previous version cannot be restored without its metadata
+            assertThat(new CacheHistory(storage).getEntries(), is(empty()));
+        }
+    }
+
+    private CacheInfo sortedCacheInfo() {
+        return new CacheInfo(
+                "a",
+                "id",
+                calendar("2015-01-01 00:00:00"),
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+    }
+
+    private void prepareSorted(CacheStorage storage, CacheInfo info) throws IOException, InterruptedException {
+        storage.putPatchCacheInfo(info);
+        try (ModelOutput<TestDataModel> output = create(storage, storage.getHeadContents("0"))) {
+            TestDataModel model = new TestDataModel();
+            for (int i = 9; i >= 0; i--) {
+                model.systemId.set(i);
+                model.value.set("HEAD");
+                model.deleted.set(false);
+                if (i == 7) {
+                    model.on(2000, 1, 1);
+                } else {
+                    model.on(2014, 1, 1);
+                }
+                output.write(model);
+            }
+        }
+        try (ModelOutput<TestDataModel> output = create(storage, storage.getPatchContents("0"))) {
+            TestDataModel model = new TestDataModel();
+            model.systemId.set(0);
+            model.value.set("HEAD");
+            model.deleted.set(false);
+            model.on(2014, 1, 1);
+            output.write(model);
+        }
+        execute(CacheBuildClient.SUBCOMMAND_UPDATE,
+                "-D", pair(PatchStrategy.KEY_PARTITION_SIZE, "1"));
+        assertThat(storage.getHeadCacheInfo(), is(info));
+        if (limit <= 0 && localLimit <= 0) {
+            assertThat(storage.getHeadPartitionBoundaries(), is(notNullValue()));
+        }
+    }
+
+    private static List<String> escaped(FileSystem fs, Path directory) throws IOException {
+        List<String> results = new ArrayList<>();
+        for (FileStatus stat : fs.listStatus(directory)) {
+            if (stat.getPath().getName().startsWith(CacheStorage.META_FILE_NAME + ".")) {
+                results.add(stat.getPath().getName());
+            }
+        }
+        return results;
+    }
+
+    private static void check(List<TestDataModel> results, String[] expected) {
+        int index = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] == null) {
+                continue;
+            }
+            assertThat(results.get(index).systemId.get(), is((long) i));
+            assertThat(results.get(index).value.toString(), is(expected[i]));
+            index++;
+        }
+        assertThat(results.size(), is(index));
+    }
+
     private void execute(String subcommand, String... extra) throws IOException, InterruptedException {
         List<String> args = new ArrayList<>();
         Collections.addAll(args,
@@ -558,6 +1018,7 @@ public class CacheBuildTest {
                 "tbl_testing");
         Collections.addAll(args, extra);
         Collections.addAll(args, "-D", String.format("%s=%d", PatchStrategy.KEY_TABLE_JOIN_LIMIT, limit));
+        Collections.addAll(args, "-D", String.format("%s=%d", PatchStrategy.KEY_LOCAL_BUILD_LIMIT, localLimit));
         try (FileListProvider provider = exec(Constants.PATH_REMOTE_ROOT + Constants.PATH_LOCAL_CACHE_BUILD, args)) {
             provider.discardReader();
             provider.discardWriter();
@@ -20,6 +20,7 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.text.ParseException;
@@ -30,6 +31,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.hadoop.fs.Path;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -190,6 +192,63 @@ public class DeleteCacheStorageRemoteTest {
         }
     }
 
+    /**
+     * restricts locations under the base path.
+     * @throws Exception if failed
+     */
+    @Test
+    public void restrictLocation() throws Exception {
+        File outside = folder.newFolder("outside");
+        CacheStorage storage = new CacheStorage(service.getConf(), outside.getAbsoluteFile().toURI());
+        try {
+            storage.putHeadCacheInfo(new CacheInfo(
+                    "a",
+                    "id",
+                    calendar("2011-12-13 14:15:16"),
+                    "EXAMPLE",
+                    Collections.singleton("COL"),
+                    "com.example.Model",
+                    123L));
+            ConfigurationLoader.getProperty().setProperty(
+                    Constants.PROP_KEY_BASE_PATH,
+                    folder.newFolder("base").getAbsoluteFile().toURI().toString());
+            service.restrictLocation = true;
+
+            FileList.Reader reader = prepare("nothing", "../outside");
+            FileList.Writer writer = FileList.createWriter(writerBuffer, false);
+            service.execute(reader, writer);
+            writer.close();
+            List<FileProtocol> results = collect(writerBuffer.toByteArray());
+            assertThat(results.size(), is(2));
+            assertThat(results.get(0).getKind(), is(FileProtocol.Kind.RESPONSE_NOT_FOUND));
+            assertThat(results.get(1).getKind(), is(FileProtocol.Kind.RESPONSE_ERROR));
+
+            assertThat(storage.getHeadCacheInfo(), is(notNullValue()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * test for {@link DeleteCacheStorageRemote#isDescendant(Path, Path)}.
+     */
+    @Test
+    public void isDescendant() {
+        Path base = new Path("hdfs://localhost/tmp/asakusa");
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://localhost/tmp/asakusa/a")), is(true));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://localhost/tmp/asakusa/a/b")), is(true));
+        assertThat(DeleteCacheStorageRemote.isDescendant(
+                new Path("hdfs://localhost/tmp/asakusa/"), new Path("hdfs://localhost/tmp/asakusa/a")), is(true));
+
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://localhost/tmp/asakusa")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://localhost/tmp/asakusa2/a")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://localhost/tmp")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("hdfs://other/tmp/asakusa/a")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path("file:/tmp/asakusa/a")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path(base, "../a")), is(false));
+        assertThat(DeleteCacheStorageRemote.isDescendant(base, new Path(base, "a/../..")), is(false));
+    }
+
     private URI uri(String string) {
         try {
             return FileNameUtil.createPath(service.getConf(), string, "dummy", "dummy").toUri();
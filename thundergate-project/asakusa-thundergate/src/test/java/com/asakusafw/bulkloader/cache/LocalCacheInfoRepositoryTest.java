@@ -24,10 +24,12 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -445,6 +447,64 @@ public class LocalCacheInfoRepositoryTest {
         }
     }
 
+    /**
+     * Lock caches at once.
+     * @throws Exception if failed
+     */
+    @Test
+    public void tryLock_batch() throws Exception {
+        Connection connection = DBConnection.getConnection();
+        try {
+            LocalCacheInfoRepository repo = new LocalCacheInfoRepository(connection);
+            assertThat(repo.tryLock("other", "b", "table"), is(true));
+
+            List<LocalCacheInfo> caches = new ArrayList<>();
+            for (int i = 0; i < LocalCacheInfoRepository.BATCH_SIZE * 2 + 1; i++) {
+                caches.add(info("c" + i, "table"));
+            }
+            caches.add(info("a", "table"));
+            caches.add(info("b", "table"));
+            Set<String> locked = repo.tryLock("testing", caches);
+            assertThat(locked.size(), is(caches.size() - 1));
+            assertThat(locked, hasItem("a"));
+            assertThat(locked, not(hasItem("b")));
+            assertThat(repo.tryLock("testing", "a", "table"), is(false));
+        } finally {
+            DBConnection.closeConn(connection);
+        }
+    }
+
+    /**
+     * delete cache information completely at once.
+     * @throws Exception if failed
+     */
+    @Test
+    public void deleteCompletely_batch() throws Exception {
+        Connection connection = DBConnection.getConnection();
+        try {
+            LocalCacheInfoRepository repo = new LocalCacheInfoRepository(connection);
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < LocalCacheInfoRepository.BATCH_SIZE + 1; i++) {
+                String id = "testing" + i;
+                repo.putCacheInfo(info(id, "__TG_TEST1"));
+                assertThat(repo.deleteCacheInfo(id), is(true));
+                ids.add(id);
+            }
+            repo.putCacheInfo(info("rest", "__TG_TEST2"));
+            assertThat(repo.deleteCacheInfo("rest"), is(true));
+            assertThat(repo.listDeletedCacheInfo().size(), is(ids.size() + 1));
+
+            ids.add("missing");
+            assertThat(repo.deleteCacheInfoCompletely(ids), is(ids.size() - 1));
+
+            List<LocalCacheInfo> deleted = repo.listDeletedCacheInfo();
+            assertThat(deleted.size(), is(1));
+            assertThat(deleted.get(0).getId(), is("rest"));
+        } finally {
+            DBConnection.closeConn(connection);
+        }
+    }
+
     /**
      * Release lock.
      * @throws Exception if failed
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.FileNameUtil;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+import com.asakusafw.bulkloader.transfer.FileList;
+import com.asakusafw.bulkloader.transfer.FileProtocol;
+import com.asakusafw.runtime.util.hadoop.ConfigurationProvider;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+import com.asakusafw.thundergate.runtime.cache.CacheStorage;
+import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheHistory;
+
+/**
+ * Test for {@link RollbackCacheStorageRemote}.
+ */
+public class RollbackCacheStorageRemoteTest {
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final RollbackCacheStorageRemote service = new RollbackCacheStorageRemote();
+
+    private final ByteArrayOutputStream writerBuffer = new ByteArrayOutputStream();
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        UnitTestUtil.setUpBeforeClass();
+        UnitTestUtil.setUpEnv();
+    }
+
+    /**
+     * clean up.
+     * @throws Exception if failed
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        UnitTestUtil.tearDownEnv();
+        UnitTestUtil.tearDownAfterClass();
+    }
+
+    /**
+     * Initializes the test.
+     * @throws Exception if some errors were occurred
+     */
+    @SuppressWarnings("deprecation")
+    @Before
+    public void setUp() throws Exception {
+        UnitTestUtil.startUp();
+        service.initialize("target", "batch", "flow", "exec", "tester");
+        service.setConf(new ConfigurationProvider().newInstance());
+        ConfigurationLoader.getProperty().setProperty(
+                Constants.PROP_KEY_BASE_PATH,
+                folder.getRoot().getAbsoluteFile().toURI().toString());
+    }
+
+    /**
+     * rolls back to the previous version.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback() throws Exception {
+        CacheInfo previous = info("2011-12-13 14:15:16");
+        CacheInfo current = info("2011-12-14 14:15:16");
+        CacheStorage storage = new CacheStorage(service.getConf(), uri("available"));
+        try {
+            storage.putHeadCacheInfo(previous);
+            Path escape = new Path(storage.getTempoaryDirectory(), "PREVIOUS");
+            assertThat(storage.getFileSystem().rename(storage.getHeadDirectory(), escape), is(true));
+            new CacheHistory(storage).push(escape, Collections.<String>emptyList());
+            storage.putHeadCacheInfo(current);
+
+            List<FileProtocol> results = execute("available");
+            assertThat(results.size(), is(1));
+            assertThat(results.get(0).getLocation(), endsWith("available"));
+            assertThat(results.get(0).getKind(), is(FileProtocol.Kind.RESPONSE_CACHE_INFO));
+            assertThat(results.get(0).getInfo(), is(previous));
+
+            assertThat(storage.getHeadCacheInfo(), is(previous));
+            assertThat(new CacheHistory(storage).getEntries(), is(empty()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * cache storage does not have any previous versions.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_without_history() throws Exception {
+        CacheInfo current = info("2011-12-13 14:15:16");
+        CacheStorage storage = new CacheStorage(service.getConf(), uri("available"));
+        try {
+            storage.putHeadCacheInfo(current);
+
+            List<FileProtocol> results = execute("available", "nothing");
+            assertThat(results.size(), is(2));
+            assertThat(results.get(0).getLocation(), endsWith("available"));
+            assertThat(results.get(0).getKind(), is(FileProtocol.Kind.RESPONSE_NOT_FOUND));
+            assertThat(results.get(1).getLocation(), endsWith("nothing"));
+            assertThat(results.get(1).getKind(), is(FileProtocol.Kind.RESPONSE_NOT_FOUND));
+
+            assertThat(storage.getHeadCacheInfo(), is(current));
+        } finally {
+            storage.close();
+        }
+    }
+
+    private List<FileProtocol> execute(String... locations) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileList.Writer request = FileList.createWriter(output, false);
+        for (String location : locations) {
+            request.openNext(new FileProtocol(FileProtocol.Kind.GET_CACHE_INFO, location, null)).close();
+        }
+        request.close();
+
+        FileList.Writer writer = FileList.createWriter(writerBuffer, false);
+        service.execute(FileList.createReader(new ByteArrayInputStream(output.toByteArray())), writer);
+        writer.close();
+        return collect(writerBuffer.toByteArray());
+    }
+
+    private List<FileProtocol> collect(byte[] byteArray) throws IOException {
+        List<FileProtocol> results = new ArrayList<>();
+        FileList.Reader reader = FileList.createReader(new ByteArrayInputStream(byteArray));
+        while (reader.next()) {
+            results.add(reader.getCurrentProtocol());
+            reader.openContent().close();
+        }
+        return results;
+    }
+
+    private URI uri(String string) {
+        try {
+            return FileNameUtil.createPath(service.getConf(), string, "dummy", "dummy").toUri();
+        } catch (BulkLoaderSystemException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private CacheInfo info(String timestamp) {
+        Date date;
+        try {
+            date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(timestamp);
+        } catch (ParseException e) {
+            throw new AssertionError(e);
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return new CacheInfo(
+                "a",
+                "id",
+                calendar,
+                "EXAMPLE",
+                Collections.singleton("COL"),
+                "com.example.Model",
+                123L);
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ChangeCaptureType;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+import com.asakusafw.thundergate.runtime.cache.CacheInfo;
+
+/**
+ * Test for {@link RollbackCache}.
+ */
+public class RollbackCacheTest {
+
+    private static final List<String> PROPERTIES = Arrays.asList(new String[] { "bulkloader-conf-db.properties" });
+
+    private static final String JOBFLOW_ID = "JOB_FLOW01";
+
+    private static final String EXECUTION_ID = "JOB_FLOW01-001";
+
+    private static final String BUILT = "DATE_FORMAT(BUILT_TIMESTAMP, '%Y-%m-%d %H:%i:%s')";
+
+    private static final String TIMESTAMPS = "DATE_FORMAT(CACHE_TIMESTAMP, '%Y-%m-%d %H:%i:%s'), " + BUILT;
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        UnitTestUtil.setUpBeforeClass();
+        UnitTestUtil.setUpEnv();
+        BulkLoaderInitializer.initDBServer(JOBFLOW_ID, EXECUTION_ID, PROPERTIES, "target1");
+        UnitTestUtil.setUpDB();
+    }
+
+    /**
+     * clean up.
+     * @throws Exception if failed
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        UnitTestUtil.tearDownDB();
+        UnitTestUtil.tearDownEnv();
+        UnitTestUtil.tearDownAfterClass();
+    }
+
+    /**
+     * Initializes the test.
+     * @throws Exception if some errors were occurred
+     */
+    @Before
+    public void setUp() throws Exception {
+        BulkLoaderInitializer.initDBServer(JOBFLOW_ID, EXECUTION_ID, PROPERTIES, "target1");
+        UnitTestUtil.startUp();
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM __TG_CACHE_LOCK",
+                "DELETE FROM __TG_CACHE_INFO",
+                "INSERT INTO __TG_CACHE_INFO "
+                + "(CACHE_ID, CACHE_TIMESTAMP, BUILT_TIMESTAMP, TABLE_NAME, REMOTE_PATH, ACTIVE) VALUES "
+                + "('a', '2011-01-05 00:00:00', '2011-01-03 00:00:00', 'IMPORT_TARGET1', '/a', TRUE)");
+    }
+
+    /**
+     * Cleans up the test.
+     * @throws Exception if some errors were occurred
+     */
+    @After
+    public void tearDown() throws Exception {
+        UnitTestUtil.tearDown();
+    }
+
+    /**
+     * rolls back to the previous version, which is older than the last built timestamp.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback() throws Exception {
+        Mock mock = new Mock(info("2011-01-02 00:00:00"));
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "a", EXECUTION_ID), is(Constants.EXIT_CODE_SUCCESS));
+        assertThat(mock.rolledBack, is("/a"));
+
+        // the restored version must be accepted in the next import
+        List<String> rows = UnitTestUtil.selectRows(
+                "SELECT CACHE_ID, " + BUILT + ", CACHE_TIMESTAMP >= BUILT_TIMESTAMP, ACTIVE FROM __TG_CACHE_INFO");
+        assertThat(rows, is(Collections.singletonList("a,2011-01-02 00:00:00,1,1")));
+        assertThat(UnitTestUtil.selectRows("SELECT CACHE_ID FROM __TG_CACHE_LOCK"), is(empty()));
+    }
+
+    /**
+     * the remote cache storage does not have any previous versions.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_without_history() throws Exception {
+        Mock mock = new Mock(null);
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "a", EXECUTION_ID), is(Constants.EXIT_CODE_ERROR));
+        assertThat(mock.rolledBack, is("/a"));
+
+        List<String> rows = UnitTestUtil.selectRows(
+                "SELECT CACHE_ID, " + TIMESTAMPS + ", ACTIVE FROM __TG_CACHE_INFO");
+        assertThat(rows, is(Collections.singletonList("a,2011-01-05 00:00:00,2011-01-03 00:00:00,1")));
+        assertThat(UnitTestUtil.selectRows("SELECT CACHE_ID FROM __TG_CACHE_LOCK"), is(empty()));
+    }
+
+    /**
+     * the cache is locked by another execution.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_locked() throws Exception {
+        UnitTestUtil.executeAndCommit(
+                "INSERT INTO __TG_CACHE_LOCK (CACHE_ID, EXECUTION_ID, ACQUIRED) VALUES ('a', 'other', NOW())");
+        Mock mock = new Mock(info("2011-01-02 00:00:00"));
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "a", EXECUTION_ID), is(Constants.EXIT_CODE_ERROR));
+        assertThat(mock.rolledBack, is(nullValue()));
+
+        List<String> rows = UnitTestUtil.selectRows(
+                "SELECT CACHE_ID, " + TIMESTAMPS + ", ACTIVE FROM __TG_CACHE_INFO");
+        assertThat(rows, is(Collections.singletonList("a,2011-01-05 00:00:00,2011-01-03 00:00:00,1")));
+        assertThat(UnitTestUtil.selectRows("SELECT EXECUTION_ID FROM __TG_CACHE_LOCK"), contains("other"));
+    }
+
+    /**
+     * the cache information does not exist.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_missing() throws Exception {
+        Mock mock = new Mock(info("2011-01-02 00:00:00"));
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "b", EXECUTION_ID), is(Constants.EXIT_CODE_ERROR));
+        assertThat(mock.rolledBack, is(nullValue()));
+    }
+
+    /**
+     * the change logs for the restored version may have been purged.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_change_log_purged() throws Exception {
+        ConfigurationLoader.getProperty().setProperty(
+                Constants.PROP_KEY_IMP_CHANGE_CAPTURE,
+                ChangeCaptureType.TABLE.getSymbol());
+        Mock mock = new Mock(info("2011-01-02 00:00:00"));
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "a", EXECUTION_ID), is(Constants.EXIT_CODE_WARNING));
+
+        // the next import rebuilds the cache
+        List<String> rows = UnitTestUtil.selectRows("SELECT CACHE_ID, ACTIVE FROM __TG_CACHE_INFO");
+        assertThat(rows, is(Collections.singletonList("a,0")));
+        assertThat(UnitTestUtil.selectRows("SELECT CACHE_ID FROM __TG_CACHE_LOCK"), is(empty()));
+    }
+
+    /**
+     * the change logs for the restored version are still retained.
+     * @throws Exception if failed
+     */
+    @Test
+    public void rollback_change_log_retained() throws Exception {
+        ConfigurationLoader.getProperty().setProperty(
+                Constants.PROP_KEY_IMP_CHANGE_CAPTURE,
+                ChangeCaptureType.TABLE.getSymbol());
+        Mock mock = new Mock(info("2011-01-03 00:00:00"));
+        assertThat(mock.execute("target1", "batch", JOBFLOW_ID, "a", EXECUTION_ID), is(Constants.EXIT_CODE_SUCCESS));
+
+        List<String> rows = UnitTestUtil.selectRows("SELECT CACHE_ID, " + BUILT + ", ACTIVE FROM __TG_CACHE_INFO");
+        assertThat(rows, is(Collections.singletonList("a,2011-01-03 00:00:00,1")));
+    }
+
+    private static CacheInfo info(String timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        try {
+            calendar.setTime(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(timestamp));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        return new CacheInfo(
+                CacheInfo.FEATURE_VERSION,
+                "a",
+                calendar,
+                "IMPORT_TARGET1",
+                Collections.singleton("VALUE"),
+                "com.example.Model",
+                1L);
+    }
+
+    private static class Mock extends RollbackCache {
+
+        final CacheInfo restored;
+
+        String rolledBack;
+
+        Mock(CacheInfo restored) {
+            this.restored = restored;
+        }
+
+        @Override
+        protected CacheInfo rollbackStorage(
+                String targetName,
+                String batchId,
+                String flowId,
+                String executionId,
+                LocalCacheInfo info) {
+            rolledBack = info.getPath();
+            return restored;
+        }
+    }
+}
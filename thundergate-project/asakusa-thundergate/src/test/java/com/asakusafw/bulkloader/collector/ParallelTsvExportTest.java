@@ -0,0 +1,127 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.collector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import test.modelgen.table.model.ImportTarget1;
+
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+
+/**
+ * Test for {@link ParallelTsvExport}.
+ */
+public class ParallelTsvExportTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Configuration conf = new Configuration();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        List<Path> paths = prepare(5, 100);
+        List<String> entries = run(paths, 3, Long.MAX_VALUE);
+        assertThat(entries, hasSize(5));
+        assertThat(entries, is(run(paths, 1, Long.MAX_VALUE)));
+        for (String entry : entries) {
+            assertThat(entry.split("\n").length, is(100));
+        }
+    }
+
+    /**
+     * entries are split by the max entry size.
+     * @throws Exception if failed
+     */
+    @Test
+    public void split() throws Exception {
+        List<Path> paths = prepare(4, 1000);
+        List<String> entries = run(paths, 2, 1024);
+        assertThat(entries.size(), greaterThan(4));
+        assertThat(entries, is(run(paths, 1, 1024)));
+    }
+
+    /**
+     * empty files.
+     * @throws Exception if failed
+     */
+    @Test
+    public void empty() throws Exception {
+        List<Path> paths = prepare(3, 0);
+        List<String> entries = run(paths, 3, 1024);
+        assertThat(entries, hasSize(3));
+        for (String entry : entries) {
+            assertThat(entry, is(""));
+        }
+    }
+
+    private List<Path> prepare(int files, int records) throws IOException {
+        List<Path> results = new ArrayList<>();
+        ImportTarget1 model = new ImportTarget1();
+        long sid = 0;
+        for (int i = 0; i < files; i++) {
+            Path path = new Path(new File(folder.getRoot(), "part-" + i).toURI());
+            try (ModelOutput<ImportTarget1> output = TemporaryStorage.openOutput(conf, ImportTarget1.class, path)) {
+                for (int j = 0; j < records; j++) {
+                    model.setSid(sid++);
+                    output.write(model);
+                }
+            }
+            results.add(path);
+        }
+        return results;
+    }
+
+    private List<String> run(List<Path> paths, int parallel, long maxEntrySize) throws IOException {
+        final List<String> results = new ArrayList<>();
+        ParallelTsvExport<ImportTarget1> export = new ParallelTsvExport<>(
+                conf, ImportTarget1.class, parallel, maxEntrySize);
+        export.write(paths, new ParallelTsvExport.EntrySink() {
+            @Override
+            public OutputStream openEntry(Path source) {
+                return new ByteArrayOutputStream();
+            }
+            @Override
+            public void closeEntry(Path source, OutputStream entry) {
+                results.add(new String(((ByteArrayOutputStream) entry).toByteArray(), StandardCharsets.UTF_8));
+            }
+        });
+        return results;
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.common;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ConnectionPool}.
+ */
+public class ConnectionPoolTest {
+
+    /**
+     * reuses released connections.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reuse() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        assertThat(pool.poll(), is(nullValue()));
+
+        Mock mock = new Mock();
+        Connection conn = pool.wrap(mock.connection());
+        conn.close();
+        assertThat(conn.isClosed(), is(true));
+        assertThat(mock.closed, is(false));
+        assertThat(mock.rollbacks, is(1));
+
+        Connection reused = pool.poll();
+        assertThat(reused, is(notNullValue()));
+        assertThat(reused.isClosed(), is(false));
+        assertThat(pool.poll(), is(nullValue()));
+        reused.close();
+    }
+
+    /**
+     * closes connections over the max size.
+     * @throws Exception if failed
+     */
+    @Test
+    public void overflow() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock a = new Mock();
+        Mock b = new Mock();
+        Connection c1 = pool.wrap(a.connection());
+        Connection c2 = pool.wrap(b.connection());
+        c1.close();
+        c2.close();
+        assertThat(a.closed, is(false));
+        assertThat(b.closed, is(true));
+    }
+
+    /**
+     * discards invalid connections.
+     * @throws Exception if failed
+     */
+    @Test
+    public void invalid() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock mock = new Mock();
+        pool.wrap(mock.connection()).close();
+        mock.valid = false;
+        assertThat(pool.poll(), is(nullValue()));
+        assertThat(mock.closed, is(true));
+    }
+
+    /**
+     * caches prepared statements.
+     * @throws Exception if failed
+     */
+    @Test
+    public void statement_cache() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 1);
+        Mock mock = new Mock();
+        Connection conn = pool.wrap(mock.connection());
+
+        PreparedStatement s1 = conn.prepareStatement("SELECT 1");
+        s1.close();
+        assertThat(s1.isClosed(), is(true));
+        PreparedStatement s2 = conn.prepareStatement("SELECT 1");
+        assertThat(mock.prepared.size(), is(1));
+        assertThat(s2.getConnection(), is(sameInstance(conn)));
+
+        // in use
+        PreparedStatement s3 = conn.prepareStatement("SELECT 1");
+        assertThat(mock.prepared.size(), is(2));
+        s2.close();
+        s3.close();
+        assertThat(mock.prepared.get(0).closed, is(false));
+        assertThat(mock.prepared.get(1).closed, is(true));
+
+        // evicted
+        conn.prepareStatement("SELECT 2").close();
+        assertThat(mock.prepared.size(), is(3));
+        assertThat(mock.prepared.get(0).closed, is(true));
+        assertThat(mock.prepared.get(2).closed, is(false));
+        conn.close();
+
+        // cached across the pooled connection
+        Connection reused = pool.poll();
+        reused.prepareStatement("SELECT 2").close();
+        reused.close();
+        assertThat(mock.prepared.size(), is(3));
+
+        pool.close();
+        assertThat(mock.closed, is(true));
+        assertThat(mock.prepared.get(2).closed, is(true));
+    }
+
+    /**
+     * releases locks left in the session.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reset() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock mock = new Mock();
+        pool.wrap(mock.connection()).close();
+        assertThat(mock.executed, contains("UNLOCK TABLES", "DO RELEASE_ALL_LOCKS()"));
+        assertThat(mock.closed, is(false));
+        assertThat(pool.poll(), is(notNullValue()));
+    }
+
+    /**
+     * discards connections which cannot be reset.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reset_failure() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock mock = new Mock();
+        mock.broken = true;
+        pool.wrap(mock.connection()).close();
+        assertThat(mock.closed, is(true));
+        assertThat(pool.poll(), is(nullValue()));
+    }
+
+    /**
+     * does not reset connections which are not kept in the pool.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reset_skip() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 0, 1);
+        Mock mock = new Mock();
+        pool.wrap(mock.connection()).close();
+        assertThat(mock.executed, is(empty()));
+        assertThat(mock.closed, is(true));
+    }
+
+    /**
+     * discards connections instead of returning them to the pool.
+     * @throws Exception if failed
+     */
+    @Test
+    public void discard() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock mock = new Mock();
+        Connection conn = pool.wrap(mock.connection());
+        assertThat(ConnectionPool.discard(conn), is(true));
+        assertThat(conn.isClosed(), is(true));
+        assertThat(mock.closed, is(true));
+        conn.close();
+        assertThat(pool.poll(), is(nullValue()));
+
+        assertThat(ConnectionPool.discard(new Mock().connection()), is(false));
+    }
+
+    /**
+     * restores settings of cached prepared statements.
+     * @throws Exception if failed
+     */
+    @Test
+    public void statement_settings() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 1);
+        Mock mock = new Mock();
+        Connection conn = pool.wrap(mock.connection());
+
+        PreparedStatement s1 = conn.prepareStatement("SELECT 1");
+        s1.setFetchSize(Integer.MIN_VALUE);
+        s1.close();
+        assertThat(mock.prepared.get(0).fetchSize, is(0));
+        assertThat(mock.prepared.get(0).closed, is(false));
+
+        // not restorable
+        PreparedStatement s2 = conn.prepareStatement("SELECT 1");
+        assertThat(mock.prepared.size(), is(1));
+        s2.setEscapeProcessing(false);
+        s2.close();
+        assertThat(mock.prepared.get(0).closed, is(true));
+
+        conn.prepareStatement("SELECT 1").close();
+        assertThat(mock.prepared.size(), is(2));
+        conn.close();
+    }
+
+    /**
+     * closes connections released after the pool was closed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void close() throws Exception {
+        ConnectionPool pool = new ConnectionPool("testing", 1, 0);
+        Mock mock = new Mock();
+        Connection conn = pool.wrap(mock.connection());
+        pool.close();
+        conn.close();
+        assertThat(mock.closed, is(true));
+    }
+
+    static class Mock implements InvocationHandler {
+
+        final Mock parent;
+
+        boolean valid = true;
+
+        boolean broken;
+
+        boolean closed;
+
+        int rollbacks;
+
+        int fetchSize;
+
+        final List<Mock> prepared = new ArrayList<>();
+
+        final List<String> executed = new ArrayList<>();
+
+        Mock() {
+            this(null);
+        }
+
+        Mock(Mock parent) {
+            this.parent = parent;
+        }
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return valid;
+            case "getAutoCommit":
+                return false;
+            case "rollback":
+                rollbacks++;
+                return null;
+            case "getTransactionIsolation":
+                return Connection.TRANSACTION_READ_COMMITTED;
+            case "prepareStatement":
+                Mock statement = new Mock(this);
+                prepared.add(statement);
+                return Proxy.newProxyInstance(
+                        getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, statement);
+            case "createStatement":
+                return Proxy.newProxyInstance(
+                        getClass().getClassLoader(), new Class<?>[] { Statement.class }, new Mock(this));
+            case "execute":
+                if (parent.broken) {
+                    throw new SQLException("broken");
+                }
+                parent.executed.add((String) args[0]);
+                return false;
+            case "getFetchSize":
+                return fetchSize;
+            case "setFetchSize":
+                fetchSize = (Integer) args[0];
+                return null;
+            default:
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link CopyBatchSize}.
+ */
+public class CopyBatchSizeTest {
+
+    /**
+     * grows while the batch is faster than the target.
+     */
+    @Test
+    public void grow() {
+        CopyBatchSize size = new CopyBatchSize(100, 1000);
+        assertThat(size.update(100, 800), is(125L));
+        assertThat(size.update(125, 10), is(250L));
+    }
+
+    /**
+     * shrinks while the batch is slower than the target.
+     */
+    @Test
+    public void shrink() {
+        CopyBatchSize size = new CopyBatchSize(100, 1000);
+        assertThat(size.update(100, 1250), is(80L));
+        assertThat(size.update(80, 100000), is(40L));
+    }
+
+    /**
+     * keeps the size within bounds.
+     */
+    @Test
+    public void bounds() {
+        CopyBatchSize small = new CopyBatchSize(1, 1000);
+        assertThat(small.update(1, 100000), is(1L));
+
+        CopyBatchSize large = new CopyBatchSize(CopyBatchSize.MAX_SIZE, 1000);
+        assertThat(large.update(1, 1), is(CopyBatchSize.MAX_SIZE));
+    }
+
+    /**
+     * ignores empty batches.
+     */
+    @Test
+    public void empty() {
+        CopyBatchSize size = new CopyBatchSize(100, 1000);
+        assertThat(size.update(0, 1), is(100L));
+    }
+
+    /**
+     * disables adjustment.
+     */
+    @Test
+    public void disabled() {
+        CopyBatchSize size = new CopyBatchSize(100, 0);
+        assertThat(size.update(100, 1), is(100L));
+        assertThat(size.update(100, 100000), is(100L));
+    }
+}
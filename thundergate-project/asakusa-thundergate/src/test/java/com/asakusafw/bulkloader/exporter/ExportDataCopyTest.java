@@ -669,4 +669,16 @@ public class ExportDataCopyTest {
             fail(util.getCauseMessage());
         }
     }
+
+    /**
+     * SIDの範囲でレコードロックを取得できるinnodb_autoinc_lock_modeとauto_increment_incrementを判定する。
+     * @throws Exception if failed
+     */
+    @Test
+    public void isConsecutiveAutoIncrement() throws Exception {
+        assertTrue(ExportDataCopy.isConsecutiveAutoIncrement(0, 1));
+        assertTrue(ExportDataCopy.isConsecutiveAutoIncrement(1, 1));
+        assertFalse(ExportDataCopy.isConsecutiveAutoIncrement(2, 1));
+        assertFalse(ExportDataCopy.isConsecutiveAutoIncrement(1, 2));
+    }
 }
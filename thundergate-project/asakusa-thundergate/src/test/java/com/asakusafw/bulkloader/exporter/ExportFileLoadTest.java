@@ -18,12 +18,21 @@ package com.asakusafw.bulkloader.exporter;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -35,9 +44,14 @@ import org.junit.Test;
 import com.asakusafw.bulkloader.bean.ExportTargetTableBean;
 import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+import com.asakusafw.bulkloader.transfer.FileList;
+import com.asakusafw.bulkloader.transfer.FileListProvider;
+import com.asakusafw.bulkloader.transfer.StreamFileListProvider;
 import com.asakusafw.testtools.TestUtils;
 import com.asakusafw.testtools.inspect.Cause;
 
@@ -166,6 +180,128 @@ public class ExportFileLoadTest {
             UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET2_1_DF");
         }
     }
+    /**
+     * <p>
+     * loadFileのテストケース
+     * 正常系：重複チェックをJOINで行うケース
+     * キー列にインデックスを作成できるテーブル(IMPORT_TARGET1)は、テンポラリテーブルの作成時にインデックスを作成し、
+     * キー列がTEXT型のテーブル(IMPORT_TARGET2)は、インデックスを作成せずに相関サブクエリで重複チェックを行う。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void loadFileTest_DupCheckJoin() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_EXP_DUPCHECK_STRATEGY, "JOIN");
+        ConfigurationLoader.setProperty(prop);
+
+        ExporterBean bean = createDuplicateCheckBean();
+        ExportFileLoad load = new ExportFileLoad() {
+            @Override
+            protected long getTempSeq(String jobflowSid, String tableName,
+                    Connection conn) throws BulkLoaderSystemException {
+                return 1;
+            }
+        };
+        try {
+            dropDuplicateCheckTables();
+            UnitTestUtil.executeUpdate("ALTER TABLE IMPORT_TARGET2 MODIFY TEXTDATA2 TEXT NULL");
+            UnitTestUtil.executeUpdate("ALTER TABLE IMPORT_TARGET2_ERROR MODIFY TEXTDATA2 TEXT NULL");
+
+            TestUtils util1 = new TestUtils(new File("src/test/data/exporter/ExportFileLoadTest/loadFileTest01_load"));
+            util1.storeToDatabase(false);
+
+            boolean result = load.loadFile(bean);
+            assertTrue(result);
+
+            // インデックスはテーブルの作成時にのみ作成する
+            assertEquals(1, countDuplicateCheckIndex("EXPORT_TEMP_IMPORT_TARGET1_1"));
+            assertEquals(0, countDuplicateCheckIndex("EXPORT_TEMP_IMPORT_TARGET2_1"));
+
+            // 重複チェックの結果はEXISTSの場合と同じ
+            assertTrue(UnitTestUtil.countAssert("EXPORT_TEMP_IMPORT_TARGET1_1_DF", 2));
+            assertTrue(UnitTestUtil.countAssert("EXPORT_TEMP_IMPORT_TARGET2_1_DF", 3));
+        } finally {
+            UnitTestUtil.executeUpdate("ALTER TABLE IMPORT_TARGET2 MODIFY TEXTDATA2 VARCHAR(45) NULL");
+            UnitTestUtil.executeUpdate("ALTER TABLE IMPORT_TARGET2_ERROR MODIFY TEXTDATA2 VARCHAR(45) NULL");
+            dropDuplicateCheckTables();
+        }
+    }
+    /**
+     * <p>
+     * isIndexableのテストケース
+     * TEXT/BLOB型のカラムや、長すぎるキーにはインデックスを作成しない。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void isIndexable() throws Exception {
+        assertTrue(ExportFileLoad.isIndexable(
+                Arrays.asList("varchar", "int"), Arrays.asList(180L, null)));
+        assertFalse(ExportFileLoad.isIndexable(
+                Arrays.asList("varchar", "text"), Arrays.asList(180L, 65535L)));
+        assertFalse(ExportFileLoad.isIndexable(
+                Arrays.asList("mediumblob"), Arrays.<Long>asList((Long) null)));
+        assertFalse(ExportFileLoad.isIndexable(
+                Arrays.asList("varchar"), Arrays.asList(1024L)));
+        assertFalse(ExportFileLoad.isIndexable(
+                Arrays.asList("varchar", "varchar", "varchar", "varchar", "varchar"),
+                Arrays.asList(700L, 700L, 700L, 700L, 700L)));
+    }
+    private ExporterBean createDuplicateCheckBean() {
+        Map<String, ExportTargetTableBean> targetTable = new LinkedHashMap<>();
+        ExportTargetTableBean table1 = new ExportTargetTableBean();
+        table1.setDuplicateCheck(true);
+        table1.addExportFile(new File(new File ("src/test/data/exporter/EXP_EXP_TARGET1_1.tsv").getAbsolutePath()));
+        table1.addExportFile(new File(new File ("src/test/data/exporter/EXP_EXP_TARGET1_2.tsv").getAbsolutePath()));
+        table1.setExportTsvColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        table1.setExportTableColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        table1.setKeyColumns(Arrays.asList(new String[]{"TEXTDATA1", "INTDATA1"}));
+        table1.setErrorTableName("IMPORT_TARGET1_ERROR");
+        table1.setErrorTableColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        targetTable.put("IMPORT_TARGET1", table1);
+        ExportTargetTableBean table2 = new ExportTargetTableBean();
+        table2.setDuplicateCheck(true);
+        table2.addExportFile(new File(new File ("src/test/data/exporter/EXP_EXP_TARGET2_1.tsv").getAbsolutePath()));
+        table2.setExportTsvColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        table2.setExportTableColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        table2.setKeyColumns(Arrays.asList(new String[]{"TEXTDATA2"}));
+        table2.setErrorTableName("IMPORT_TARGET2_ERROR");
+        table2.setErrorTableColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        targetTable.put("IMPORT_TARGET2", table2);
+        ExporterBean bean = new ExporterBean();
+        bean.setExportTargetTable(targetTable);
+        bean.setJobflowSid("11");
+        bean.setJobflowId(jobflowId);
+        bean.setExecutionId(executionId);
+        return bean;
+    }
+    private void dropDuplicateCheckTables() throws Exception {
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET1_1");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET2_1");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET1_1_DF");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET2_1_DF");
+    }
+    private int countDuplicateCheckIndex(String tableName) throws Exception {
+        Connection conn = DBConnection.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("SELECT COUNT(DISTINCT INDEX_NAME) FROM information_schema.STATISTICS "
+                    + "WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND INDEX_NAME=?");
+            stmt.setString(1, tableName);
+            stmt.setString(2, ExportFileLoad.DUPLICATE_CHECK_INDEX_NAME);
+            rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+            DBConnection.closeConn(conn);
+        }
+    }
     /**
      *
      * <p>
@@ -508,6 +644,209 @@ public class ExportFileLoadTest {
 
        }
    }
+    /**
+     *
+     * <p>
+     * loadStreamのテストケース
+     * 正常系：受信中のデータを中間ファイルを経由せずにロードするケース(重複チェックあり)
+     * ・テーブル：IMPORT_TARGET1
+     * 　-エントリ：EXP_IMPORT_TARGET1_1.tsv
+     * 　-エントリ：EXP_IMPORT_TARGET1_2.tsv
+     * ・テーブル：IMPORT_TARGET2
+     * 　-エントリ：EXP_IMPORT_TARGET2_1.tsv
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void loadStreamTest01() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Map<String, File> entries = new LinkedHashMap<>();
+        entries.put("EXP_IMPORT_TARGET1_1.tsv", new File("src/test/data/exporter/EXP_EXP_TARGET1_1.tsv"));
+        entries.put("EXP_IMPORT_TARGET1_2.tsv", new File("src/test/data/exporter/EXP_EXP_TARGET1_2.tsv"));
+        entries.put("EXP_IMPORT_TARGET2_1.tsv", new File("src/test/data/exporter/EXP_EXP_TARGET2_1.tsv"));
+        StreamReceive receive = new StreamReceive(createFileList(entries), true);
+
+        // テスト対象クラスを生成
+        ExportFileLoad load = new ExportFileLoad() {
+            @Override
+            protected long getTempSeq(String jobflowSid, String tableName,
+                    Connection conn) throws BulkLoaderSystemException {
+                return 1;
+            }
+        };
+        try {
+            dropStreamTables();
+
+            // テストデータを指定
+            TestUtils util1 = new TestUtils(new File("src/test/data/exporter/ExportFileLoadTest/loadFileTest01_load"));
+            // テストデータをセット
+            util1.storeToDatabase(false);
+
+            // テスト対象クラス実行
+            boolean result = load.loadStream(bean, receive);
+
+            // 実行結果の検証
+            assertTrue(result);
+            assertTrue(receive.closed);
+
+            // DBの結果を検証 (中間ファイルからロードした場合と同じ結果になる)
+            TestUtils util2 = new TestUtils(new File("src/test/data/exporter/ExportFileLoadTest/loadFileTest01_assert"));
+            util2.loadFromDatabase();
+            if (!util2.inspect()) {
+                for (Cause cause : util2.getCauses()) {
+                    System.out.println(cause.getMessage());
+                }
+                fail(util2.getCauseMessage());
+            }
+            // 重複チェック件数を確認
+            assertTrue(UnitTestUtil.countAssert("EXPORT_TEMP_IMPORT_TARGET1_1_DF", 2));
+            assertTrue(UnitTestUtil.countAssert("EXPORT_TEMP_IMPORT_TARGET2_1_DF", 3));
+            // 中間ファイルは作成しない
+            assertTrue(bean.getExportTargetTable("IMPORT_TARGET1").getExportFiles().isEmpty());
+            assertTrue(bean.getExportTargetTable("IMPORT_TARGET2").getExportFiles().isEmpty());
+        } finally {
+            dropStreamTables();
+        }
+    }
+    /**
+     *
+     * <p>
+     * loadStreamのテストケース
+     * 異常系：データの受信に失敗するケース
+     * 受信に失敗した場合はロード完了を記録せず、受信ストリームを閉じる。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void loadStreamTest02() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Map<String, File> entries = new LinkedHashMap<>();
+        entries.put("EXP_IMPORT_TARGET1_1.tsv", new File("src/test/data/exporter/EXP_EXP_TARGET1_1.tsv"));
+        StreamReceive receive = new StreamReceive(createFileList(entries), false);
+
+        // テスト対象クラスを生成
+        ExportFileLoad load = new ExportFileLoad() {
+            @Override
+            protected long getTempSeq(String jobflowSid, String tableName,
+                    Connection conn) throws BulkLoaderSystemException {
+                return 1;
+            }
+        };
+        try {
+            dropStreamTables();
+
+            // テストデータを指定
+            TestUtils util1 = new TestUtils(new File("src/test/data/exporter/ExportFileLoadTest/loadFileTest01_load"));
+            // テストデータをセット
+            util1.storeToDatabase(false);
+
+            // テスト対象クラス実行
+            boolean result = load.loadStream(bean, receive);
+
+            // 実行結果の検証
+            assertFalse(result);
+            assertTrue(receive.closed);
+
+            // 重複チェックは実行しない
+            assertTrue(UnitTestUtil.countAssert("EXPORT_TEMP_IMPORT_TARGET1_1_DF", 0));
+        } finally {
+            dropStreamTables();
+        }
+    }
+    private ExporterBean createStreamBean() {
+        Map<String, ExportTargetTableBean> targetTable = new LinkedHashMap<>();
+        ExportTargetTableBean table1 = new ExportTargetTableBean();
+        table1.setDuplicateCheck(true);
+        table1.setExportTsvColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        table1.setExportTableColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        table1.setKeyColumns(Arrays.asList(new String[]{"TEXTDATA1", "INTDATA1"}));
+        table1.setErrorTableName("IMPORT_TARGET1_ERROR");
+        table1.setErrorTableColumns(Arrays.asList(new String[]{"SID", "VERSION_NO", "TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        targetTable.put("IMPORT_TARGET1", table1);
+        ExportTargetTableBean table2 = new ExportTargetTableBean();
+        table2.setDuplicateCheck(true);
+        table2.setExportTsvColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        table2.setExportTableColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        table2.setKeyColumns(Arrays.asList(new String[]{"TEXTDATA2"}));
+        table2.setErrorTableName("IMPORT_TARGET2_ERROR");
+        table2.setErrorTableColumns(Arrays.asList(new String[]{"TEXTDATA2", "INTDATA2", "DATEDATA2"}));
+        targetTable.put("IMPORT_TARGET2", table2);
+        ExporterBean bean = new ExporterBean();
+        bean.setExportTargetTable(targetTable);
+        bean.setJobflowSid("11");
+        bean.setJobflowId(jobflowId);
+        bean.setExecutionId(executionId);
+        bean.setBatchId("batch01");
+        bean.setTargetName("target1");
+        return bean;
+    }
+    private void dropStreamTables() throws Exception {
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET1_1");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET2_1");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET1_1_DF");
+        UnitTestUtil.executeUpdate("DROP TABLE IF EXISTS EXPORT_TEMP_IMPORT_TARGET2_1_DF");
+    }
+    private static byte[] createFileList(Map<String, File> entries) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        FileList.Writer writer = FileList.createWriter(buffer, false);
+        for (Map.Entry<String, File> entry : entries.entrySet()) {
+            try (OutputStream output = writer.openNext(FileList.content(entry.getKey()))) {
+                Files.copy(entry.getValue().toPath(), output);
+            }
+        }
+        writer.close();
+        return buffer.toByteArray();
+    }
+    /**
+     * 受信データをメモリ上から提供する{@link ExportFileReceive}。
+     */
+    static class StreamReceive extends ExportFileReceive {
+
+        final byte[] contents;
+
+        final boolean success;
+
+        volatile boolean closed;
+
+        StreamReceive(byte[] contents, boolean success) {
+            this.contents = contents;
+            this.success = success;
+        }
+
+        @Override
+        protected FileListProvider openFileList(
+                String targetName,
+                String batchId,
+                String jobflowId,
+                String executionId) throws IOException {
+            return new StreamFileListProvider() {
+
+                @Override
+                protected InputStream getInputStream() throws IOException {
+                    return new ByteArrayInputStream(contents);
+                }
+
+                @Override
+                protected OutputStream getOutputStream() throws IOException {
+                    return new ByteArrayOutputStream();
+                }
+
+                @Override
+                protected void waitForDone() throws IOException, InterruptedException {
+                    if (success == false) {
+                        throw new IOException();
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closed = true;
+                }
+            };
+        }
+    }
     /**
      *
      * <p>
@@ -651,4 +990,17 @@ public class ExportFileLoadTest {
         // 結果を検証
         assertEquals("CREATE TABLE EXPORT_TEMP_IMPORT_TARGET1_3 (TEMP_SID BIGINT NOT NULL AUTO_INCREMENT,SID BIGINT NULL,VERSION_NO BIGINT NULL,RGST_DATE DATETIME NULL,UPDT_DATE DATETIME NULL,DUPLICATE_FLG CHAR(1) NULL,PRIMARY KEY (TEMP_SID)) SELECT NULL AS TEMP_SID,SID,VERSION_NO,RGST_DATE,UPDT_DATE, NULL AS DUPLICATE_FLG, aaa,bbb,ccc FROM IMPORT_TARGET1 LIMIT 0", result);
     }
+    /**
+     * Export対象テーブルのインデックスがキー列を先頭に持つかを判定する。
+     * @throws Exception if failed
+     */
+    @Test
+    public void isKeyIndex() throws Exception {
+        List<String> key = Arrays.asList("A", "B");
+        assertTrue(ExportFileLoad.isKeyIndex(Arrays.asList("A", "B"), key));
+        assertTrue(ExportFileLoad.isKeyIndex(Arrays.asList("b", "a", "C"), key));
+        assertFalse(ExportFileLoad.isKeyIndex(Arrays.asList("A"), key));
+        assertFalse(ExportFileLoad.isKeyIndex(Arrays.asList("A", "C", "B"), key));
+        assertFalse(ExportFileLoad.isKeyIndex(Arrays.asList("A"), Arrays.<String>asList()));
+    }
 }
@@ -17,17 +17,21 @@ package com.asakusafw.bulkloader.exporter;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -44,7 +48,9 @@ import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+import com.asakusafw.bulkloader.transfer.FileList;
 import com.asakusafw.bulkloader.transfer.FileListProvider;
 import com.asakusafw.bulkloader.transfer.StreamFileListProvider;
 import com.asakusafw.testtools.TestUtils;
@@ -355,6 +361,257 @@ public class ExportFileReceiveTest {
         assertFalse(result);
     }
 
+    /**
+     * <p>
+     * 正常系：複数のストリームのマニフェストが一致するケース
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void receiveFile_manifest() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS, "2");
+        ConfigurationLoader.setProperty(prop);
+
+        ExportFileReceive receive = new StreamMock(
+                createFileList("EXP_EXP_TARGET1_1.tsv", "2", "abc"),
+                createFileList("EXP_EXP_TARGET2_1.tsv", "2", "abc"));
+        boolean result = receive.receiveFile(bean);
+
+        assertTrue(result);
+        assertEquals(1, bean.getExportTargetTable("EXP_TARGET1").getExportFiles().size());
+        assertEquals(1, bean.getExportTargetTable("EXP_TARGET2").getExportFiles().size());
+    }
+
+    /**
+     * <p>
+     * 異常系：ストリーム間でマニフェストが一致しないケース
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void receiveFile_manifest_inconsistent() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS, "2");
+        ConfigurationLoader.setProperty(prop);
+
+        ExportFileReceive receive = new StreamMock(
+                createFileList("EXP_EXP_TARGET1_1.tsv", "2", "abc"),
+                createFileList("EXP_EXP_TARGET2_1.tsv", "3", "def"));
+        boolean result = receive.receiveFile(bean);
+
+        assertFalse(result);
+    }
+
+    /**
+     * <p>
+     * 異常系：マニフェストを送信しないストリームが存在するケース
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void receiveFile_manifest_missing() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS, "2");
+        ConfigurationLoader.setProperty(prop);
+
+        ExportFileReceive receive = new StreamMock(
+                createFileList("EXP_EXP_TARGET1_1.tsv", "2", "abc"),
+                createFileList("EXP_EXP_TARGET2_1.tsv", null, null));
+        boolean result = receive.receiveFile(bean);
+
+        assertFalse(result);
+    }
+
+    /**
+     * <p>
+     * 正常系：複数のストリームから受信しながらロードするケース
+     * 各ストリームは個別のロード先を利用し、受信の完了後に全て閉じる。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void receiveAndLoad() throws Exception {
+        ExporterBean bean = createStreamBean();
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_EXP_TRANSFER_STREAMS, "2");
+        ConfigurationLoader.setProperty(prop);
+
+        ExportFileReceive receive = new StreamMock(
+                createFileList("EXP_EXP_TARGET1_1.tsv", "2", "abc"),
+                createFileList("EXP_EXP_TARGET2_1.tsv", "2", "abc"));
+        LoaderMock loaders = new LoaderMock(null);
+        boolean result = receive.receiveAndLoad(bean, loaders);
+
+        assertTrue(result);
+        assertEquals(2, loaders.opened.get());
+        assertEquals(2, loaders.closed.get());
+        assertEquals("1\thello\n", loaders.loaded.get("EXP_TARGET1"));
+        assertEquals("1\thello\n", loaders.loaded.get("EXP_TARGET2"));
+        // 中間ファイルは作成しない
+        assertTrue(bean.getExportTargetTable("EXP_TARGET1").getExportFiles().isEmpty());
+        assertTrue(bean.getExportTargetTable("EXP_TARGET2").getExportFiles().isEmpty());
+    }
+
+    /**
+     * <p>
+     * 異常系：受信中のデータのロードに失敗するケース
+     * ロードに失敗した場合でも、ロード先と受信ストリームを閉じる。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void receiveAndLoad_failure() throws Exception {
+        ExporterBean bean = createStreamBean();
+
+        StreamMock receive = new StreamMock(createFileList("EXP_EXP_TARGET1_1.tsv", null, null));
+        LoaderMock loaders = new LoaderMock("EXP_TARGET1");
+        boolean result = receive.receiveAndLoad(bean, loaders);
+
+        assertFalse(result);
+        assertEquals(1, loaders.opened.get());
+        assertEquals(1, loaders.closed.get());
+        assertEquals(1, receive.closed.get());
+    }
+
+    private ExporterBean createStreamBean() {
+        Map<String, ExportTargetTableBean> targetTable = new LinkedHashMap<>();
+        targetTable.put("EXP_TARGET1", new ExportTargetTableBean());
+        targetTable.put("EXP_TARGET2", new ExportTargetTableBean());
+        ExporterBean bean = new ExporterBean();
+        bean.setJobflowSid("17");
+        bean.setExportTargetTable(targetTable);
+        bean.setJobflowId(testJobflowId1);
+        bean.setExecutionId(testExecutionId);
+        return bean;
+    }
+
+    private static byte[] createFileList(String entryName, String files, String digest) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        FileList.Writer writer = FileList.createWriter(buffer, false);
+        try (OutputStream entry = writer.openNext(FileList.content(entryName))) {
+            entry.write("1\thello\n".getBytes("UTF-8"));
+        }
+        if (digest != null) {
+            Properties manifest = new Properties();
+            manifest.setProperty(Constants.TRANSFER_MANIFEST_KEY_FILES, files);
+            manifest.setProperty(Constants.TRANSFER_MANIFEST_KEY_DIGEST, digest);
+            try (OutputStream entry = writer.openNext(FileList.content(Constants.TRANSFER_MANIFEST_ENTRY_NAME))) {
+                manifest.store(entry, null);
+            }
+        }
+        writer.close();
+        return buffer.toByteArray();
+    }
+
+    static class StreamMock extends ExportFileReceive {
+
+        final byte[][] streams;
+
+        final AtomicInteger closed = new AtomicInteger();
+
+        StreamMock(byte[]... streams) {
+            this.streams = streams;
+        }
+
+        @Override
+        protected FileListProvider openFileList(
+                String targetName,
+                String batchId,
+                String jobflowId,
+                String executionId) throws IOException {
+            return openFileList(targetName, batchId, jobflowId, executionId, 0, 1);
+        }
+
+        @Override
+        protected FileListProvider openFileList(
+                String targetName,
+                String batchId,
+                String jobflowId,
+                String executionId,
+                final int streamIndex,
+                int streamCount) throws IOException {
+            assertEquals(streams.length, streamCount);
+            return new StreamFileListProvider() {
+
+                @Override
+                protected InputStream getInputStream() throws IOException {
+                    return new ByteArrayInputStream(streams[streamIndex]);
+                }
+
+                @Override
+                protected OutputStream getOutputStream() throws IOException {
+                    return new ByteArrayOutputStream();
+                }
+
+                @Override
+                protected void waitForDone() throws IOException, InterruptedException {
+                    return;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closed.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    static class LoaderMock implements ExportStreamLoader.Provider {
+
+        final String failTableName;
+
+        final AtomicInteger opened = new AtomicInteger();
+
+        final AtomicInteger closed = new AtomicInteger();
+
+        final Map<String, String> loaded = new ConcurrentHashMap<>();
+
+        LoaderMock(String failTableName) {
+            this.failTableName = failTableName;
+        }
+
+        @Override
+        public ExportStreamLoader open() throws BulkLoaderSystemException {
+            opened.incrementAndGet();
+            return new ExportStreamLoader() {
+                @Override
+                public long load(String tableName, InputStream content) throws BulkLoaderSystemException {
+                    if (tableName.equals(failTableName)) {
+                        throw new BulkLoaderSystemException(getClass(), "TG-EXPORTER-03001", tableName);
+                    }
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    try {
+                        byte[] bytes = new byte[256];
+                        while (true) {
+                            int read = content.read(bytes);
+                            if (read < 0) {
+                                break;
+                            }
+                            buffer.write(bytes, 0, read);
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                    loaded.put(tableName, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+                    return 1;
+                }
+                @Override
+                public void close() {
+                    closed.incrementAndGet();
+                }
+            };
+        }
+    }
+
     static class Mock extends ExportFileReceive {
 
         final File target;
@@ -722,6 +722,10 @@ class StubExportFileLoad extends ExportFileLoad {
     public boolean loadFile(ExporterBean bean) {
         return result;
     }
+    @Override
+    public boolean loadPipelined(ExporterBean bean, ExportFileReceive receive) {
+        return receive.receiveFile(bean) && result;
+    }
 }
 class StubExportFileReceive extends ExportFileReceive {
     boolean result = true;
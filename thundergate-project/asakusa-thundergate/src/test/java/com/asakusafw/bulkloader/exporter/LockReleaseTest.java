@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -37,7 +38,10 @@ import com.asakusafw.bulkloader.bean.ExportTempTableBean;
 import com.asakusafw.bulkloader.bean.ExporterBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
 import com.asakusafw.testtools.TestUtils;
@@ -430,4 +434,77 @@ public class LockReleaseTest {
         assertFalse(UnitTestUtil.isExistTable("EXPORT_TEMP_TEST_01_DF"));
         assertFalse(UnitTestUtil.isExistTable("EXPORT_TEMP_TEST_02_DF"));
     }
+
+    /**
+     * <p>
+     * 正常系：SIDの範囲ごとに記録されたレコードロックを解除するケース
+     * 他のジョブフローのレコードロックは解除しない。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void releaseLockTest_range() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT, RecordLockFormat.RANGE.getSymbol());
+        ConfigurationLoader.setProperty(prop);
+        prepareRecordLock();
+
+        LockRelease lock = new LockRelease();
+        boolean result = lock.releaseLock(createRecordLockBean(), false);
+        assertTrue(result);
+
+        assertEquals(Arrays.asList("IMPORT_TARGET1,1,3,999"), UnitTestUtil.selectRows(
+                "SELECT TABLE_NAME, FIRST_SID, LAST_SID, JOBFLOW_SID FROM IMPORT_RECORD_LOCK_RANGE"));
+        assertEquals(Arrays.asList("999"), UnitTestUtil.selectRows(
+                "SELECT JOBFLOW_SID FROM IMPORT_RECORD_LOCK"));
+    }
+    /**
+     * <p>
+     * 正常系：レコードごとに記録する場合、レコードロック範囲テーブルを参照しないケース
+     * レコードロック範囲テーブルが存在しなくても解除できる。
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void releaseLockTest_row_without_range_table() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT, RecordLockFormat.ROW.getSymbol());
+        ConfigurationLoader.setProperty(prop);
+        prepareRecordLock();
+
+        UnitTestUtil.executeUpdate("RENAME TABLE IMPORT_RECORD_LOCK_RANGE TO IMPORT_RECORD_LOCK_RANGE_BAK");
+        try {
+            LockRelease lock = new LockRelease();
+            boolean result = lock.releaseLock(createRecordLockBean(), false);
+            assertTrue(result);
+        } finally {
+            UnitTestUtil.executeUpdate("RENAME TABLE IMPORT_RECORD_LOCK_RANGE_BAK TO IMPORT_RECORD_LOCK_RANGE");
+        }
+        assertEquals(Arrays.asList("999"), UnitTestUtil.selectRows(
+                "SELECT JOBFLOW_SID FROM IMPORT_RECORD_LOCK"));
+    }
+    private void prepareRecordLock() throws Exception {
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM IMPORT_RECORD_LOCK",
+                "DELETE FROM IMPORT_RECORD_LOCK_RANGE",
+                "DELETE FROM IMPORT_TARGET1_RL",
+                "UPDATE IMPORT_TABLE_LOCK SET JOBFLOW_SID=NULL",
+                "INSERT INTO IMPORT_RECORD_LOCK (JOBFLOW_SID, TABLE_NAME) VALUES "
+                + "(11, 'IMPORT_TARGET1'), (999, 'IMPORT_TARGET1')",
+                "INSERT INTO IMPORT_RECORD_LOCK_RANGE (TABLE_NAME, FIRST_SID, LAST_SID, JOBFLOW_SID) VALUES "
+                + "('IMPORT_TARGET1', 1, 3, 999), ('IMPORT_TARGET1', 5, 8, 11), ('IMPORT_TARGET1', 10, 10, 11)");
+    }
+    private ExporterBean createRecordLockBean() {
+        Map<String, ImportTargetTableBean> importTargetTable = new LinkedHashMap<>();
+        importTargetTable.put("IMPORT_TARGET1", new ImportTargetTableBean());
+        ExporterBean bean = new ExporterBean();
+        bean.setJobflowSid("11");
+        bean.setExportTargetTable(new LinkedHashMap<String, ExportTargetTableBean>());
+        bean.setImportTargetTable(importTargetTable);
+        bean.setRetryCount(3);
+        bean.setRetryInterval(1);
+        return bean;
+    }
 }
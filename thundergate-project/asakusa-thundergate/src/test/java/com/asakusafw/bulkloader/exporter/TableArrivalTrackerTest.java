@@ -0,0 +1,126 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Test for {@link TableArrivalTracker}.
+ */
+public class TableArrivalTrackerTest {
+
+    /**
+     * tables arrive on a single stream.
+     * @throws Exception if failed
+     */
+    @Test
+    public void single() throws Exception {
+        TableArrivalTracker tracker = new TableArrivalTracker(Arrays.asList("A", "B", "C"));
+        tracker.start(1);
+        tracker.entered(0, "A");
+        tracker.entered(0, "A");
+        tracker.entered(0, "B");
+        assertThat(tracker.next(), is("A"));
+
+        // skips tables without any files
+        tracker.finished(0);
+        assertThat(tracker.next(), is("B"));
+        assertThat(tracker.next(), is("C"));
+        assertThat(tracker.next(), is(nullValue()));
+    }
+
+    /**
+     * tables arrive after all streams moved past them.
+     * @throws Exception if failed
+     */
+    @Test
+    public void multiple() throws Exception {
+        TableArrivalTracker tracker = new TableArrivalTracker(Arrays.asList("A", "B", "C"));
+        tracker.start(2);
+        tracker.entered(0, "A");
+        tracker.entered(1, "A");
+        tracker.entered(0, "C");
+        tracker.entered(1, "B");
+
+        assertThat(tracker.next(), is("A"));
+        tracker.finished(1);
+        assertThat(tracker.next(), is("B"));
+        tracker.close();
+        assertThat(tracker.next(), is("C"));
+        assertThat(tracker.next(), is(nullValue()));
+    }
+
+    /**
+     * waits for the next table.
+     * @throws Exception if failed
+     */
+    @Test(timeout = 10000)
+    public void blocking() throws Exception {
+        final TableArrivalTracker tracker = new TableArrivalTracker(Arrays.asList("A", "B"));
+        tracker.start(1);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    tracker.entered(0, "B");
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        thread.start();
+        assertThat(tracker.next(), is("A"));
+        thread.join();
+    }
+
+    /**
+     * discards the rest tables.
+     * @throws Exception if failed
+     */
+    @Test
+    public void discard() throws Exception {
+        TableArrivalTracker tracker = new TableArrivalTracker(Arrays.asList("A", "B"));
+        tracker.start(1);
+        tracker.discard();
+        assertThat(tracker.next(), is(nullValue()));
+        try {
+            tracker.entered(0, "A");
+            fail();
+        } catch (BulkLoaderSystemException e) {
+            // ok.
+        }
+    }
+
+    /**
+     * receives tables in wrong order.
+     * @throws Exception if failed
+     */
+    @Test(expected = BulkLoaderSystemException.class)
+    public void invalid_order() throws Exception {
+        TableArrivalTracker tracker = new TableArrivalTracker(Arrays.asList("A", "B"));
+        tracker.start(1);
+        tracker.entered(0, "B");
+        tracker.entered(0, "A");
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.exporter;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+
+/**
+ * Test for {@link TableTaskExecutor}.
+ */
+public class TableTaskExecutorTest {
+
+    private static List<String> properties = Arrays.asList(new String[]{"bulkloader-conf-db.properties"});
+    private static String jobflowId = "JOB_FLOW01";
+    private static String executionId = "JOB_FLOW01-001";
+
+    /**
+     * Initializes the test class.
+     * @throws Exception if failed
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        UnitTestUtil.setUpBeforeClass();
+        UnitTestUtil.setUpEnv();
+        BulkLoaderInitializer.initDBServer(jobflowId, executionId, properties, "target1");
+        UnitTestUtil.setUpDB();
+    }
+
+    /**
+     * Cleans up the test class.
+     * @throws Exception if failed
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        UnitTestUtil.tearDownDB();
+        UnitTestUtil.tearDownAfterClass();
+    }
+
+    /**
+     * Initializes the test.
+     * @throws Exception if failed
+     */
+    @Before
+    public void setUp() throws Exception {
+        BulkLoaderInitializer.initDBServer(jobflowId, executionId, properties, "target1");
+        UnitTestUtil.startUp();
+    }
+
+    /**
+     * Cleans up the test.
+     * @throws Exception if failed
+     */
+    @After
+    public void tearDown() throws Exception {
+        UnitTestUtil.tearDown();
+    }
+
+    /**
+     * processes all tables.
+     * @throws Exception if failed
+     */
+    @Test(timeout = 30000)
+    public void execute() throws Exception {
+        final Set<String> processed = new ConcurrentSkipListSet<>();
+        TableTaskExecutor.execute("TESTING", Arrays.asList("A", "B", "C", "D", "E"), 2, new TableTaskExecutor.Task() {
+            @Override
+            public void run(String tableName, Connection conn) {
+                assertThat(conn, is(notNullValue()));
+                processed.add(tableName);
+            }
+        });
+        assertThat(processed, containsInAnyOrder("A", "B", "C", "D", "E"));
+    }
+
+    /**
+     * the remaining tables are discarded as soon as a worker fails.
+     * @throws Exception if failed
+     */
+    @Test(timeout = 30000)
+    public void execute_failure() throws Exception {
+        Failure failure = new Failure(new BulkLoaderSystemException(getClass(), "TG-EXPORTER-01037"));
+        try {
+            TableTaskExecutor.execute("TESTING", failure.tables, 2, failure);
+            fail();
+        } catch (BulkLoaderSystemException e) {
+            assertThat(e, is(sameInstance(failure.exception)));
+        }
+        // the other worker finished "B", but must not start "C" or later
+        assertThat(failure.processed, containsInAnyOrder("A", "B"));
+    }
+
+    /**
+     * the remaining tables are discarded even if a worker fails with an unexpected exception.
+     * @throws Exception if failed
+     */
+    @Test(timeout = 30000)
+    public void execute_failure_runtime() throws Exception {
+        Failure failure = new Failure(new IllegalStateException());
+        try {
+            TableTaskExecutor.execute("TESTING", failure.tables, 2, failure);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e, is(sameInstance(failure.exception)));
+        }
+        failure.finished.await();
+        assertThat(failure.processed, containsInAnyOrder("A", "B"));
+    }
+
+    /**
+     * fails on the table "A" while the other worker is processing the table "B".
+     */
+    private static final class Failure implements TableTaskExecutor.Task {
+
+        final List<String> tables = Collections.unmodifiableList(
+                new ArrayList<>(Arrays.asList("A", "B", "C", "D", "E")));
+
+        final Set<String> processed = new ConcurrentSkipListSet<>();
+
+        final Exception exception;
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        Failure(Exception exception) {
+            this.exception = exception;
+        }
+
+        @Override
+        public void run(String tableName, Connection conn) throws BulkLoaderSystemException {
+            processed.add(tableName);
+            if (tableName.equals("A")) {
+                try {
+                    started.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                failed.countDown();
+                if (exception instanceof BulkLoaderSystemException) {
+                    throw (BulkLoaderSystemException) exception;
+                }
+                throw (RuntimeException) exception;
+            } else if (tableName.equals("B")) {
+                started.countDown();
+                try {
+                    failed.await();
+                    // waits for the failed worker discards the remaining tables
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // may be cancelled
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,7 +37,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -55,11 +63,15 @@ import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.collector.SystemOutManager;
 import com.asakusafw.bulkloader.common.FileNameUtil;
 import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+import com.asakusafw.bulkloader.importer.ImportFileSend;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
 import com.asakusafw.bulkloader.transfer.FileList;
+import com.asakusafw.bulkloader.transfer.FileListProvider;
 import com.asakusafw.bulkloader.transfer.FileProtocol;
+import com.asakusafw.bulkloader.transfer.StreamFileListProvider;
 import com.asakusafw.runtime.io.util.ZipEntryInputStream;
 import com.asakusafw.thundergate.runtime.cache.CacheInfo;
 import com.asakusafw.thundergate.runtime.cache.mapreduce.CacheBuildClient;
@@ -799,6 +811,221 @@ public class DfsFileImportTest {
         CompressionType compType = fileImport.getCompType("DUMMY");
         assertEquals(CompressionType.NONE, compType);
     }
+    /**
+     * <p>
+     * 正常系：変換スレッド数が2以上で、出力先が分割されたファイルを読み込めるレイアウトのケース
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void write_parallel() throws Exception {
+        File output = new File(folder.getRoot(), "part");
+        long count = writeParallel(output);
+
+        assertThat(count, is(10L));
+        assertThat(output.exists(), is(false));
+        assertThat(new File(folder.getRoot(), "part-0").exists(), is(true));
+        assertThat(new File(folder.getRoot(), "part-1").exists(), is(true));
+    }
+
+    /**
+     * <p>
+     * 正常系：変換スレッド数が2以上だが、出力先が以前のバージョンのレイアウトのケース
+     * ・ジョブフローは出力先のファイルのみを読み込むため、単一のファイルに書き出す
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void write_parallel_legacy_layout() throws Exception {
+        File output = new File(folder.getRoot(), "IMPORT_TARGET1");
+        long count = writeParallel(output);
+
+        assertThat(count, is(10L));
+        assertThat(output.exists(), is(true));
+        assertThat(new File(folder.getRoot(), "IMPORT_TARGET1-0").exists(), is(false));
+        assertThat(new File(folder.getRoot(), "IMPORT_TARGET1-1").exists(), is(false));
+    }
+
+    private long writeParallel(File output) throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        String parallel = prop.getProperty(Constants.PROP_KEY_IMP_EXTRACT_PARALLEL);
+        String blockSize = prop.getProperty(Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE);
+        prop.setProperty(Constants.PROP_KEY_IMP_EXTRACT_PARALLEL, "2");
+        prop.setProperty(Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE, "16");
+        ConfigurationLoader.setProperty(prop);
+        try {
+            StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                buf.append(i).append("\t1\tHello\t\\N\t\\N\t\\N\t\\N\n");
+            }
+            DfsFileImport fileImport = new DfsFileImport();
+            return fileImport.write(ImportTarget1.class, output.toURI(),
+                    new ByteArrayInputStream(buf.toString().getBytes("UTF-8")));
+        } finally {
+            prop.setProperty(Constants.PROP_KEY_IMP_EXTRACT_PARALLEL, parallel);
+            prop.setProperty(Constants.PROP_KEY_IMP_EXTRACT_BLOCK_SIZE, blockSize);
+            ConfigurationLoader.setProperty(prop);
+        }
+    }
+
+    /**
+     * <p>
+     * 正常系：チャンク転送でImporterとExtractorを接続するケース
+     * ・1回目は全てのテーブルを受信する
+     * ・2回目は受信済みのテーブルの送信を省略する
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 30000)
+    public void importFile_chunked() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_IMP_TRANSFER_CHUNK_SIZE, "16");
+        ConfigurationLoader.setProperty(prop);
+        try {
+            ImportBean bean = createTransferBean();
+
+            Map<String, String> first = transfer(bean);
+            assertThat(first.keySet(), contains("IMPORT_TARGET1", "IMPORT_TARGET2"));
+            assertThat(first.get("IMPORT_TARGET1"), is("1\thello\n2\tworld\n"));
+
+            Map<String, String> second = transfer(bean);
+            assertThat(second.keySet(), is(empty()));
+        } finally {
+            SystemOutManager.changeSystemOutToSystemOut();
+        }
+    }
+
+    private ImportBean createTransferBean() throws IOException {
+        Map<String, ImportTargetTableBean> targetTable = new LinkedHashMap<>();
+        for (String tableName : Arrays.asList("IMPORT_TARGET1", "IMPORT_TARGET2")) {
+            File source = folder.newFile(tableName + ".tsv");
+            try (OutputStream output = new FileOutputStream(source)) {
+                output.write("1\thello\n2\tworld\n".getBytes("UTF-8"));
+            }
+            ImportTargetTableBean tableBean = new ImportTargetTableBean();
+            tableBean.setDfsFilePath("import/" + tableName);
+            tableBean.setImportTargetType(ImportTarget1.class);
+            tableBean.setImportFile(source);
+            tableBean.setImportProtocol(FileList.content(FileNameUtil.createSendImportFileName(tableName)));
+            targetTable.put(tableName, tableBean);
+        }
+        ImportBean bean = new ImportBean();
+        bean.setTargetTable(targetTable);
+        bean.setTargetName("target1");
+        bean.setBatchId("batch01");
+        bean.setJobflowId(jobflowId);
+        bean.setExecutionId(executionId);
+        return bean;
+    }
+
+    /**
+     * Importerの送信をパイプ経由でExtractorに受信させ、Extractorが受信したテーブルの内容を返す。
+     */
+    private Map<String, String> transfer(final ImportBean bean) throws Exception {
+        final PipedInputStream extractorIn = new PipedInputStream();
+        final PipedOutputStream importerOut = new PipedOutputStream(extractorIn);
+        final PipedInputStream importerIn = new PipedInputStream();
+        final PipedOutputStream extractorOut = new PipedOutputStream(importerIn);
+        final Map<String, String> received = Collections.synchronizedMap(new TreeMap<String, String>());
+        final File journal = folder.getRoot();
+
+        final DfsFileImport extractor = new DummyHdfsFileImport(0) {
+            @Override
+            protected InputStream getInputStream() {
+                return extractorIn;
+            }
+            @Override
+            protected OutputStream getOutputStream() {
+                return extractorOut;
+            }
+            @Override
+            protected boolean isResumeRequested() {
+                return true;
+            }
+            @Override
+            protected URI resolveLocation(ImportBean b, String user, String location) {
+                return new File(journal, location).toURI();
+            }
+            @Override
+            protected <T> long write(
+                    Class<T> targetTableModel,
+                    URI hdfsFilePath,
+                    InputStream zipEntryInputStream) throws BulkLoaderSystemException {
+                try {
+                    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    byte[] b = new byte[256];
+                    while (true) {
+                        int read = zipEntryInputStream.read(b);
+                        if (read < 0) {
+                            break;
+                        }
+                        buf.write(b, 0, read);
+                    }
+                    received.put(new File(hdfsFilePath).getName(), new String(buf.toByteArray(), "UTF-8"));
+                    return 2;
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> extracted = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    try {
+                        return extractor.importFile(bean, "hadoop");
+                    } finally {
+                        extractorIn.close();
+                        extractorOut.close();
+                    }
+                }
+            });
+            ImportFileSend importer = new ImportFileSend() {
+                @Override
+                protected FileListProvider openFileList(
+                        String targetName,
+                        String batchId,
+                        String jobflowId,
+                        String executionId) {
+                    return new StreamFileListProvider() {
+                        @Override
+                        protected InputStream getInputStream() {
+                            return importerIn;
+                        }
+                        @Override
+                        protected OutputStream getOutputStream() {
+                            return importerOut;
+                        }
+                        @Override
+                        protected void waitForDone() throws IOException, InterruptedException {
+                            try {
+                                if (extracted.get() == false) {
+                                    throw new IOException();
+                                }
+                            } catch (ExecutionException e) {
+                                throw new IOException(e);
+                            }
+                        }
+                        @Override
+                        public void close() throws IOException {
+                            importerIn.close();
+                            importerOut.close();
+                        }
+                    };
+                }
+            };
+            assertTrue(importer.sendImportFile(bean));
+            assertTrue(extracted.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        return received;
+    }
+
     InputStream open(String file) {
         try {
             File temp = folder.newFile("testing");
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.extractor;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import test.modelgen.table.model.ImportTarget1;
+
+import com.asakusafw.runtime.io.ModelInput;
+import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
+
+/**
+ * Test for {@link ParallelTsvImport}.
+ */
+public class ParallelTsvImportTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        check(3, 64, 1000);
+    }
+
+    /**
+     * lines are larger than the block size.
+     * @throws Exception if failed
+     */
+    @Test
+    public void large_lines() throws Exception {
+        check(2, 4, 100);
+    }
+
+    /**
+     * empty contents.
+     * @throws Exception if failed
+     */
+    @Test
+    public void empty() throws Exception {
+        check(3, 64, 0);
+    }
+
+    private void check(int parallel, int blockSize, int records) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            buf.append(i).append("\t1\tHello\t\\N\t\\N\t\\N\t\\N\n");
+        }
+        Configuration conf = new Configuration();
+        Path base = new Path(new File(folder.getRoot(), "part").toURI());
+        ParallelTsvImport<ImportTarget1> importer = new ParallelTsvImport<>(
+                conf, ImportTarget1.class, parallel, blockSize);
+        long count = importer.write(base, new ByteArrayInputStream(buf.toString().getBytes(StandardCharsets.UTF_8)));
+        assertThat(count, is((long) records));
+
+        Set<Long> sids = new HashSet<>();
+        ImportTarget1 model = new ImportTarget1();
+        for (int i = 0; i < parallel; i++) {
+            Path path = ParallelTsvImport.getPartPath(base, i);
+            try (ModelInput<ImportTarget1> input = TemporaryStorage.openInput(conf, ImportTarget1.class, path)) {
+                while (input.readTo(model)) {
+                    assertThat(sids.add(model.getSid()), is(true));
+                }
+            }
+        }
+        assertThat(sids, hasSize(records));
+    }
+}
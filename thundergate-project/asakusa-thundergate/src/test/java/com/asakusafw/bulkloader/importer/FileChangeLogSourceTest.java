@@ -0,0 +1,103 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Test for {@link FileChangeLogSource}.
+ */
+public class FileChangeLogSourceTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        File file = write(
+                "# comment",
+                "EXAMPLE\t3\t2011-12-13 14:15:16",
+                "",
+                "EXAMPLE\t1\t2011-12-13 14:15:17",
+                "EXAMPLE\t2\t2011-12-13 14:15:15",
+                "OTHER\t4\t2011-12-13 14:15:16",
+                "EXAMPLE\t1\t2011-12-13 14:15:18");
+        FileChangeLogSource source = new FileChangeLogSource(file);
+        assertThat(source.isParameterized(), is(false));
+        String condition = source.createCondition("EXAMPLE", "SID", calendar("2011-12-13 14:15:16"));
+        assertThat(condition, is("EXAMPLE.SID IN (1, 3)"));
+    }
+
+    /**
+     * no changes.
+     * @throws Exception if failed
+     */
+    @Test
+    public void nothing() throws Exception {
+        File file = write("EXAMPLE\t1\t2011-12-13 14:15:15");
+        FileChangeLogSource source = new FileChangeLogSource(file);
+        String condition = source.createCondition("EXAMPLE", "SID", calendar("2011-12-13 14:15:16"));
+        assertThat(condition, is("0 = 1"));
+    }
+
+    /**
+     * broken change log.
+     * @throws Exception if failed
+     */
+    @Test(expected = BulkLoaderSystemException.class)
+    public void invalid() throws Exception {
+        File file = write("EXAMPLE\tINVALID\t2011-12-13 14:15:15");
+        FileChangeLogSource source = new FileChangeLogSource(file);
+        source.createCondition("EXAMPLE", "SID", calendar("2011-12-13 14:15:16"));
+    }
+
+    private File write(String... lines) throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private Calendar calendar(String string) {
+        try {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(string));
+            return calendar;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -17,9 +17,12 @@ package com.asakusafw.bulkloader.importer;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedHashMap;
@@ -39,10 +42,12 @@ import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.DBConnection;
 import com.asakusafw.bulkloader.common.ImportTableLockType;
 import com.asakusafw.bulkloader.common.ImportTableLockedOperation;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
 import com.asakusafw.testtools.TestUtils;
+import com.asakusafw.thundergate.runtime.cache.ThunderGateCacheSupport;
 
 
 /**
@@ -549,6 +554,103 @@ public class ImportFileCreateTest {
         // 実行結果の検証
        assertFalse(result);
     }
+    /**
+     * <p>
+     * dumpTableメソッドのテストケース
+     *
+     * 正常系：トリガーが作成されたテーブルの変更差分を変更履歴テーブルから抽出するケース
+     * 同じSIDの変更履歴が複数記録されていても1件のみ抽出する
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void dumpTableTest_changeLog() throws Exception {
+        prepareChangeLog();
+        ConfigurationLoader.getProperty().setProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE, "TABLE");
+        TableChangeLogSourceTest.createTrigger("IMPORT_TARGET1", "INSERT");
+        TableChangeLogSourceTest.createTrigger("IMPORT_TARGET1", "UPDATE");
+        try {
+            assertEquals("b\n", dumpDelta());
+        } finally {
+            TableChangeLogSourceTest.dropTriggers("IMPORT_TARGET1");
+        }
+    }
+    /**
+     * <p>
+     * dumpTableメソッドのテストケース
+     *
+     * 正常系：トリガーが作成されていないテーブルの変更差分を、タイムスタンプ列を検索して抽出するケース
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void dumpTableTest_changeLog_fallback() throws Exception {
+        prepareChangeLog();
+        ConfigurationLoader.getProperty().setProperty(Constants.PROP_KEY_IMP_CHANGE_CAPTURE, "TABLE");
+        assertEquals("c\n", dumpDelta());
+    }
+    private void prepareChangeLog() throws Exception {
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM IMPORT_TARGET1",
+                "DELETE FROM __TG_CHANGE_LOG",
+                "INSERT INTO IMPORT_TARGET1 (SID, TEXTDATA1, UPDT_DATE) VALUES "
+                + "(1, 'a', '2010-12-31 00:00:00'), "
+                + "(2, 'b', '2010-12-31 00:00:00'), "
+                + "(3, 'c', '2011-01-02 00:00:00')",
+                "INSERT INTO __TG_CHANGE_LOG (TABLE_NAME, SYSTEM_ID, CHANGED_TIME) VALUES "
+                + "('IMPORT_TARGET1', 1, '2010-12-31 00:00:00'), "
+                + "('IMPORT_TARGET1', 2, '2011-01-02 00:00:00'), "
+                + "('IMPORT_TARGET1', 2, '2011-01-03 00:00:00'), "
+                + "('IMPORT_TARGET2', 3, '2011-01-02 00:00:00')");
+    }
+    private String dumpDelta() throws Exception {
+        ImportTargetTableBean tableBean = new ImportTargetTableBean();
+        tableBean.setImportTargetColumns(Arrays.asList(new String[]{"TEXTDATA1"}));
+        tableBean.setSearchCondition(null);
+        tableBean.setCacheId("testing");
+        tableBean.setStartTimestamp(TableChangeLogSourceTest.calendar("2011-01-01 00:00:00"));
+        tableBean.setLockType(ImportTableLockType.NONE);
+        tableBean.setLockedOperation(ImportTableLockedOperation.FORCE);
+        tableBean.setImportTargetType(CacheModel.class);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Connection conn = DBConnection.getConnection();
+        try {
+            new ImportFileCreate().dumpTable(conn, "IMPORT_TARGET1", tableBean, null, output, 1024);
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+    /**
+     * IMPORT_TARGET1のキャッシュ用のデータモデル
+     */
+    public static class CacheModel implements ThunderGateCacheSupport {
+        @Override
+        public long __tgc__DataModelVersion() {
+            return 1;
+        }
+        @Override
+        public String __tgc__TimestampColumn() {
+            return "UPDT_DATE";
+        }
+        @Override
+        public long __tgc__SystemId() {
+            throw new UnsupportedOperationException();
+        }
+        @Override
+        public long __tgc__Timestamp() {
+            throw new UnsupportedOperationException();
+        }
+        @Override
+        public boolean __tgc__Deleted() {
+            return false;
+        }
+    }
     /**
      * パラメータを保持するBeanを作成する
      * ・args[0]=ジョブフローID
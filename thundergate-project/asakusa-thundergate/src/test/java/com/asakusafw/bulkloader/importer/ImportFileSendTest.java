@@ -20,11 +20,14 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -289,6 +292,79 @@ public class ImportFileSendTest {
       assertFalse(result);
     }
 
+    /**
+     * <p>
+     * 正常系：複数のストリームで並列に送信するケース
+     * 詳細の設定は以下の通り
+     * ・Importファイル1：src/test/data/importer/IMP_IMPORT_TARGET1.tsv
+     * ・Importファイル2：src/test/data/importer/IMP_IMPORT_TARGET2.tsv
+     * ・ストリーム数：2
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void sendImportFileTtest06() throws Exception {
+        // ImportBeanを生成
+        File importFile1 = new File("src/test/data/importer/IMP_IMPORT_TARGET1.tsv");
+        File importFile2 = new File("src/test/data/importer/IMP_IMPORT_TARGET2.tsv");
+        Map<String, ImportTargetTableBean> targetTable = new LinkedHashMap<>();
+        ImportTargetTableBean tableBean1 = new ImportTargetTableBean();
+        tableBean1.setImportProtocol(FileList.content("dummy1"));
+        tableBean1.setImportFile(importFile1);
+        targetTable.put("IMPORT_TARGET1", tableBean1);
+        ImportTargetTableBean tableBean2 = new ImportTargetTableBean();
+        tableBean2.setImportProtocol(FileList.content("dummy2"));
+        tableBean2.setImportFile(importFile2);
+        targetTable.put("IMPORT_TARGET2", tableBean2);
+        ImportBean bean = new ImportBean();
+        bean.setTargetTable(targetTable);
+        bean.setJobflowId("66");
+        bean.setExecutionId("66-66");
+        bean.setBatchId(testBatchId);
+        bean.setTargetName(testTargetName);
+
+        // ストリーム数を2に設定
+        Properties p = ConfigurationLoader.getProperty();
+        p.setProperty(Constants.PROP_KEY_IMP_TRANSFER_STREAMS, "2");
+        ConfigurationLoader.setProperty(p);
+
+        // テスト対象クラス実行
+        final List<File> outputs = new ArrayList<>();
+        ImportFileSend send = new ImportFileSend() {
+            @Override
+            protected FileListProvider openFileList(
+                    String targetName,
+                    String batchId,
+                    String jobflowId,
+                    String executionId) throws IOException {
+                File file;
+                synchronized (outputs) {
+                    file = folder.newFile("stream-" + outputs.size() + ".filelist");
+                    outputs.add(file);
+                }
+                return new Mock(file.getPath()).openFileList(targetName, batchId, jobflowId, executionId);
+            }
+        };
+        boolean result = send.sendImportFile(bean);
+
+        // 戻り値を検証
+        assertTrue(result);
+
+        // 各テーブルがいずれか1つのストリームで送信されたことを検証
+        assertThat(outputs.size(), is(2));
+        List<String> locations = new ArrayList<>();
+        for (File file : outputs) {
+            try (FileList.Reader reader = FileList.createReader(new FileInputStream(file))) {
+                while (reader.next()) {
+                    locations.add(reader.getCurrentProtocol().getLocation());
+                }
+            }
+        }
+        Collections.sort(locations);
+        assertThat(locations, is(Arrays.asList("dummy1", "dummy2")));
+    }
+
     class Mock extends ImportFileSend {
 
         final String testFile;
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.exception.BulkLoaderSystemException;
+
+/**
+ * Test for {@link ImportFileTracker}.
+ */
+public class ImportFileTrackerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Cleans up the test.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * completed tracker.
+     * @throws Exception if failed
+     */
+    @Test
+    public void completed() throws Exception {
+        ImportFileTracker tracker = ImportFileTracker.completed(Arrays.asList("A", "B", "C"));
+        assertThat(tracker.next(), is("A"));
+        assertThat(tracker.next(), is("B"));
+        assertThat(tracker.next(), is("C"));
+        assertThat(tracker.next(), is(nullValue()));
+    }
+
+    /**
+     * tables are returned in completion order.
+     * @throws Exception if failed
+     */
+    @Test
+    public void ready_order() throws Exception {
+        final ImportFileTracker tracker = new ImportFileTracker(2);
+        Future<String> first = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return tracker.next();
+            }
+        });
+        Thread.sleep(100);
+        assertThat(first.isDone(), is(false));
+
+        tracker.ready("B");
+        assertThat(first.get(5, TimeUnit.SECONDS), is("B"));
+        tracker.ready("A");
+        assertThat(tracker.next(), is("A"));
+        assertThat(tracker.next(), is(nullValue()));
+    }
+
+    /**
+     * producer was failed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void failed() throws Exception {
+        final ImportFileTracker tracker = new ImportFileTracker(2);
+        Future<String> waiting = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    tracker.next();
+                    return "unexpected";
+                } catch (BulkLoaderSystemException e) {
+                    return e.getMessageId();
+                }
+            }
+        });
+        Thread.sleep(100);
+        tracker.failed();
+        assertThat(waiting.get(5, TimeUnit.SECONDS), is("TG-IMPORTER-03008"));
+        assertThat(tracker.isFailed(), is(true));
+    }
+
+    /**
+     * consumer was canceled.
+     * @throws Exception if failed
+     */
+    @Test(expected = BulkLoaderSystemException.class)
+    public void canceled() throws Exception {
+        ImportFileTracker tracker = new ImportFileTracker(2);
+        tracker.ready("A");
+        tracker.cancel();
+        assertThat(tracker.isCanceled(), is(true));
+        tracker.next();
+    }
+}
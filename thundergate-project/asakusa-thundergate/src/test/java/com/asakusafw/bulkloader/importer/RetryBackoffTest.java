@@ -0,0 +1,62 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link RetryBackoff}.
+ */
+public class RetryBackoffTest {
+
+    /**
+     * fixed interval.
+     */
+    @Test
+    public void fixed() {
+        RetryBackoff backoff = new RetryBackoff(1000, 0, new Random(6502));
+        assertThat(backoff.getDelay(1), is(1000L));
+        assertThat(backoff.getDelay(5), is(1000L));
+    }
+
+    /**
+     * exponential backoff with jitter.
+     */
+    @Test
+    public void exponential() {
+        RetryBackoff backoff = new RetryBackoff(1000, 60000, new Random(6502));
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.getDelay(1), allOf(greaterThan(500L), lessThanOrEqualTo(1000L)));
+            assertThat(backoff.getDelay(3), allOf(greaterThan(2000L), lessThanOrEqualTo(4000L)));
+        }
+    }
+
+    /**
+     * delay is bounded.
+     */
+    @Test
+    public void bounded() {
+        RetryBackoff backoff = new RetryBackoff(1000, 5000, new Random(6502));
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.getDelay(100), allOf(greaterThan(2500L), lessThanOrEqualTo(5000L)));
+        }
+    }
+}
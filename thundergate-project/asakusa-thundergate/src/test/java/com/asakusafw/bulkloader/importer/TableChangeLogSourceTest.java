@@ -0,0 +1,204 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.testutil.UnitTestUtil;
+
+/**
+ * Test for {@link TableChangeLogSource}.
+ */
+public class TableChangeLogSourceTest {
+
+    private static final List<String> PROPERTIES = Arrays.asList(new String[] { "bulkloader-conf-db.properties" });
+
+    private static final String JOBFLOW_ID = "JOB_FLOW01";
+
+    private static final String EXECUTION_ID = "JOB_FLOW01-001";
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        UnitTestUtil.setUpBeforeClass();
+        UnitTestUtil.setUpEnv();
+        BulkLoaderInitializer.initDBServer(JOBFLOW_ID, EXECUTION_ID, PROPERTIES, "target1");
+        UnitTestUtil.setUpDB();
+    }
+
+    /**
+     * clean up.
+     * @throws Exception if failed
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        UnitTestUtil.tearDownDB();
+        UnitTestUtil.tearDownEnv();
+        UnitTestUtil.tearDownAfterClass();
+    }
+
+    /**
+     * Initializes the test.
+     * @throws Exception if some errors were occurred
+     */
+    @Before
+    public void setUp() throws Exception {
+        BulkLoaderInitializer.initDBServer(JOBFLOW_ID, EXECUTION_ID, PROPERTIES, "target1");
+        UnitTestUtil.startUp();
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM __TG_CHANGE_LOG",
+                "DELETE FROM __TG_CACHE_INFO");
+    }
+
+    /**
+     * Cleans up the test.
+     * @throws Exception if some errors were occurred
+     */
+    @After
+    public void tearDown() throws Exception {
+        dropTriggers("IMPORT_TARGET1");
+        UnitTestUtil.tearDown();
+    }
+
+    /**
+     * join clause.
+     * @throws Exception if failed
+     */
+    @Test
+    public void createJoin() throws Exception {
+        TableChangeLogSource source = new TableChangeLogSource();
+        assertThat(source.isParameterized(), is(true));
+        assertThat(source.createCondition("EXAMPLE", "SID", Calendar.getInstance()), is(nullValue()));
+        String join = source.createJoin("EXAMPLE", "SID", Calendar.getInstance());
+        assertThat(join, is("INNER JOIN (SELECT DISTINCT SYSTEM_ID AS __TG_CHANGED_SID FROM __TG_CHANGE_LOG "
+                + "WHERE TABLE_NAME = 'EXAMPLE' AND CHANGED_TIME >= ?) __TG_CL "
+                + "ON EXAMPLE.SID = __TG_CL.__TG_CHANGED_SID"));
+    }
+
+    /**
+     * available only if the table has both insert and update triggers.
+     * @throws Exception if failed
+     */
+    @Test
+    public void isAvailable() throws Exception {
+        TableChangeLogSource source = new TableChangeLogSource();
+        assertThat(isAvailable(source, "IMPORT_TARGET1"), is(false));
+
+        createTrigger("IMPORT_TARGET1", "INSERT");
+        assertThat(isAvailable(source, "IMPORT_TARGET1"), is(false));
+
+        createTrigger("IMPORT_TARGET1", "UPDATE");
+        assertThat(isAvailable(source, "IMPORT_TARGET1"), is(true));
+        assertThat(isAvailable(source, "IMPORT_TARGET2"), is(false));
+    }
+
+    /**
+     * purges change logs before the oldest cache.
+     * @throws Exception if failed
+     */
+    @Test
+    public void purge() throws Exception {
+        UnitTestUtil.executeAndCommit(
+                "INSERT INTO __TG_CACHE_INFO "
+                + "(CACHE_ID, CACHE_TIMESTAMP, BUILT_TIMESTAMP, TABLE_NAME, REMOTE_PATH, ACTIVE) VALUES "
+                + "('a', '2011-01-05 00:00:00', '2011-01-03 00:00:00', 'IMPORT_TARGET1', '/a', TRUE), "
+                + "('b', '2011-01-05 00:00:00', '2011-01-02 00:00:00', 'IMPORT_TARGET1', '/b', TRUE), "
+                + "('c', '2011-01-05 00:00:00', '2011-01-01 00:00:00', 'IMPORT_TARGET1', '/c', FALSE)",
+                "INSERT INTO __TG_CHANGE_LOG (TABLE_NAME, SYSTEM_ID, CHANGED_TIME) VALUES "
+                + "('IMPORT_TARGET1', 1, '2011-01-01 00:00:00'), "
+                + "('IMPORT_TARGET1', 2, '2011-01-02 00:00:00'), "
+                + "('IMPORT_TARGET1', 3, '2011-01-04 00:00:00'), "
+                + "('IMPORT_TARGET2', 4, '2011-01-01 00:00:00')");
+
+        Connection conn = DBConnection.getConnection();
+        try {
+            assertThat(new TableChangeLogSource().purge(conn, "IMPORT_TARGET1"), is(1));
+            assertThat(new TableChangeLogSource().purge(conn, "IMPORT_TARGET2"), is(0));
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+        List<String> rest = UnitTestUtil.selectRows(
+                "SELECT TABLE_NAME, SYSTEM_ID FROM __TG_CHANGE_LOG ORDER BY SYSTEM_ID");
+        assertThat(rest, is(Arrays.asList("IMPORT_TARGET1,2", "IMPORT_TARGET1,3", "IMPORT_TARGET2,4")));
+    }
+
+    /**
+     * Creates a trigger which records changes of the table, as same as create_change_log_trigger.sql.
+     * @param tableName the target table name
+     * @param event {@code INSERT} or {@code UPDATE}
+     * @throws Exception if failed
+     */
+    static void createTrigger(String tableName, String event) throws Exception {
+        UnitTestUtil.executeUpdate(String.format(
+                "CREATE TRIGGER %1$s__TG_CL_%2$s AFTER %2$s ON %1$s "
+                + "FOR EACH ROW INSERT INTO __TG_CHANGE_LOG (TABLE_NAME, SYSTEM_ID, CHANGED_TIME) "
+                + "VALUES ('%1$s', NEW.SID, NOW())",
+                tableName,
+                event));
+    }
+
+    /**
+     * Drops the triggers created by {@link #createTrigger(String, String)}.
+     * @param tableName the target table name
+     * @throws Exception if failed
+     */
+    static void dropTriggers(String tableName) throws Exception {
+        UnitTestUtil.executeUpdate(String.format("DROP TRIGGER IF EXISTS %s__TG_CL_INSERT", tableName));
+        UnitTestUtil.executeUpdate(String.format("DROP TRIGGER IF EXISTS %s__TG_CL_UPDATE", tableName));
+    }
+
+    /**
+     * Returns a calendar for the time string.
+     * @param string {@code yyyy-MM-dd HH:mm:ss}
+     * @return the calendar
+     */
+    static Calendar calendar(String string) {
+        try {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(string));
+            return calendar;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private boolean isAvailable(TableChangeLogSource source, String tableName) throws Exception {
+        Connection conn = DBConnection.getConnection();
+        try {
+            return source.isAvailable(conn, tableName);
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+    }
+}
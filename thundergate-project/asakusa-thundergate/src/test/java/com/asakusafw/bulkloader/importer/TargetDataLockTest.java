@@ -24,6 +24,7 @@ import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,8 +35,11 @@ import org.junit.Test;
 import com.asakusafw.bulkloader.bean.ImportBean;
 import com.asakusafw.bulkloader.bean.ImportTargetTableBean;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
+import com.asakusafw.bulkloader.common.ConfigurationLoader;
+import com.asakusafw.bulkloader.common.Constants;
 import com.asakusafw.bulkloader.common.ImportTableLockType;
 import com.asakusafw.bulkloader.common.ImportTableLockedOperation;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.exception.BulkLoaderReRunnableException;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
 import com.asakusafw.testtools.TestUtils;
@@ -1018,6 +1022,99 @@ public class TargetDataLockTest {
         }
     }
 
+    /**
+     * <p>
+     * 正常系：レコードロックをSIDの範囲ごとに記録するケース
+     * 対象外のレコードと他のジョブフローがロック済みのレコードで範囲を区切り、存在しないSIDは範囲に含めてよい。
+     * ・Import対象テーブル：IMPORT_TARGET1
+     * 　- SID（INTDATA1）：1(1),2(1),3(2),5(1),6(1:ロック済み),7(1),8(2),9(2),11(1),13(1)
+     * 　- 検索条件：INTDATA1=1
+     * 　- ロック取得タイプ：行ロック
+     * 　- ロック済みの場合の挙動：処理対象から外す
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void lockTest_range() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT, RecordLockFormat.RANGE.getSymbol());
+        ConfigurationLoader.setProperty(prop);
+
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM RUNNING_JOBFLOWS",
+                "DELETE FROM JOBFLOW_INSTANCE_LOCK",
+                "DELETE FROM IMPORT_RECORD_LOCK",
+                "DELETE FROM IMPORT_RECORD_LOCK_RANGE",
+                "UPDATE IMPORT_TABLE_LOCK SET JOBFLOW_SID=NULL",
+                "DELETE FROM IMPORT_TARGET1",
+                "INSERT INTO IMPORT_TARGET1 (SID, INTDATA1) VALUES "
+                + "(1, 1), (2, 1), (3, 2), (5, 1), (6, 1), (7, 1), (8, 2), (9, 2), (11, 1), (13, 1)",
+                "INSERT INTO IMPORT_RECORD_LOCK_RANGE (TABLE_NAME, FIRST_SID, LAST_SID, JOBFLOW_SID) "
+                + "VALUES ('IMPORT_TARGET1', 6, 6, 999)");
+
+        Map<String, ImportTargetTableBean> targetTable = new LinkedHashMap<>();
+        ImportTargetTableBean tableBean = new ImportTargetTableBean();
+        tableBean.setImportTargetColumns(Arrays.asList(new String[]{"TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        tableBean.setSearchCondition("INTDATA1=1");
+        tableBean.setUseCache(false);
+        tableBean.setLockType(ImportTableLockType.RECORD);
+        tableBean.setLockedOperation(ImportTableLockedOperation.OFF);
+        targetTable.put("IMPORT_TARGET1", tableBean);
+        ImportBean bean = createBean(new String[]{jobflowId, executionId, "20101021221015", "3", "1"}, targetTable);
+
+        TargetDataLock lock = new TargetDataLock();
+        boolean result = lock.lock(bean);
+        assertTrue(result);
+
+        List<String> ranges = UnitTestUtil.selectRows(
+                "SELECT FIRST_SID, LAST_SID FROM IMPORT_RECORD_LOCK_RANGE "
+                + "WHERE TABLE_NAME='IMPORT_TARGET1' AND JOBFLOW_SID<>999 ORDER BY FIRST_SID");
+        assertEquals(Arrays.asList("1,2", "5,5", "7,7", "11,13"), ranges);
+        assertEquals(1, UnitTestUtil.selectRows(
+                "SELECT * FROM IMPORT_RECORD_LOCK WHERE TABLE_NAME='IMPORT_TARGET1' AND JOBFLOW_SID<>999").size());
+    }
+
+    /**
+     * <p>
+     * 正常系：ロック対象のレコードが存在しない場合、範囲を記録しないケース
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void lockTest_range_empty() throws Exception {
+        Properties prop = ConfigurationLoader.getProperty();
+        prop.setProperty(Constants.PROP_KEY_IMP_RECORD_LOCK_FORMAT, RecordLockFormat.RANGE.getSymbol());
+        ConfigurationLoader.setProperty(prop);
+
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM RUNNING_JOBFLOWS",
+                "DELETE FROM JOBFLOW_INSTANCE_LOCK",
+                "DELETE FROM IMPORT_RECORD_LOCK",
+                "DELETE FROM IMPORT_RECORD_LOCK_RANGE",
+                "UPDATE IMPORT_TABLE_LOCK SET JOBFLOW_SID=NULL",
+                "DELETE FROM IMPORT_TARGET1",
+                "INSERT INTO IMPORT_TARGET1 (SID, INTDATA1) VALUES (1, 2), (2, 2)");
+
+        Map<String, ImportTargetTableBean> targetTable = new LinkedHashMap<>();
+        ImportTargetTableBean tableBean = new ImportTargetTableBean();
+        tableBean.setImportTargetColumns(Arrays.asList(new String[]{"TEXTDATA1", "INTDATA1", "DATEDATA1"}));
+        tableBean.setSearchCondition("INTDATA1=1");
+        tableBean.setUseCache(false);
+        tableBean.setLockType(ImportTableLockType.RECORD);
+        tableBean.setLockedOperation(ImportTableLockedOperation.ERROR);
+        targetTable.put("IMPORT_TARGET1", tableBean);
+        ImportBean bean = createBean(new String[]{jobflowId, executionId, "20101021221015", "3", "1"}, targetTable);
+
+        TargetDataLock lock = new TargetDataLock();
+        boolean result = lock.lock(bean);
+        assertTrue(result);
+
+        assertEquals(0, UnitTestUtil.selectRows("SELECT * FROM IMPORT_RECORD_LOCK_RANGE").size());
+        assertEquals(0, UnitTestUtil.selectRows("SELECT * FROM IMPORT_RECORD_LOCK").size());
+    }
+
     /**
      * パラメータを保持するBeanを作成する
      * ・args[0]=ジョブフローID
@@ -1060,4 +1157,24 @@ public class TargetDataLockTest {
         return bean;
     }
 
+    /**
+     * 待ち行列の名前付きロックの名前をテーブルごとに生成する。
+     * @throws Exception if failed
+     */
+    @Test
+    public void getWaitQueueName() throws Exception {
+        assertEquals(
+                TargetDataLock.WAIT_QUEUE_LOCK_PREFIX + "IMPORT_TARGET1",
+                TargetDataLock.getWaitQueueName("IMPORT_TARGET1"));
+
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            buf.append('T');
+        }
+        String longName = TargetDataLock.getWaitQueueName(buf.toString());
+        assertTrue(longName.startsWith(TargetDataLock.WAIT_QUEUE_LOCK_PREFIX));
+        assertTrue(longName.length() <= 64);
+        assertEquals(longName, TargetDataLock.getWaitQueueName(buf.toString()));
+        assertFalse(longName.equals(TargetDataLock.getWaitQueueName(buf.toString() + "X")));
+    }
 }
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.importer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TsvRecordEncoder}.
+ */
+public class TsvRecordEncoderTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TsvRecordEncoder encoder = new TsvRecordEncoder(output, 1024);
+        encoder.writeField(bytes("1"));
+        encoder.writeField(bytes("Hello"));
+        encoder.endRecord();
+        encoder.writeField(bytes("2"));
+        encoder.writeField(bytes("World"));
+        encoder.endRecord();
+        encoder.flush();
+
+        assertThat(string(output), is("1\tHello\n2\tWorld\n"));
+        assertThat(encoder.getRecordCount(), is(2L));
+    }
+
+    /**
+     * null values.
+     * @throws Exception if failed
+     */
+    @Test
+    public void null_value() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TsvRecordEncoder encoder = new TsvRecordEncoder(output, 1024);
+        encoder.writeField(null);
+        encoder.writeField(bytes(""));
+        encoder.writeField(null);
+        encoder.endRecord();
+        encoder.flush();
+
+        assertThat(string(output), is("\\N\t\t\\N\n"));
+    }
+
+    /**
+     * special characters are escaped.
+     * @throws Exception if failed
+     */
+    @Test
+    public void escape() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TsvRecordEncoder encoder = new TsvRecordEncoder(output, 1024);
+        encoder.writeField(bytes("a\tb\nc\\d\0e"));
+        encoder.endRecord();
+        encoder.flush();
+
+        assertThat(string(output), is("a\\\tb\\\nc\\\\d\\0e\n"));
+    }
+
+    /**
+     * contents are larger than the buffer.
+     * @throws Exception if failed
+     */
+    @Test
+    public void small_buffer() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TsvRecordEncoder encoder = new TsvRecordEncoder(output, 2);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            encoder.writeField(bytes(String.valueOf(i)));
+            encoder.writeField(bytes("\t"));
+            encoder.endRecord();
+            expected.append(i).append("\t\\\t\n");
+        }
+        encoder.flush();
+
+        assertThat(string(output), is(expected.toString()));
+        assertThat(encoder.getRecordCount(), is(100L));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteArrayOutputStream output) {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
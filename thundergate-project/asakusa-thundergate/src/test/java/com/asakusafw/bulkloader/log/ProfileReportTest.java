@@ -0,0 +1,119 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.log;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.bulkloader.log.ProfileReport.Phase;
+
+/**
+ * Test for {@link ProfileReport}.
+ */
+public class ProfileReportTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * writes profiles as CSV.
+     * @throws Exception if failed
+     */
+    @Test
+    public void write() throws Exception {
+        ProfileReport report = new ProfileReport("importer", "tgt", "b", "f", "e", 0L);
+        report.add(Phase.LOCK, null, 100, ProfileReport.UNKNOWN, ProfileReport.UNKNOWN);
+        report.add(Phase.SEND, "T1", 2000, 4000, 10);
+        report.add(Phase.SEND, "T1", 2000, 4000, ProfileReport.UNKNOWN);
+
+        StringWriter writer = new StringWriter();
+        report.write(writer, 0, 5000);
+        String[] lines = writer.toString().split("\n");
+        assertThat(lines.length, is(4));
+        assertThat(lines[0], is(ProfileReport.HEADER));
+        assertThat(lines[1], endsWith(",importer,tgt,b,f,e,0,LOCK,-,100,,,,"));
+        assertThat(lines[2], endsWith(",importer,tgt,b,f,e,0,SEND,T1,4000,8000,10,2000,2"));
+        assertThat(lines[3], endsWith(",importer,tgt,b,f,e,0,TOTAL,-,5000,,,,"));
+    }
+
+    /**
+     * escapes fields.
+     * @throws Exception if failed
+     */
+    @Test
+    public void write_escape() throws Exception {
+        ProfileReport report = new ProfileReport("exporter", "t,g", "b\"c", "f", "e", 0L);
+        StringWriter writer = new StringWriter();
+        report.write(writer, 1, 0);
+        String[] lines = writer.toString().split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[1], endsWith(",exporter,\"t,g\",\"b\"\"c\",f,e,1,TOTAL,-,0,,,,"));
+    }
+
+    /**
+     * file names only consist of safe characters.
+     */
+    @Test
+    public void getFileName() {
+        ProfileReport report = new ProfileReport("importer", "tgt", "b", "f", "a/b c", 0L);
+        String name = report.getFileName(0L);
+        assertThat(name, startsWith(ProfileReport.FILE_PREFIX + "importer-a_b_c-"));
+        assertThat(name, endsWith(ProfileReport.FILE_SUFFIX));
+    }
+
+    /**
+     * writes the report of the current process.
+     * @throws Exception if failed
+     */
+    @Test
+    public void finish() throws Exception {
+        File directory = new File(folder.getRoot(), "profile");
+        ProfileReport.begin("extractor", "tgt", "b", "f", "e");
+        ProfileReport.record(Phase.EXTRACT, "T1", 10, ProfileReport.UNKNOWN, 5);
+        File file = ProfileReport.finish(0, directory.getPath());
+        assertThat(file, is(notNullValue()));
+        assertThat(file.getParentFile(), is(directory));
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines.size(), is(3));
+        assertThat(lines.get(1), containsString(",extractor,tgt,b,f,e,0,EXTRACT,T1,10,,5,"));
+
+        // already finished
+        assertThat(ProfileReport.finish(0, directory.getPath()), is(nullValue()));
+    }
+
+    /**
+     * profiles are ignored if the report has not been started.
+     */
+    @Test
+    public void finish_not_started() {
+        ProfileReport.record(Phase.LOAD, "T1", 10, ProfileReport.UNKNOWN, 5);
+        assertThat(ProfileReport.finish(0, folder.getRoot().getPath()), is(nullValue()));
+    }
+}
@@ -31,8 +31,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -259,6 +261,61 @@ public class UnitTestUtil {
             DBConnection.closeConn(conn);
         }
     }
+    /**
+     * 更新系のSQLを順に実行してコミットする
+     * @param sqls SQL
+     */
+    public static void executeAndCommit(String... sqls) throws Exception {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            for (String sql : sqls) {
+                PreparedStatement stmt = null;
+                try {
+                    printLog("executeUpdateを実行します。SQL：" + sql, "executeAndCommit");
+                    stmt = conn.prepareStatement(sql);
+                    stmt.executeUpdate();
+                } finally {
+                    DBConnection.closePs(stmt);
+                }
+            }
+            DBConnection.commit(conn);
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+    }
+    /**
+     * 検索系のSQLを実行し、各行の値をカンマ区切りの文字列で返す
+     * @param sql SQL
+     * @return 各行の値
+     */
+    public static List<String> selectRows(String sql) throws Exception {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            int columns = rs.getMetaData().getColumnCount();
+            List<String> results = new ArrayList<>();
+            while (rs.next()) {
+                StringBuilder buf = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) {
+                        buf.append(",");
+                    }
+                    buf.append(rs.getString(i));
+                }
+                results.add(buf.toString());
+            }
+            return results;
+        } finally {
+            DBConnection.closeRs(rs);
+            DBConnection.closePs(stmt);
+            DBConnection.closeConn(conn);
+        }
+    }
     /**
      * テーブルが存在するか確認する
      * @param tableName
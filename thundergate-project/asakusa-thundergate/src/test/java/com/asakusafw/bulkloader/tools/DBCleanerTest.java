@@ -19,6 +19,7 @@ package com.asakusafw.bulkloader.tools;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.sql.Connection;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -32,6 +33,8 @@ import org.junit.Test;
 import com.asakusafw.bulkloader.common.BulkLoaderInitializer;
 import com.asakusafw.bulkloader.common.ConfigurationLoader;
 import com.asakusafw.bulkloader.common.Constants;
+import com.asakusafw.bulkloader.common.DBConnection;
+import com.asakusafw.bulkloader.common.RecordLockFormat;
 import com.asakusafw.bulkloader.testutil.UnitTestUtil;
 import com.asakusafw.testtools.TestUtils;
 import com.asakusafw.testtools.inspect.Cause;
@@ -308,6 +311,53 @@ public class DBCleanerTest {
         assertFalse(UnitTestUtil.isExistTable("TEMP_IMPORT_TARGET1_DF"));
         assertFalse(UnitTestUtil.isExistTable("TEMP_IMPORT_TARGET2"));
     }
+    /**
+     * <p>
+     * lockReleaseメソッドのテストケース
+     *
+     * 正常系：SIDの範囲ごとに記録されたレコードロックを削除するケース
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void lockRelease_range() throws Exception {
+        UnitTestUtil.executeAndCommit(
+                "DELETE FROM IMPORT_RECORD_LOCK_RANGE",
+                "INSERT INTO IMPORT_RECORD_LOCK_RANGE (TABLE_NAME, FIRST_SID, LAST_SID, JOBFLOW_SID) VALUES "
+                + "('IMPORT_TARGET1', 1, 3, 11), ('IMPORT_TARGET2', 5, 8, 12)");
+
+        Connection conn = DBConnection.getConnection();
+        try {
+            DBCleaner.lockRelease(conn, RecordLockFormat.RANGE);
+            conn.commit();
+        } finally {
+            DBConnection.closeConn(conn);
+        }
+        assertEquals(0, UnitTestUtil.selectRows("SELECT * FROM IMPORT_RECORD_LOCK_RANGE").size());
+    }
+    /**
+     * <p>
+     * lockReleaseメソッドのテストケース
+     *
+     * 正常系：レコードごとに記録する場合、レコードロック範囲テーブルを参照しないケース
+     *
+     * </p>
+     *
+     * @throws Exception
+     */
+    @Test
+    public void lockRelease_row_without_range_table() throws Exception {
+        UnitTestUtil.executeUpdate("RENAME TABLE IMPORT_RECORD_LOCK_RANGE TO IMPORT_RECORD_LOCK_RANGE_BAK");
+        Connection conn = DBConnection.getConnection();
+        try {
+            DBCleaner.lockRelease(conn, RecordLockFormat.ROW);
+        } finally {
+            DBConnection.closeConn(conn);
+            UnitTestUtil.executeUpdate("RENAME TABLE IMPORT_RECORD_LOCK_RANGE_BAK TO IMPORT_RECORD_LOCK_RANGE");
+        }
+    }
     private void createTempTable1() throws Exception {
         String dropTemp1Sql = "DROP TABLE IF EXISTS TEMP_IMPORT_TARGET1";
         String dropDup1Sql = "DROP TABLE IF EXISTS TEMP_IMPORT_TARGET1_DF";
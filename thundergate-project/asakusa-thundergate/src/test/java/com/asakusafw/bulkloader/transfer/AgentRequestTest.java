@@ -0,0 +1,87 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link AgentRequest}.
+ */
+public class AgentRequestTest {
+
+    /**
+     * simple round trip.
+     * @throws Exception if failed
+     */
+    @Test
+    public void roundtrip() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        new AgentRequest("s3cret", "get-cache-info", Arrays.asList("a", "b", "c")).writeTo(buf);
+        buf.write(new byte[] { 1, 2, 3 });
+
+        ByteArrayInputStream in = new ByteArrayInputStream(buf.toByteArray());
+        AgentRequest restored = AgentRequest.readFrom(in);
+        assertThat(restored.getSecret(), is("s3cret"));
+        assertThat(restored.getService(), is("get-cache-info"));
+        assertThat(restored.getArguments(), contains("a", "b", "c"));
+
+        // rest contents must be kept for the following file list
+        assertThat(in.available(), is(3));
+    }
+
+    /**
+     * request without secret.
+     * @throws Exception if failed
+     */
+    @Test
+    public void no_secret() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        new AgentRequest(null, "delete-cache-storage", Arrays.asList("a")).writeTo(buf);
+
+        AgentRequest restored = AgentRequest.readFrom(new ByteArrayInputStream(buf.toByteArray()));
+        assertThat(restored.getSecret(), is(""));
+        assertThat(restored.getArguments(), contains("a"));
+    }
+
+    /**
+     * invalid header.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void invalid_magic() throws Exception {
+        AgentRequest.readFrom(new ByteArrayInputStream(new byte[] { 0, 3, 'a', 'b', 'c' }));
+    }
+
+    /**
+     * truncated header.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void truncated() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        new AgentRequest(null, "delete-cache-storage", Arrays.asList("a")).writeTo(buf);
+        byte[] bytes = Arrays.copyOf(buf.toByteArray(), buf.size() - 1);
+        AgentRequest.readFrom(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.asakusafw.bulkloader.common.FileCompType;
+
+/**
+ * Test for {@link FileList}.
+ */
+public class FileListTest {
+
+    /**
+     * stored file list.
+     * @throws Exception if failed
+     */
+    @Test
+    public void stored() throws Exception {
+        Map<String, String> contents = contents();
+        byte[] bytes = write(FileCompType.STORED, FileList.DEFAULT_LEVEL, contents);
+        assertThat(read(bytes), is(contents));
+    }
+
+    /**
+     * deflated file list with compression levels.
+     * @throws Exception if failed
+     */
+    @Test
+    public void deflated_level() throws Exception {
+        Map<String, String> contents = contents();
+        byte[] fast = write(FileCompType.DEFLATED, 1, contents);
+        byte[] best = write(FileCompType.DEFLATED, 9, contents);
+        assertThat(read(fast), is(contents));
+        assertThat(read(best), is(contents));
+
+        byte[] stored = write(FileCompType.STORED, FileList.DEFAULT_LEVEL, contents);
+        assertThat(best.length, lessThan(stored.length));
+    }
+
+    /**
+     * file list with LZ4, only if the codec is available.
+     * @throws Exception if failed
+     */
+    @Test
+    public void block_codec_lz4() throws Exception {
+        checkBlockCodec(FileCompType.LZ4);
+    }
+
+    /**
+     * file list with Snappy, only if the codec is available.
+     * @throws Exception if failed
+     */
+    @Test
+    public void block_codec_snappy() throws Exception {
+        checkBlockCodec(FileCompType.SNAPPY);
+    }
+
+    /**
+     * zip compression types are always available.
+     */
+    @Test
+    public void isAvailable_zip() {
+        assertThat(FileList.isAvailable(FileCompType.STORED), is(true));
+        assertThat(FileList.isAvailable(FileCompType.DEFLATED), is(true));
+    }
+
+    private void checkBlockCodec(FileCompType compType) throws IOException {
+        Assume.assumeTrue(compType + " is not available", FileList.isAvailable(compType));
+        Map<String, String> contents = contents();
+        byte[] bytes = write(compType, FileList.DEFAULT_LEVEL, contents);
+        assertThat(read(bytes), is(contents));
+        byte[] chunked = write(compType, FileList.DEFAULT_LEVEL, 100, contents);
+        assertThat(read(chunked), is(contents));
+    }
+
+    /**
+     * chunked file list.
+     * @throws Exception if failed
+     */
+    @Test
+    public void chunked() throws Exception {
+        Map<String, String> contents = contents();
+        for (FileCompType compType : new FileCompType[] { FileCompType.STORED, FileCompType.DEFLATED }) {
+            byte[] bytes = write(compType, FileList.DEFAULT_LEVEL, 100, contents);
+            assertThat(read(bytes), is(contents));
+        }
+    }
+
+    /**
+     * chunked file list is broken.
+     * @throws Exception if failed
+     */
+    @Test
+    public void chunked_broken() throws Exception {
+        Map<String, String> contents = contents();
+        byte[] bytes = write(FileCompType.STORED, FileList.DEFAULT_LEVEL, 100, contents);
+        byte[] target = "500\tHello".getBytes(StandardCharsets.UTF_8);
+        int offset = indexOf(bytes, target);
+        assertThat(offset, greaterThanOrEqualTo(0));
+        bytes[offset] = 'X';
+        try {
+            read(bytes);
+            fail();
+        } catch (IOException e) {
+            // ok.
+        }
+    }
+
+    /**
+     * chunked file list is truncated.
+     * @throws Exception if failed
+     */
+    @Test
+    public void chunked_truncated() throws Exception {
+        Map<String, String> contents = contents();
+        byte[] bytes = write(FileCompType.STORED, FileList.DEFAULT_LEVEL, 100, contents);
+        try {
+            read(Arrays.copyOf(bytes, bytes.length / 2));
+            fail();
+        } catch (IOException e) {
+            // ok.
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0, n = bytes.length - target.length; i <= n; i++) {
+            boolean matched = true;
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Map<String, String> contents() {
+        Map<String, String> results = new LinkedHashMap<>();
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            buf.append(i).append("\tHello, world!\n");
+        }
+        results.put("a.tsv", buf.toString());
+        results.put("b.tsv", "");
+        results.put("c.tsv", "Hello!\n");
+        return results;
+    }
+
+    private byte[] write(FileCompType compType, int level, Map<String, String> contents) throws IOException {
+        return write(compType, level, 0, contents);
+    }
+
+    private byte[] write(
+            FileCompType compType, int level, int chunkSize,
+            Map<String, String> contents) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FileList.Writer writer = FileList.createWriter(output, compType, level)) {
+            writer.setChunkSize(chunkSize);
+            for (Map.Entry<String, String> entry : contents.entrySet()) {
+                try (OutputStream content = writer.openNext(FileList.content(entry.getKey()))) {
+                    content.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private Map<String, String> read(byte[] bytes) throws IOException {
+        Map<String, String> results = new LinkedHashMap<>();
+        try (FileList.Reader reader = FileList.createReader(new ByteArrayInputStream(bytes))) {
+            while (reader.next()) {
+                String name = reader.getCurrentProtocol().getLocation();
+                try (InputStream content = reader.openContent()) {
+                    results.put(name, new String(IOUtils.toByteArray(content), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.bulkloader.transfer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TransferJournal}.
+ */
+public class TransferJournalTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (TransferJournal journal = new TransferJournal(output)) {
+            journal.append("a", "1");
+            journal.append("b", "");
+        }
+        List<String[]> records = TransferJournal.load(new ByteArrayInputStream(output.toByteArray()));
+        assertThat(records, hasSize(2));
+        assertThat(Arrays.asList(records.get(0)), contains("a", "1"));
+        assertThat(Arrays.asList(records.get(1)), contains("b", ""));
+    }
+
+    /**
+     * journal with a partially written record.
+     * @throws Exception if failed
+     */
+    @Test
+    public void torn() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (TransferJournal journal = new TransferJournal(output)) {
+            journal.append("a", "1");
+            journal.append("b", "2");
+        }
+        byte[] bytes = output.toByteArray();
+        byte[] torn = Arrays.copyOf(bytes, bytes.length - 3);
+        List<String[]> records = TransferJournal.load(new ByteArrayInputStream(torn));
+        assertThat(records, hasSize(1));
+        assertThat(Arrays.asList(records.get(0)), contains("a", "1"));
+    }
+
+    /**
+     * invalid fields.
+     * @throws Exception if failed
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_field() throws Exception {
+        try (TransferJournal journal = new TransferJournal(new ByteArrayOutputStream())) {
+            journal.append("a\tb");
+        }
+    }
+}